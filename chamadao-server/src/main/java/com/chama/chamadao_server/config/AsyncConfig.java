@@ -0,0 +1,106 @@
+package com.chama.chamadao_server.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration class for the executors used by background work
+ * Each upstream gets its own bounded pool so a slow dependency cannot exhaust the request threads
+ */
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Executor for asynchronous STK push and B2C requests
+     * The queue is bounded; submissions beyond it are rejected rather than buffered without limit.
+     * @param mpesaConfig The M-Pesa configuration holding the pool and queue sizes
+     * @return The executor
+     */
+    @Bean(name = "darajaExecutor")
+    public ThreadPoolTaskExecutor darajaExecutor(MPesaConfig mpesaConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mpesaConfig.getRequestPoolSize());
+        executor.setMaxPoolSize(mpesaConfig.getRequestPoolSize());
+        executor.setQueueCapacity(mpesaConfig.getRequestQueueCapacity());
+        executor.setThreadNamePrefix("daraja-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor running the callback inbox workers, one task per worker partition
+     * @param mpesaConfig The M-Pesa configuration holding the number of workers
+     * @return The executor
+     */
+    @Bean(name = "callbackInboxExecutor")
+    public ThreadPoolTaskExecutor callbackInboxExecutor(MPesaConfig mpesaConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mpesaConfig.getInboxWorkers());
+        executor.setMaxPoolSize(mpesaConfig.getInboxWorkers());
+        executor.setQueueCapacity(mpesaConfig.getInboxWorkers());
+        executor.setThreadNamePrefix("callback-inbox-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor running payout runs, one task per run
+     * Has no queue, so a run that finds every worker busy stays due and is picked up by a later poll.
+     * @param mpesaConfig The M-Pesa configuration holding the number of workers
+     * @return The executor
+     */
+    @Bean(name = "payoutExecutor")
+    public ThreadPoolTaskExecutor payoutExecutor(MPesaConfig mpesaConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mpesaConfig.getPayoutWorkers());
+        executor.setMaxPoolSize(mpesaConfig.getPayoutWorkers());
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("payout-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for blocking blockchain transfers
+     * Keeps the send-and-wait-for-receipt calls off the common ForkJoin pool. The queue is bounded and
+     * submissions beyond it are rejected, so the caller keeps the transfer pending instead.
+     * @param blockchainConfig The blockchain configuration holding the pool and queue sizes
+     * @return The executor
+     */
+    @Bean(name = "blockchainTransferExecutor")
+    public ThreadPoolTaskExecutor blockchainTransferExecutor(BlockchainConfig blockchainConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(blockchainConfig.getTransferPoolSize());
+        executor.setMaxPoolSize(blockchainConfig.getTransferPoolSize());
+        executor.setQueueCapacity(blockchainConfig.getTransferQueueCapacity());
+        executor.setThreadNamePrefix("usdt-transfer-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for hedged JSON-RPC reads
+     * Has no queue, so a read that finds every thread busy is sent without a hedge instead of waiting.
+     * @param blockchainConfig The blockchain configuration holding the pool size
+     * @return The executor
+     */
+    @Bean(name = "rpcHedgeExecutor")
+    public ThreadPoolTaskExecutor rpcHedgeExecutor(BlockchainConfig blockchainConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(0);
+        executor.setMaxPoolSize(blockchainConfig.getRpcHedgePoolSize());
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("rpc-hedge-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,48 @@
+package com.chama.chamadao_server.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for wallet-signature sign-in
+ * Read by {@link com.chama.chamadao_server.services.WalletSessionService}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "auth")
+@Data
+public class AuthConfig {
+
+    /**
+     * Seconds a sign-in challenge can be signed and returned in
+     */
+    private long challengeTtlSeconds = 300;
+
+    /**
+     * Seconds a session token stays valid after sign-in
+     */
+    private long sessionTtlSeconds = 3600;
+
+    /**
+     * Maximum number of unanswered challenges held before new ones are refused
+     */
+    private int maxPendingChallenges = 100000;
+
+    /**
+     * Challenges one client may request per window, so a single client cannot fill the challenge store
+     */
+    private int challengesPerClient = 20;
+
+    /**
+     * Length of the per-client challenge window in seconds
+     */
+    private long challengeWindowSeconds = 60;
+
+    /**
+     * Wallets allowed to use the admin endpoints and to manage any chama's payouts
+     */
+    private List<String> adminWallets = new ArrayList<>();
+}
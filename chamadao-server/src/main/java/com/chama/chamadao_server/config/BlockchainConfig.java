@@ -0,0 +1,135 @@
+package com.chama.chamadao_server.config;
+
+import com.chama.chamadao_server.services.HotWalletPool;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for the blockchain integration
+ * The RPC endpoint, wallet and contract are read by {@link com.chama.chamadao_server.services.BlockchainService} directly.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "blockchain")
+@Data
+public class BlockchainConfig {
+
+    /**
+     * Number of threads sending blockchain transfers
+     */
+    private int transferPoolSize = 4;
+
+    /**
+     * Maximum number of transfers waiting for a thread before new ones are rejected
+     */
+    private int transferQueueCapacity = 100;
+
+    /**
+     * Maximum number of outbox transfers in flight at once
+     */
+    private int outboxBatchSize = 20;
+
+    /**
+     * Attempts before a transfer that could not reach the node is parked as failed
+     */
+    private int outboxMaxAttempts = 5;
+
+    /**
+     * Base delay, in milliseconds, before a transfer is retried; multiplied by the attempt count
+     */
+    private long outboxRetryDelayMs = 5000;
+
+    /**
+     * Seconds after which a transfer still marked as sending is considered interrupted
+     */
+    private long outboxSendTimeoutSeconds = 600;
+
+    /**
+     * Number of blocks, including its own, a transfer must be buried under to count as confirmed
+     */
+    private int confirmationDepth = 12;
+
+    /**
+     * Number of receipts requested per JSON-RPC batch request
+     */
+    private int confirmationBatchSize = 100;
+
+    /**
+     * Private keys of the hot wallets transfers are sent from; when empty, blockchain.wallet.private-key is the only one
+     */
+    private List<String> walletPrivateKeys = new ArrayList<>();
+
+    /**
+     * How transfers are assigned to hot wallets: LEAST_PENDING or RECIPIENT_HASH
+     */
+    private HotWalletPool.Selection walletSelection = HotWalletPool.Selection.LEAST_PENDING;
+
+    /**
+     * Balance, in ETH, below which a hot wallet is taken out of rotation
+     */
+    private BigDecimal walletMinBalanceEth = new BigDecimal("0.05");
+
+    /**
+     * JSON-RPC endpoints calls are routed across; when empty, blockchain.rpc.url is the only one
+     */
+    private List<String> rpcUrls = new ArrayList<>();
+
+    /**
+     * Milliseconds a latency-critical read waits for the fastest node before it is also sent to the next one
+     */
+    private long rpcHedgeDelayMs = 250;
+
+    /**
+     * Moving average error rate above which an RPC endpoint stops taking requests
+     */
+    private double rpcMaxErrorRate = 0.5;
+
+    /**
+     * Milliseconds a failing RPC endpoint is skipped before it is probed again
+     */
+    private long rpcUnhealthyCooldownMs = 30000;
+
+    /**
+     * Maximum number of threads sending hedged RPC reads
+     */
+    private int rpcHedgePoolSize = 16;
+
+    /**
+     * Whether the USDT transfer log indexer runs
+     */
+    private boolean indexerEnabled = true;
+
+    /**
+     * First block the USDT transfer indexer reads; 0 starts from the head at the first run
+     */
+    private long indexerStartBlock = 0;
+
+    /**
+     * Number of blocks requested per eth_getLogs call
+     */
+    private int indexerChunkSize = 2000;
+
+    /**
+     * Number of blocks re-indexed after a reorg is detected
+     */
+    private int indexerReorgDepth = 12;
+
+    /**
+     * Maximum number of wallet balances cached before the balance cache is cleared
+     */
+    private int balanceCacheMaxEntries = 10000;
+
+    /**
+     * Number of watched addresses the address filter is first sized for; it doubles when outgrown
+     */
+    private int watcherExpectedAddresses = 10000;
+
+    /**
+     * Share of unwatched addresses the address filter may let through to the exact lookup
+     */
+    private double watcherFalsePositiveRate = 0.001;
+}
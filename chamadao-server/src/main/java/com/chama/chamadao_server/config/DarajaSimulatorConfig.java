@@ -0,0 +1,67 @@
+package com.chama.chamadao_server.config;
+
+import com.chama.chamadao_server.simulator.DarajaSimulator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+
+import java.io.IOException;
+
+/**
+ * Configuration for running against the local Daraja simulator instead of the Safaricom sandbox
+ * Enabled with the {@code daraja-sim} profile. The M-Pesa API URLs are pointed at the simulator and,
+ * once the web server is up, the callback URLs are pointed back at this application.
+ */
+@Configuration
+@Profile("daraja-sim")
+@RequiredArgsConstructor
+@Slf4j
+public class DarajaSimulatorConfig {
+
+    private final MPesaConfig mpesaConfig;
+
+    /**
+     * Simulator behaviour, bound from the daraja-sim.* properties
+     * @return The simulator settings
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "daraja-sim")
+    public DarajaSimulator.Settings darajaSimulatorSettings() {
+        return new DarajaSimulator.Settings();
+    }
+
+    /**
+     * The running simulator
+     * @param settings The simulator settings
+     * @param port The port to listen on, 0 for any free port
+     * @return The started simulator
+     * @throws IOException if the simulator cannot be started
+     */
+    @Bean(destroyMethod = "stop")
+    public DarajaSimulator darajaSimulator(DarajaSimulator.Settings settings,
+                                           @Value("${daraja-sim.port:0}") int port) throws IOException {
+        DarajaSimulator simulator = new DarajaSimulator(settings);
+        simulator.start(port);
+        simulator.applyTo(mpesaConfig);
+        return simulator;
+    }
+
+    /**
+     * Deliver the simulator's callbacks to this application's callback endpoints
+     * @param event The web server initialized event, carrying the local port
+     */
+    @EventListener
+    public void onWebServerInitialized(WebServerInitializedEvent event) {
+        String baseUrl = "http://127.0.0.1:" + event.getWebServer().getPort() + "/api/v1/payments/mpesa";
+        mpesaConfig.setCallbackUrl(baseUrl + "/stk-callback");
+        mpesaConfig.setResultUrl(baseUrl + "/b2c-callback");
+        mpesaConfig.setTimeoutUrl(baseUrl + "/b2c-callback");
+        log.info("M-Pesa callbacks will be delivered to {}", baseUrl);
+    }
+}
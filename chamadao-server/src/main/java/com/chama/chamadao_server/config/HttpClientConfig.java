@@ -0,0 +1,107 @@
+package com.chama.chamadao_server.config;
+
+import com.chama.chamadao_server.services.DarajaResilience;
+import com.chama.chamadao_server.services.OutboundHttpMetrics;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration class for the outbound HTTP clients
+ * Each upstream gets one shared client with its own connection pool, dispatcher and timeouts, so keep-alive
+ * connections are reused across requests and a slow upstream cannot hold the connections of another.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    public static final String DARAJA = "daraja";
+    public static final String FX = "fx";
+    public static final String RPC = "rpc";
+
+    /**
+     * Client for the M-Pesa Daraja API
+     * Calls pass the Daraja circuit breaker and concurrency limit before they are timed by the metrics.
+     * @param properties The HTTP client properties
+     * @param metrics The outbound HTTP metrics
+     * @param darajaResilience The Daraja circuit breaker and concurrency limit
+     * @return The client
+     */
+    @Bean(name = "darajaHttpClient")
+    public OkHttpClient darajaHttpClient(HttpClientProperties properties, OutboundHttpMetrics metrics,
+                                         DarajaResilience darajaResilience) {
+        return buildClient(DARAJA, properties.forClient(DARAJA), metrics, darajaResilience.interceptor());
+    }
+
+    /**
+     * Client for the exchange rate API
+     * @param properties The HTTP client properties
+     * @param metrics The outbound HTTP metrics
+     * @return The client
+     */
+    @Bean(name = "fxHttpClient")
+    public OkHttpClient fxHttpClient(HttpClientProperties properties, OutboundHttpMetrics metrics) {
+        return buildClient(FX, properties.forClient(FX), metrics);
+    }
+
+    /**
+     * Client for the blockchain JSON-RPC endpoint
+     * @param properties The HTTP client properties
+     * @param metrics The outbound HTTP metrics
+     * @return The client
+     */
+    @Bean(name = "rpcHttpClient")
+    public OkHttpClient rpcHttpClient(HttpClientProperties properties, OutboundHttpMetrics metrics) {
+        return buildClient(RPC, properties.forClient(RPC), metrics);
+    }
+
+    /**
+     * RestTemplate for the exchange rate API, backed by the shared fx client
+     * Spring deprecates its OkHttp request factory, but it remains the only way to put a RestTemplate on
+     * the same pooled and instrumented client as the other upstreams with the OkHttp version in use.
+     * @param fxHttpClient The fx client
+     * @return The RestTemplate
+     */
+    @Bean(name = "fxRestTemplate")
+    @SuppressWarnings("removal")
+    public RestTemplate fxRestTemplate(@Qualifier("fxHttpClient") OkHttpClient fxHttpClient) {
+        return new RestTemplate(new OkHttp3ClientHttpRequestFactory(fxHttpClient));
+    }
+
+    private OkHttpClient buildClient(String name, HttpClientProperties.Client settings, OutboundHttpMetrics metrics,
+                                     Interceptor... interceptors) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(settings.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(settings.getMaxRequestsPerHost());
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        for (Interceptor interceptor : interceptors) {
+            builder.addInterceptor(interceptor);
+        }
+        OkHttpClient client = builder
+                .connectionPool(new ConnectionPool(
+                        settings.getMaxIdleConnections(), settings.getKeepAliveSeconds(), TimeUnit.SECONDS))
+                .dispatcher(dispatcher)
+                .protocols(settings.isHttp2()
+                        ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                        : List.of(Protocol.HTTP_1_1))
+                .connectTimeout(Duration.ofMillis(settings.getConnectTimeoutMs()))
+                .readTimeout(Duration.ofMillis(settings.getReadTimeoutMs()))
+                .writeTimeout(Duration.ofMillis(settings.getWriteTimeoutMs()))
+                .callTimeout(Duration.ofMillis(settings.getCallTimeoutMs()))
+                .addInterceptor(metrics.interceptor(name))
+                .build();
+        metrics.register(name, client);
+        return client;
+    }
+}
@@ -0,0 +1,84 @@
+package com.chama.chamadao_server.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the outbound HTTP clients
+ * Each upstream (daraja, fx, rpc) has its own entry under http.clients.&lt;name&gt;; unset values use the defaults below.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "http")
+@Data
+public class HttpClientProperties {
+
+    /**
+     * Settings per named client
+     */
+    private Map<String, Client> clients = new HashMap<>();
+
+    /**
+     * Get the settings of a client, falling back to the defaults if it is not configured
+     * @param name The client name
+     * @return The client settings
+     */
+    public Client forClient(String name) {
+        return clients.getOrDefault(name, new Client());
+    }
+
+    /**
+     * Settings of one outbound HTTP client
+     */
+    @Data
+    public static class Client {
+
+        /**
+         * Timeout for establishing a connection, in milliseconds
+         */
+        private long connectTimeoutMs = 5000;
+
+        /**
+         * Timeout between bytes of a response, in milliseconds
+         */
+        private long readTimeoutMs = 30000;
+
+        /**
+         * Timeout between bytes of a request, in milliseconds
+         */
+        private long writeTimeoutMs = 30000;
+
+        /**
+         * Timeout for a whole call including retries and redirects, in milliseconds; 0 for none
+         */
+        private long callTimeoutMs = 60000;
+
+        /**
+         * Maximum number of idle connections kept in the pool
+         */
+        private int maxIdleConnections = 10;
+
+        /**
+         * How long an idle connection is kept alive, in seconds
+         */
+        private long keepAliveSeconds = 300;
+
+        /**
+         * Maximum number of concurrent asynchronous calls
+         */
+        private int maxRequests = 64;
+
+        /**
+         * Maximum number of concurrent asynchronous calls per host
+         */
+        private int maxRequestsPerHost = 16;
+
+        /**
+         * Whether to negotiate HTTP/2 with hosts that support it
+         */
+        private boolean http2 = true;
+    }
+}
@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Configuration properties for M-Pesa API integration
  */
@@ -42,6 +45,11 @@ public class MPesaConfig {
      */
     private String callbackUrl;
 
+    /**
+     * M-Pesa API B2C result URL; B2C results are sent to the callback URL when not set
+     */
+    private String resultUrl;
+
     /**
      * M-Pesa API timeout URL
      */
@@ -76,4 +84,149 @@ public class MPesaConfig {
      * M-Pesa API transaction description
      */
     private String transactionDescription;
-}
\ No newline at end of file
+
+    /**
+     * Seconds before the access token's expires_in at which a cached token is no longer handed out
+     */
+    private long tokenExpirySkewSeconds = 60;
+
+    /**
+     * Seconds before expiry at which the background job refreshes the cached access token
+     */
+    private long tokenRefreshAheadSeconds = 300;
+
+    /**
+     * Number of worker threads sending asynchronous STK push and B2C requests
+     */
+    private int requestPoolSize = 8;
+
+    /**
+     * Maximum number of asynchronous M-Pesa requests waiting for a worker before new ones are rejected
+     */
+    private int requestQueueCapacity = 500;
+
+    /**
+     * Retry-After hint, in seconds, returned when the M-Pesa request queue is full
+     */
+    private long requestRetryAfterSeconds = 5;
+
+    /**
+     * Number of workers draining the callback inbox
+     */
+    private int inboxWorkers = 4;
+
+    /**
+     * Number of callbacks each worker processes per database transaction
+     */
+    private int inboxBatchSize = 50;
+
+    /**
+     * Attempts before a callback is parked as failed for manual replay
+     */
+    private int inboxMaxAttempts = 5;
+
+    /**
+     * Base delay, in milliseconds, before a callback is retried; multiplied by the attempt count
+     */
+    private long inboxRetryDelayMs = 2000;
+
+    /**
+     * Seconds a worker may hold a claimed callback before it is released to other workers, e.g. after a crash
+     */
+    private long inboxClaimLeaseSeconds = 300;
+
+    /**
+     * B2C requests per second allowed for a shortcode that has no entry in b2cShortcodeRequestsPerSecond
+     */
+    private double b2cRequestsPerSecond = 5;
+
+    /**
+     * B2C requests per second allowed per shortcode, overriding b2cRequestsPerSecond
+     */
+    private Map<String, Double> b2cShortcodeRequestsPerSecond = new HashMap<>();
+
+    /**
+     * Number of payout recipients submitted together before the run checks its progress
+     */
+    private int payoutBatchSize = 50;
+
+    /**
+     * Number of payout runs executed at once; further due runs wait for the next poll
+     */
+    private int payoutWorkers = 2;
+
+    /**
+     * Seconds a submitted payout waits for its B2C callback before the recipient is parked for review
+     */
+    private long payoutCallbackTimeoutSeconds = 1800;
+
+    /**
+     * Seconds a deposit must have been pending before reconciliation queries its STK push status
+     */
+    private long reconciliationMinAgeSeconds = 120;
+
+    /**
+     * Number of pending deposits loaded per reconciliation page
+     */
+    private int reconciliationBatchSize = 100;
+
+    /**
+     * Maximum number of STK push status queries in flight at once
+     */
+    private int reconciliationConcurrency = 4;
+
+    /**
+     * Seconds after which a pending deposit that M-Pesa never acknowledged is failed by reconciliation
+     */
+    private long reconciliationUnacknowledgedTimeoutSeconds = 900;
+
+    /**
+     * Failure rate, between 0 and 1, over the circuit breaker window at which calls to M-Pesa are stopped
+     */
+    private double circuitBreakerFailureRateThreshold = 0.5;
+
+    /**
+     * Number of most recent M-Pesa calls the circuit breaker computes the failure rate over
+     */
+    private int circuitBreakerWindowSize = 50;
+
+    /**
+     * Calls that must be recorded before the circuit breaker can open
+     */
+    private int circuitBreakerMinimumCalls = 20;
+
+    /**
+     * Seconds the circuit breaker rejects calls before letting trial calls through
+     */
+    private long circuitBreakerOpenSeconds = 30;
+
+    /**
+     * Trial calls that must succeed before the circuit breaker closes again
+     */
+    private int circuitBreakerHalfOpenCalls = 3;
+
+    /**
+     * Initial number of M-Pesa calls allowed in flight at once
+     */
+    private int concurrencyLimitInitial = 20;
+
+    /**
+     * Lower bound of the adaptive concurrency limit
+     */
+    private int concurrencyLimitMin = 2;
+
+    /**
+     * Upper bound of the adaptive concurrency limit
+     */
+    private int concurrencyLimitMax = 100;
+
+    /**
+     * Ratio of short-term to long-term average latency above which the concurrency limit is reduced
+     */
+    private double concurrencyLimitLatencyTolerance = 2.0;
+
+    /**
+     * Factor the concurrency limit is multiplied by when a call fails or latency rises
+     */
+    private double concurrencyLimitBackoffRatio = 0.9;
+}
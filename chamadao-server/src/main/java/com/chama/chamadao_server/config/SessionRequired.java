@@ -0,0 +1,22 @@
+package com.chama.chamadao_server.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an endpoint that needs a signed-in wallet but is not scoped to one wallet in its path
+ * The handler authorizes the wallet itself, reading it from the {@link WalletSessionInterceptor#AUTHENTICATED_WALLET}
+ * attribute. With {@link #admin()} set, only the wallets listed in auth.admin-wallets are let through.
+ * Enforced by {@link WalletSessionInterceptor}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SessionRequired {
+
+    /**
+     * Whether the endpoint is restricted to admin wallets
+     */
+    boolean admin() default false;
+}
@@ -0,0 +1,83 @@
+package com.chama.chamadao_server.config;
+
+import com.chama.chamadao_server.exceptions.AuthenticationFailedException;
+import com.chama.chamadao_server.exceptions.WalletAccessDeniedException;
+import com.chama.chamadao_server.models.WalletAddress;
+import com.chama.chamadao_server.services.WalletSessionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resolves the Bearer session token of each request and guards wallet-scoped, signed-in and admin endpoints
+ * The token is resolved with one map lookup in {@link WalletSessionService}; the signature behind it was verified
+ * once at sign-in. The signed-in wallet is exposed to handlers as the {@link #AUTHENTICATED_WALLET} attribute.
+ */
+@Component
+@RequiredArgsConstructor
+public class WalletSessionInterceptor implements HandlerInterceptor {
+
+    public static final String AUTHENTICATED_WALLET = "com.chama.chamadao_server.config.WalletSessionInterceptor.wallet";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final WalletSessionService walletSessionService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        WalletSessionRequired required = handlerMethod.getMethodAnnotation(WalletSessionRequired.class);
+        SessionRequired sessionRequired = handlerMethod.getMethodAnnotation(SessionRequired.class);
+        String token = bearerToken(request.getHeader(HttpHeaders.AUTHORIZATION));
+        if (required == null && sessionRequired == null && token == null) {
+            return true;
+        }
+
+        Optional<String> wallet = token != null ? walletSessionService.authenticate(token) : Optional.empty();
+        wallet.ifPresent(authenticated -> request.setAttribute(AUTHENTICATED_WALLET, authenticated));
+        if (required == null && sessionRequired == null) {
+            return true;
+        }
+
+        if (wallet.isEmpty()) {
+            throw new AuthenticationFailedException("Sign in with the wallet to use this endpoint");
+        }
+        if (sessionRequired != null) {
+            if (sessionRequired.admin() && !walletSessionService.isAdmin(wallet.get())) {
+                throw new WalletAccessDeniedException("Wallet " + wallet.get() + " is not an admin");
+            }
+            return true;
+        }
+        String target = WalletAddress.normalize(walletParameter(request, required.value()));
+        if (!wallet.get().equals(target)) {
+            throw new WalletAccessDeniedException("Session does not belong to wallet " + target);
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String walletParameter(HttpServletRequest request, String name) {
+        Map<String, String> pathVariables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (pathVariables != null && pathVariables.containsKey(name)) {
+            return pathVariables.get(name);
+        }
+        return request.getParameter(name);
+    }
+
+    private static String bearerToken(String authorization) {
+        return authorization != null && authorization.startsWith(BEARER_PREFIX)
+                ? authorization.substring(BEARER_PREFIX.length())
+                : null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.chama.chamadao_server.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an endpoint that acts for one wallet and so needs that wallet's session
+ * The wallet is read from the path variable or request parameter named by {@link #value()}, and must be the
+ * wallet the request's Bearer session token was issued to. Enforced by {@link WalletSessionInterceptor}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WalletSessionRequired {
+
+    /**
+     * The name of the path variable or request parameter holding the wallet address
+     */
+    String value() default "walletAddress";
+}
@@ -0,0 +1,80 @@
+package com.chama.chamadao_server.controllers;
+
+import com.chama.chamadao_server.config.SessionRequired;
+import com.chama.chamadao_server.services.CallbackInboxService;
+import com.chama.chamadao_server.services.TransferOutboxService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller for operator actions
+ * Every endpoint needs the session of a wallet listed in auth.admin-wallets
+ */
+@RestController
+@RequestMapping("/api/v1/admin")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Admin", description = "APIs for operators to recover failed payment processing")
+public class AdminController {
+
+    private final CallbackInboxService callbackInboxService;
+    private final TransferOutboxService transferOutboxService;
+
+    /**
+     * Requeue M-Pesa callbacks whose processing failed
+     * @return The number of callbacks requeued
+     */
+    @Operation(
+            summary = "Replay failed M-Pesa callbacks",
+            description = "Puts every callback that exhausted its processing attempts back in the callback inbox."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Number of callbacks requeued",
+                    content = @Content(mediaType = "application/json", schema = @Schema(type = "integer"))),
+            @ApiResponse(responseCode = "401", description = "Not signed in", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Not an admin", content = @Content)
+    })
+    @PostMapping("/payments/mpesa/inbox/replay")
+    @SessionRequired(admin = true)
+    public ResponseEntity<Integer> replayFailedCallbacks() {
+        log.info("Received request to replay failed M-Pesa callbacks");
+        return ResponseEntity.ok(callbackInboxService.replayFailed());
+    }
+
+    /**
+     * Requeue USDT transfers whose sending failed
+     * @param includeNeedsReview Whether to also resend transfers that may already be on chain
+     * @return The number of transfers requeued
+     */
+    @Operation(
+            summary = "Requeue failed USDT transfers",
+            description = "Puts failed deposit transfers back in the transfer outbox. Transfers parked for review were " +
+                    "interrupted or failed after they may have been broadcast and are only requeued when includeNeedsReview is set."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Number of transfers requeued",
+                    content = @Content(mediaType = "application/json", schema = @Schema(type = "integer"))),
+            @ApiResponse(responseCode = "401", description = "Not signed in", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Not an admin", content = @Content)
+    })
+    @PostMapping("/payments/usdt-outbox/requeue")
+    @SessionRequired(admin = true)
+    public ResponseEntity<Integer> requeueTransfers(
+            @Parameter(description = "Also requeue transfers that may already have been broadcast")
+            @RequestParam(defaultValue = "false") boolean includeNeedsReview) {
+        log.info("Received request to requeue USDT transfers, includeNeedsReview: {}", includeNeedsReview);
+        return ResponseEntity.ok(transferOutboxService.requeue(includeNeedsReview));
+    }
+}
@@ -0,0 +1,116 @@
+package com.chama.chamadao_server.controllers;
+
+import com.chama.chamadao_server.models.dto.WalletChallengeDto;
+import com.chama.chamadao_server.models.dto.WalletLoginDto;
+import com.chama.chamadao_server.models.dto.WalletSessionDto;
+import com.chama.chamadao_server.services.WalletSessionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controller for signing in with a wallet
+ * Sessions are presented as {@code Authorization: Bearer <token>}.
+ */
+@RestController
+@RequestMapping("/api/v1/auth")
+@RequiredArgsConstructor
+@Tag(name = "Authentication", description = "APIs for signing in with a wallet signature")
+public class AuthController {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final WalletSessionService walletSessionService;
+
+    /**
+     * Issue a sign-in challenge for a wallet
+     * @param walletAddress The wallet address
+     * @param request The HTTP request, whose client address is rate-limited
+     * @return The challenge message to sign
+     */
+    @Operation(
+        summary = "Request a sign-in challenge",
+        description = "Returns a single-use message for the wallet to sign with personal_sign. It expires after a few minutes."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Challenge issued",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = WalletChallengeDto.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid wallet address format", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many challenges requested by this client", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Too many pending challenges", content = @Content)
+    })
+    @PostMapping("/challenge")
+    public ResponseEntity<WalletChallengeDto> issueChallenge(
+            @Parameter(description = "Wallet address signing in", example = "0x1234567890123456789012345678901234567890")
+            @RequestParam String walletAddress,
+            HttpServletRequest request) {
+        return ResponseEntity.ok(walletSessionService.issueChallenge(walletAddress, request.getRemoteAddr()));
+    }
+
+    /**
+     * Exchange a signed challenge for a session token
+     * @param login The wallet address, challenge nonce and signature
+     * @return The session with its token
+     */
+    @Operation(
+        summary = "Sign in with a signed challenge",
+        description = "Verifies the signature of the pending challenge and returns a session token for later requests."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Signed in",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = WalletSessionDto.class))),
+            @ApiResponse(responseCode = "401", description = "No pending challenge or the signature does not match", content = @Content)
+    })
+    @PostMapping("/session")
+    public ResponseEntity<WalletSessionDto> login(@RequestBody WalletLoginDto login) {
+        return ResponseEntity.ok(walletSessionService.login(login.getWalletAddress(), login.getNonce(), login.getSignature()));
+    }
+
+    /**
+     * Get the wallet a session token belongs to
+     * @param authorization The Bearer authorization header
+     * @return The session, without its token
+     */
+    @Operation(
+        summary = "Get the current session",
+        description = "Returns the wallet address and expiry of the session in the Authorization header."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Session is valid",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = WalletSessionDto.class))),
+            @ApiResponse(responseCode = "401", description = "Session is invalid or has expired", content = @Content)
+    })
+    @GetMapping("/session")
+    public ResponseEntity<WalletSessionDto> getSession(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        return ResponseEntity.ok(walletSessionService.getSession(bearerToken(authorization)));
+    }
+
+    /**
+     * End a session
+     * @param authorization The Bearer authorization header
+     * @return 204 No Content
+     */
+    @Operation(summary = "Sign out", description = "Ends the session in the Authorization header.")
+    @DeleteMapping("/session")
+    public ResponseEntity<Void> logout(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        walletSessionService.logout(bearerToken(authorization));
+        return ResponseEntity.noContent().build();
+    }
+
+    private static String bearerToken(String authorization) {
+        return authorization != null && authorization.startsWith(BEARER_PREFIX)
+                ? authorization.substring(BEARER_PREFIX.length())
+                : null;
+    }
+}
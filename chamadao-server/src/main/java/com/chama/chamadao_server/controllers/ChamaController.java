@@ -1,7 +1,10 @@
 package com.chama.chamadao_server.controllers;
 
+import com.chama.chamadao_server.exceptions.ServiceUnavailableException;
 import com.chama.chamadao_server.models.dto.ChamaDto;
+import com.chama.chamadao_server.models.dto.WalletBalanceDto;
 import com.chama.chamadao_server.services.ChamaService;
+import com.chama.chamadao_server.services.UsdtBalanceService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -21,6 +24,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -31,6 +35,7 @@ import java.util.List;
 public class ChamaController {
 
     private final ChamaService chamaService;
+    private final UsdtBalanceService usdtBalanceService;
 
     /**
      * Get all Chamas
@@ -66,6 +71,31 @@ public class ChamaController {
         return ResponseEntity.ok(chamaService.findChamaByWalletAddress(walletAddress));
     }
 
+    /**
+     * Get the on-chain USDT balances of every member of a Chama
+     * Members whose balance is not cached are read together in one JSON-RPC batch request.
+     * @param walletAddress The wallet address of the Chama
+     * @return The balance of each member in USDT and KES
+     */
+    @Operation(summary = "Get the USDT balances of a Chama's members",
+            description = "Returns each member's on-chain USDT balance and its value in KES, read in one round-trip to the node")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved member balances",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = WalletBalanceDto.class))),
+            @ApiResponse(responseCode = "404", description = "Chama not found", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Blockchain node unavailable", content = @Content)
+    })
+    @GetMapping("/{walletAddress}/balances")
+    public ResponseEntity<List<WalletBalanceDto>> getMemberBalances(
+            @Parameter(description = "Wallet address of the Chama", required = true)
+            @PathVariable String walletAddress) {
+        try {
+            return ResponseEntity.ok(usdtBalanceService.getChamaMemberBalances(walletAddress));
+        } catch (IOException e) {
+            throw new ServiceUnavailableException("Blockchain node is unavailable, please retry later", 5, e);
+        }
+    }
+
     /**
      * Create a new Chama
      * @param chamaDto The Chama details
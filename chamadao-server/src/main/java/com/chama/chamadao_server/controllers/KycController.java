@@ -1,5 +1,6 @@
 package com.chama.chamadao_server.controllers;
 
+import com.chama.chamadao_server.config.WalletSessionRequired;
 import com.chama.chamadao_server.models.KycDocument;
 import com.chama.chamadao_server.models.enums.DocumentType;
 import com.chama.chamadao_server.models.enums.KycStatus;
@@ -65,6 +66,7 @@ public class KycController {
             content = @Content
         )
     })
+    @WalletSessionRequired
     @PostMapping("/documents")
     public ResponseEntity<KycDocument> uploadKycDocument(
             @Parameter(description = "Wallet address of the user", example = "0x1234567890123456789012345678901234567890")
@@ -100,6 +102,7 @@ public class KycController {
             content = @Content
         )
     })
+    @WalletSessionRequired
     @GetMapping("/documents")
     public ResponseEntity<List<KycDocument>> getKycDocuments(
             @Parameter(description = "Wallet address of the user", example = "0x1234567890123456789012345678901234567890")
@@ -129,6 +132,7 @@ public class KycController {
             content = @Content
         )
     })
+    @WalletSessionRequired
     @GetMapping("/status")
     public ResponseEntity<KycStatus> getKycStatus(
             @Parameter(description = "Wallet address of the user", example = "0x1234567890123456789012345678901234567890")
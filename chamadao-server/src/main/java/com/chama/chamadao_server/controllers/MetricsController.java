@@ -0,0 +1,258 @@
+package com.chama.chamadao_server.controllers;
+
+import com.chama.chamadao_server.services.AddressWatcher;
+import com.chama.chamadao_server.services.BlockchainService;
+import com.chama.chamadao_server.services.CallbackInboxService;
+import com.chama.chamadao_server.services.ConfirmationTracker;
+import com.chama.chamadao_server.services.CurrencyConversionService;
+import com.chama.chamadao_server.services.DarajaResilience;
+import com.chama.chamadao_server.services.DarajaTokenManager;
+import com.chama.chamadao_server.services.HotWalletPool;
+import com.chama.chamadao_server.services.OutboundHttpMetrics;
+import com.chama.chamadao_server.services.RpcRouter;
+import com.chama.chamadao_server.services.StkReconciliationService;
+import com.chama.chamadao_server.services.TransferOutboxService;
+import com.chama.chamadao_server.services.UsdtBalanceService;
+import com.chama.chamadao_server.services.UsdtTransferIndexer;
+import com.chama.chamadao_server.services.WalletSessionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controller for operational metrics
+ * Exposes the counters kept by the payment and blockchain integrations
+ */
+@RestController
+@RequestMapping("/api/v1/metrics")
+@RequiredArgsConstructor
+@Tag(name = "Metrics", description = "APIs for inspecting operational metrics")
+public class MetricsController {
+
+    private final DarajaTokenManager darajaTokenManager;
+    private final CallbackInboxService callbackInboxService;
+    private final StkReconciliationService stkReconciliationService;
+    private final OutboundHttpMetrics outboundHttpMetrics;
+    private final DarajaResilience darajaResilience;
+    private final TransferOutboxService transferOutboxService;
+    private final BlockchainService blockchainService;
+    private final ConfirmationTracker confirmationTracker;
+    private final UsdtTransferIndexer usdtTransferIndexer;
+    private final UsdtBalanceService usdtBalanceService;
+    private final AddressWatcher addressWatcher;
+    private final WalletSessionService walletSessionService;
+    private final CurrencyConversionService currencyConversionService;
+
+    /**
+     * Get the M-Pesa access token cache statistics
+     * @return Hit, miss and refresh latency counters
+     */
+    @Operation(
+        summary = "M-Pesa access token cache statistics",
+        description = "Returns cache hits, misses and refresh latency for the M-Pesa OAuth token. Each hit is an OAuth round-trip saved."
+    )
+    @GetMapping("/mpesa/token")
+    public ResponseEntity<DarajaTokenManager.Stats> getMpesaTokenStats() {
+        return ResponseEntity.ok(darajaTokenManager.getStats());
+    }
+
+    /**
+     * Get the M-Pesa callback inbox backlog
+     * @return The number of pending and failed callbacks
+     */
+    @Operation(
+        summary = "M-Pesa callback inbox backlog",
+        description = "Returns the number of callbacks waiting to be processed and the number parked as failed."
+    )
+    @GetMapping("/mpesa/callback-inbox")
+    public ResponseEntity<CallbackInboxService.Stats> getCallbackInboxStats() {
+        return ResponseEntity.ok(callbackInboxService.getStats());
+    }
+
+    /**
+     * Get the STK push reconciliation backlog and lag
+     * @return The backlog of stale pending deposits and the reconciliation counters
+     */
+    @Operation(
+        summary = "STK push reconciliation statistics",
+        description = "Returns the number of stale pending deposits, the age of the oldest one, and how many deposits " +
+                "reconciliation resolved because their callback never arrived, with the lag at which it did so."
+    )
+    @GetMapping("/mpesa/reconciliation")
+    public ResponseEntity<StkReconciliationService.Stats> getReconciliationStats() {
+        return ResponseEntity.ok(stkReconciliationService.getStats());
+    }
+
+    /**
+     * Get the M-Pesa circuit breaker and concurrency limit state
+     * @return The breaker state, the current limit and the rejection counters
+     */
+    @Operation(
+        summary = "M-Pesa circuit breaker and concurrency limit",
+        description = "Returns the circuit breaker state and failure rate, the adaptive concurrency limit with the " +
+                "latencies it is adjusted on, and how many calls were rejected by each."
+    )
+    @GetMapping("/mpesa/resilience")
+    public ResponseEntity<DarajaResilience.Stats> getMpesaResilienceStats() {
+        return ResponseEntity.ok(darajaResilience.getStats());
+    }
+
+    /**
+     * Get the USDT transfer outbox backlog
+     * @return The number of transfers in each state and the send latency
+     */
+    @Operation(
+        summary = "USDT transfer outbox statistics",
+        description = "Returns the number of deposit transfers waiting, being sent, parked for review and failed, " +
+                "the age of the oldest waiting transfer, and the latency of sends."
+    )
+    @GetMapping("/blockchain/outbox")
+    public ResponseEntity<TransferOutboxService.Stats> getTransferOutboxStats() {
+        return ResponseEntity.ok(transferOutboxService.getStats());
+    }
+
+    /**
+     * Get the blockchain transfer executor gauges
+     * @return Transfers in flight, queue depth, rejections and per-transfer latency
+     */
+    @Operation(
+        summary = "Blockchain transfer executor statistics",
+        description = "Returns the number of transfers in flight and queued on the dedicated transfer executor, how many " +
+                "were rejected because its queue was full, and the latency and queue wait of each transfer."
+    )
+    @GetMapping("/blockchain/transfers")
+    public ResponseEntity<BlockchainService.TransferStats> getBlockchainTransferStats() {
+        return ResponseEntity.ok(blockchainService.getTransferStats());
+    }
+
+    /**
+     * Get the hot wallet pool state
+     * @return Each wallet's rotation state, balance, pending transfers and nonce statistics
+     */
+    @Operation(
+        summary = "Hot wallet pool statistics",
+        description = "Returns, for each hot wallet, whether it is in rotation, its last known balance, the transfers " +
+                "pending on it, and its nonce state: the next nonce, nonces reserved by sends in flight, nonces " +
+                "released by failed sends and waiting to be reused, and how often the counter was resynced."
+    )
+    @GetMapping("/blockchain/wallets")
+    public ResponseEntity<List<HotWalletPool.WalletStats>> getWalletStats() {
+        return ResponseEntity.ok(blockchainService.getWalletStats());
+    }
+
+    /**
+     * Get the transfer confirmation tracker counters
+     * @return The last block head swept, batch requests, receipts checked and confirmations
+     */
+    @Operation(
+        summary = "Transfer confirmation statistics",
+        description = "Returns the last block head swept, JSON-RPC batch requests and receipts checked, and confirmed, reorged and reverted transfer counts."
+    )
+    @GetMapping("/blockchain/confirmations")
+    public ResponseEntity<ConfirmationTracker.Stats> getConfirmationStats() {
+        return ResponseEntity.ok(confirmationTracker.getStats());
+    }
+
+    /**
+     * Get the JSON-RPC router state
+     * @return Hedged and failed-over request counts, and each endpoint's health, latency and error rate
+     */
+    @Operation(
+        summary = "JSON-RPC router statistics",
+        description = "Returns how many reads were hedged or failed over, and for each RPC endpoint its health, " +
+                "moving average latency and error rate, request counts, hedge wins and pinned nonce sequences."
+    )
+    @GetMapping("/blockchain/rpc")
+    public ResponseEntity<RpcRouter.Stats> getRpcStats() {
+        return ResponseEntity.ok(blockchainService.getRpcStats());
+    }
+
+    /**
+     * Get the USDT transfer indexer progress
+     * @return The indexed block, how far it is behind the head, and the log and reorg counters
+     */
+    @Operation(
+        summary = "USDT transfer indexer statistics",
+        description = "Returns the last indexed block, the head and how many blocks the index is behind, Transfer logs scanned, " +
+                "transfers stored for watched wallets, eth_getLogs chunks and reorgs handled."
+    )
+    @GetMapping("/blockchain/indexer")
+    public ResponseEntity<UsdtTransferIndexer.Stats> getIndexerStats() {
+        return ResponseEntity.ok(usdtTransferIndexer.getStats());
+    }
+
+    /**
+     * Get the USDT balance cache counters
+     * @return Cache entries, hits, misses, batch calls and invalidations
+     */
+    @Operation(
+        summary = "USDT balance cache statistics",
+        description = "Returns the cached balances, the block they are valid at, hits served without an eth_call, misses, " +
+                "batch calls, entries invalidated by indexed transfers and KES conversions."
+    )
+    @GetMapping("/blockchain/balances")
+    public ResponseEntity<UsdtBalanceService.Stats> getBalanceStats() {
+        return ResponseEntity.ok(usdtBalanceService.getStats());
+    }
+
+    /**
+     * Get the watched address filter counters
+     * @return Watched addresses, filter size, and how many log addresses were screened, passed and matched
+     */
+    @Operation(
+        summary = "Watched address filter statistics",
+        description = "Returns the number of watched addresses, the Bloom filter's capacity, size and hash count, the log " +
+                "addresses screened, those that passed the filter and those that matched, and the observed false positive rate."
+    )
+    @GetMapping("/blockchain/watcher")
+    public ResponseEntity<AddressWatcher.Stats> getWatcherStats() {
+        return ResponseEntity.ok(addressWatcher.getStats());
+    }
+
+    /**
+     * Get the wallet sign-in statistics
+     * @return Challenge, sign-in and session cache counters
+     */
+    @Operation(
+        summary = "Wallet sign-in statistics",
+        description = "Returns pending challenges, active sessions, sign-ins and session cache hits. Each hit is a signature recovery saved."
+    )
+    @GetMapping("/auth/sessions")
+    public ResponseEntity<WalletSessionService.Stats> getSessionStats() {
+        return ResponseEntity.ok(walletSessionService.getStats());
+    }
+
+    /**
+     * Get the exchange rate cache statistics
+     * @return The cached KES/USDT rate and the cache counters
+     */
+    @Operation(
+        summary = "Exchange rate cache statistics",
+        description = "Returns the cached KES/USDT rate, when it was fetched, and cache hits, stale hits and FX API fetches."
+    )
+    @GetMapping("/fx/exchange-rate")
+    public ResponseEntity<CurrencyConversionService.Stats> getExchangeRateStats() {
+        return ResponseEntity.ok(currencyConversionService.getStats());
+    }
+
+    /**
+     * Get the outbound HTTP client metrics
+     * @return Per-host latency and error counts, and connection pool usage, for each upstream client
+     */
+    @Operation(
+        summary = "Outbound HTTP client statistics",
+        description = "Returns, for the Daraja, exchange rate and JSON-RPC clients, per-host latency percentiles and " +
+                "error counts, and connection pool and dispatcher usage. Queued calls indicate a saturated client."
+    )
+    @GetMapping("/http")
+    public ResponseEntity<Map<String, OutboundHttpMetrics.ClientStats>> getHttpClientStats() {
+        return ResponseEntity.ok(outboundHttpMetrics.getStats());
+    }
+}
@@ -1,5 +1,6 @@
 package com.chama.chamadao_server.controllers;
 
+import com.chama.chamadao_server.config.WalletSessionRequired;
 import com.chama.chamadao_server.models.Notification;
 import com.chama.chamadao_server.models.dto.ChamaDto;
 import com.chama.chamadao_server.services.ChamaService;
@@ -21,6 +22,7 @@ public class NotificationController {
     private final ChamaService chamaService;
     //private final ChamaMapper chamaMapper;
 
+    @WalletSessionRequired
     @GetMapping("/{walletAddress}")
     ResponseEntity<List<Notification>> getUserNotifications(@PathVariable String walletAddress){
         log.info("Request to get notifications for user {}", walletAddress);
@@ -28,6 +30,7 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    @WalletSessionRequired
     @GetMapping("/{walletAddress}/unread")
     ResponseEntity<List<Notification>> getUnreadNotifications(@PathVariable String walletAddress){
         log.info("Request to get unread notifications for user {}", walletAddress);
@@ -35,6 +38,7 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    @WalletSessionRequired
     @GetMapping("/{walletAddress}/unread/count")
     ResponseEntity<Long> getUnreadCount(@PathVariable String walletAddress){
         log.info("Request to get unread notification count for user {}", walletAddress);
@@ -1,9 +1,13 @@
 package com.chama.chamadao_server.controllers;
 
+import com.chama.chamadao_server.config.WalletSessionRequired;
+import com.chama.chamadao_server.models.dto.PaymentStatusDto;
 import com.chama.chamadao_server.models.dto.mpesa.MpesaB2CCallback;
 import com.chama.chamadao_server.models.dto.mpesa.MpesaB2CResponse;
 import com.chama.chamadao_server.models.dto.mpesa.MpesaStkCallback;
 import com.chama.chamadao_server.models.dto.mpesa.MpesaStkPushResponse;
+import com.chama.chamadao_server.services.CallbackInboxService;
+import com.chama.chamadao_server.services.IdempotencyService;
 import com.chama.chamadao_server.services.MpesaService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -18,6 +22,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.net.URI;
 
 /**
  * Controller for payment operations
@@ -31,6 +36,10 @@ import java.math.BigDecimal;
 public class PaymentController {
 
     private final MpesaService mpesaService;
+    private final CallbackInboxService callbackInboxService;
+    private final IdempotencyService idempotencyService;
+
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
 
     /**
      * Initiate a deposit using M-Pesa STK push
@@ -60,6 +69,7 @@ public class PaymentController {
             content = @Content
         )
     })
+    @WalletSessionRequired
     @PostMapping("/deposit")
     public ResponseEntity<MpesaStkPushResponse> initiateDeposit(
             @Parameter(description = "Wallet address of the user", example = "0x1234567890123456789012345678901234567890")
@@ -67,13 +77,16 @@ public class PaymentController {
             @Parameter(description = "Phone number to send the STK push to", example = "+254712345678")
             @RequestParam String phoneNumber,
             @Parameter(description = "Amount in KES to deposit", example = "1000.00")
-            @RequestParam BigDecimal amount) {
+            @RequestParam BigDecimal amount,
+            @Parameter(description = "Optional key that makes retries of this request safe; a repeated key returns the stored response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
 
         log.info("Received deposit request for wallet address: {}, phone number: {}, amount: {}",
                 walletAddress, phoneNumber, amount);
 
-        MpesaStkPushResponse response = mpesaService.initiateDeposit(walletAddress,phoneNumber, amount);
-        return ResponseEntity.ok(response);
+        return idempotencyService.execute(idempotencyKey, "payments.deposit",
+                requestFingerprint(walletAddress, phoneNumber, amount), MpesaStkPushResponse.class,
+                () -> ResponseEntity.ok(mpesaService.initiateDeposit(walletAddress, phoneNumber, amount)));
     }
 
     /**
@@ -104,6 +117,7 @@ public class PaymentController {
             content = @Content
         )
     })
+    @WalletSessionRequired
     @PostMapping("/withdraw")
     public ResponseEntity<MpesaB2CResponse> initiateWithdrawal(
             @Parameter(description = "Wallet address of the user", example = "0x1234567890123456789012345678901234567890")
@@ -111,28 +125,148 @@ public class PaymentController {
             @Parameter(description = "Phone number to send the money to", example = "+254712345678")
             @RequestParam String phoneNumber,
             @Parameter(description = "Amount in KES to withdraw", example = "500.00")
-            @RequestParam BigDecimal amount) {
+            @RequestParam BigDecimal amount,
+            @Parameter(description = "Optional key that makes retries of this request safe; a repeated key returns the stored response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
 
         log.info("Received withdrawal request for wallet address: {}, phone number: {}, amount: {}", 
                 walletAddress, phoneNumber, amount);
 
-        MpesaB2CResponse response = mpesaService.initiateWithdrawal(walletAddress, phoneNumber, amount);
-        return ResponseEntity.ok(response);
+        return idempotencyService.execute(idempotencyKey, "payments.withdraw",
+                requestFingerprint(walletAddress, phoneNumber, amount), MpesaB2CResponse.class,
+                () -> ResponseEntity.ok(mpesaService.initiateWithdrawal(walletAddress, phoneNumber, amount)));
+    }
+
+    /**
+     * Initiate a deposit without waiting for M-Pesa
+     * The pending transaction is persisted and the STK push is sent in the background.
+     * @param walletAddress The wallet address of the user
+     * @param phoneNumber The phone number to send the STK push to
+     * @param amount The amount in KES
+     * @return 202 Accepted with the pending payment and its status location
+     */
+    @Operation(
+        summary = "Initiate a deposit asynchronously",
+        description = "Records a pending deposit and sends the M-Pesa STK push in the background. Poll the returned location for progress."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "202",
+            description = "Deposit accepted for processing",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentStatusDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "M-Pesa request queue is full, retry after the Retry-After interval",
+            content = @Content
+        )
+    })
+    @WalletSessionRequired
+    @PostMapping("/deposit/async")
+    public ResponseEntity<PaymentStatusDto> initiateDepositAsync(
+            @Parameter(description = "Wallet address of the user", example = "0x1234567890123456789012345678901234567890")
+            @RequestParam String walletAddress,
+            @Parameter(description = "Phone number to send the STK push to", example = "+254712345678")
+            @RequestParam String phoneNumber,
+            @Parameter(description = "Amount in KES to deposit", example = "1000.00")
+            @RequestParam BigDecimal amount,
+            @Parameter(description = "Optional key that makes retries of this request safe; a repeated key returns the stored response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+
+        log.info("Received async deposit request for wallet address: {}, phone number: {}, amount: {}",
+                walletAddress, phoneNumber, amount);
+
+        return idempotencyService.execute(idempotencyKey, "payments.deposit.async",
+                requestFingerprint(walletAddress, phoneNumber, amount), PaymentStatusDto.class,
+                () -> accepted(mpesaService.initiateDepositAsync(walletAddress, phoneNumber, amount)));
+    }
+
+    /**
+     * Initiate a withdrawal without waiting for M-Pesa
+     * The pending transaction is persisted and the B2C request is sent in the background.
+     * @param walletAddress The wallet address of the user
+     * @param phoneNumber The phone number to send the money to
+     * @param amount The amount in KES
+     * @return 202 Accepted with the pending payment and its status location
+     */
+    @Operation(
+        summary = "Initiate a withdrawal asynchronously",
+        description = "Records a pending withdrawal and sends the M-Pesa B2C request in the background. Poll the returned location for progress."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "202",
+            description = "Withdrawal accepted for processing",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentStatusDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "M-Pesa request queue is full, retry after the Retry-After interval",
+            content = @Content
+        )
+    })
+    @WalletSessionRequired
+    @PostMapping("/withdraw/async")
+    public ResponseEntity<PaymentStatusDto> initiateWithdrawalAsync(
+            @Parameter(description = "Wallet address of the user", example = "0x1234567890123456789012345678901234567890")
+            @RequestParam String walletAddress,
+            @Parameter(description = "Phone number to send the money to", example = "+254712345678")
+            @RequestParam String phoneNumber,
+            @Parameter(description = "Amount in KES to withdraw", example = "500.00")
+            @RequestParam BigDecimal amount,
+            @Parameter(description = "Optional key that makes retries of this request safe; a repeated key returns the stored response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+
+        log.info("Received async withdrawal request for wallet address: {}, phone number: {}, amount: {}",
+                walletAddress, phoneNumber, amount);
+
+        return idempotencyService.execute(idempotencyKey, "payments.withdraw.async",
+                requestFingerprint(walletAddress, phoneNumber, amount), PaymentStatusDto.class,
+                () -> accepted(mpesaService.initiateWithdrawalAsync(walletAddress, phoneNumber, amount)));
+    }
+
+    /**
+     * Get the progress of a deposit or withdrawal
+     * @param id The ID of the payment
+     * @return The payment status
+     */
+    @Operation(
+        summary = "Get payment status",
+        description = "Returns the current status of a deposit or withdrawal."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Payment status retrieved successfully",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentStatusDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Payment not found",
+            content = @Content
+        )
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<PaymentStatusDto> getPaymentStatus(
+            @Parameter(description = "ID of the payment", example = "1")
+            @PathVariable Long id) {
+        return ResponseEntity.ok(mpesaService.getPaymentStatus(id));
     }
 
     /**
      * Callback endpoint for M-Pesa STK push (deposit)
+     * The callback is stored in the callback inbox and acknowledged immediately; it is applied by the inbox workers.
      * @param callback The callback from M-Pesa
-     * @return A success response
+     * @return An acknowledgement
      */
     @Operation(
         summary = "M-Pesa STK push callback",
-        description = "Callback endpoint for M-Pesa STK push (deposit). This endpoint is called by the M-Pesa API after a user completes or cancels a payment."
+        description = "Callback endpoint for M-Pesa STK push (deposit). This endpoint is called by the M-Pesa API after a user completes or cancels a payment. The callback is stored and acknowledged immediately, then processed in the background."
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200", 
-            description = "Callback processed",
+            description = "Callback received",
             content = @Content(mediaType = "text/plain", schema = @Schema(type = "string"))
         )
     })
@@ -142,28 +276,24 @@ public class PaymentController {
             @RequestBody MpesaStkCallback callback) {
         log.info("Received STK callback: {}", callback.getBody().getStkCallback().getCheckoutRequestID());
 
-        boolean success = mpesaService.processDepositCallback(callback);
-
-        if (success) {
-            return ResponseEntity.ok("Callback processed successfully");
-        } else {
-            return ResponseEntity.ok("Callback processing failed");
-        }
+        callbackInboxService.enqueueStkCallback(callback);
+        return ResponseEntity.ok("Callback received");
     }
 
     /**
      * Callback endpoint for M-Pesa B2C (withdrawal)
+     * The callback is stored in the callback inbox and acknowledged immediately; it is applied by the inbox workers.
      * @param callback The callback from M-Pesa
-     * @return A success response
+     * @return An acknowledgement
      */
     @Operation(
         summary = "M-Pesa B2C callback",
-        description = "Callback endpoint for M-Pesa B2C (withdrawal). This endpoint is called by the M-Pesa API after a withdrawal is completed or fails."
+        description = "Callback endpoint for M-Pesa B2C (withdrawal). This endpoint is called by the M-Pesa API after a withdrawal is completed or fails. The callback is stored and acknowledged immediately, then processed in the background."
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200", 
-            description = "Callback processed",
+            description = "Callback received",
             content = @Content(mediaType = "text/plain", schema = @Schema(type = "string"))
         )
     })
@@ -173,12 +303,17 @@ public class PaymentController {
             @RequestBody MpesaB2CCallback callback) {
         log.info("Received B2C callback: {}", callback.getResult().getConversationID());
 
-        boolean success = mpesaService.processWithdrawalCallback(callback);
+        callbackInboxService.enqueueB2CCallback(callback);
+        return ResponseEntity.ok("Callback received");
+    }
+
+    private ResponseEntity<PaymentStatusDto> accepted(PaymentStatusDto status) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/payments/" + status.getId()))
+                .body(status);
+    }
 
-        if (success) {
-            return ResponseEntity.ok("Callback processed successfully");
-        } else {
-            return ResponseEntity.ok("Callback processing failed");
-        }
+    private String requestFingerprint(String walletAddress, String phoneNumber, BigDecimal amount) {
+        return walletAddress + "|" + phoneNumber + "|" + amount.stripTrailingZeros().toPlainString();
     }
 }
@@ -0,0 +1,133 @@
+package com.chama.chamadao_server.controllers;
+
+import com.chama.chamadao_server.config.SessionRequired;
+import com.chama.chamadao_server.config.WalletSessionInterceptor;
+import com.chama.chamadao_server.models.dto.PayoutRecipientDto;
+import com.chama.chamadao_server.models.dto.PayoutRunDto;
+import com.chama.chamadao_server.models.dto.PayoutRunRequestDto;
+import com.chama.chamadao_server.services.PayoutService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/payouts")
+@RequiredArgsConstructor
+@Tag(name = "Payouts", description = "APIs for paying out chama rounds through M-Pesa")
+public class PayoutController {
+    private final PayoutService payoutService;
+
+    @Operation(
+            summary = "Schedule a payout run",
+            description = "Schedules a payout round for a chama. Every listed member, or every member of the chama " +
+                    "if none are listed, is paid the given amount through M-Pesa B2C by a background job. " +
+                    "Requires the session of the chama's creator or of an admin."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Payout run scheduled",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = PayoutRunDto.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Not signed in", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Not the chama's creator or an admin", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Chama not found", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server error", content = @Content)
+    })
+    @PostMapping
+    @SessionRequired
+    public ResponseEntity<PayoutRunDto> createPayoutRun(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Chama, amount per recipient and optionally the members to pay",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = PayoutRunRequestDto.class))
+            )
+            @RequestBody PayoutRunRequestDto request,
+            @Parameter(hidden = true)
+            @RequestAttribute(WalletSessionInterceptor.AUTHENTICATED_WALLET) String walletAddress) {
+        PayoutRunDto run = payoutService.createPayoutRun(request, walletAddress);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/payouts/" + run.getId()))
+                .body(run);
+    }
+
+    @Operation(
+            summary = "Get a payout run",
+            description = "Retrieves a payout run with the number of recipients in each state"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved payout run",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = PayoutRunDto.class))),
+            @ApiResponse(responseCode = "404", description = "Payout run not found", content = @Content)
+    })
+    @GetMapping("/{runId}")
+    public ResponseEntity<PayoutRunDto> getPayoutRun(
+            @Parameter(description = "Unique identifier of the payout run", required = true)
+            @PathVariable Long runId) {
+        return ResponseEntity.ok(payoutService.getPayoutRun(runId));
+    }
+
+    @Operation(
+            summary = "Get payout runs of a chama",
+            description = "Retrieves the payout runs of a chama, newest first"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved payout runs",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = PayoutRunDto.class)))
+    })
+    @GetMapping("/chama/{chamaAddress}")
+    public ResponseEntity<List<PayoutRunDto>> getPayoutRunsByChama(
+            @Parameter(description = "Blockchain address of the chama", required = true)
+            @PathVariable String chamaAddress) {
+        return ResponseEntity.ok(payoutService.getPayoutRunsByChama(chamaAddress));
+    }
+
+    @Operation(
+            summary = "Get payout run recipients",
+            description = "Retrieves the recipients of a payout run with the status of each payment"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved recipients",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = PayoutRecipientDto.class))),
+            @ApiResponse(responseCode = "404", description = "Payout run not found", content = @Content)
+    })
+    @GetMapping("/{runId}/recipients")
+    public ResponseEntity<List<PayoutRecipientDto>> getRecipients(
+            @Parameter(description = "Unique identifier of the payout run", required = true)
+            @PathVariable Long runId) {
+        return ResponseEntity.ok(payoutService.getRecipients(runId));
+    }
+
+    @Operation(
+            summary = "Retry failed payouts",
+            description = "Queues the failed recipients of a payout run to be paid again. Recipients that need review " +
+                    "were interrupted mid-request and are only retried when includeNeedsReview is set. " +
+                    "Requires the session of the chama's creator or of an admin."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Recipients requeued",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = PayoutRunDto.class))),
+            @ApiResponse(responseCode = "401", description = "Not signed in", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Not the chama's creator or an admin", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Payout run not found", content = @Content)
+    })
+    @PostMapping("/{runId}/retry")
+    @SessionRequired
+    public ResponseEntity<PayoutRunDto> retryPayoutRun(
+            @Parameter(description = "Unique identifier of the payout run", required = true)
+            @PathVariable Long runId,
+            @Parameter(description = "Also retry recipients that were interrupted before M-Pesa responded")
+            @RequestParam(defaultValue = "false") boolean includeNeedsReview,
+            @Parameter(hidden = true)
+            @RequestAttribute(WalletSessionInterceptor.AUTHENTICATED_WALLET) String walletAddress) {
+        return ResponseEntity.ok(payoutService.retryPayoutRun(runId, includeNeedsReview, walletAddress));
+    }
+}
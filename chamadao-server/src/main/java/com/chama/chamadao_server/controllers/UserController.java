@@ -1,5 +1,6 @@
 package com.chama.chamadao_server.controllers;
 
+import com.chama.chamadao_server.config.WalletSessionRequired;
 import com.chama.chamadao_server.mappers.UserMapper;
 import com.chama.chamadao_server.models.dto.UserDto;
 import com.chama.chamadao_server.services.UserService;
@@ -106,6 +107,7 @@ public class UserController {
             content = @Content
         )
     })
+    @WalletSessionRequired
     @PutMapping("/{walletAddress}")
     public ResponseEntity<UserDto> updateUserProfile(
             @Parameter(description = "Wallet address of the user to update", example = "0x1234567890123456789012345678901234567890")
@@ -173,6 +175,7 @@ public class UserController {
     @ApiResponse(responseCode = "404", description = "User not found"),
     @ApiResponse(responseCode = "500", description = "Failed to process image")
 })
+@WalletSessionRequired
 @PostMapping("/{walletAddress}/image")
 public ResponseEntity<String> uploadUserProfileImage(
         @Parameter(description = "Image file to upload", required = true)
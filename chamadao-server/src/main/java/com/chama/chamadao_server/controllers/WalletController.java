@@ -0,0 +1,120 @@
+package com.chama.chamadao_server.controllers;
+
+import com.chama.chamadao_server.config.WalletSessionRequired;
+import com.chama.chamadao_server.exceptions.ServiceUnavailableException;
+import com.chama.chamadao_server.models.UsdtTransfer;
+import com.chama.chamadao_server.models.dto.UsdtTransferDto;
+import com.chama.chamadao_server.models.dto.WalletBalanceDto;
+import com.chama.chamadao_server.services.UsdtBalanceService;
+import com.chama.chamadao_server.services.UsdtTransferIndexer;
+import com.chama.chamadao_server.services.WalletService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Controller for on-chain wallet data
+ * Answers come from the local USDT transfer index and balance cache rather than live RPC calls.
+ */
+@RestController
+@RequestMapping("/api/v1/wallets")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Wallets", description = "APIs for on-chain wallet data")
+public class WalletController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final UsdtTransferIndexer usdtTransferIndexer;
+    private final WalletService walletService;
+    private final UsdtBalanceService usdtBalanceService;
+
+    /**
+     * Get the USDT transfer history of a user or chama wallet
+     * @param walletAddress The wallet address
+     * @param page The page number, starting at 0
+     * @param size The page size, at most 100
+     * @return The indexed transfers, newest first, or a 400 Bad Request if the wallet address format is invalid
+     */
+    @Operation(
+        summary = "Get the USDT transfer history of a wallet",
+        description = "Returns the on-chain USDT transfers sent or received by a user or chama wallet, newest first, from the local transfer index."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transfer history retrieved successfully",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = UsdtTransferDto.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid wallet address format", content = @Content)
+    })
+    @WalletSessionRequired
+    @GetMapping("/{walletAddress}/usdt-transfers")
+    public ResponseEntity<List<UsdtTransferDto>> getUsdtTransfers(
+            @Parameter(description = "Wallet address of the user or chama", example = "0x1234567890123456789012345678901234567890")
+            @PathVariable String walletAddress,
+            @Parameter(description = "Page number, starting at 0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size, at most 100")
+            @RequestParam(defaultValue = "20") int size) {
+        if (!walletService.verifyWalletAddress(walletAddress) || page < 0 || size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<UsdtTransferDto> transfers = usdtTransferIndexer
+                .getTransfers(walletAddress, page, Math.min(size, MAX_PAGE_SIZE)).stream()
+                .map(transfer -> toDto(transfer, walletAddress))
+                .toList();
+        return ResponseEntity.ok(transfers);
+    }
+
+    /**
+     * Get the on-chain USDT balance of a wallet and its value in KES
+     * @param walletAddress The wallet address
+     * @return The balance, or a 400 Bad Request if the wallet address format is invalid
+     */
+    @Operation(
+        summary = "Get the USDT balance of a wallet",
+        description = "Returns the on-chain USDT balance of a wallet and its value in KES. Balances are cached until a transfer touching the wallet is indexed."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Balance retrieved successfully",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = WalletBalanceDto.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid wallet address format", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Blockchain node unavailable", content = @Content)
+    })
+    @WalletSessionRequired
+    @GetMapping("/{walletAddress}/balance")
+    public ResponseEntity<WalletBalanceDto> getBalance(
+            @Parameter(description = "Wallet address of the user or chama", example = "0x1234567890123456789012345678901234567890")
+            @PathVariable String walletAddress) {
+        if (!walletService.verifyWalletAddress(walletAddress)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(usdtBalanceService.getBalance(walletAddress));
+        } catch (IOException e) {
+            throw new ServiceUnavailableException("Blockchain node is unavailable, please retry later", 5, e);
+        }
+    }
+
+    private UsdtTransferDto toDto(UsdtTransfer transfer, String walletAddress) {
+        return UsdtTransferDto.builder()
+                .txHash(transfer.getTxHash())
+                .logIndex(transfer.getLogIndex())
+                .blockNumber(transfer.getBlockNumber())
+                .fromAddress(transfer.getFromAddress().toString())
+                .toAddress(transfer.getToAddress().toString())
+                .amountUSDT(transfer.getAmountUSDT())
+                .incoming(transfer.getToAddress().toString().equalsIgnoreCase(walletAddress))
+                .build();
+    }
+}
@@ -0,0 +1,16 @@
+package com.chama.chamadao_server.converters;
+
+import com.chama.chamadao_server.models.enums.FiatCurrency;
+import jakarta.persistence.Converter;
+
+/**
+ * JPA converter for KES amounts, stored in shillings
+ */
+@Converter
+public class KesMoneyConverter extends MoneyConverter {
+
+    @Override
+    protected FiatCurrency currency() {
+        return FiatCurrency.KES;
+    }
+}
@@ -0,0 +1,37 @@
+package com.chama.chamadao_server.converters;
+
+import com.chama.chamadao_server.models.Money;
+import com.chama.chamadao_server.models.enums.FiatCurrency;
+import jakarta.persistence.AttributeConverter;
+
+import java.math.BigDecimal;
+
+/**
+ * JPA converter storing a {@link Money} as a DECIMAL amount in major units
+ * This is the representation amount columns have always had, so existing rows read back unchanged.
+ * The currency is fixed by the column, so each currency has its own subclass.
+ */
+public abstract class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    /**
+     * Get the currency of the columns this converter is applied to
+     * @return The currency
+     */
+    protected abstract FiatCurrency currency();
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money money) {
+        if (money == null) {
+            return null;
+        }
+        if (money.getCurrency() != currency()) {
+            throw new IllegalArgumentException("Cannot store " + money + " in a " + currency() + " column");
+        }
+        return money.toBigDecimal();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(BigDecimal amount) {
+        return amount == null ? null : Money.of(amount, currency());
+    }
+}
@@ -0,0 +1,51 @@
+package com.chama.chamadao_server.converters;
+
+import com.chama.chamadao_server.models.Money;
+import com.chama.chamadao_server.models.enums.FiatCurrency;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+
+/**
+ * Jackson serializers for {@link Money}
+ * An amount is written as {@code {"amount": 1234.50, "currency": "KES"}}, with the amount as an exact decimal number.
+ */
+@JsonComponent
+public class MoneyJsonComponent {
+
+    public static class Serializer extends JsonSerializer<Money> {
+
+        @Override
+        public void serialize(Money money, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("amount", money.toBigDecimal());
+            generator.writeStringField("currency", money.getCurrency().name());
+            generator.writeEndObject();
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<Money> {
+
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonNode node = parser.getCodec().readTree(parser);
+            JsonNode amount = node.get("amount");
+            JsonNode currency = node.get("currency");
+            if (amount == null || !amount.isNumber() || currency == null || !currency.isTextual()) {
+                return (Money) context.handleUnexpectedToken(Money.class, parser);
+            }
+            try {
+                return Money.of(amount.decimalValue(), FiatCurrency.valueOf(currency.asText()));
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                return (Money) context.handleWeirdStringValue(Money.class, node.toString(), e.getMessage());
+            }
+        }
+    }
+}
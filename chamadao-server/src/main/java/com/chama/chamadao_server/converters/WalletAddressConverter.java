@@ -0,0 +1,23 @@
+package com.chama.chamadao_server.converters;
+
+import com.chama.chamadao_server.models.WalletAddress;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * JPA converter storing a {@link WalletAddress} as its 20 raw bytes
+ * Map the attribute to a {@code BINARY(20)} column; indexes on it are less than half the size of a text address.
+ */
+@Converter
+public class WalletAddressConverter implements AttributeConverter<WalletAddress, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(WalletAddress address) {
+        return address == null ? null : address.toBytes();
+    }
+
+    @Override
+    public WalletAddress convertToEntityAttribute(byte[] bytes) {
+        return bytes == null ? null : WalletAddress.fromBytes(bytes);
+    }
+}
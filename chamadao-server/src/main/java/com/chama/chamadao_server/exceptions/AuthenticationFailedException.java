@@ -0,0 +1,10 @@
+package com.chama.chamadao_server.exceptions;
+
+/**
+ * Thrown when a wallet signature or session token does not authenticate the caller
+ */
+public class AuthenticationFailedException extends RuntimeException {
+    public AuthenticationFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.chama.chamadao_server.exceptions;
+
+/**
+ * Thrown when an Idempotency-Key is still in use by another request, or was used with different parameters
+ */
+public class IdempotencyConflictException extends RuntimeException {
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
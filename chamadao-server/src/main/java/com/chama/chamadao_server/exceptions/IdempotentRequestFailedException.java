@@ -0,0 +1,11 @@
+package com.chama.chamadao_server.exceptions;
+
+/**
+ * Thrown when an Idempotency-Key is replayed whose original request failed after it may have reached M-Pesa
+ * Running the request again could pay twice, so the client has to check the payment status instead.
+ */
+public class IdempotentRequestFailedException extends RuntimeException {
+    public IdempotentRequestFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,23 @@
+package com.chama.chamadao_server.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a request cannot be accepted right now because a downstream dependency or queue is saturated
+ * Clients should retry after {@link #getRetryAfterSeconds()} seconds.
+ */
+@Getter
+public class ServiceUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds, Throwable cause) {
+        super(message, cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
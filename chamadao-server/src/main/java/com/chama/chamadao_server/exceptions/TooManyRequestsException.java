@@ -0,0 +1,18 @@
+package com.chama.chamadao_server.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a single client exceeds its request budget
+ * Clients should retry after {@link #getRetryAfterSeconds()} seconds.
+ */
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,10 @@
+package com.chama.chamadao_server.exceptions;
+
+/**
+ * Thrown when a signed-in wallet acts on another wallet's resources
+ */
+public class WalletAccessDeniedException extends RuntimeException {
+    public WalletAccessDeniedException(String message) {
+        super(message);
+    }
+}
@@ -1,12 +1,15 @@
 package com.chama.chamadao_server.mappers;
 
 import com.chama.chamadao_server.models.Chama;
+import com.chama.chamadao_server.models.Money;
 import com.chama.chamadao_server.models.User;
 import com.chama.chamadao_server.models.dto.ChamaDto;
 import com.chama.chamadao_server.models.dto.ChamaSummaryDto;
 import com.chama.chamadao_server.models.dto.UserSummaryDto;
+import com.chama.chamadao_server.models.enums.FiatCurrency;
 import org.mapstruct.*;
 
+import java.math.BigDecimal;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -40,6 +43,15 @@ public interface ChamaMapper {
                 .collect(Collectors.toSet());
     }
 
+    // Chama totals are held as KES Money and exposed as plain decimal amounts
+    default BigDecimal toAmount(Money money) {
+        return money != null ? money.toBigDecimal() : null;
+    }
+
+    default Money toKes(BigDecimal amount) {
+        return amount != null ? Money.parse(amount, FiatCurrency.KES) : null;
+    }
+
     // Update existing Chama entity with values from DTO
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     void updateChamaFromDto(ChamaDto chamaDto, @MappingTarget Chama chama);
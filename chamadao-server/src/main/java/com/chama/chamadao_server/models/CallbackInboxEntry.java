@@ -0,0 +1,60 @@
+package com.chama.chamadao_server.models;
+
+import com.chama.chamadao_server.models.enums.CallbackType;
+import com.chama.chamadao_server.models.enums.InboxStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a raw M-Pesa callback waiting to be processed
+ * Callbacks are stored as received and acknowledged immediately; workers apply them to transactions later.
+ * The stored payload doubles as a replay source when processing fails.
+ */
+@Entity
+@Table(name = "mpesa_callback_inbox", indexes = {
+        @Index(name = "idx_callback_inbox_status_next_attempt", columnList = "status, nextAttemptAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CallbackInboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private CallbackType callbackType;
+
+    // CheckoutRequestID for STK push callbacks, ConversationID for B2C callbacks
+    private String correlationId;
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private InboxStatus status;
+
+    private int attempts;
+
+    private String outcome;
+
+    @Column(nullable = false)
+    private LocalDateTime receivedAt;
+
+    private LocalDateTime nextAttemptAt;
+
+    // When a worker claimed the entry; a claim older than the lease is released for another worker
+    private LocalDateTime claimedAt;
+
+    private LocalDateTime processedAt;
+}
@@ -1,5 +1,6 @@
 package com.chama.chamadao_server.models;
 
+import com.chama.chamadao_server.converters.KesMoneyConverter;
 import com.chama.chamadao_server.models.loan.Loan;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -55,11 +56,16 @@ public class Chama {
     private Integer loanPenaltyExpirationPeriod;
     private Integer minContributionRatio;
 
-    private BigDecimal totalContributions;
-    private BigDecimal totalPayouts;
-    private BigDecimal totalLoans;
-    private BigDecimal totalLoanRepayments;
-    private BigDecimal totalLoanPenalties;
+    @Convert(converter = KesMoneyConverter.class)
+    private Money totalContributions;
+    @Convert(converter = KesMoneyConverter.class)
+    private Money totalPayouts;
+    @Convert(converter = KesMoneyConverter.class)
+    private Money totalLoans;
+    @Convert(converter = KesMoneyConverter.class)
+    private Money totalLoanRepayments;
+    @Convert(converter = KesMoneyConverter.class)
+    private Money totalLoanPenalties;
 
 
      @OneToMany(mappedBy = "chama", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
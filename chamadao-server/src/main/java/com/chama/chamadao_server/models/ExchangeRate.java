@@ -0,0 +1,44 @@
+package com.chama.chamadao_server.models;
+
+import com.chama.chamadao_server.models.enums.FiatCurrency;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Entity recording one fetch of exchange rates from the FX API
+ * Rows are only ever appended, so any conversion can be reproduced from the rates in effect when it was made.
+ */
+@Entity
+@Table(name = "exchange_rate_history", indexes = {
+        @Index(name = "idx_exchange_rate_history_fetched_at", columnList = "fetchedAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExchangeRate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime fetchedAt;
+
+    // Units of each currency per USD
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "exchange_rate_history_rates", joinColumns = @JoinColumn(name = "exchange_rate_id"))
+    @MapKeyEnumerated(EnumType.STRING)
+    @MapKeyColumn(name = "currency", length = 3)
+    @Column(name = "units_per_usd", nullable = false, precision = 24, scale = 8)
+    @Builder.Default
+    private Map<FiatCurrency, BigDecimal> rates = new EnumMap<>(FiatCurrency.class);
+}
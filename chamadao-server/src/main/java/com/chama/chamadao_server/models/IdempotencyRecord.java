@@ -0,0 +1,57 @@
+package com.chama.chamadao_server.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a client-supplied Idempotency-Key and the response stored for it
+ * A retried request with the same key gets the stored response instead of being executed again.
+ */
+@Entity
+@Table(name = "idempotency_keys", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_idempotency_keys_scope_key", columnNames = {"scope", "idempotencyKey"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // The endpoint the key was used on, so the same key can't replay a different operation
+    @Column(nullable = false, length = 64)
+    private String scope;
+
+    @Column(nullable = false)
+    private String idempotencyKey;
+
+    // SHA-256 of the request parameters, to reject a key reused with a different request
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    private Integer responseStatus;
+
+    private String responseLocation;
+
+    @Lob
+    private String responseBody;
+
+    // Set when the request failed after it may have reached M-Pesa; replays report the failure instead of retrying
+    @Column(length = 1000)
+    private String failureMessage;
+
+    private boolean completed;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime completedAt;
+}
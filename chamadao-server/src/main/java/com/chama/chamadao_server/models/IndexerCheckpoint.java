@@ -0,0 +1,33 @@
+package com.chama.chamadao_server.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity recording the last block a background indexer has processed
+ * The block hash is kept so a restart or the next pass can tell whether that block was reorged out.
+ */
+@Entity
+@Table(name = "indexer_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IndexerCheckpoint {
+
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private long blockNumber;
+
+    @Column(length = 66)
+    private String blockHash;
+
+    private LocalDateTime updatedAt;
+}
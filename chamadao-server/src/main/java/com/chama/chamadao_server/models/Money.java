@@ -0,0 +1,180 @@
+package com.chama.chamadao_server.models;
+
+import com.chama.chamadao_server.models.enums.FiatCurrency;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+/**
+ * An amount of a fiat currency, held as a whole number of its minor units (e.g. cents)
+ * Arithmetic is exact long arithmetic that fails on overflow rather than wrapping; anything that can lose precision
+ * takes an explicit rounding mode. Aggregations can add {@link #getMinorUnits()} into a long and build one Money
+ * at the end, so summing thousands of rows allocates nothing per row.
+ * Stored in major units through a {@link com.chama.chamadao_server.converters.MoneyConverter} per currency, so
+ * existing DECIMAL amount columns keep their meaning.
+ */
+public final class Money implements Comparable<Money> {
+
+    private final long minorUnits;
+    private final FiatCurrency currency;
+
+    private Money(long minorUnits, FiatCurrency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = Objects.requireNonNull(currency, "currency");
+    }
+
+    /**
+     * Create an amount from a count of minor units
+     * @param minorUnits The amount in minor units
+     * @param currency The currency
+     * @return The amount
+     */
+    public static Money ofMinor(long minorUnits, FiatCurrency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    /**
+     * Create a zero amount
+     * @param currency The currency
+     * @return The amount
+     */
+    public static Money zero(FiatCurrency currency) {
+        return new Money(0, currency);
+    }
+
+    /**
+     * Create an amount from a decimal that must fit the currency's decimal places exactly
+     * @param amount The amount in major units
+     * @param currency The currency
+     * @return The amount
+     * @throws ArithmeticException if the amount has more decimal places than the currency or does not fit a long
+     */
+    public static Money of(BigDecimal amount, FiatCurrency currency) {
+        return of(amount, currency, RoundingMode.UNNECESSARY);
+    }
+
+    /**
+     * Create an amount from a client-supplied decimal, rejecting values the currency cannot hold
+     * @param amount The amount in major units
+     * @param currency The currency
+     * @return The amount
+     * @throws IllegalArgumentException if the amount is missing, has more decimal places than the currency or is too large
+     */
+    public static Money parse(BigDecimal amount, FiatCurrency currency) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount is required");
+        }
+        try {
+            return of(amount, currency);
+        } catch (ArithmeticException e) {
+            if (amount.stripTrailingZeros().scale() > currency.getDecimals()) {
+                throw new IllegalArgumentException("Invalid " + currency + " amount " + amount.toPlainString()
+                        + ", at most " + currency.getDecimals() + " decimal places are allowed");
+            }
+            throw new IllegalArgumentException(currency + " amount " + amount.toPlainString() + " is too large");
+        }
+    }
+
+    /**
+     * Create an amount from a decimal, rounding it to the currency's decimal places
+     * @param amount The amount in major units
+     * @param currency The currency
+     * @param roundingMode How to round extra decimal places
+     * @return The amount
+     * @throws ArithmeticException if the amount does not fit a long, or needs rounding with UNNECESSARY
+     */
+    public static Money of(BigDecimal amount, FiatCurrency currency, RoundingMode roundingMode) {
+        return new Money(amount.setScale(currency.getDecimals(), roundingMode).unscaledValue().longValueExact(), currency);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public FiatCurrency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Add an amount of the same currency
+     * @param other The amount to add
+     * @return The sum
+     * @throws IllegalArgumentException if the currencies differ
+     * @throws ArithmeticException if the sum overflows
+     */
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    /**
+     * Subtract an amount of the same currency
+     * @param other The amount to subtract
+     * @return The difference
+     * @throws IllegalArgumentException if the currencies differ
+     * @throws ArithmeticException if the difference overflows
+     */
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    /**
+     * Multiply by a factor such as an interest or penalty rate
+     * @param factor The factor
+     * @param roundingMode How to round the product to minor units
+     * @return The product
+     * @throws ArithmeticException if the product does not fit a long, or needs rounding with UNNECESSARY
+     */
+    public Money multiply(BigDecimal factor, RoundingMode roundingMode) {
+        return new Money(BigDecimal.valueOf(minorUnits).multiply(factor)
+                .setScale(0, roundingMode).longValueExact(), currency);
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    /**
+     * Get the amount in major units
+     * @return The amount, with the currency's decimal places
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.getDecimals());
+    }
+
+    /**
+     * Compare with an amount of the same currency
+     * @throws IllegalArgumentException if the currencies differ
+     */
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits && currency == money.currency;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits) * 31 + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return currency + " " + toBigDecimal().toPlainString();
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (currency != other.currency) {
+            throw new IllegalArgumentException("Cannot combine " + currency + " with " + other.currency);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.chama.chamadao_server.models;
+
+import com.chama.chamadao_server.models.enums.PayoutRecipientStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing one member to be paid in a payout run
+ * The B2C withdrawal sent for the recipient is linked through transactionId.
+ */
+@Entity
+@Table(name = "payout_recipients",
+        uniqueConstraints = @UniqueConstraint(name = "uk_payout_recipient_run_wallet",
+                columnNames = {"payoutRunId", "walletAddress"}),
+        indexes = @Index(name = "idx_payout_recipient_run_status", columnList = "payoutRunId, status"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PayoutRecipient {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long payoutRunId;
+
+    @Column(nullable = false)
+    private String walletAddress;
+
+    @Column(nullable = false)
+    private String mobileNumber;
+
+    @Column(nullable = false)
+    private BigDecimal amountKES;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private PayoutRecipientStatus status;
+
+    private Long transactionId;
+
+    private String lastError;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,55 @@
+package com.chama.chamadao_server.models;
+
+import com.chama.chamadao_server.models.enums.PayoutRunStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing one payout round of a chama
+ * The run is executed by a scheduled job; each member paid in the round is a {@link PayoutRecipient}.
+ */
+@Entity
+@Table(name = "payout_runs", indexes = {
+        @Index(name = "idx_payout_run_status", columnList = "status"),
+        @Index(name = "idx_payout_run_chama", columnList = "chamaAddress")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PayoutRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String chamaAddress;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private PayoutRunStatus status;
+
+    @Column(nullable = false)
+    private BigDecimal amountPerRecipientKES;
+
+    private int totalRecipients;
+
+    // Sum of the payouts M-Pesa confirmed, filled in when the run finishes
+    private BigDecimal totalPaidKES;
+
+    private String description;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime completedAt;
+}
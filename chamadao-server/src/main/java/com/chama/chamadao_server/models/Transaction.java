@@ -1,5 +1,6 @@
 package com.chama.chamadao_server.models;
 
+import com.chama.chamadao_server.converters.KesMoneyConverter;
 import com.chama.chamadao_server.models.enums.TransactionStatus;
 import com.chama.chamadao_server.models.enums.TransactionType;
 import jakarta.persistence.*;
@@ -17,7 +18,15 @@ import java.time.LocalDateTime;
  * Entity representing a financial transaction in the system
  */
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_mpesa_receipt_number", columnList = "mpesaReceiptNumber", unique = true),
+        @Index(name = "idx_transactions_checkout_request_id", columnList = "checkoutRequestId", unique = true),
+        @Index(name = "idx_transactions_merchant_request_id", columnList = "merchantRequestId", unique = true),
+        @Index(name = "idx_transactions_conversation_id", columnList = "conversationId", unique = true),
+        @Index(name = "idx_transactions_originator_conversation_id", columnList = "originatorConversationId", unique = true),
+        @Index(name = "idx_transactions_status_created_at", columnList = "status, createdAt"),
+        @Index(name = "idx_transactions_blockchain_tx_hash", columnList = "blockchainTxHash")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -40,15 +49,38 @@ public class Transaction {
     private TransactionType type;
 
     @Column(nullable = false)
-    private BigDecimal amountKES;
+    @Convert(converter = KesMoneyConverter.class)
+    private Money amountKES;
 
     @Column(nullable = false)
     private BigDecimal amountUSDT;
 
+    // Exchange rate history row amountUSDT was converted with, so the conversion can be reproduced
+    private Long exchangeRateId;
+
     private String mpesaReceiptNumber;
 
+    // M-Pesa STK push identifiers, used to correlate deposit callbacks
+    private String checkoutRequestId;
+
+    private String merchantRequestId;
+
+    // M-Pesa B2C identifiers, used to correlate withdrawal callbacks
+    private String conversationId;
+
+    private String originatorConversationId;
+
     private String blockchainTxHash;
 
+    // Block the transfer was mined in, as last seen by the confirmation tracker
+    private Long blockchainBlockNumber;
+
+    // Set once the transfer is buried under the configured confirmation depth
+    private LocalDateTime blockchainConfirmedAt;
+
+    // Set once a reverted transfer is buried under the confirmation depth; it is never confirmed after that
+    private LocalDateTime blockchainRevertedAt;
+
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
     private TransactionStatus status;
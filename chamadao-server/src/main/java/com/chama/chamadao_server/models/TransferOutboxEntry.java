@@ -0,0 +1,61 @@
+package com.chama.chamadao_server.models;
+
+import com.chama.chamadao_server.models.enums.OutboxStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a USDT transfer owed to a user for a completed deposit
+ * The entry is written in the same database transaction that marks the deposit COMPLETED, so a
+ * completed deposit always has its transfer recorded even if the process stops before sending it.
+ */
+@Entity
+@Table(name = "usdt_transfer_outbox", indexes = {
+        @Index(name = "idx_transfer_outbox_transaction_id", columnList = "transactionId", unique = true),
+        @Index(name = "idx_transfer_outbox_status_next_attempt", columnList = "status, nextAttemptAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long transactionId;
+
+    @Column(nullable = false)
+    private String walletAddress;
+
+    @Column(nullable = false)
+    private BigDecimal amountUSDT;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private OutboxStatus status;
+
+    private int attempts;
+
+    private String txHash;
+
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime nextAttemptAt;
+
+    // When the current send started, used to detect sends interrupted by a crash
+    private LocalDateTime claimedAt;
+
+    private LocalDateTime sentAt;
+}
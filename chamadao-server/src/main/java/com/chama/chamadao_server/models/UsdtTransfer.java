@@ -0,0 +1,59 @@
+package com.chama.chamadao_server.models;
+
+import com.chama.chamadao_server.converters.WalletAddressConverter;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing an on-chain USDT Transfer event touching a user or chama wallet
+ * Rows are written by the transfer log indexer; addresses are stored as their 20 raw bytes.
+ */
+@Entity
+@Table(name = "usdt_transfers", indexes = {
+        @Index(name = "idx_usdt_transfers_tx_hash_log_index", columnList = "txHash, logIndex", unique = true),
+        @Index(name = "idx_usdt_transfers_from_block", columnList = "fromAddress, blockNumber"),
+        @Index(name = "idx_usdt_transfers_to_block", columnList = "toAddress, blockNumber"),
+        @Index(name = "idx_usdt_transfers_block_number", columnList = "blockNumber")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UsdtTransfer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 66)
+    private String txHash;
+
+    @Column(nullable = false)
+    private int logIndex;
+
+    @Column(nullable = false)
+    private long blockNumber;
+
+    @Column(nullable = false, length = 66)
+    private String blockHash;
+
+    @Convert(converter = WalletAddressConverter.class)
+    @Column(nullable = false, columnDefinition = "BINARY(20)")
+    private WalletAddress fromAddress;
+
+    @Convert(converter = WalletAddressConverter.class)
+    @Column(nullable = false, columnDefinition = "BINARY(20)")
+    private WalletAddress toAddress;
+
+    @Column(nullable = false, precision = 38, scale = 6)
+    private BigDecimal amountUSDT;
+
+    @Column(nullable = false)
+    private LocalDateTime indexedAt;
+}
@@ -0,0 +1,186 @@
+package com.chama.chamadao_server.models;
+
+import org.web3j.crypto.Keys;
+
+import java.util.Arrays;
+
+/**
+ * A 20-byte Ethereum wallet address
+ * The canonical text form is lower case with a 0x prefix; EIP-55 mixed-case checksums are verified on request.
+ * Stored as a fixed-width 20-byte binary column through
+ * {@link com.chama.chamadao_server.converters.WalletAddressConverter}, less than half the size of the text form.
+ */
+public final class WalletAddress {
+
+    public static final int LENGTH = 20;
+
+    private static final int HEX_LENGTH = LENGTH * 2;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final byte[] bytes;
+
+    private WalletAddress(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Check that a string is a 0x-prefixed 40 digit hex address, without allocating
+     * @param address The address in any case
+     * @return True if the format is valid
+     */
+    public static boolean isValid(CharSequence address) {
+        if (address == null || address.length() != HEX_LENGTH + 2
+                || address.charAt(0) != '0' || address.charAt(1) != 'x') {
+            return false;
+        }
+        for (int i = 2; i < address.length(); i++) {
+            if (Character.digit(address.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check an address's EIP-55 checksum
+     * All-lower and all-upper case addresses carry no checksum and pass; mixed-case ones must match it.
+     * @param address The address
+     * @return True if the format is valid and any checksum matches
+     */
+    public static boolean hasValidChecksum(CharSequence address) {
+        if (!isValid(address)) {
+            return false;
+        }
+        boolean lower = false;
+        boolean upper = false;
+        for (int i = 2; i < address.length(); i++) {
+            char c = address.charAt(i);
+            lower |= c >= 'a' && c <= 'f';
+            upper |= c >= 'A' && c <= 'F';
+        }
+        return !(lower && upper) || Keys.toChecksumAddress(address.toString()).contentEquals(address);
+    }
+
+    /**
+     * Parse an address in any case
+     * @param address The address
+     * @return The address
+     * @throws IllegalArgumentException if the format is invalid
+     */
+    public static WalletAddress parse(CharSequence address) {
+        if (!isValid(address)) {
+            throw new IllegalArgumentException("Invalid wallet address format: " + address);
+        }
+        return new WalletAddress(decode(address, 2));
+    }
+
+    /**
+     * Parse an address and verify its EIP-55 checksum if it has one
+     * @param address The address
+     * @return The address
+     * @throws IllegalArgumentException if the format is invalid or the checksum does not match
+     */
+    public static WalletAddress parseChecksummed(CharSequence address) {
+        if (!hasValidChecksum(address)) {
+            throw new IllegalArgumentException("Invalid wallet address or checksum: " + address);
+        }
+        return new WalletAddress(decode(address, 2));
+    }
+
+    /**
+     * Read the address held in a 32-byte event log topic
+     * @param topic The 0x-prefixed topic
+     * @return The address in its low 20 bytes
+     * @throws IllegalArgumentException if the topic is not 32 bytes of hex
+     */
+    public static WalletAddress fromTopic(CharSequence topic) {
+        if (topic == null || topic.length() != 66) {
+            throw new IllegalArgumentException("Invalid log topic: " + topic);
+        }
+        return new WalletAddress(decode(topic, topic.length() - HEX_LENGTH));
+    }
+
+    /**
+     * Wrap the 20 bytes of an address
+     * @param bytes The address bytes
+     * @return The address
+     * @throws IllegalArgumentException if there are not 20 bytes
+     */
+    public static WalletAddress fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != LENGTH) {
+            throw new IllegalArgumentException("A wallet address is " + LENGTH + " bytes");
+        }
+        return new WalletAddress(bytes.clone());
+    }
+
+    /**
+     * Bring an address into its canonical lower case form, leaving anything that is not an address unchanged
+     * Used for lookups, so an invalid address still fails as not found rather than as malformed.
+     * @param address The address in any case
+     * @return The canonical address, or the input if it is not a valid address
+     */
+    public static String normalize(String address) {
+        if (!isValid(address)) {
+            return address;
+        }
+        for (int i = 2; i < address.length(); i++) {
+            if (Character.isUpperCase(address.charAt(i))) {
+                return parse(address).toString();
+            }
+        }
+        return address;
+    }
+
+    public byte[] toBytes() {
+        return bytes.clone();
+    }
+
+    /**
+     * Get the EIP-55 mixed-case form
+     * @return The checksummed address
+     */
+    public String toChecksumString() {
+        return Keys.toChecksumAddress(toString());
+    }
+
+    /**
+     * Get the canonical form
+     * @return The 0x-prefixed lower case address
+     */
+    @Override
+    public String toString() {
+        char[] chars = new char[HEX_LENGTH + 2];
+        chars[0] = '0';
+        chars[1] = 'x';
+        for (int i = 0; i < LENGTH; i++) {
+            chars[2 + i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[3 + i * 2] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(bytes, ((WalletAddress) o).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bytes);
+    }
+
+    private static byte[] decode(CharSequence hex, int offset) {
+        byte[] bytes = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            int high = Character.digit(hex.charAt(offset + i * 2), 16);
+            int low = Character.digit(hex.charAt(offset + i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Invalid hex in wallet address: " + hex);
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,36 @@
+package com.chama.chamadao_server.models.dto;
+
+import com.chama.chamadao_server.models.enums.TransactionStatus;
+import com.chama.chamadao_server.models.enums.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a deposit or withdrawal, as reported by the payment status resource
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentStatusDto {
+
+    private Long id;
+    private TransactionType type;
+    private TransactionStatus status;
+    private String walletAddress;
+    private BigDecimal amountKES;
+    private BigDecimal amountUSDT;
+    private String checkoutRequestId;
+    private String conversationId;
+    private String mpesaReceiptNumber;
+    private String blockchainTxHash;
+    private LocalDateTime blockchainConfirmedAt;
+    private String description;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+}
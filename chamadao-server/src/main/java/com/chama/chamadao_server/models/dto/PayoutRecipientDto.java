@@ -0,0 +1,28 @@
+package com.chama.chamadao_server.models.dto;
+
+import com.chama.chamadao_server.models.enums.PayoutRecipientStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Status of one recipient of a payout run
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayoutRecipientDto {
+    private Long id;
+    private String walletAddress;
+    private String mobileNumber;
+    private BigDecimal amountKES;
+    private PayoutRecipientStatus status;
+    private Long transactionId;
+    private String lastError;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,33 @@
+package com.chama.chamadao_server.models.dto;
+
+import com.chama.chamadao_server.models.enums.PayoutRecipientStatus;
+import com.chama.chamadao_server.models.enums.PayoutRunStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Progress of a chama payout run
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayoutRunDto {
+    private Long id;
+    private String chamaAddress;
+    private PayoutRunStatus status;
+    private BigDecimal amountPerRecipientKES;
+    private int totalRecipients;
+    private Map<PayoutRecipientStatus, Long> recipientsByStatus;
+    private BigDecimal totalPaidKES;
+    private String description;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,24 @@
+package com.chama.chamadao_server.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Request to schedule a payout round for a chama
+ * When no wallet addresses are given, every member of the chama is paid.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayoutRunRequestDto {
+    private String chamaAddress;
+    private BigDecimal amountPerRecipientKES;
+    private List<String> walletAddresses;
+    private String description;
+}
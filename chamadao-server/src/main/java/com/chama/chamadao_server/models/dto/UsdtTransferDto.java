@@ -0,0 +1,27 @@
+package com.chama.chamadao_server.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * An indexed on-chain USDT transfer, as reported by the wallet history resource
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsdtTransferDto {
+
+    private String txHash;
+    private int logIndex;
+    private long blockNumber;
+    private String fromAddress;
+    private String toAddress;
+    private BigDecimal amountUSDT;
+    // True if the wallet the history was requested for received the transfer
+    private boolean incoming;
+}
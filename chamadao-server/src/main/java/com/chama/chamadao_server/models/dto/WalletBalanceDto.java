@@ -0,0 +1,26 @@
+package com.chama.chamadao_server.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * On-chain USDT balance of a wallet and its value in KES
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletBalanceDto {
+
+    private String walletAddress;
+    private BigDecimal balanceUSDT;
+    private BigDecimal balanceKES;
+    // KES per USDT used for the conversion
+    private BigDecimal exchangeRate;
+    // Block the balance was read at
+    private long blockNumber;
+}
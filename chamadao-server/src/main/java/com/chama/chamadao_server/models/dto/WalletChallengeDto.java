@@ -0,0 +1,23 @@
+package com.chama.chamadao_server.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A sign-in challenge for a wallet: the message to sign with personal_sign before it expires
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletChallengeDto {
+
+    private String walletAddress;
+    private String nonce;
+    private String message;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,22 @@
+package com.chama.chamadao_server.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A signed sign-in challenge
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletLoginDto {
+
+    private String walletAddress;
+    // The nonce of the challenge that was signed
+    private String nonce;
+    // The 65-byte personal_sign signature of the challenge message, as hex
+    private String signature;
+}
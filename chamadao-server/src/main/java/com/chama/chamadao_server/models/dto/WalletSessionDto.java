@@ -0,0 +1,23 @@
+package com.chama.chamadao_server.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A signed-in wallet session
+ * The token is only returned at sign-in and is sent back as a Bearer token.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletSessionDto {
+
+    private String token;
+    private String walletAddress;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,30 @@
+package com.chama.chamadao_server.models.dto.mpesa;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request model for M-Pesa STK Push Query API
+ * This is used to look up the outcome of an STK push whose callback never arrived
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MpesaStkQueryRequest {
+
+    @JsonProperty("BusinessShortCode")
+    private String businessShortCode;
+
+    @JsonProperty("Password")
+    private String password;
+
+    @JsonProperty("Timestamp")
+    private String timestamp;
+
+    @JsonProperty("CheckoutRequestID")
+    private String checkoutRequestID;
+}
@@ -0,0 +1,36 @@
+package com.chama.chamadao_server.models.dto.mpesa;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response model for M-Pesa STK Push Query API
+ * ResultCode 0 means the customer paid; any other code is the reason the payment did not go through
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MpesaStkQueryResponse {
+
+    @JsonProperty("ResponseCode")
+    private String responseCode;
+
+    @JsonProperty("ResponseDescription")
+    private String responseDescription;
+
+    @JsonProperty("MerchantRequestID")
+    private String merchantRequestID;
+
+    @JsonProperty("CheckoutRequestID")
+    private String checkoutRequestID;
+
+    @JsonProperty("ResultCode")
+    private String resultCode;
+
+    @JsonProperty("ResultDesc")
+    private String resultDesc;
+}
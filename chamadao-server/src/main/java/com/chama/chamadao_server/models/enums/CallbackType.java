@@ -0,0 +1,9 @@
+package com.chama.chamadao_server.models.enums;
+
+/**
+ * Enum representing the kinds of M-Pesa callbacks received by the server
+ */
+public enum CallbackType {
+    STK_PUSH,
+    B2C
+}
@@ -0,0 +1,26 @@
+package com.chama.chamadao_server.models.enums;
+
+/**
+ * Fiat currencies chamas can save in, with the number of decimal places amounts are rounded to
+ * USD is the pivot every rate is quoted against, and USDT is converted at par with it.
+ */
+public enum FiatCurrency {
+    USD(2),
+    KES(2),
+    UGX(0),
+    TZS(2),
+    RWF(0),
+    BIF(0),
+    SSP(2),
+    ETB(2);
+
+    private final int decimals;
+
+    FiatCurrency(int decimals) {
+        this.decimals = decimals;
+    }
+
+    public int getDecimals() {
+        return decimals;
+    }
+}
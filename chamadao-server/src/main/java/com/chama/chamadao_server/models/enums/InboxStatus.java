@@ -0,0 +1,12 @@
+package com.chama.chamadao_server.models.enums;
+
+/**
+ * Enum representing the processing state of a received M-Pesa callback
+ */
+public enum InboxStatus {
+    PENDING,
+    // Claimed by a worker that is applying it
+    PROCESSING,
+    PROCESSED,
+    FAILED
+}
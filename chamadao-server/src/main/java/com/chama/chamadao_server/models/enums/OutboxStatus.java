@@ -0,0 +1,13 @@
+package com.chama.chamadao_server.models.enums;
+
+/**
+ * Enum representing the state of a USDT transfer in the transfer outbox
+ */
+public enum OutboxStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED,
+    // The send was interrupted or failed ambiguously; the transfer may be on chain
+    NEEDS_REVIEW
+}
@@ -0,0 +1,16 @@
+package com.chama.chamadao_server.models.enums;
+
+/**
+ * Status of a single recipient within a payout run
+ * SUBMITTING is written before the B2C request is sent, so a recipient left in that state after a
+ * crash is never paid twice: it is moved to SUBMITTED if M-Pesa's response was recorded, otherwise
+ * to NEEDS_REVIEW.
+ */
+public enum PayoutRecipientStatus {
+    PENDING,
+    SUBMITTING,
+    SUBMITTED,
+    COMPLETED,
+    FAILED,
+    NEEDS_REVIEW
+}
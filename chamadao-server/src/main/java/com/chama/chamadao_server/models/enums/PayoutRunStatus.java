@@ -0,0 +1,11 @@
+package com.chama.chamadao_server.models.enums;
+
+/**
+ * Lifecycle of a chama payout run
+ */
+public enum PayoutRunStatus {
+    SCHEDULED,
+    RUNNING,
+    COMPLETED,
+    COMPLETED_WITH_ERRORS
+}
@@ -1,8 +1,11 @@
 package com.chama.chamadao_server.models.loan;
 
 
+import com.chama.chamadao_server.converters.KesMoneyConverter;
 import com.chama.chamadao_server.models.Chama;
+import com.chama.chamadao_server.models.Money;
 import com.chama.chamadao_server.models.User;
+import com.chama.chamadao_server.models.enums.FiatCurrency;
 import com.chama.chamadao_server.models.enums.LoanStatus;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -43,12 +46,14 @@ public class Loan {
     @Builder.Default
     private Set<LoanGuarantor> guarantors = new HashSet<>();
     // Loan details
-    private BigDecimal loanAmount;
+    @Convert(converter = KesMoneyConverter.class)
+    private Money loanAmount;
     private BigDecimal loanInterestRate;
     private String loanTerm;
     private LocalDateTime dueDate;
     private Integer requiredGuarantors;
-    private BigDecimal totalGuaranteedAmount;
+    @Convert(converter = KesMoneyConverter.class)
+    private Money totalGuaranteedAmount;
 
     // Status tracking
     @Enumerated(EnumType.STRING)
@@ -66,12 +71,14 @@ public class Loan {
     private LocalDateTime lastUpdated;
 
     // Amount tracking
-    private BigDecimal amountRepaid;
-    private BigDecimal outstandingAmount;
+    @Convert(converter = KesMoneyConverter.class)
+    private Money amountRepaid;
+    @Convert(converter = KesMoneyConverter.class)
+    private Money outstandingAmount;
 
     //helper methods
 
-    public void addGuarantor(User guarantor, BigDecimal amount) {
+    public void addGuarantor(User guarantor, Money amount) {
         LoanGuarantor loanGuarantor = LoanGuarantor.builder()
                 .loan(this)
                 .guarantor(guarantor)
@@ -83,10 +90,14 @@ public class Loan {
         updateTotalGuaranteedAmount();
     }
 
+    // Sums minor units in a long so the loop allocates nothing per guarantor
     public void updateTotalGuaranteedAmount() {
-        this.totalGuaranteedAmount = guarantors.stream()
-                .filter(g -> g.getStatus() == LoanGuarantor.GuarantorStatus.APPROVED)
-                .map(LoanGuarantor::getGuaranteedAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long approvedCents = 0;
+        for (LoanGuarantor guarantor : guarantors) {
+            if (guarantor.getStatus() == LoanGuarantor.GuarantorStatus.APPROVED) {
+                approvedCents = Math.addExact(approvedCents, guarantor.getGuaranteedAmount().getMinorUnits());
+            }
+        }
+        this.totalGuaranteedAmount = Money.ofMinor(approvedCents, FiatCurrency.KES);
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.chama.chamadao_server.models.loan;
 
+import com.chama.chamadao_server.converters.KesMoneyConverter;
+import com.chama.chamadao_server.models.Money;
 import com.chama.chamadao_server.models.User;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -8,7 +10,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -26,7 +27,8 @@ public class LoanGuarantor {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "guarantor_wallet_address", referencedColumnName = "walletAddress")
     private User guarantor;
-    private BigDecimal guaranteedAmount;
+    @Convert(converter = KesMoneyConverter.class)
+    private Money guaranteedAmount;
     @Enumerated(EnumType.STRING)
     private GuarantorStatus status;
 
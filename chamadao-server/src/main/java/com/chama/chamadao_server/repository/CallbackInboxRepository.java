@@ -0,0 +1,81 @@
+package com.chama.chamadao_server.repository;
+
+import com.chama.chamadao_server.models.CallbackInboxEntry;
+import com.chama.chamadao_server.models.enums.InboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for CallbackInboxEntry entity
+ */
+public interface CallbackInboxRepository extends JpaRepository<CallbackInboxEntry, Long> {
+
+    /**
+     * Find the next batch of entries due for processing in a worker's partition
+     * Entries are partitioned by id so that the workers of one node do not contend for the same entry. Other
+     * nodes may select the same entries, so each entry must be claimed before it is applied.
+     * @param status The status to select
+     * @param now Only entries whose next attempt is due at or before this time are returned
+     * @param workers The total number of workers
+     * @param worker The partition of the calling worker
+     * @param pageable The batch size
+     * @return The entries in id order
+     */
+    @Query("SELECT c FROM CallbackInboxEntry c WHERE c.status = :status AND c.nextAttemptAt <= :now " +
+            "AND MOD(c.id, :workers) = :worker ORDER BY c.id")
+    List<CallbackInboxEntry> findDueForWorker(
+            @Param("status") InboxStatus status,
+            @Param("now") LocalDateTime now,
+            @Param("workers") long workers,
+            @Param("worker") long worker,
+            Pageable pageable);
+
+    /**
+     * Claim a pending entry for processing
+     * Only one worker, on any node, can claim an entry, so a callback is never applied twice concurrently.
+     * @param id The id of the entry
+     * @param now The claim time
+     * @return 1 if the entry was claimed, 0 if it was no longer pending
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE CallbackInboxEntry c SET c.status = com.chama.chamadao_server.models.enums.InboxStatus.PROCESSING, " +
+            "c.claimedAt = :now WHERE c.id = :id AND c.status = com.chama.chamadao_server.models.enums.InboxStatus.PENDING")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Put entries whose claim has outlived its lease back in the queue
+     * @param claimedBefore Entries claimed before this time are released
+     * @return The number of entries released
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE CallbackInboxEntry c SET c.status = com.chama.chamadao_server.models.enums.InboxStatus.PENDING, " +
+            "c.claimedAt = null WHERE c.status = com.chama.chamadao_server.models.enums.InboxStatus.PROCESSING " +
+            "AND c.claimedAt < :claimedBefore")
+    int releaseExpiredClaims(@Param("claimedBefore") LocalDateTime claimedBefore);
+
+    /**
+     * Count entries by status
+     * @param status The status to count
+     * @return The number of entries
+     */
+    long countByStatus(InboxStatus status);
+
+    /**
+     * Put failed entries back in the queue
+     * @param now The time from which the entries are due again
+     * @return The number of entries requeued
+     */
+    @Modifying
+    @Query("UPDATE CallbackInboxEntry c SET c.status = com.chama.chamadao_server.models.enums.InboxStatus.PENDING, " +
+            "c.attempts = 0, c.nextAttemptAt = :now WHERE c.status = com.chama.chamadao_server.models.enums.InboxStatus.FAILED")
+    int requeueFailed(@Param("now") LocalDateTime now);
+}
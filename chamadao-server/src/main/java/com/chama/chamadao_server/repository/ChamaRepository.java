@@ -2,10 +2,20 @@ package com.chama.chamadao_server.repository;
 
 import com.chama.chamadao_server.models.Chama;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 /**
  * Repository for Chama entities
  * The primary key is walletAddress (String), so findById can be used to find a Chama by wallet address
  */
 public interface ChamaRepository extends JpaRepository<Chama, String> {
+
+    @Query("SELECT c.chamaAddress FROM Chama c")
+    List<String> findAllChamaAddresses();
+
+    @Query("SELECT m.walletAddress FROM Chama c JOIN c.members m WHERE c.chamaAddress = :chamaAddress")
+    List<String> findMemberWalletAddresses(@Param("chamaAddress") String chamaAddress);
 }
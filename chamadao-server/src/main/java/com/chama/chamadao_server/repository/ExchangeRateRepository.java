@@ -0,0 +1,25 @@
+package com.chama.chamadao_server.repository;
+
+import com.chama.chamadao_server.models.ExchangeRate;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long> {
+
+    /**
+     * Find the rates fetched since an instant, oldest first
+     * @param since The earliest fetch time to return
+     * @return The rates
+     */
+    List<ExchangeRate> findByFetchedAtGreaterThanEqualOrderByFetchedAtAsc(LocalDateTime since);
+
+    /**
+     * Find the rates in effect at an instant
+     * @param at The instant
+     * @return The last rates fetched at or before it
+     */
+    Optional<ExchangeRate> findFirstByFetchedAtLessThanEqualOrderByFetchedAtDesc(LocalDateTime at);
+}
@@ -0,0 +1,55 @@
+package com.chama.chamadao_server.repository;
+
+import com.chama.chamadao_server.models.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Repository for IdempotencyRecord entity
+ */
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    /**
+     * Find the record for an idempotency key on an endpoint
+     * @param scope The endpoint scope
+     * @param idempotencyKey The client-supplied key
+     * @return An optional record
+     */
+    Optional<IdempotencyRecord> findByScopeAndIdempotencyKey(String scope, String idempotencyKey);
+
+    /**
+     * Close a record whose request never completed, if it is still open and was claimed before a cutoff
+     * Only one caller can close a record, and a request still inside its lease is never closed.
+     * @param id The id of the record
+     * @param cutoff Only records created before this time are closed
+     * @param responseStatus The status to store
+     * @param failureMessage The failure to report on replay
+     * @param now The completion time
+     * @return 1 if the record was closed, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.completed = true, r.responseStatus = :responseStatus, " +
+            "r.failureMessage = :failureMessage, r.completedAt = :now " +
+            "WHERE r.id = :id AND r.completed = false AND r.createdAt < :cutoff")
+    int closeAbandoned(@Param("id") Long id,
+                       @Param("cutoff") LocalDateTime cutoff,
+                       @Param("responseStatus") int responseStatus,
+                       @Param("failureMessage") String failureMessage,
+                       @Param("now") LocalDateTime now);
+
+    /**
+     * Delete records created before a cutoff
+     * @param cutoff Records created before this time are deleted
+     * @return The number of records deleted
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,7 @@
+package com.chama.chamadao_server.repository;
+
+import com.chama.chamadao_server.models.IndexerCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface IndexerCheckpointRepository extends JpaRepository<IndexerCheckpoint, String> {
+}
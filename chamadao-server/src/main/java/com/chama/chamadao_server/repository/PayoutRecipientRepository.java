@@ -0,0 +1,143 @@
+package com.chama.chamadao_server.repository;
+
+import com.chama.chamadao_server.models.PayoutRecipient;
+import com.chama.chamadao_server.models.enums.PayoutRecipientStatus;
+import com.chama.chamadao_server.models.enums.TransactionStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for PayoutRecipient entity
+ */
+public interface PayoutRecipientRepository extends JpaRepository<PayoutRecipient, Long> {
+
+    /**
+     * Find the recipients of a run in a given state, in id order
+     * @param payoutRunId The id of the payout run
+     * @param status The state to select
+     * @param pageable The batch size
+     * @return The matching recipients
+     */
+    List<PayoutRecipient> findByPayoutRunIdAndStatusOrderByIdAsc(
+            Long payoutRunId, PayoutRecipientStatus status, Pageable pageable);
+
+    /**
+     * Find all recipients of a run
+     * @param payoutRunId The id of the payout run
+     * @return The recipients in id order
+     */
+    List<PayoutRecipient> findByPayoutRunIdOrderByIdAsc(Long payoutRunId);
+
+    /**
+     * Count the recipients of a run in any of the given states
+     * @param payoutRunId The id of the payout run
+     * @param statuses The states to count
+     * @return The number of recipients
+     */
+    long countByPayoutRunIdAndStatusIn(Long payoutRunId, Collection<PayoutRecipientStatus> statuses);
+
+    /**
+     * Count the recipients of a run per state
+     * @param payoutRunId The id of the payout run
+     * @return Rows of [status, count]
+     */
+    @Query("SELECT r.status, COUNT(r) FROM PayoutRecipient r WHERE r.payoutRunId = :payoutRunId GROUP BY r.status")
+    List<Object[]> countByStatus(@Param("payoutRunId") Long payoutRunId);
+
+    /**
+     * Sum the amounts of the recipients of a run in a given state
+     * @param payoutRunId The id of the payout run
+     * @param status The state to sum
+     * @return The total amount in KES, or null if there are none
+     */
+    @Query("SELECT SUM(r.amountKES) FROM PayoutRecipient r WHERE r.payoutRunId = :payoutRunId AND r.status = :status")
+    BigDecimal sumAmountByStatus(@Param("payoutRunId") Long payoutRunId, @Param("status") PayoutRecipientStatus status);
+
+    /**
+     * Move a recipient from one state to another only if it is still in the expected state
+     * Used to claim a PENDING recipient for payment: only one node or run can win the claim, so a recipient is
+     * never sent two B2C requests concurrently.
+     * @param id The id of the recipient
+     * @param from The state the recipient must be in
+     * @param to The new state
+     * @param lastError The error to record, or null
+     * @param now The update time
+     * @return 1 if the recipient was moved, 0 if it was no longer in the expected state
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE PayoutRecipient r SET r.status = :to, r.lastError = :lastError, r.updatedAt = :now " +
+            "WHERE r.id = :id AND r.status = :from")
+    int transition(@Param("id") Long id,
+                   @Param("from") PayoutRecipientStatus from,
+                   @Param("to") PayoutRecipientStatus to,
+                   @Param("lastError") String lastError,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Move recipients whose withdrawal has reached a final state to the matching recipient state
+     * Applies the outcome of all B2C callbacks received for the run in one statement.
+     * @param payoutRunId The id of the payout run
+     * @param from The recipient state to update
+     * @param transactionStatus The withdrawal state to match
+     * @param to The new recipient state
+     * @param now The update time
+     * @return The number of recipients updated
+     */
+    @Modifying
+    @Query("UPDATE PayoutRecipient r SET r.status = :to, r.updatedAt = :now " +
+            "WHERE r.payoutRunId = :payoutRunId AND r.status = :from " +
+            "AND r.transactionId IN (SELECT t.id FROM Transaction t WHERE t.status = :transactionStatus)")
+    int updateStatusFromTransactions(
+            @Param("payoutRunId") Long payoutRunId,
+            @Param("from") PayoutRecipientStatus from,
+            @Param("transactionStatus") TransactionStatus transactionStatus,
+            @Param("to") PayoutRecipientStatus to,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Park submitted recipients whose withdrawal is still waiting for its B2C callback after a deadline
+     * Withdrawals that already have an outcome are left for {@link #updateStatusFromTransactions}.
+     * @param payoutRunId The id of the payout run
+     * @param submittedBefore Recipients submitted before this time are parked
+     * @param lastError The reason to record
+     * @param now The update time
+     * @return The number of recipients parked
+     */
+    @Modifying
+    @Query("UPDATE PayoutRecipient r SET r.status = com.chama.chamadao_server.models.enums.PayoutRecipientStatus.NEEDS_REVIEW, " +
+            "r.lastError = :lastError, r.updatedAt = :now " +
+            "WHERE r.payoutRunId = :payoutRunId " +
+            "AND r.status = com.chama.chamadao_server.models.enums.PayoutRecipientStatus.SUBMITTED " +
+            "AND r.updatedAt < :submittedBefore " +
+            "AND r.transactionId IN (SELECT t.id FROM Transaction t " +
+            "WHERE t.status = com.chama.chamadao_server.models.enums.TransactionStatus.PENDING)")
+    int expireSubmitted(@Param("payoutRunId") Long payoutRunId,
+                        @Param("submittedBefore") LocalDateTime submittedBefore,
+                        @Param("lastError") String lastError,
+                        @Param("now") LocalDateTime now);
+
+    /**
+     * Put recipients in the given states back in the queue
+     * @param payoutRunId The id of the payout run
+     * @param statuses The states to requeue
+     * @param now The update time
+     * @return The number of recipients requeued
+     */
+    @Modifying
+    @Query("UPDATE PayoutRecipient r SET r.status = com.chama.chamadao_server.models.enums.PayoutRecipientStatus.PENDING, " +
+            "r.transactionId = null, r.lastError = null, r.updatedAt = :now " +
+            "WHERE r.payoutRunId = :payoutRunId AND r.status IN :statuses")
+    int requeue(@Param("payoutRunId") Long payoutRunId,
+                @Param("statuses") Collection<PayoutRecipientStatus> statuses,
+                @Param("now") LocalDateTime now);
+}
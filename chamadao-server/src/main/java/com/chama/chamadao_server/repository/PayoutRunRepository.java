@@ -0,0 +1,28 @@
+package com.chama.chamadao_server.repository;
+
+import com.chama.chamadao_server.models.PayoutRun;
+import com.chama.chamadao_server.models.enums.PayoutRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for PayoutRun entity
+ */
+public interface PayoutRunRepository extends JpaRepository<PayoutRun, Long> {
+
+    /**
+     * Find runs in any of the given states, oldest first
+     * @param statuses The states to select
+     * @return The matching runs
+     */
+    List<PayoutRun> findByStatusInOrderByIdAsc(Collection<PayoutRunStatus> statuses);
+
+    /**
+     * Find the payout runs of a chama, newest first
+     * @param chamaAddress The address of the chama
+     * @return The payout runs
+     */
+    List<PayoutRun> findByChamaAddressOrderByCreatedAtDesc(String chamaAddress);
+}
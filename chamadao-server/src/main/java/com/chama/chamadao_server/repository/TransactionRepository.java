@@ -6,10 +6,13 @@ import com.chama.chamadao_server.models.enums.TransactionType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -57,6 +60,34 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      */
     Optional<Transaction> findByMpesaReceiptNumber(String mpesaReceiptNumber);
 
+    /**
+     * Check whether a transaction with the given M-Pesa receipt number exists
+     * @param mpesaReceiptNumber The M-Pesa receipt number to search for
+     * @return True if a transaction already carries the receipt number
+     */
+    boolean existsByMpesaReceiptNumber(String mpesaReceiptNumber);
+
+    /**
+     * Find a transaction by its M-Pesa STK push checkout request ID
+     * @param checkoutRequestId The CheckoutRequestID returned by the STK push
+     * @return An optional transaction
+     */
+    Optional<Transaction> findByCheckoutRequestId(String checkoutRequestId);
+
+    /**
+     * Find a transaction by its M-Pesa B2C conversation ID
+     * @param conversationId The ConversationID returned by the B2C request
+     * @return An optional transaction
+     */
+    Optional<Transaction> findByConversationId(String conversationId);
+
+    /**
+     * Find a transaction by its M-Pesa B2C originator conversation ID
+     * @param originatorConversationId The OriginatorConversationID returned by the B2C request
+     * @return An optional transaction
+     */
+    Optional<Transaction> findByOriginatorConversationId(String originatorConversationId);
+
     /**
      * Find transactions by blockchain transaction hash
      * @param blockchainTxHash The blockchain transaction hash to search for
@@ -94,4 +125,99 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      * @return A page of transactions
      */
     Page<Transaction> findByWalletAddressAndStatus(String walletAddress, TransactionStatus status, Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * Find transactions in a status created before a cutoff, one keyset page at a time
+     * Served by the (status, createdAt) index; pass the createdAt and id of the last row of the previous
+     * page to continue after it.
+     * @param status The transaction status to search for
+     * @param type The transaction type to search for
+     * @param createdBefore Only transactions created at or before this time are returned
+     * @param afterCreatedAt The createdAt of the last row of the previous page
+     * @param afterId The id of the last row of the previous page
+     * @param pageable The page size
+     * @return The transactions in (createdAt, id) order
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.status = :status AND t.createdAt <= :createdBefore " +
+            "AND (t.createdAt > :afterCreatedAt OR (t.createdAt = :afterCreatedAt AND t.id > :afterId)) " +
+            "AND t.type = :type ORDER BY t.createdAt, t.id")
+    List<Transaction> findByStatusCreatedBefore(
+            @Param("status") TransactionStatus status,
+            @Param("type") TransactionType type,
+            @Param("createdBefore") LocalDateTime createdBefore,
+            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    /**
+     * Count transactions of a type in a status created at or before a cutoff
+     * @param status The transaction status to count
+     * @param type The transaction type to count
+     * @param createdAt The cutoff
+     * @return The number of transactions
+     */
+    long countByStatusAndTypeAndCreatedAtLessThanEqual(TransactionStatus status, TransactionType type, LocalDateTime createdAt);
+
+    /**
+     * Find the oldest transaction of a type in a status
+     * @param status The transaction status to search for
+     * @param type The transaction type to search for
+     * @return An optional transaction
+     */
+    Optional<Transaction> findFirstByStatusAndTypeOrderByCreatedAtAsc(TransactionStatus status, TransactionType type);
+
+    /**
+     * Change the status of a transaction only if it is still in the expected status
+     * Used to make sure competing updates, such as a late callback and reconciliation, apply only once.
+     * @param id The ID of the transaction
+     * @param from The expected current status
+     * @param to The new status
+     * @return 1 if the status was changed, 0 if the transaction was no longer in the expected status
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :to WHERE t.id = :id AND t.status = :from")
+    int transitionStatus(@Param("id") Long id, @Param("from") TransactionStatus from, @Param("to") TransactionStatus to);
+
+    /**
+     * Find transactions with a blockchain transfer that is neither confirmed nor known to have reverted, in id order
+     * @param afterId Only transactions with a greater id are returned, for keyset paging
+     * @param pageable The page size
+     * @return The transactions
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.blockchainTxHash IS NOT NULL AND t.blockchainConfirmedAt IS NULL " +
+            "AND t.blockchainRevertedAt IS NULL AND t.id > :afterId ORDER BY t.id")
+    List<Transaction> findUnconfirmedTransfers(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Record the block a transfer was mined in, or clear it after a reorg
+     * @param id The ID of the transaction
+     * @param blockNumber The block number, or null
+     * @return The number of transactions updated
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.blockchainBlockNumber = :blockNumber WHERE t.id = :id")
+    int updateBlockchainBlockNumber(@Param("id") Long id, @Param("blockNumber") Long blockNumber);
+
+    /**
+     * Mark transfers as confirmed in one statement
+     * @param ids The IDs of the transactions
+     * @param confirmedAt The confirmation time
+     * @return The number of transactions updated
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.blockchainConfirmedAt = :confirmedAt WHERE t.id IN :ids " +
+            "AND t.blockchainConfirmedAt IS NULL")
+    int markBlockchainConfirmed(@Param("ids") Collection<Long> ids, @Param("confirmedAt") LocalDateTime confirmedAt);
+
+    /**
+     * Mark reverted transfers in one statement, so the confirmation tracker stops checking them
+     * @param ids The IDs of the transactions
+     * @param revertedAt The time the revert became final
+     * @return The number of transactions updated
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.blockchainRevertedAt = :revertedAt WHERE t.id IN :ids " +
+            "AND t.blockchainConfirmedAt IS NULL AND t.blockchainRevertedAt IS NULL")
+    int markBlockchainReverted(@Param("ids") Collection<Long> ids, @Param("revertedAt") LocalDateTime revertedAt);
+}
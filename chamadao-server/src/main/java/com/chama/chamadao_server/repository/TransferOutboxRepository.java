@@ -0,0 +1,88 @@
+package com.chama.chamadao_server.repository;
+
+import com.chama.chamadao_server.models.TransferOutboxEntry;
+import com.chama.chamadao_server.models.enums.OutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for TransferOutboxEntry entity
+ */
+public interface TransferOutboxRepository extends JpaRepository<TransferOutboxEntry, Long> {
+
+    /**
+     * Find the next batch of entries due for sending
+     * @param status The status to select
+     * @param now Only entries whose next attempt is due at or before this time are returned
+     * @param pageable The batch size
+     * @return The entries in id order
+     */
+    @Query("SELECT o FROM TransferOutboxEntry o WHERE o.status = :status AND o.nextAttemptAt <= :now ORDER BY o.id")
+    List<TransferOutboxEntry> findDue(
+            @Param("status") OutboxStatus status,
+            @Param("now") LocalDateTime now,
+            Pageable pageable);
+
+    /**
+     * Find entries whose send started before the given time
+     * @param status The status to select
+     * @param claimedBefore Only entries claimed before this time are returned
+     * @return The entries in id order
+     */
+    List<TransferOutboxEntry> findByStatusAndClaimedAtBeforeOrderByIdAsc(OutboxStatus status, LocalDateTime claimedBefore);
+
+    /**
+     * Find the entry for a transaction
+     * @param transactionId The id of the deposit
+     * @return The entry if one exists
+     */
+    Optional<TransferOutboxEntry> findByTransactionId(Long transactionId);
+
+    /**
+     * Find the oldest entry with a status
+     * @param status The status to select
+     * @return The oldest entry if one exists
+     */
+    Optional<TransferOutboxEntry> findFirstByStatusOrderByCreatedAtAsc(OutboxStatus status);
+
+    /**
+     * Count entries by status
+     * @param status The status to count
+     * @return The number of entries
+     */
+    long countByStatus(OutboxStatus status);
+
+    /**
+     * Claim a pending entry for sending
+     * Only one dispatcher can claim an entry, so a transfer is never sent twice concurrently.
+     * @param id The id of the entry
+     * @param now The claim time
+     * @return 1 if the entry was claimed, 0 if it was no longer pending
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE TransferOutboxEntry o SET o.status = com.chama.chamadao_server.models.enums.OutboxStatus.SENDING, " +
+            "o.claimedAt = :now, o.attempts = o.attempts + 1 " +
+            "WHERE o.id = :id AND o.status = com.chama.chamadao_server.models.enums.OutboxStatus.PENDING")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Put entries back in the queue
+     * @param statuses The statuses to requeue
+     * @param now The time from which the entries are due again
+     * @return The number of entries requeued
+     */
+    @Modifying
+    @Query("UPDATE TransferOutboxEntry o SET o.status = com.chama.chamadao_server.models.enums.OutboxStatus.PENDING, " +
+            "o.attempts = 0, o.nextAttemptAt = :now WHERE o.status IN :statuses")
+    int requeue(@Param("statuses") Collection<OutboxStatus> statuses, @Param("now") LocalDateTime now);
+}
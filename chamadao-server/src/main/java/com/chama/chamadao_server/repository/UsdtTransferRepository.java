@@ -0,0 +1,33 @@
+package com.chama.chamadao_server.repository;
+
+import com.chama.chamadao_server.models.UsdtTransfer;
+import com.chama.chamadao_server.models.WalletAddress;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface UsdtTransferRepository extends JpaRepository<UsdtTransfer, Long> {
+
+    /**
+     * Find the indexed transfers sent or received by an address, newest first
+     * @param address The address
+     * @param pageable The page to return
+     * @return The transfers
+     */
+    @Query("SELECT t FROM UsdtTransfer t WHERE t.fromAddress = :address OR t.toAddress = :address " +
+            "ORDER BY t.blockNumber DESC, t.logIndex DESC")
+    List<UsdtTransfer> findByAddress(@Param("address") WalletAddress address, Pageable pageable);
+
+    /**
+     * Delete the transfers above a block, so a reorged range can be indexed again
+     * @param blockNumber The last block to keep
+     * @return The number of transfers deleted
+     */
+    @Modifying
+    @Query("DELETE FROM UsdtTransfer t WHERE t.blockNumber > :blockNumber")
+    int deleteByBlockNumberGreaterThan(@Param("blockNumber") long blockNumber);
+}
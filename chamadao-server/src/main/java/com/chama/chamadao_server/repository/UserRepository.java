@@ -27,4 +27,7 @@ public interface UserRepository extends JpaRepository<User, String> {
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.memberChamas WHERE u.walletAddress = :walletAddress")
     Optional<User> findUserWithChamasByWalletAddress(String walletAddress);
 
+    @Query("SELECT u.walletAddress FROM User u")
+    List<String> findAllWalletAddresses();
+
 }
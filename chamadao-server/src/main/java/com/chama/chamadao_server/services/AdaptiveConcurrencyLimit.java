@@ -0,0 +1,111 @@
+package com.chama.chamadao_server.services;
+
+/**
+ * Concurrency limit that adapts to the latency of the downstream (AIMD)
+ * The limit grows by one per limit's worth of successful calls while it is being used, and is cut
+ * multiplicatively when a call fails or when the short-term average latency rises above the long-term
+ * average by more than the tolerance, i.e. when requests start queueing at the downstream.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double SHORT_LATENCY_WEIGHT = 0.2;
+    private static final double LONG_LATENCY_WEIGHT = 0.02;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+    private double shortLatencyNanos;
+    private double longLatencyNanos;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                                    double latencyTolerance, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * Take a slot for a call if the limit allows it
+     * Every acquired slot must be returned with {@link #onSuccess(long)}, {@link #onDropped()} or {@link #release()}.
+     * @return True if the call may be made
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= getLimit()) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Return the slot of a call that completed and adjust the limit to its latency
+     * @param latencyNanos The latency of the call
+     */
+    public synchronized void onSuccess(long latencyNanos) {
+        boolean limitInUse = inFlight * 2 >= getLimit();
+        inFlight--;
+
+        if (longLatencyNanos == 0) {
+            shortLatencyNanos = latencyNanos;
+            longLatencyNanos = latencyNanos;
+        } else {
+            shortLatencyNanos += SHORT_LATENCY_WEIGHT * (latencyNanos - shortLatencyNanos);
+            longLatencyNanos += LONG_LATENCY_WEIGHT * (latencyNanos - longLatencyNanos);
+        }
+
+        if (shortLatencyNanos > longLatencyNanos * latencyTolerance) {
+            decrease();
+        } else if (limitInUse) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * Return the slot of a call that failed or timed out and back off
+     */
+    public synchronized void onDropped() {
+        inFlight--;
+        decrease();
+    }
+
+    /**
+     * Return the slot of a call without adjusting the limit
+     */
+    public synchronized void release() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Get the short-term average latency
+     * @return The latency in milliseconds
+     */
+    public synchronized double getShortLatencyMillis() {
+        return shortLatencyNanos / 1_000_000.0;
+    }
+
+    /**
+     * Get the long-term average latency the short-term average is compared against
+     * @return The latency in milliseconds
+     */
+    public synchronized double getLongLatencyMillis() {
+        return longLatencyNanos / 1_000_000.0;
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+}
@@ -0,0 +1,102 @@
+package com.chama.chamadao_server.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over Ethereum addresses
+ * Addresses are the low 20 bytes of a keccak hash and already uniformly distributed, so the bit positions are
+ * derived from the address bits directly instead of hashing again. A lookup parses two 64-bit words from
+ * the hex string and tests a handful of bits, without allocating. Adding is safe while other threads look up.
+ */
+public class AddressBloomFilter {
+
+    private static final int ADDRESS_HEX_LENGTH = 40;
+
+    private final AtomicLongArray words;
+    private final long numBits;
+    private final int numHashes;
+    private final int capacity;
+
+    /**
+     * Create a filter sized for a number of addresses and a false positive rate
+     * @param capacity The number of addresses the filter is sized for
+     * @param falsePositiveRate The share of unknown addresses the filter may let through at that size
+     */
+    public AddressBloomFilter(int capacity, double falsePositiveRate) {
+        this.capacity = Math.max(1, capacity);
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-this.capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.numBits = wordCount * 64L;
+        this.numHashes = Math.max(1, (int) Math.round(numBits / (double) this.capacity * ln2));
+    }
+
+    /**
+     * Add an address
+     * @param address The address, with or without 0x and in any case, or a 32-byte log topic holding one
+     */
+    public void add(CharSequence address) {
+        long h1 = word(address, 0);
+        long h2 = word(address, 16) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, numBits);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((words.get(index) & mask) == 0) {
+                words.getAndUpdate(index, word -> word | mask);
+            }
+        }
+    }
+
+    /**
+     * Check whether an address may have been added
+     * @param address The address, with or without 0x and in any case, or a 32-byte log topic holding one
+     * @return False if the address was certainly not added
+     */
+    public boolean mightContain(CharSequence address) {
+        long h1 = word(address, 0);
+        long h2 = word(address, 16) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, numBits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getNumBits() {
+        return numBits;
+    }
+
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    /**
+     * Parse 16 hex digits of the address part, i.e. the last 40 hex digits of the string
+     * @param address The address or topic
+     * @param offset The offset of the first digit within the address part
+     * @return The parsed word
+     */
+    private static long word(CharSequence address, int offset) {
+        int start = address.length() - ADDRESS_HEX_LENGTH + offset;
+        if (start < 0) {
+            throw new IllegalArgumentException("Not an address: " + address);
+        }
+        long value = 0;
+        for (int i = start; i < start + 16; i++) {
+            int digit = Character.digit(address.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Not an address: " + address);
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,156 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.BlockchainConfig;
+import com.chama.chamadao_server.repository.ChamaRepository;
+import com.chama.chamadao_server.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service that knows which addresses the platform watches on chain: user wallets, chama treasuries and hot wallets
+ * Every Transfer log is screened against a Bloom filter of the watched addresses first, which rejects almost
+ * all of them with a few bit tests; only the ones that pass are checked against the exact set. Addresses are
+ * added as users and chamas are created; once the set outgrows the filter it is rebuilt at twice the size.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AddressWatcher {
+
+    private static final int ADDRESS_HEX_LENGTH = 40;
+
+    private final UserRepository userRepository;
+    private final ChamaRepository chamaRepository;
+    private final BlockchainService blockchainService;
+    private final BlockchainConfig blockchainConfig;
+
+    private final Set<String> watched = ConcurrentHashMap.newKeySet();
+    private volatile AddressBloomFilter filter;
+
+    private final LongAdder screened = new LongAdder();
+    private final LongAdder filterPassed = new LongAdder();
+    private final LongAdder matched = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    /**
+     * Load the watched addresses
+     * This method is called automatically when the service is created
+     */
+    @PostConstruct
+    public void init() {
+        // Stored addresses may be checksummed; the set holds them in lower case like log topics
+        userRepository.findAllWalletAddresses().forEach(address -> watched.add(normalize(address)));
+        chamaRepository.findAllChamaAddresses().forEach(address -> watched.add(normalize(address)));
+        blockchainService.getHotWalletAddresses().forEach(address -> watched.add(normalize(address)));
+        rebuild(Math.max(blockchainConfig.getWatcherExpectedAddresses(), watched.size() * 2));
+        log.info("Watching {} addresses for USDT transfers", watched.size());
+    }
+
+    /**
+     * Start watching an address
+     * @param address The wallet address, in any case
+     */
+    public void add(String address) {
+        String normalized = normalize(address);
+        if (!watched.add(normalized)) {
+            return;
+        }
+        AddressBloomFilter current = filter;
+        current.add(normalized);
+        if (watched.size() > current.getCapacity()) {
+            synchronized (this) {
+                if (filter == current) {
+                    rebuild(current.getCapacity() * 2);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether an address is watched
+     * @param address The address or a 32-byte log topic holding one, in any case
+     * @return True if the address is watched
+     */
+    public boolean isWatched(String address) {
+        screened.increment();
+        if (!filter.mightContain(address)) {
+            return false;
+        }
+        filterPassed.increment();
+        if (watched.contains(normalize(address))) {
+            matched.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether an address is watched, without counting it as a screened log address
+     * @param address The wallet address, in any case
+     * @return True if the address is watched
+     */
+    public boolean contains(String address) {
+        return watched.contains(normalize(address));
+    }
+
+    /**
+     * Get the watcher counters
+     * @return The watcher statistics
+     */
+    public Stats getStats() {
+        AddressBloomFilter current = filter;
+        long passed = filterPassed.sum();
+        long falsePositives = passed - matched.sum();
+        long rejected = screened.sum() - matched.sum();
+        return new Stats(
+                watched.size(),
+                current.getCapacity(),
+                current.getNumBits() / 8,
+                current.getNumHashes(),
+                screened.sum(),
+                passed,
+                matched.sum(),
+                rejected == 0 ? 0 : falsePositives / (double) rejected,
+                rebuilds.sum());
+    }
+
+    private void rebuild(int capacity) {
+        AddressBloomFilter rebuilt = new AddressBloomFilter(capacity, blockchainConfig.getWatcherFalsePositiveRate());
+        watched.forEach(rebuilt::add);
+        filter = rebuilt;
+        // Addresses added while the copy was made are added again; adding twice is harmless
+        watched.forEach(rebuilt::add);
+        rebuilds.increment();
+        log.info("Rebuilt the watched address filter for {} addresses ({} KiB)", capacity, rebuilt.getNumBits() / 8192);
+    }
+
+    /**
+     * Reduce an address or log topic to its lower case 0x-prefixed 20-byte form
+     */
+    private static String normalize(String address) {
+        return "0x" + address.substring(address.length() - ADDRESS_HEX_LENGTH).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Address watcher statistics
+     * The observed false positive rate is the share of unwatched addresses that got past the filter.
+     */
+    public record Stats(
+            int addresses,
+            int filterCapacity,
+            long filterBytes,
+            int hashFunctions,
+            long screened,
+            long filterPassed,
+            long matched,
+            double observedFalsePositiveRate,
+            long rebuilds) {
+    }
+}
@@ -1,22 +1,59 @@
 package com.chama.chamadao_server.services;
 
+import com.chama.chamadao_server.config.BlockchainConfig;
 import com.chama.chamadao_server.models.Transaction;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
+import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.protocol.http.HttpService;
 import org.web3j.tx.gas.DefaultGasProvider;
 import org.web3j.tx.Transfer;
 import org.web3j.utils.Convert;
+import org.web3j.utils.Numeric;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Service for blockchain operations
@@ -27,7 +64,23 @@ import java.util.concurrent.CompletableFuture;
 @Slf4j
 public class BlockchainService {
 
+    // keccak256("Transfer(address,address,uint256)")
+    public static final String TRANSFER_EVENT_TOPIC = EventEncoder.encode(new Event("Transfer", List.of(
+            new TypeReference<Address>(true) { },
+            new TypeReference<Address>(true) { },
+            new TypeReference<Uint256>(false) { })));
+
+    // USDT amounts have 6 decimals
+    private static final int USDT_DECIMALS = 6;
+
     private final WalletService walletService;
+    private final BlockchainConfig blockchainConfig;
+    @Qualifier("rpcHttpClient")
+    private final OkHttpClient rpcHttpClient;
+    @Qualifier("blockchainTransferExecutor")
+    private final ThreadPoolTaskExecutor transferExecutor;
+    @Qualifier("rpcHedgeExecutor")
+    private final ThreadPoolTaskExecutor rpcHedgeExecutor;
 
     @Value("${blockchain.rpc.url:https://mainnet.infura.io/v3/}")
     private String rpcUrl;
@@ -39,22 +92,58 @@ public class BlockchainService {
     private String usdtContractAddress;
 
     private Web3j web3j;
-    private Credentials credentials;
+    private RpcRouter rpcRouter;
+    private HotWalletPool walletPool;
+
+    private final AtomicInteger transfersInFlight = new AtomicInteger();
+    private final LatencyHistogram transferLatency = new LatencyHistogram();
+    private final LatencyHistogram transferQueueWait = new LatencyHistogram();
+    private final LongAdder transfersCompleted = new LongAdder();
+    private final LongAdder transfersFailed = new LongAdder();
+    private final LongAdder transfersRejected = new LongAdder();
 
     /**
-     * Initialize the Web3j instance and credentials
-     * This method is called automatically when the service is created
+     * Initialize the RPC router, the Web3j instance and the hot wallet pool
+     * This method is called automatically when the service is created. The router holds the endpoints in
+     * {@code blockchain.rpc-urls}, or the single {@code blockchain.rpc.url} if none are set; the pool holds
+     * the wallets in {@code blockchain.wallet-private-keys}, or the single {@code blockchain.wallet.private-key}.
      */
     @PostConstruct
     public void init() {
-        log.info("Initializing BlockchainService with RPC URL: {}", rpcUrl);
-        web3j = Web3j.build(new HttpService(rpcUrl));
-        credentials = Credentials.create(privateKey);
-        log.info("BlockchainService initialized with wallet address: {}", credentials.getAddress());
+        List<String> rpcUrls = blockchainConfig.getRpcUrls().isEmpty()
+                ? List.of(rpcUrl)
+                : blockchainConfig.getRpcUrls();
+        List<RpcEndpoint> endpoints = rpcUrls.stream()
+                .map(url -> new RpcEndpoint(endpointName(url), new HttpService(url, rpcHttpClient)))
+                .toList();
+        log.info("Initializing BlockchainService with RPC endpoints: {}",
+                endpoints.stream().map(RpcEndpoint::getName).toList());
+        rpcRouter = new RpcRouter(endpoints, rpcHedgeExecutor, blockchainConfig.getRpcHedgeDelayMs(),
+                blockchainConfig.getRpcMaxErrorRate(), blockchainConfig.getRpcUnhealthyCooldownMs());
+        web3j = Web3j.build(rpcRouter);
+
+        List<String> privateKeys = blockchainConfig.getWalletPrivateKeys().isEmpty()
+                ? List.of(privateKey)
+                : blockchainConfig.getWalletPrivateKeys();
+        List<HotWallet> wallets = new ArrayList<>(privateKeys.size());
+        for (String key : privateKeys) {
+            Credentials credentials = Credentials.create(key);
+            // Each wallet's nonce sequence is pinned to one node, so its transactions reach the mempool in order
+            Web3j walletWeb3j = Web3j.build(rpcRouter.pinned(credentials.getAddress()));
+            NonceManager nonceManager = new NonceManager(() -> fetchPendingNonce(walletWeb3j, credentials.getAddress()));
+            wallets.add(new HotWallet(credentials.getAddress(), walletWeb3j, nonceManager,
+                    new LocalNonceTransactionManager(walletWeb3j, credentials, nonceManager)));
+        }
+        walletPool = new HotWalletPool(wallets, blockchainConfig.getWalletSelection(),
+                Convert.toWei(blockchainConfig.getWalletMinBalanceEth(), Convert.Unit.ETHER).toBigInteger());
+        log.info("BlockchainService initialized with {} hot wallets: {}", wallets.size(),
+                wallets.stream().map(HotWallet::getAddress).toList());
     }
 
     /**
      * Transfer USDT to a user's wallet
+     * The transfer runs on the bounded transfer executor. When its queue is full the returned future fails
+     * with a {@link TaskRejectedException} and nothing is sent, so the caller can keep the transfer pending.
      * @param transaction The transaction containing the wallet address and amount
      * @return The transaction hash
      */
@@ -69,52 +158,327 @@ public class BlockchainService {
                     new IllegalArgumentException("Invalid wallet address"));
         }
 
-        return CompletableFuture.supplyAsync(() -> {
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                transferQueueWait.record(start - submittedAt);
+                transfersInFlight.incrementAndGet();
+                try {
+                    String txHash = sendTransfer(transaction);
+                    transfersCompleted.increment();
+                    return txHash;
+                } catch (RuntimeException e) {
+                    transfersFailed.increment();
+                    throw e;
+                } finally {
+                    transfersInFlight.decrementAndGet();
+                    transferLatency.record(System.nanoTime() - start);
+                }
+            }, transferExecutor);
+        } catch (TaskRejectedException e) {
+            transfersRejected.increment();
+            log.warn("Blockchain transfer queue is full, not sending transfer for transaction {}", transaction.getId());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Check whether a transfer can be taken without rejecting it
+     * @return True if the transfer queue has room and a funded hot wallet is in rotation
+     */
+    public boolean hasTransferCapacity() {
+        return transferExecutor.getThreadPoolExecutor().getQueue().remainingCapacity() > 0
+                && walletPool.hasWalletInRotation();
+    }
+
+    /**
+     * Resync each wallet's local nonce counter with the node while it has no transfers in flight
+     * Picks up transactions sent from the hot wallets by other processes and drops gaps that were never refilled.
+     */
+    @Scheduled(fixedDelayString = "${blockchain.nonce-resync-interval-ms:60000}")
+    public void resyncNonces() {
+        for (HotWallet wallet : walletPool.getWallets()) {
             try {
-                // NOTE: This is a placeholder implementation for demonstration purposes
-                // In a real implementation, you would:
-                // 1. Load the USDT ERC20 contract using its ABI and address
-                // 2. Call the transfer or transferFrom method on the contract
-                // 3. Handle gas fees and nonce management
-
-                log.info("Sending {} USDT to {}", 
-                        transaction.getAmountUSDT(), transaction.getWalletAddress());
-
-                // Example of how it would be implemented with a proper ERC20 contract:
-                // ERC20 usdt = ERC20.load(
-                //     usdtContractAddress,
-                //     web3j,
-                //     credentials,
-                //     new DefaultGasProvider()
-                // );
-                // 
-                // BigInteger tokenAmount = Convert.toWei(
-                //     transaction.getAmountUSDT().toString(), 
-                //     Convert.Unit.MWEI
-                // ).toBigInteger();
-                // 
-                // TransactionReceipt receipt = usdt.transfer(
-                //     transaction.getWalletAddress(), 
-                //     tokenAmount
-                // ).send();
-
-                // For now, we're using ETH transfer as a placeholder
-                TransactionReceipt receipt = Transfer.sendFunds(
-                        web3j, 
-                        credentials, 
-                        transaction.getWalletAddress(), 
-                        transaction.getAmountUSDT(), 
-                        Convert.Unit.ETHER
-                ).send();
-
-                String txHash = receipt.getTransactionHash();
-                log.info("USDT transfer successful. Transaction hash: {}", txHash);
-                return txHash;
-            } catch (Exception e) {
-                log.error("Failed to transfer USDT", e);
-                throw new RuntimeException("Failed to transfer USDT: " + e.getMessage(), e);
+                wallet.getNonceManager().resyncIfIdle();
+            } catch (IOException e) {
+                log.warn("Failed to resync the nonce of hot wallet {}: {}", wallet.getAddress(), e.getMessage());
             }
-        });
+        }
+    }
+
+    /**
+     * Refresh the balance of every hot wallet in one JSON-RPC batch request
+     * Wallets below {@code blockchain.wallet-min-balance-eth} leave the rotation and rejoin once refilled.
+     */
+    @Scheduled(fixedDelayString = "${blockchain.wallet-balance-refresh-interval-ms:30000}")
+    public void refreshWalletBalances() {
+        List<HotWallet> wallets = walletPool.getWallets();
+        BatchRequest batch = web3j.newBatch();
+        wallets.forEach(wallet -> batch.add(web3j.ethGetBalance(wallet.getAddress(), DefaultBlockParameterName.LATEST)));
+        try {
+            List<? extends Response<?>> responses = batch.send().getResponses();
+            for (int i = 0; i < responses.size(); i++) {
+                Response<?> response = responses.get(i);
+                if (response.hasError()) {
+                    log.warn("Balance lookup for hot wallet {} failed: {}",
+                            wallets.get(i).getAddress(), response.getError().getMessage());
+                    continue;
+                }
+                walletPool.updateBalance(wallets.get(i), ((EthGetBalance) response).getBalance());
+            }
+        } catch (IOException e) {
+            log.warn("Failed to refresh the hot wallet balances: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Get the RPC router counters and the state of every endpoint
+     * @return The RPC router statistics
+     */
+    public RpcRouter.Stats getRpcStats() {
+        return rpcRouter.getStats();
+    }
+
+    /**
+     * Get the addresses of the hot wallets
+     * @return The hot wallet addresses
+     */
+    public List<String> getHotWalletAddresses() {
+        return walletPool.getWallets().stream().map(HotWallet::getAddress).toList();
+    }
+
+    /**
+     * Get the state of every hot wallet
+     * @return The rotation state, balance, pending transfers and nonce statistics of each wallet
+     */
+    public List<HotWalletPool.WalletStats> getWalletStats() {
+        return walletPool.getStats();
+    }
+
+    /**
+     * Get the transfer executor gauges and counters
+     * @return The transfer statistics
+     */
+    public TransferStats getTransferStats() {
+        return new TransferStats(
+                transfersInFlight.get(),
+                transferExecutor.getQueueSize(),
+                transferExecutor.getQueueCapacity(),
+                transferExecutor.getMaxPoolSize(),
+                transfersCompleted.sum(),
+                transfersFailed.sum(),
+                transfersRejected.sum(),
+                transferLatency.snapshot(),
+                transferQueueWait.snapshot());
+    }
+
+    /**
+     * Send a transfer and wait for its receipt
+     * @param transaction The transaction containing the wallet address and amount
+     * @return The transaction hash
+     */
+    private String sendTransfer(Transaction transaction) {
+        HotWallet wallet = walletPool.acquire(transaction.getWalletAddress());
+        try {
+            // NOTE: This is a placeholder implementation for demonstration purposes
+            // In a real implementation, you would:
+            // 1. Load the USDT ERC20 contract using its ABI and address
+            // 2. Call the transfer or transferFrom method on the contract
+            // 3. Handle gas fees and nonce management
+
+            log.info("Sending {} USDT to {} from hot wallet {}",
+                    transaction.getAmountUSDT(), transaction.getWalletAddress(), wallet.getAddress());
+
+            // Example of how it would be implemented with a proper ERC20 contract:
+            // ERC20 usdt = ERC20.load(
+            //     usdtContractAddress,
+            //     web3j,
+            //     credentials,
+            //     new DefaultGasProvider()
+            // );
+            // 
+            // BigInteger tokenAmount = Convert.toWei(
+            //     transaction.getAmountUSDT().toString(), 
+            //     Convert.Unit.MWEI
+            // ).toBigInteger();
+            // 
+            // TransactionReceipt receipt = usdt.transfer(
+            //     transaction.getWalletAddress(), 
+            //     tokenAmount
+            // ).send();
+
+            // For now, we're using ETH transfer as a placeholder
+            // Nonces come from the wallet's own nonce manager, so transfers can be sent in parallel
+            TransactionReceipt receipt = new Transfer(wallet.getWeb3j(), wallet.getTransactionManager()).sendFunds(
+                    transaction.getWalletAddress(), 
+                    transaction.getAmountUSDT(), 
+                    Convert.Unit.ETHER
+            ).send();
+
+            String txHash = receipt.getTransactionHash();
+            log.info("USDT transfer successful. Transaction hash: {}", txHash);
+            return txHash;
+        } catch (Exception e) {
+            if (isInsufficientFunds(e)) {
+                // The node refused the transaction, so nothing was sent and another wallet can take it
+                walletPool.removeFromRotation(wallet, e.getMessage());
+                throw new RejectedExecutionException("Hot wallet " + wallet.getAddress() + " is underfunded", e);
+            }
+            log.error("Failed to transfer USDT", e);
+            throw new RuntimeException("Failed to transfer USDT: " + e.getMessage(), e);
+        } finally {
+            walletPool.release(wallet);
+        }
+    }
+
+    /**
+     * Name an endpoint by its host, so API keys in the URL path do not end up in logs and metrics
+     * @param url The endpoint URL
+     * @return The host and port
+     */
+    private static String endpointName(String url) {
+        HttpUrl parsed = HttpUrl.parse(url);
+        return parsed == null ? "invalid-url" : parsed.host() + ":" + parsed.port();
+    }
+
+    private static boolean isInsufficientFunds(Exception e) {
+        return e.getMessage() != null && e.getMessage().toLowerCase(Locale.ROOT).contains("insufficient funds");
+    }
+
+    /**
+     * Get a hot wallet's next nonce including pending transactions from the node
+     * @param walletWeb3j The wallet's Web3j instance, pinned to the node its transactions are sent to
+     * @param address The wallet address
+     * @return The pending transaction count
+     * @throws IOException if the node cannot be reached or returns an error
+     */
+    private BigInteger fetchPendingNonce(Web3j walletWeb3j, String address) throws IOException {
+        EthGetTransactionCount count = walletWeb3j.ethGetTransactionCount(
+                address, DefaultBlockParameterName.PENDING).send();
+        if (count.hasError()) {
+            throw new IOException("eth_getTransactionCount failed: " + count.getError().getMessage());
+        }
+        return count.getTransactionCount();
+    }
+
+    /**
+     * Get the number of the latest block
+     * @return The block number
+     * @throws IOException if the node cannot be reached or returns an error
+     */
+    public BigInteger getBlockNumber() throws IOException {
+        EthBlockNumber blockNumber = web3j.ethBlockNumber().send();
+        if (blockNumber.hasError()) {
+            throw new IOException("eth_blockNumber failed: " + blockNumber.getError().getMessage());
+        }
+        return blockNumber.getBlockNumber();
+    }
+
+    /**
+     * Get the hash of a block
+     * @param blockNumber The block number
+     * @return The block hash
+     * @throws IOException if the node cannot be reached, returns an error or does not have the block
+     */
+    public String getBlockHash(long blockNumber) throws IOException {
+        EthBlock block = web3j.ethGetBlockByNumber(
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(blockNumber)), false).send();
+        if (block.hasError()) {
+            throw new IOException("eth_getBlockByNumber failed: " + block.getError().getMessage());
+        }
+        if (block.getBlock() == null) {
+            throw new IOException("Block " + blockNumber + " is not known to the node");
+        }
+        return block.getBlock().getHash();
+    }
+
+    /**
+     * Get the USDT contract's Transfer event logs in a block range
+     * @param fromBlock The first block, inclusive
+     * @param toBlock The last block, inclusive
+     * @return The logs in chain order
+     * @throws IOException if the node cannot be reached or returns an error, e.g. for a range that is too large
+     */
+    public List<Log> getUsdtTransferLogs(long fromBlock, long toBlock) throws IOException {
+        EthFilter filter = new EthFilter(
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(fromBlock)),
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(toBlock)),
+                usdtContractAddress);
+        filter.addSingleTopic(TRANSFER_EVENT_TOPIC);
+        EthLog logs = web3j.ethGetLogs(filter).send();
+        if (logs.hasError()) {
+            throw new IOException("eth_getLogs failed: " + logs.getError().getMessage());
+        }
+        return logs.getLogs().stream()
+                .map(result -> (Log) result.get())
+                .toList();
+    }
+
+    /**
+     * Get the USDT balances of several wallets at one block in one JSON-RPC batch request
+     * @param walletAddresses The wallet addresses
+     * @param blockNumber The block to read the balances at
+     * @return The balance of each address in USDT; addresses whose call failed are left out
+     * @throws IOException if the batch request fails
+     */
+    public Map<String, BigDecimal> getUsdtBalances(List<String> walletAddresses, long blockNumber) throws IOException {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        if (walletAddresses.isEmpty()) {
+            return balances;
+        }
+
+        DefaultBlockParameter block = DefaultBlockParameter.valueOf(BigInteger.valueOf(blockNumber));
+        BatchRequest batch = web3j.newBatch();
+        for (String walletAddress : walletAddresses) {
+            String data = FunctionEncoder.encode(new Function("balanceOf",
+                    List.of(new Address(walletAddress)), List.of(new TypeReference<Uint256>() { })));
+            batch.add(web3j.ethCall(
+                    org.web3j.protocol.core.methods.request.Transaction.createEthCallTransaction(
+                            null, usdtContractAddress, data),
+                    block));
+        }
+        List<? extends Response<?>> responses = batch.send().getResponses();
+        for (int i = 0; i < responses.size(); i++) {
+            Response<?> response = responses.get(i);
+            if (response.hasError()) {
+                log.debug("balanceOf for {} failed: {}", walletAddresses.get(i), response.getError().getMessage());
+                continue;
+            }
+            String value = ((EthCall) response).getValue();
+            BigInteger units = value == null || Numeric.cleanHexPrefix(value).isEmpty()
+                    ? BigInteger.ZERO
+                    : Numeric.toBigInt(value);
+            balances.put(walletAddresses.get(i), new BigDecimal(units, USDT_DECIMALS));
+        }
+        return balances;
+    }
+
+    /**
+     * Look up the receipts of several transactions in one JSON-RPC batch request
+     * @param txHashes The transaction hashes
+     * @return The receipt of each hash that has been mined; hashes without a receipt are left out
+     * @throws IOException if the batch request fails
+     */
+    public Map<String, TransactionReceipt> getTransactionReceipts(List<String> txHashes) throws IOException {
+        Map<String, TransactionReceipt> receipts = new HashMap<>();
+        if (txHashes.isEmpty()) {
+            return receipts;
+        }
+
+        BatchRequest batch = web3j.newBatch();
+        txHashes.forEach(txHash -> batch.add(web3j.ethGetTransactionReceipt(txHash)));
+        List<? extends Response<?>> responses = batch.send().getResponses();
+        for (int i = 0; i < responses.size(); i++) {
+            Response<?> response = responses.get(i);
+            if (response.hasError()) {
+                log.debug("Receipt lookup for {} failed: {}", txHashes.get(i), response.getError().getMessage());
+                continue;
+            }
+            ((EthGetTransactionReceipt) response).getTransactionReceipt()
+                    .ifPresent(receipt -> receipts.put(receipt.getTransactionHash(), receipt));
+        }
+        return receipts;
     }
 
     /**
@@ -127,7 +491,7 @@ public class BlockchainService {
 
         try {
             // Get transaction receipt
-            org.web3j.protocol.core.methods.response.EthGetTransactionReceipt receipt = 
+            EthGetTransactionReceipt receipt = 
                     web3j.ethGetTransactionReceipt(txHash).send();
 
             // Check if transaction is confirmed
@@ -144,4 +508,21 @@ public class BlockchainService {
             return false;
         }
     }
+
+    /**
+     * Blockchain transfer statistics
+     * The latency is the time a transfer spends sending and waiting for its receipt; the queue wait is
+     * the time it waited for a transfer thread.
+     */
+    public record TransferStats(
+            int inFlight,
+            int queueDepth,
+            int queueCapacity,
+            int poolSize,
+            long completed,
+            long failed,
+            long rejected,
+            LatencyHistogram.Snapshot latency,
+            LatencyHistogram.Snapshot queueWait) {
+    }
 }
@@ -0,0 +1,310 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.MPesaConfig;
+import com.chama.chamadao_server.models.CallbackInboxEntry;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaB2CCallback;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaStkCallback;
+import com.chama.chamadao_server.models.enums.CallbackType;
+import com.chama.chamadao_server.models.enums.InboxStatus;
+import com.chama.chamadao_server.repository.CallbackInboxRepository;
+import com.chama.chamadao_server.repository.TransactionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service for the M-Pesa callback inbox
+ * Callbacks are appended to the inbox and acknowledged straight away, so Safaricom never waits on
+ * currency conversion or blockchain calls. A pool of workers drains the inbox in batches, each batch
+ * in a single database transaction. Entries are claimed with a guarded PENDING to PROCESSING update before
+ * they are applied, so several nodes can drain the same inbox without applying a callback twice.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CallbackInboxService {
+
+    private final CallbackInboxRepository callbackInboxRepository;
+    private final TransactionRepository transactionRepository;
+    private final MpesaService mpesaService;
+    private final MPesaConfig mpesaConfig;
+    private final TransactionTemplate transactionTemplate;
+    @Qualifier("callbackInboxExecutor")
+    private final TaskExecutor callbackInboxExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    // Partitions whose worker is still draining them
+    private final Set<Integer> busyPartitions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Append an STK push callback to the inbox
+     * @param callback The callback from M-Pesa
+     * @return The stored inbox entry
+     */
+    public CallbackInboxEntry enqueueStkCallback(MpesaStkCallback callback) {
+        String checkoutRequestId = callback.getBody() != null && callback.getBody().getStkCallback() != null
+                ? callback.getBody().getStkCallback().getCheckoutRequestID()
+                : null;
+        return enqueue(CallbackType.STK_PUSH, checkoutRequestId, callback);
+    }
+
+    /**
+     * Append a B2C callback to the inbox
+     * @param callback The callback from M-Pesa
+     * @return The stored inbox entry
+     */
+    public CallbackInboxEntry enqueueB2CCallback(MpesaB2CCallback callback) {
+        String conversationId = callback.getResult() != null ? callback.getResult().getConversationID() : null;
+        return enqueue(CallbackType.B2C, conversationId, callback);
+    }
+
+    /**
+     * Put all failed inbox entries back in the queue so they are processed again
+     * @return The number of entries requeued
+     */
+    @Transactional
+    public int replayFailed() {
+        int requeued = callbackInboxRepository.requeueFailed(LocalDateTime.now());
+        log.info("Requeued {} failed M-Pesa callbacks", requeued);
+        return requeued;
+    }
+
+    /**
+     * Get the inbox backlog
+     * @return The number of pending and failed entries
+     */
+    public Stats getStats() {
+        return new Stats(
+                callbackInboxRepository.countByStatus(InboxStatus.PENDING),
+                callbackInboxRepository.countByStatus(InboxStatus.PROCESSING),
+                callbackInboxRepository.countByStatus(InboxStatus.FAILED));
+    }
+
+    /**
+     * Drain the inbox with one task per worker partition
+     * Partitions are handed to the workers without waiting for them; a partition whose worker is still busy
+     * is skipped until the next run, so each partition is drained by at most one worker at a time.
+     */
+    @Scheduled(fixedDelayString = "${mpesa.inbox-poll-interval-ms:500}")
+    public void drainInbox() {
+        int released = callbackInboxRepository.releaseExpiredClaims(
+                LocalDateTime.now().minusSeconds(mpesaConfig.getInboxClaimLeaseSeconds()));
+        if (released > 0) {
+            log.warn("Released {} M-Pesa callbacks whose worker did not finish them", released);
+        }
+
+        int workers = mpesaConfig.getInboxWorkers();
+        for (int worker = 0; worker < workers; worker++) {
+            int partition = worker;
+            if (!busyPartitions.add(partition)) {
+                continue;
+            }
+            try {
+                CompletableFuture.runAsync(() -> drainPartition(partition, workers), callbackInboxExecutor)
+                        .whenComplete((result, ex) -> busyPartitions.remove(partition));
+            } catch (TaskRejectedException e) {
+                busyPartitions.remove(partition);
+                log.warn("Callback inbox worker {} rejected, retrying on the next run", partition);
+            }
+        }
+    }
+
+    /**
+     * Process batches from one partition until it has nothing due
+     * @param worker The partition to drain
+     * @param workers The total number of partitions
+     */
+    private void drainPartition(int worker, int workers) {
+        try {
+            while (true) {
+                List<Long> due = callbackInboxRepository.findDueForWorker(
+                                InboxStatus.PENDING, LocalDateTime.now(), workers, worker,
+                                PageRequest.of(0, mpesaConfig.getInboxBatchSize()))
+                        .stream()
+                        .map(CallbackInboxEntry::getId)
+                        .toList();
+                if (due.isEmpty()) {
+                    return;
+                }
+
+                List<Long> batch = claim(due);
+                if (!batch.isEmpty()) {
+                    processBatch(batch);
+                }
+
+                if (due.size() < mpesaConfig.getInboxBatchSize()) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Callback inbox worker {} stopped after an error", worker, e);
+        }
+    }
+
+    /**
+     * Claim due entries for this worker
+     * @param ids The ids of the due entries
+     * @return The ids this worker claimed; entries claimed by another node in the meantime are left out
+     */
+    private List<Long> claim(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> claimed = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (callbackInboxRepository.claim(id, now) > 0) {
+                claimed.add(id);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Process a batch of inbox entries in one database transaction
+     * If the batch transaction fails as a whole, each entry is retried in its own transaction
+     * so one bad entry cannot block the rest.
+     * @param ids The ids of the entries in the batch
+     */
+    private void processBatch(List<Long> ids) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    callbackInboxRepository.findAllById(ids).forEach(this::processEntry));
+        } catch (RuntimeException e) {
+            log.warn("Callback inbox batch of {} failed, processing entries individually", ids.size(), e);
+            for (Long id : ids) {
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            callbackInboxRepository.findById(id).ifPresent(this::processEntry));
+                } catch (RuntimeException entryException) {
+                    recordFailure(id, entryException);
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply a single callback to its transaction and record the outcome on the entry
+     * @param entry The inbox entry
+     */
+    private void processEntry(CallbackInboxEntry entry) {
+        if (entry.getStatus() != InboxStatus.PROCESSING) {
+            return;
+        }
+
+        entry.setAttempts(entry.getAttempts() + 1);
+        try {
+            boolean applied = switch (entry.getCallbackType()) {
+                case STK_PUSH -> mpesaService.processDepositCallback(
+                        objectMapper.readValue(entry.getPayload(), MpesaStkCallback.class));
+                case B2C -> mpesaService.processWithdrawalCallback(
+                        objectMapper.readValue(entry.getPayload(), MpesaB2CCallback.class));
+            };
+
+            if (!applied && !hasTransaction(entry) && entry.getAttempts() < mpesaConfig.getInboxMaxAttempts()) {
+                // The callback can overtake the save of its correlation id by the initiating request
+                scheduleRetry(entry, "No transaction found for " + entry.getCorrelationId());
+                return;
+            }
+
+            entry.setStatus(InboxStatus.PROCESSED);
+            entry.setOutcome(applied ? "Applied" : "Not applied");
+            entry.setProcessedAt(LocalDateTime.now());
+        } catch (JsonProcessingException e) {
+            log.error("Unreadable payload in callback inbox entry {}", entry.getId(), e);
+            entry.setStatus(InboxStatus.FAILED);
+            entry.setOutcome("Unreadable payload: " + e.getOriginalMessage());
+        } catch (RuntimeException e) {
+            log.error("Failed to process callback inbox entry {}", entry.getId(), e);
+            if (entry.getAttempts() < mpesaConfig.getInboxMaxAttempts()) {
+                scheduleRetry(entry, e.getMessage());
+            } else {
+                entry.setStatus(InboxStatus.FAILED);
+                entry.setOutcome(e.getMessage());
+            }
+        }
+        callbackInboxRepository.save(entry);
+    }
+
+    private boolean hasTransaction(CallbackInboxEntry entry) {
+        if (entry.getCorrelationId() == null) {
+            return false;
+        }
+        return switch (entry.getCallbackType()) {
+            case STK_PUSH -> transactionRepository.findByCheckoutRequestId(entry.getCorrelationId()).isPresent();
+            case B2C -> transactionRepository.findByConversationId(entry.getCorrelationId()).isPresent();
+        };
+    }
+
+    private void scheduleRetry(CallbackInboxEntry entry, String reason) {
+        entry.setStatus(InboxStatus.PENDING);
+        entry.setClaimedAt(null);
+        entry.setOutcome(reason);
+        entry.setNextAttemptAt(LocalDateTime.now().plusNanos(
+                mpesaConfig.getInboxRetryDelayMs() * entry.getAttempts() * 1_000_000L));
+        callbackInboxRepository.save(entry);
+    }
+
+    /**
+     * Record a failure for an entry whose own transaction could not be committed
+     * @param id The id of the entry
+     * @param e The error
+     */
+    private void recordFailure(Long id, RuntimeException e) {
+        log.error("Failed to process callback inbox entry {}", id, e);
+        transactionTemplate.executeWithoutResult(status -> callbackInboxRepository.findById(id).ifPresent(entry -> {
+            entry.setAttempts(entry.getAttempts() + 1);
+            if (entry.getAttempts() < mpesaConfig.getInboxMaxAttempts()) {
+                scheduleRetry(entry, e.getMessage());
+            } else {
+                entry.setStatus(InboxStatus.FAILED);
+                entry.setOutcome(e.getMessage());
+                callbackInboxRepository.save(entry);
+            }
+        }));
+    }
+
+    private CallbackInboxEntry enqueue(CallbackType type, String correlationId, Object callback) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(callback);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable to serialize M-Pesa callback", e);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        CallbackInboxEntry entry = CallbackInboxEntry.builder()
+                .callbackType(type)
+                .correlationId(correlationId)
+                .payload(payload)
+                .status(InboxStatus.PENDING)
+                .attempts(0)
+                .receivedAt(now)
+                .nextAttemptAt(now)
+                .build();
+
+        CallbackInboxEntry saved = callbackInboxRepository.save(entry);
+        log.debug("Stored {} callback {} as inbox entry {}", type, correlationId, saved.getId());
+        return saved;
+    }
+
+    /**
+     * Callback inbox backlog
+     */
+    public record Stats(long pending, long processing, long failed) {
+    }
+}
@@ -4,6 +4,7 @@ import com.chama.chamadao_server.exceptions.ChamaException;
 import com.chama.chamadao_server.mappers.ChamaMapper;
 import com.chama.chamadao_server.models.Chama;
 import com.chama.chamadao_server.models.User;
+import com.chama.chamadao_server.models.WalletAddress;
 import com.chama.chamadao_server.models.dto.ChamaDto;
 import com.chama.chamadao_server.repository.ChamaRepository;
 import com.chama.chamadao_server.repository.UserRepository;
@@ -26,6 +27,7 @@ public class ChamaService {
     private final UserRepository userRepository;
     private final ChamaMapper chamaMapper;
     private final FileStorageService fileStorageService;
+    private final AddressWatcher addressWatcher;
 
 
     /**
@@ -34,7 +36,7 @@ public class ChamaService {
      * @return The Chama DTO
      */
     public ChamaDto findChamaByWalletAddress(String walletAddress) {
-        Chama chama = chamaRepository.findById(walletAddress)
+        Chama chama = chamaRepository.findById(WalletAddress.normalize(walletAddress))
                 .orElseThrow(() -> new RuntimeException("Chama not found with wallet address: " + walletAddress));
         log.info("Chama found: {}", chama.getChamaAddress());
         return chamaMapper.toDto(chama);
@@ -58,11 +60,13 @@ public class ChamaService {
     @Transactional
     public ChamaDto createChama(ChamaDto chamaDto, String creatorWalletAddress) {
         // Find the creator by wallet address
-        User creator = userRepository.findByWalletAddress(creatorWalletAddress)
+        User creator = userRepository.findByWalletAddress(WalletAddress.normalize(creatorWalletAddress))
                 .orElseThrow(() -> new RuntimeException("User not found with wallet address: " + creatorWalletAddress));
 
         // Map the DTO to entity
         Chama chama = chamaMapper.toEntity(chamaDto);
+        // Store the address in its canonical form, so it cannot be registered twice in different cases
+        chama.setChamaAddress(WalletAddress.normalize(chama.getChamaAddress()));
         //check if the chama already exists
         if (chamaRepository.existsById(chama.getChamaAddress())) {
             throw new ChamaException("Chama already exists with wallet address: " + chama.getChamaAddress());
@@ -73,6 +77,7 @@ public class ChamaService {
 
         // Save the chama
         Chama savedChama = chamaRepository.save(chama);
+        addressWatcher.add(savedChama.getChamaAddress());
 
         // Update the creator's chamas lists
         creator.getCreatedChamas().add(savedChama);
@@ -94,11 +99,11 @@ public class ChamaService {
         log.info("Adding member {} to Chama {}", userWalletAddress, chamaWalletAddress);
 
         // Get the Chama
-        Chama chama = chamaRepository.findById(chamaWalletAddress)
+        Chama chama = chamaRepository.findById(WalletAddress.normalize(chamaWalletAddress))
                 .orElseThrow(() -> new ChamaException("Chama not found with wallet address: " + chamaWalletAddress));
 
         // Get the User
-        User user = userRepository.findByWalletAddress(userWalletAddress)
+        User user = userRepository.findByWalletAddress(WalletAddress.normalize(userWalletAddress))
                 .orElseThrow(() -> new ChamaException("User not found with wallet address: " + userWalletAddress));
 
         // Check if user is already a member of this Chama
@@ -135,11 +140,11 @@ public class ChamaService {
         log.info("Removing member {} from Chama {}", userWalletAddress, chamaWalletAddress);
 
         // Get the Chama
-        Chama chama = chamaRepository.findById(chamaWalletAddress)
+        Chama chama = chamaRepository.findById(WalletAddress.normalize(chamaWalletAddress))
                 .orElseThrow(() -> new RuntimeException("Chama not found with wallet address: " + chamaWalletAddress));
 
         // Get the User
-        User user = userRepository.findByWalletAddress(userWalletAddress)
+        User user = userRepository.findByWalletAddress(WalletAddress.normalize(userWalletAddress))
                 .orElseThrow(() -> new RuntimeException("User not found with wallet address: " + userWalletAddress));
 
         // Check if user is actually a member of this Chama
@@ -180,7 +185,7 @@ public class ChamaService {
         log.info("Processing image upload for Chama with wallet address: {}", chamaWalletAddress);
         
         // Find and validate Chama
-        Chama chama = chamaRepository.findById(chamaWalletAddress)
+        Chama chama = chamaRepository.findById(WalletAddress.normalize(chamaWalletAddress))
                 .orElseThrow(() -> new EntityNotFoundException("Chama not found with wallet address: " + chamaWalletAddress));
         
         try {
@@ -210,7 +215,7 @@ public class ChamaService {
         log.info("Fetching image for Chama with wallet address: {}", chamaWalletAddress);
         
         // Find and validate Chama
-        Chama chama = chamaRepository.findById(chamaWalletAddress)
+        Chama chama = chamaRepository.findById(WalletAddress.normalize(chamaWalletAddress))
                 .orElseThrow(() -> new EntityNotFoundException("Chama not found with wallet address: " + chamaWalletAddress));
         
                 String profileImage = chama.getProfileImage();
@@ -230,7 +235,7 @@ public class ChamaService {
      * @return The content type string
     */
     public String getChamaProfileImageContentType(String chamaWalletAddress) {
-        Chama chama = chamaRepository.findById(chamaWalletAddress)
+        Chama chama = chamaRepository.findById(WalletAddress.normalize(chamaWalletAddress))
                 .orElseThrow(() -> new EntityNotFoundException("Chama not found with wallet address: " + chamaWalletAddress));
         
         String profileImage = chama.getProfileImage();
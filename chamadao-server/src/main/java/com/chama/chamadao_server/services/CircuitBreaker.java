@@ -0,0 +1,182 @@
+package com.chama.chamadao_server.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker
+ * The outcomes of the last {@code windowSize} calls are kept in a ring buffer. Once at least
+ * {@code minimumCalls} are recorded and the failure rate reaches the threshold the breaker opens and
+ * rejects calls for {@code openDuration}; it then lets {@code halfOpenCalls} trial calls through and
+ * closes again only if all of them succeed.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+
+    private final boolean[] window;
+    private int windowPosition;
+    private int recordedCalls;
+    private int failedCalls;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    private long timesOpened;
+
+    public CircuitBreaker(double failureRateThreshold, int windowSize, int minimumCalls,
+                          long openDuration, TimeUnit unit, int halfOpenCalls) {
+        this(failureRateThreshold, windowSize, minimumCalls, openDuration, unit, halfOpenCalls, System::nanoTime);
+    }
+
+    CircuitBreaker(double failureRateThreshold, int windowSize, int minimumCalls,
+                   long openDuration, TimeUnit unit, int halfOpenCalls, LongSupplier nanoClock) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.min(Math.max(1, minimumCalls), window.length);
+        this.openDurationNanos = unit.toNanos(openDuration);
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Ask to make a call
+     * In the half-open state each permission is one of the limited trial calls, so a caller that does not
+     * make the call after all must hand it back with {@link #releasePermission()}.
+     * @return True if the call may be made
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch (currentState()) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (halfOpenPermits < halfOpenCalls) {
+                    halfOpenPermits++;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Hand back a permission that was not used for a call
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+            halfOpenPermits--;
+        }
+    }
+
+    /**
+     * Record a successful call
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            halfOpenSuccesses++;
+            if (halfOpenSuccesses >= halfOpenCalls) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * Record a failed call
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recordedCalls >= minimumCalls && getFailureRate() >= failureRateThreshold) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Get the current state, moving from OPEN to HALF_OPEN if the open period has passed
+     * @return The state
+     */
+    public synchronized State getState() {
+        return currentState();
+    }
+
+    /**
+     * Get the failure rate over the calls in the window
+     * @return The failure rate between 0 and 1
+     */
+    public synchronized double getFailureRate() {
+        return recordedCalls == 0 ? 0 : (double) failedCalls / recordedCalls;
+    }
+
+    /**
+     * Get the number of seconds until the breaker lets trial calls through
+     * @return The remaining open time rounded up, at least 1 while the breaker rejects calls, 0 when closed
+     */
+    public synchronized long getRetryAfterSeconds() {
+        State current = currentState();
+        if (current == State.CLOSED) {
+            return 0;
+        }
+        long remainingNanos = openedAtNanos + openDurationNanos - nanoClock.getAsLong();
+        return Math.max(1, (remainingNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Get how often the breaker has opened
+     * @return The number of transitions to OPEN
+     */
+    public synchronized long getTimesOpened() {
+        return timesOpened;
+    }
+
+    private State currentState() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAtNanos >= openDurationNanos) {
+            state = State.HALF_OPEN;
+            halfOpenPermits = 0;
+            halfOpenSuccesses = 0;
+        }
+        return state;
+    }
+
+    private void record(boolean failed) {
+        if (recordedCalls == window.length) {
+            if (window[windowPosition]) {
+                failedCalls--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        window[windowPosition] = failed;
+        if (failed) {
+            failedCalls++;
+        }
+        windowPosition = (windowPosition + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = nanoClock.getAsLong();
+        timesOpened++;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowPosition = 0;
+        recordedCalls = 0;
+        failedCalls = 0;
+    }
+}
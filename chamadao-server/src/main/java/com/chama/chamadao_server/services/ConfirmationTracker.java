@@ -0,0 +1,200 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.BlockchainConfig;
+import com.chama.chamadao_server.models.Transaction;
+import com.chama.chamadao_server.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service that tracks the confirmations of sent USDT transfers
+ * Work is only done when a new block head arrives. Receipts are fetched with JSON-RPC batch requests, and
+ * only for transfers whose block is not yet known or that have just reached the confirmation depth, where
+ * the receipt is fetched again to make sure a reorg has not moved or dropped the transfer. Confirmed
+ * transfers are marked in one bulk update per page; reverted transfers that reach the depth are marked
+ * reverted the same way and are not swept again.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConfirmationTracker {
+
+    private final TransactionRepository transactionRepository;
+    private final BlockchainService blockchainService;
+    private final BlockchainConfig blockchainConfig;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong lastHead = new AtomicLong(-1);
+    private final LongAdder batchRequests = new LongAdder();
+    private final LongAdder receiptsRequested = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder reorged = new LongAdder();
+    private final LongAdder reverted = new LongAdder();
+    private volatile LocalDateTime lastSweepAt;
+
+    /**
+     * Check for a new block head and sweep the unconfirmed transfers when one arrived
+     */
+    @Scheduled(fixedDelayString = "${blockchain.confirmation-poll-interval-ms:3000}")
+    public void checkConfirmations() {
+        long head;
+        try {
+            head = blockchainService.getBlockNumber().longValueExact();
+        } catch (IOException | ArithmeticException e) {
+            log.warn("Failed to read the block head: {}", e.getMessage());
+            return;
+        }
+        if (head <= lastHead.get()) {
+            return;
+        }
+
+        try {
+            sweep(head);
+            lastHead.set(head);
+            lastSweepAt = LocalDateTime.now();
+        } catch (IOException | RuntimeException e) {
+            // The head is not recorded, so the sweep is repeated on the next poll
+            log.warn("Confirmation sweep at block {} failed: {}", head, e.getMessage());
+        }
+    }
+
+    /**
+     * Get the confirmation tracker counters
+     * @return The confirmation statistics
+     */
+    public Stats getStats() {
+        return new Stats(
+                lastHead.get(),
+                blockchainConfig.getConfirmationDepth(),
+                batchRequests.sum(),
+                receiptsRequested.sum(),
+                confirmed.sum(),
+                reorged.sum(),
+                reverted.sum(),
+                lastSweepAt);
+    }
+
+    /**
+     * Walk the unconfirmed transfers in pages and apply the receipts at the given head
+     * @param head The current block number
+     * @throws IOException if a batch request fails
+     */
+    private void sweep(long head) throws IOException {
+        int pageSize = blockchainConfig.getConfirmationBatchSize();
+        long afterId = 0;
+        while (true) {
+            List<Transaction> page = transactionRepository.findUnconfirmedTransfers(afterId, PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                return;
+            }
+
+            // Transfers known to be mined but not yet deep enough need no RPC call at this head
+            List<Transaction> toCheck = page.stream()
+                    .filter(transaction -> transaction.getBlockchainBlockNumber() == null
+                            || isDeepEnough(transaction.getBlockchainBlockNumber(), head))
+                    .toList();
+            if (!toCheck.isEmpty()) {
+                applyReceipts(toCheck, fetchReceipts(toCheck), head);
+            }
+
+            afterId = page.get(page.size() - 1).getId();
+            if (page.size() < pageSize) {
+                return;
+            }
+        }
+    }
+
+    private Map<String, TransactionReceipt> fetchReceipts(List<Transaction> transactions) throws IOException {
+        List<String> txHashes = transactions.stream().map(Transaction::getBlockchainTxHash).toList();
+        batchRequests.increment();
+        receiptsRequested.add(txHashes.size());
+        return blockchainService.getTransactionReceipts(txHashes);
+    }
+
+    /**
+     * Record block numbers and settle the transfers that reached the confirmation depth, in one database transaction
+     * @param transactions The transfers that were checked
+     * @param receipts Their receipts by transaction hash
+     * @param head The current block number
+     */
+    private void applyReceipts(List<Transaction> transactions, Map<String, TransactionReceipt> receipts, long head) {
+        List<Long> confirmedIds = new ArrayList<>();
+        List<Long> revertedIds = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Transaction transaction : transactions) {
+                TransactionReceipt receipt = receipts.get(transaction.getBlockchainTxHash());
+                Long knownBlock = transaction.getBlockchainBlockNumber();
+                if (receipt == null || receipt.getBlockNumber() == null) {
+                    if (knownBlock != null) {
+                        // Mined before, but the receipt is gone: the block was reorged out
+                        reorged.increment();
+                        log.warn("Transfer {} of transaction {} is no longer in block {}",
+                                transaction.getBlockchainTxHash(), transaction.getId(), knownBlock);
+                        transactionRepository.updateBlockchainBlockNumber(transaction.getId(), null);
+                    }
+                    continue;
+                }
+
+                long block = receipt.getBlockNumber().longValueExact();
+                if (knownBlock != null && knownBlock != block) {
+                    reorged.increment();
+                }
+                if (isDeepEnough(block, head) && receipt.isStatusOK()) {
+                    confirmedIds.add(transaction.getId());
+                } else if (isDeepEnough(block, head)) {
+                    // A revert is only final at the depth too, since a reorg could still mine the transfer again
+                    revertedIds.add(transaction.getId());
+                    log.error("Transfer {} of transaction {} reverted in block {}",
+                            transaction.getBlockchainTxHash(), transaction.getId(), block);
+                }
+                if (knownBlock == null || knownBlock != block) {
+                    transactionRepository.updateBlockchainBlockNumber(transaction.getId(), block);
+                }
+            }
+            if (!confirmedIds.isEmpty()) {
+                transactionRepository.markBlockchainConfirmed(confirmedIds, LocalDateTime.now());
+            }
+            if (!revertedIds.isEmpty()) {
+                transactionRepository.markBlockchainReverted(revertedIds, LocalDateTime.now());
+            }
+        });
+
+        if (!confirmedIds.isEmpty()) {
+            confirmed.add(confirmedIds.size());
+            log.info("Confirmed {} USDT transfers at block {}", confirmedIds.size(), head);
+        }
+        reverted.add(revertedIds.size());
+    }
+
+    private boolean isDeepEnough(long block, long head) {
+        return head - block + 1 >= blockchainConfig.getConfirmationDepth();
+    }
+
+    /**
+     * Confirmation tracker statistics
+     * Receipts requested divided by batch requests is the number of receipts checked per round-trip.
+     */
+    public record Stats(
+            long lastHead,
+            int confirmationDepth,
+            long batchRequests,
+            long receiptsRequested,
+            long confirmed,
+            long reorged,
+            long reverted,
+            LocalDateTime lastSweepAt) {
+    }
+}
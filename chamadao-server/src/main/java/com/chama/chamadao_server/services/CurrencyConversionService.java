@@ -1,32 +1,54 @@
 package com.chama.chamadao_server.services;
 
+import com.chama.chamadao_server.exceptions.ServiceUnavailableException;
+import com.chama.chamadao_server.models.ExchangeRate;
+import com.chama.chamadao_server.models.enums.FiatCurrency;
+import com.chama.chamadao_server.repository.ExchangeRateRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Service for currency conversion
- * Handles conversion between KES and USDT
+ * Handles conversion between USDT and the fiat currencies chamas save in. All rates are cached together and
+ * refreshed ahead of expiry in the background, with at most one FX API request in flight.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CurrencyConversionService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private static final int USDT_DECIMALS = 6;
+    // Approximate KES/USD rate, used until the first fetch succeeds
+    private static final RateTable FALLBACK_RATES = RateTable.parse(Map.of("KES", new BigDecimal("130.00")));
+
+    @Qualifier("fxRestTemplate")
+    private final RestTemplate restTemplate;
+    private final ExchangeRateRepository exchangeRateRepository;
 
     @Value("${currency.exchange.api.url}")
     private String exchangeRateApiUrl;
@@ -34,8 +56,27 @@ public class CurrencyConversionService {
     @Value("${currency.exchange.cache.minutes:60}")
     private int cacheMinutes;
 
-    // Cache for exchange rates
-    private final Map<String, ExchangeRateData> exchangeRateCache = new ConcurrentHashMap<>();
+    @Value("${currency.exchange.refresh-ahead-seconds:300}")
+    private long refreshAheadSeconds;
+
+    @Value("${currency.exchange.retry-after-failure-seconds:30}")
+    private long retryAfterFailureSeconds;
+
+    @Value("${currency.exchange.history-days:90}")
+    private int historyDays;
+
+    // The last good rate, replaced as a whole so readers never see a partial update
+    private final AtomicReference<RateSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final AtomicReference<CompletableFuture<RateSnapshot>> firstFetch = new AtomicReference<>();
+    private volatile long nextFetchAttemptMillis;
+    // Recorded rates by fetch time, for the last history-days; older lookups go to the database
+    private final ConcurrentSkipListMap<LocalDateTime, RateTable> history = new ConcurrentSkipListMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder fetches = new LongAdder();
+    private final LongAdder fetchFailures = new LongAdder();
 
     /**
      * Convert KES to USDT
@@ -43,13 +84,7 @@ public class CurrencyConversionService {
      * @return The amount in USDT
      */
     public BigDecimal convertKesToUsdt(BigDecimal amountKES) {
-        log.info("Converting {} KES to USDT", amountKES);
-
-        BigDecimal exchangeRate = getKesUsdtExchangeRate();
-        BigDecimal amountUSDT = amountKES.divide(exchangeRate, 6, RoundingMode.HALF_UP);
-
-        log.info("Converted {} KES to {} USDT (rate: {})", amountKES, amountUSDT, exchangeRate);
-        return amountUSDT;
+        return convertToUsdt(amountKES, FiatCurrency.KES);
     }
 
     /**
@@ -58,104 +93,389 @@ public class CurrencyConversionService {
      * @return The amount in KES
      */
     public BigDecimal convertUsdtToKes(BigDecimal amountUSDT) {
-        log.info("Converting {} USDT to KES", amountUSDT);
+        return convertFromUsdt(amountUSDT, FiatCurrency.KES);
+    }
+
+    /**
+     * Load the recent rate history into memory
+     */
+    @PostConstruct
+    public void loadHistory() {
+        try {
+            for (ExchangeRate exchangeRate : exchangeRateRepository.findByFetchedAtGreaterThanEqualOrderByFetchedAtAsc(
+                    LocalDateTime.now().minusDays(historyDays))) {
+                history.put(exchangeRate.getFetchedAt(), toRateTable(exchangeRate));
+            }
+            log.info("Loaded {} recorded exchange rates", history.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not load exchange rate history: {}", e.getMessage());
+        }
+    }
 
-        BigDecimal exchangeRate = getKesUsdtExchangeRate();
-        BigDecimal amountKES = amountUSDT.multiply(exchangeRate).setScale(2, RoundingMode.HALF_UP);
+    /**
+     * Convert a fiat amount to USDT at the current rate, noting which recorded rate was used
+     * @param amount The amount in the fiat currency
+     * @param currency The fiat currency
+     * @return The amount in USDT, to 6 decimal places, with the exchange rate history id
+     * @throws ServiceUnavailableException if there is no rate for the currency yet
+     */
+    public Conversion quoteToUsdt(BigDecimal amount, FiatCurrency currency) {
+        RateTable rates = getRateTable();
+        return convert(rates, amount, currency, FiatCurrency.USD, USDT_DECIMALS);
+    }
 
-        log.info("Converted {} USDT to {} KES (rate: {})", amountUSDT, amountKES, exchangeRate);
-        return amountKES;
+    /**
+     * Convert a fiat amount to USDT at the rates that were in effect at an instant
+     * @param at The instant the conversion applies to
+     * @param amount The amount in the fiat currency
+     * @param currency The fiat currency
+     * @return The amount in USDT, to 6 decimal places, with the exchange rate history id
+     * @throws ServiceUnavailableException if there is no rate for the currency
+     */
+    public Conversion convertToUsdtAt(LocalDateTime at, BigDecimal amount, FiatCurrency currency) {
+        return convertAt(at, amount, currency, FiatCurrency.USD, USDT_DECIMALS);
     }
 
     /**
-     * Get the exchange rate between KES and USDT
+     * Convert an amount at the rates that were in effect at an instant
+     * The rates are the last ones fetched at or before the instant, found in the in-memory history in O(log n).
+     * If nothing had been fetched yet, the current rates are used.
+     * @param at The instant the conversion applies to
+     * @param amount The amount in the source currency
+     * @param from The source currency
+     * @param to The target currency
+     * @param scale The number of decimal places of the result
+     * @return The converted amount with the exchange rate history id
+     * @throws ServiceUnavailableException if there is no rate for either currency
+     */
+    public Conversion convertAt(LocalDateTime at, BigDecimal amount, FiatCurrency from, FiatCurrency to, int scale) {
+        return convert(getRateTableAt(at), amount, from, to, scale);
+    }
+
+    /**
+     * Convert a fiat amount to USDT, at par with USD
+     * @param amount The amount in the fiat currency
+     * @param currency The fiat currency
+     * @return The amount in USDT, to 6 decimal places
+     * @throws ServiceUnavailableException if there is no rate for the currency yet
+     */
+    public BigDecimal convertToUsdt(BigDecimal amount, FiatCurrency currency) {
+        log.info("Converting {} {} to USDT", amount, currency);
+
+        BigDecimal amountUSDT = convert(amount, currency, FiatCurrency.USD, USDT_DECIMALS);
+
+        log.info("Converted {} {} to {} USDT", amount, currency, amountUSDT);
+        return amountUSDT;
+    }
+
+    /**
+     * Convert a USDT amount to a fiat currency, at par with USD
+     * @param amountUSDT The amount in USDT
+     * @param currency The fiat currency
+     * @return The amount in the fiat currency, to its usual decimal places
+     * @throws ServiceUnavailableException if there is no rate for the currency yet
+     */
+    public BigDecimal convertFromUsdt(BigDecimal amountUSDT, FiatCurrency currency) {
+        log.info("Converting {} USDT to {}", amountUSDT, currency);
+
+        BigDecimal amount = convert(amountUSDT, FiatCurrency.USD, currency, currency.getDecimals());
+
+        log.info("Converted {} USDT to {} {}", amountUSDT, amount, currency);
+        return amount;
+    }
+
+    /**
+     * Convert an amount between two fiat currencies through USD
+     * @param amount The amount in the source currency
+     * @param from The source currency
+     * @param to The target currency
+     * @param scale The number of decimal places of the result
+     * @return The amount in the target currency, rounded half up
+     * @throws ServiceUnavailableException if there is no rate for either currency yet
+     */
+    public BigDecimal convert(BigDecimal amount, FiatCurrency from, FiatCurrency to, int scale) {
+        return convert(getRateTable(), amount, from, to, scale).amount();
+    }
+
+    /**
+     * Get the current exchange rate between KES and USDT
+     * Served from the rate cache while it is valid, so callers can compare it to a rate they converted with.
      * @return The exchange rate (KES per USDT)
      */
-    private BigDecimal getKesUsdtExchangeRate() {
-        // Check if we have a cached rate that's still valid
-        ExchangeRateData cachedData = exchangeRateCache.get("KES_USDT");
-        if (cachedData != null && !cachedData.isExpired()) {
-            log.debug("Using cached exchange rate: {}", cachedData.rate());
-            return cachedData.rate();
+    public BigDecimal getExchangeRate() {
+        return getExchangeRate(FiatCurrency.KES);
+    }
+
+    /**
+     * Get the current exchange rate between a fiat currency and USDT
+     * @param currency The fiat currency
+     * @return The exchange rate (units of the currency per USDT)
+     * @throws ServiceUnavailableException if there is no rate for the currency yet
+     */
+    public BigDecimal getExchangeRate(FiatCurrency currency) {
+        RateTable rates = getRateTable();
+        requireRate(rates, currency);
+        return rates.unitsPerUsd(currency);
+    }
+
+    /**
+     * Refresh the rate in the background before it expires
+     * The rate is only refreshed once one has been requested, so idle instances make no FX API calls.
+     */
+    @Scheduled(fixedDelayString = "${currency.exchange.refresh-check-ms:30000}")
+    public void refreshAheadOfExpiry() {
+        RateSnapshot current = snapshot.get();
+        long now = System.currentTimeMillis();
+        if (current == null || !current.isDueForRefresh(now) || now < nextFetchAttemptMillis) {
+            return;
+        }
+        log.debug("Refreshing KES/USDT exchange rate ahead of expiry");
+        tryRefresh();
+    }
+
+    /**
+     * Get the exchange rate cache statistics
+     * @return The current rate and the cache counters
+     */
+    public Stats getStats() {
+        RateSnapshot current = snapshot.get();
+        return new Stats(
+                current != null ? current.rates().unitsPerUsd(FiatCurrency.KES) : null,
+                current != null ? current.rates().size() : 0,
+                current != null ? current.rates().getId() : null,
+                history.size(),
+                current != null ? Instant.ofEpochMilli(current.fetchedAtMillis()) : null,
+                current != null && current.isExpired(System.currentTimeMillis()),
+                hits.sum(),
+                staleHits.sum(),
+                fetches.sum(),
+                fetchFailures.sum());
+    }
+
+    /**
+     * Get the current rate table
+     * The hot path reads the current snapshot without locking. When it has expired, one caller refreshes it
+     * while the others keep using the last good rates; only the very first conversion waits for a fetch.
+     * @return The rate table
+     */
+    private RateTable getRateTable() {
+        RateSnapshot current = snapshot.get();
+        if (current == null) {
+            return fetchFirstRates();
+        }
+
+        long now = System.currentTimeMillis();
+        if (!current.isExpired(now)) {
+            hits.increment();
+            return current.rates();
+        }
+
+        staleHits.increment();
+        if (now >= nextFetchAttemptMillis) {
+            RateSnapshot refreshed = tryRefresh();
+            if (refreshed != null) {
+                return refreshed.rates();
+            }
         }
+        log.debug("Using expired cached exchange rates fetched at {}", Instant.ofEpochMilli(current.fetchedAtMillis()));
+        return current.rates();
+    }
 
-        // If not, fetch a new rate
-        log.info("Fetching current KES/USDT exchange rate");
+    /**
+     * Get the rates that were in effect at an instant
+     * @param at The instant
+     * @return The last recorded rates fetched at or before it, or the current rates if there are none
+     */
+    private RateTable getRateTableAt(LocalDateTime at) {
+        Map.Entry<LocalDateTime, RateTable> entry = history.floorEntry(at);
+        if (entry != null) {
+            return entry.getValue();
+        }
+        Map.Entry<LocalDateTime, RateTable> oldest = history.firstEntry();
+        if (oldest == null || at.isBefore(oldest.getKey())) {
+            // Older than the in-memory window, or nothing has been recorded since startup
+            try {
+                Optional<ExchangeRate> recorded = exchangeRateRepository.findFirstByFetchedAtLessThanEqualOrderByFetchedAtDesc(at);
+                if (recorded.isPresent()) {
+                    return toRateTable(recorded.get());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not look up the exchange rate at {}: {}", at, e.getMessage());
+            }
+        }
+        return getRateTable();
+    }
+
+    private Conversion convert(RateTable rates, BigDecimal amount, FiatCurrency from, FiatCurrency to, int scale) {
+        requireRate(rates, from);
+        requireRate(rates, to);
+        return new Conversion(rates.convert(amount, from, to, scale), rates.getId());
+    }
 
+    /**
+     * Record fetched rates in the rate history
+     * Conversions still use the rates if they cannot be recorded; they are then not attributed to a history row.
+     * @param rates The fetched rates
+     * @param fetchedAt When they were fetched
+     * @return The rates labelled with their history row id
+     */
+    private RateTable recordHistory(RateTable rates, LocalDateTime fetchedAt) {
         try {
-            // Make a simple GET request to the API
-            ResponseEntity<ExchangeRateResponse> response = restTemplate.getForEntity(
-                    exchangeRateApiUrl, ExchangeRateResponse.class);
+            ExchangeRate saved = exchangeRateRepository.save(ExchangeRate.builder()
+                    .fetchedAt(fetchedAt)
+                    .rates(rates.toMap())
+                    .build());
+            RateTable recorded = rates.withId(saved.getId());
+            history.put(fetchedAt, recorded);
+            history.headMap(fetchedAt.minusDays(historyDays)).clear();
+            return recorded;
+        } catch (RuntimeException e) {
+            log.warn("Could not record fetched exchange rates: {}", e.getMessage());
+            return rates;
+        }
+    }
 
-            if (response.getBody() != null && response.getBody().getRates() != null) {
-                BigDecimal kesRate = response.getBody().getRates().getKES();
+    private static RateTable toRateTable(ExchangeRate exchangeRate) {
+        Map<String, BigDecimal> rates = new HashMap<>();
+        exchangeRate.getRates().forEach((currency, rate) -> rates.put(currency.name(), rate));
+        return RateTable.parse(rates).withId(exchangeRate.getId());
+    }
 
-                // Cache the rate
-                ExchangeRateData newData = new ExchangeRateData(kesRate, System.currentTimeMillis(), cacheMinutes);
-                exchangeRateCache.put("KES_USDT", newData);
+    /**
+     * Fetch the first rates, with concurrent callers waiting on the same request
+     * @return The fetched rates, or the fallback rates if the fetch fails
+     */
+    private RateTable fetchFirstRates() {
+        if (System.currentTimeMillis() < nextFetchAttemptMillis) {
+            return getFallbackRates();
+        }
+        CompletableFuture<RateSnapshot> fetch = new CompletableFuture<>();
+        CompletableFuture<RateSnapshot> existing = firstFetch.compareAndExchange(null, fetch);
+        if (existing == null) {
+            try {
+                fetch.complete(tryRefresh());
+            } finally {
+                firstFetch.set(null);
+            }
+            existing = fetch;
+        }
 
-                log.info("Fetched exchange rate: 1 USDT = {} KES", kesRate);
-                return kesRate;
-            } else {
+        RateSnapshot fetched = existing.join();
+        return fetched != null ? fetched.rates() : getFallbackRates();
+    }
+
+    /**
+     * Fetch new rates and swap them in, unless another caller is already fetching
+     * Every currency in the response is parsed into one table, so adding a currency costs no extra request.
+     * @return The new snapshot, or null if the fetch failed or another caller holds the refresh
+     */
+    private RateSnapshot tryRefresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            log.info("Fetching current exchange rates");
+            fetches.increment();
+            ResponseEntity<ExchangeRateResponse> response = restTemplate.getForEntity(
+                    exchangeRateApiUrl, ExchangeRateResponse.class);
+
+            if (response.getBody() == null || response.getBody().getRates() == null
+                    || response.getBody().getRates().isEmpty()) {
                 log.error("Failed to fetch exchange rate, response body is null or missing rates");
-                // Return a fallback rate if API call fails
-                return getFallbackExchangeRate();
+                return failRefresh();
             }
+
+            long now = System.currentTimeMillis();
+            RateTable rates = recordHistory(RateTable.parse(response.getBody().getRates()),
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault()));
+            long validMillis = (long) cacheMinutes * 60 * 1000;
+            long refreshAheadMillis = Math.min(refreshAheadSeconds * 1000, validMillis / 2);
+            RateSnapshot refreshed = new RateSnapshot(rates, now, now + validMillis, now + validMillis - refreshAheadMillis);
+            snapshot.set(refreshed);
+
+            log.info("Fetched exchange rates for {} currencies, 1 USDT = {} KES", rates.size(),
+                    rates.supports(FiatCurrency.KES) ? rates.unitsPerUsd(FiatCurrency.KES) : "?");
+            return refreshed;
         } catch (Exception e) {
             log.error("Error fetching exchange rate", e);
-            // Return a fallback rate if API call fails
-            return getFallbackExchangeRate();
+            return failRefresh();
+        } finally {
+            refreshing.set(false);
         }
     }
 
+    private RateSnapshot failRefresh() {
+        fetchFailures.increment();
+        // Callers keep using the last good rate until the next attempt is due
+        nextFetchAttemptMillis = System.currentTimeMillis() + retryAfterFailureSeconds * 1000;
+        return null;
+    }
+
     /**
-     * Get a fallback exchange rate if the API call fails
-     * @return A fallback exchange rate
+     * Get the fallback rates if no rates have been fetched yet
+     * Only KES has a hardcoded rate; other currencies wait for the FX API.
+     * @return The fallback rates
      */
-    private BigDecimal getFallbackExchangeRate() {
-        // Check if we have any cached rate, even if expired
-        ExchangeRateData cachedData = exchangeRateCache.get("KES_USDT");
-        if (cachedData != null) {
-            log.warn("Using expired cached exchange rate: {}", cachedData.rate());
-            return cachedData.rate();
-        }
+    private RateTable getFallbackRates() {
+        log.warn("Using hardcoded fallback exchange rate: {}", FALLBACK_RATES.unitsPerUsd(FiatCurrency.KES));
+        return FALLBACK_RATES;
+    }
 
-        // If no cached rate, use a hardcoded fallback
-        BigDecimal fallbackRate = new BigDecimal("130.00"); // Approximate KES/USD rate
-        log.warn("Using hardcoded fallback exchange rate: {}", fallbackRate);
-        return fallbackRate;
+    private void requireRate(RateTable rates, FiatCurrency currency) {
+        if (!rates.supports(currency)) {
+            throw new ServiceUnavailableException("Exchange rate for " + currency + " is unavailable, please retry later",
+                    retryAfterFailureSeconds);
+        }
     }
 
     /**
-         * Class to hold exchange rate data with expiration
-         */
-        private record ExchangeRateData(BigDecimal rate, long timestamp, int validMinutes) {
+     * Immutable rate table with the instant it expires and the instant it should be refreshed
+     */
+    private record RateSnapshot(RateTable rates, long fetchedAtMillis, long expiresAtMillis, long refreshAtMillis) {
 
-        public boolean isExpired() {
-                long currentTime = System.currentTimeMillis();
-                long validTime = (long) validMinutes * 60 * 1000; // Convert minutes to milliseconds
-                return currentTime - timestamp > validTime;
-            }
+        boolean isExpired(long now) {
+            return now >= expiresAtMillis;
         }
 
+        boolean isDueForRefresh(long now) {
+            return now >= refreshAtMillis;
+        }
+    }
+
     /**
-     * Response class for exchange rate API
+     * An amount converted at recorded rates
+     * @param amount The converted amount
+     * @param exchangeRateId The exchange rate history row the rates came from, or null for unrecorded rates
      */
-    @Setter
-    @Getter
-    private static class ExchangeRateResponse {
-        private String base;
-        private Rates rates;
+    public record Conversion(BigDecimal amount, Long exchangeRateId) {
+    }
 
+    /**
+     * Exchange rate cache statistics
+     * Stale hits are conversions served the last good rate while it was expired.
+     */
+    public record Stats(
+            BigDecimal kesRate,
+            int currencies,
+            Long exchangeRateId,
+            int historySize,
+            Instant fetchedAt,
+            boolean expired,
+            long hits,
+            long staleHits,
+            long fetches,
+            long fetchFailures) {
     }
 
     /**
-     * Rates class for exchange rate API response
+     * Response class for exchange rate API
      */
     @Setter
     @Getter
-    private static class Rates {
-        private BigDecimal KES;
+    private static class ExchangeRateResponse {
+        private String base;
+        // Units of each currency per base currency, keyed by ISO 4217 code
+        private Map<String, BigDecimal> rates;
 
     }
 }
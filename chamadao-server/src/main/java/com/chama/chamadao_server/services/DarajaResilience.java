@@ -0,0 +1,159 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.MPesaConfig;
+import com.chama.chamadao_server.exceptions.ServiceUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker and adaptive concurrency limit around the M-Pesa (Daraja) API
+ * Installed as an interceptor on the shared Daraja HTTP client, so the token, STK push, STK query and
+ * B2C calls are all covered. Calls that are rejected fail immediately with a
+ * {@link ServiceUnavailableException} instead of holding a thread while Daraja is degraded.
+ */
+@Component
+@Slf4j
+public class DarajaResilience {
+
+    private final MPesaConfig mpesaConfig;
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejectedByBreaker = new LongAdder();
+    private final LongAdder rejectedByLimit = new LongAdder();
+
+    public DarajaResilience(MPesaConfig mpesaConfig) {
+        this.mpesaConfig = mpesaConfig;
+        this.circuitBreaker = new CircuitBreaker(
+                mpesaConfig.getCircuitBreakerFailureRateThreshold(),
+                mpesaConfig.getCircuitBreakerWindowSize(),
+                mpesaConfig.getCircuitBreakerMinimumCalls(),
+                mpesaConfig.getCircuitBreakerOpenSeconds(), TimeUnit.SECONDS,
+                mpesaConfig.getCircuitBreakerHalfOpenCalls());
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(
+                mpesaConfig.getConcurrencyLimitInitial(),
+                mpesaConfig.getConcurrencyLimitMin(),
+                mpesaConfig.getConcurrencyLimitMax(),
+                mpesaConfig.getConcurrencyLimitLatencyTolerance(),
+                mpesaConfig.getConcurrencyLimitBackoffRatio());
+    }
+
+    /**
+     * Create the interceptor guarding calls to Daraja
+     * Transport errors, timeouts, 5xx and 429 responses count as failures; other responses show that
+     * Daraja is answering and count as successes.
+     * @return The interceptor
+     */
+    public Interceptor interceptor() {
+        return chain -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                rejectedByBreaker.increment();
+                throw unavailable();
+            }
+            if (!concurrencyLimit.tryAcquire()) {
+                circuitBreaker.releasePermission();
+                rejectedByLimit.increment();
+                throw new ServiceUnavailableException("Too many M-Pesa requests in flight, please retry later",
+                        mpesaConfig.getRequestRetryAfterSeconds());
+            }
+
+            calls.increment();
+            long start = System.nanoTime();
+            try {
+                Response response = chain.proceed(chain.request());
+                if (response.code() >= 500 || response.code() == 429) {
+                    recordFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                    concurrencyLimit.onSuccess(System.nanoTime() - start);
+                }
+                return response;
+            } catch (IOException | RuntimeException e) {
+                recordFailure();
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Fail fast if the circuit breaker is rejecting Daraja calls
+     * Used before recording a new payment, so no transaction is created that could not be sent.
+     * @throws ServiceUnavailableException if the circuit breaker is open
+     */
+    public void checkAvailable() {
+        if (!isAcceptingCalls()) {
+            rejectedByBreaker.increment();
+            throw unavailable();
+        }
+    }
+
+    /**
+     * Check whether the circuit breaker currently lets calls through
+     * @return False while the breaker is open
+     */
+    public boolean isAcceptingCalls() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * Get the circuit breaker and concurrency limit state
+     * @return The resilience statistics
+     */
+    public Stats getStats() {
+        return new Stats(
+                circuitBreaker.getState(),
+                circuitBreaker.getFailureRate(),
+                circuitBreaker.getTimesOpened(),
+                circuitBreaker.getRetryAfterSeconds(),
+                concurrencyLimit.getLimit(),
+                concurrencyLimit.getInFlight(),
+                concurrencyLimit.getShortLatencyMillis(),
+                concurrencyLimit.getLongLatencyMillis(),
+                calls.sum(),
+                failures.sum(),
+                rejectedByBreaker.sum(),
+                rejectedByLimit.sum());
+    }
+
+    private void recordFailure() {
+        failures.increment();
+        CircuitBreaker.State before = circuitBreaker.getState();
+        circuitBreaker.onFailure();
+        concurrencyLimit.onDropped();
+        if (before != CircuitBreaker.State.OPEN && circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            log.warn("M-Pesa circuit breaker opened, rejecting calls for {}s", circuitBreaker.getRetryAfterSeconds());
+        }
+    }
+
+    private ServiceUnavailableException unavailable() {
+        return new ServiceUnavailableException("M-Pesa is currently unavailable, please retry later",
+                circuitBreaker.getRetryAfterSeconds());
+    }
+
+    /**
+     * Circuit breaker and concurrency limit statistics
+     * The latencies are the short- and long-term averages the limit is adjusted on.
+     */
+    public record Stats(
+            CircuitBreaker.State circuitState,
+            double failureRate,
+            long timesOpened,
+            long retryAfterSeconds,
+            int concurrencyLimit,
+            int inFlight,
+            double shortLatencyMillis,
+            double longLatencyMillis,
+            long calls,
+            long failures,
+            long rejectedByBreaker,
+            long rejectedByLimit) {
+    }
+}
@@ -0,0 +1,247 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.MPesaConfig;
+import com.chama.chamadao_server.exceptions.ServiceUnavailableException;
+import com.chama.chamadao_server.models.dto.mpesa.AccessTokenResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Credentials;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Manages the M-Pesa (Daraja) OAuth access token
+ * The token is cached until shortly before it expires and refreshed ahead of expiry in the background.
+ * Concurrent refreshes are collapsed into a single in-flight request to the OAuth endpoint.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DarajaTokenManager {
+
+    // Used when Daraja omits or sends an unparseable expires_in (the sandbox issues 3599 second tokens)
+    private static final long DEFAULT_EXPIRES_IN_SECONDS = 3599;
+
+    private final MPesaConfig mpesaConfig;
+    @Qualifier("darajaHttpClient")
+    private final OkHttpClient okHttpClient;
+    private final DarajaResilience darajaResilience;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicReference<CachedToken> cachedToken = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<CachedToken>> inFlightRefresh = new AtomicReference<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder totalRefreshNanos = new LongAdder();
+    private final AtomicLong maxRefreshNanos = new AtomicLong();
+
+    /**
+     * Get a valid access token, fetching a new one only if the cached token is missing or about to expire
+     * @return The access token
+     * @throws IOException if a new token is needed and the OAuth request fails
+     */
+    public String getAccessToken() throws IOException {
+        return getAccessTokenResponse().getAccess_token();
+    }
+
+    /**
+     * Get a valid access token response, fetching a new one only if the cached token is missing or about to expire
+     * @return The access token response
+     * @throws IOException if a new token is needed and the OAuth request fails
+     * @throws ServiceUnavailableException if a new token is needed and Daraja calls are being rejected
+     */
+    public AccessTokenResponse getAccessTokenResponse() throws IOException {
+        CachedToken token = cachedToken.get();
+        if (token != null && !token.isExpired(Instant.now())) {
+            hits.increment();
+            return token.response();
+        }
+
+        misses.increment();
+        // Rejected up front while the breaker is open, so callers see the 503 rather than a failed token request
+        darajaResilience.checkAvailable();
+        log.debug("No valid cached M-Pesa access token, refreshing");
+        try {
+            return refresh().join().response();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof ServiceUnavailableException unavailable) {
+                throw unavailable;
+            }
+            throw new IOException("Failed to generate access token", e.getCause());
+        }
+    }
+
+    /**
+     * Drop the cached token, e.g. after Daraja rejected it with a 401
+     * The next call to {@link #getAccessToken()} fetches a fresh token.
+     */
+    public void invalidate() {
+        log.info("Invalidating cached M-Pesa access token");
+        cachedToken.set(null);
+    }
+
+    /**
+     * Refresh the cached token in the background when it is close to expiry
+     * Tokens are only refreshed once one has been requested, so idle instances make no OAuth calls.
+     */
+    @Scheduled(fixedDelayString = "${mpesa.token-refresh-check-ms:15000}")
+    public void refreshAheadOfExpiry() {
+        CachedToken token = cachedToken.get();
+        if (token == null || !token.isDueForRefresh(Instant.now())) {
+            return;
+        }
+
+        log.debug("Refreshing M-Pesa access token ahead of expiry at {}", token.expiresAt());
+        refresh().exceptionally(ex -> {
+            log.warn("Background refresh of M-Pesa access token failed, cached token still valid until {}",
+                    token.expiresAt(), ex);
+            return null;
+        });
+    }
+
+    /**
+     * Get the token cache statistics
+     * @return The current hit, miss and refresh counters
+     */
+    public Stats getStats() {
+        long refreshCount = refreshes.sum();
+        CachedToken token = cachedToken.get();
+        return new Stats(
+                hits.sum(),
+                misses.sum(),
+                refreshCount,
+                refreshFailures.sum(),
+                refreshCount == 0 ? 0 : totalRefreshNanos.sum() / refreshCount / 1_000_000.0,
+                maxRefreshNanos.get() / 1_000_000.0,
+                token != null ? token.expiresAt() : null);
+    }
+
+    /**
+     * Start a refresh, or join the one already in flight
+     * @return A future completed with the new token
+     */
+    private CompletableFuture<CachedToken> refresh() {
+        while (true) {
+            CompletableFuture<CachedToken> existing = inFlightRefresh.get();
+            if (existing != null) {
+                return existing;
+            }
+
+            CompletableFuture<CachedToken> refresh = new CompletableFuture<>();
+            if (!inFlightRefresh.compareAndSet(null, refresh)) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            try {
+                CachedToken token = fetchToken();
+                cachedToken.set(token);
+                refresh.complete(token);
+            } catch (IOException | RuntimeException e) {
+                refreshFailures.increment();
+                refresh.completeExceptionally(e);
+            } finally {
+                recordRefreshLatency(System.nanoTime() - start);
+                inFlightRefresh.set(null);
+            }
+            return refresh;
+        }
+    }
+
+    /**
+     * Request a new access token from the M-Pesa OAuth endpoint
+     * @return The new token with its computed expiry times
+     * @throws IOException if there's an error during the HTTP request
+     */
+    private CachedToken fetchToken() throws IOException {
+        String credentials = Credentials.basic(mpesaConfig.getConsumerKey(), mpesaConfig.getConsumerSecret());
+
+        Request request = new Request.Builder()
+                .url(mpesaConfig.getAccessTokenUrl())
+                .get()
+                .addHeader("Authorization", credentials)
+                .build();
+
+        try (Response response = okHttpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                String responseBody = response.body() != null ? response.body().string() : "No response body";
+                log.error("Failed to generate access token. Response: {} - {}", response.code(), responseBody);
+                throw new IOException("Failed to generate access token");
+            }
+            String responseBody = Objects.requireNonNull(response.body()).string();
+            AccessTokenResponse tokenResponse = objectMapper.readValue(responseBody, AccessTokenResponse.class);
+            if (tokenResponse.getAccess_token() == null || tokenResponse.getAccess_token().isEmpty()) {
+                throw new IOException("Access token response did not contain a token");
+            }
+
+            Instant now = Instant.now();
+            long expiresIn = parseExpiresIn(tokenResponse.getExpires_in());
+            Instant expiresAt = now.plusSeconds(Math.max(0, expiresIn - mpesaConfig.getTokenExpirySkewSeconds()));
+            Instant refreshAt = now.plusSeconds(Math.max(0, expiresIn - mpesaConfig.getTokenRefreshAheadSeconds()));
+
+            // Never log the token itself, it is a live bearer credential
+            log.info("Generated new M-Pesa access token, expires in {}s at {}", expiresIn, expiresAt);
+            return new CachedToken(tokenResponse, expiresAt, refreshAt);
+        }
+    }
+
+    private long parseExpiresIn(String expiresIn) {
+        if (expiresIn == null) {
+            return DEFAULT_EXPIRES_IN_SECONDS;
+        }
+        try {
+            return Long.parseLong(expiresIn.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Unexpected expires_in value in access token response: {}", expiresIn);
+            return DEFAULT_EXPIRES_IN_SECONDS;
+        }
+    }
+
+    private void recordRefreshLatency(long nanos) {
+        refreshes.increment();
+        totalRefreshNanos.add(nanos);
+        maxRefreshNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Cached token with the instant it stops being served and the instant it should be refreshed
+     */
+    private record CachedToken(AccessTokenResponse response, Instant expiresAt, Instant refreshAt) {
+
+        boolean isExpired(Instant now) {
+            return !now.isBefore(expiresAt);
+        }
+
+        boolean isDueForRefresh(Instant now) {
+            return !now.isBefore(refreshAt);
+        }
+    }
+
+    /**
+     * Token cache statistics
+     * Every hit is an OAuth round-trip saved on the STK push or B2C path.
+     */
+    public record Stats(long hits, long misses, long refreshes, long refreshFailures,
+                        double averageRefreshMillis, double maxRefreshMillis, Instant tokenExpiresAt) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.chama.chamadao_server.services;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.tx.TransactionManager;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One sender account of the {@link HotWalletPool}
+ * Each wallet has its own nonce sequence, so transfers assigned to different wallets never wait on each other.
+ */
+public class HotWallet {
+
+    private final String address;
+    private final Web3j web3j;
+    private final NonceManager nonceManager;
+    private final TransactionManager transactionManager;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder assigned = new LongAdder();
+    private volatile BigInteger balanceWei;
+    private volatile boolean inRotation = true;
+
+    public HotWallet(String address, Web3j web3j, NonceManager nonceManager, TransactionManager transactionManager) {
+        this.address = address;
+        this.web3j = web3j;
+        this.nonceManager = nonceManager;
+        this.transactionManager = transactionManager;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Get the Web3j instance the wallet's transactions are sent through
+     * @return The Web3j instance, pinned to one node for the wallet's nonce sequence
+     */
+    public Web3j getWeb3j() {
+        return web3j;
+    }
+
+    public NonceManager getNonceManager() {
+        return nonceManager;
+    }
+
+    public TransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    /**
+     * Get the number of transfers assigned to this wallet that have not finished yet
+     * @return The pending transfer count
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    public BigInteger getBalanceWei() {
+        return balanceWei;
+    }
+
+    public boolean isInRotation() {
+        return inRotation;
+    }
+
+    void assign() {
+        pending.incrementAndGet();
+        assigned.increment();
+    }
+
+    void finish() {
+        pending.decrementAndGet();
+    }
+
+    void setBalanceWei(BigInteger balanceWei) {
+        this.balanceWei = balanceWei;
+    }
+
+    void setInRotation(boolean inRotation) {
+        this.inRotation = inRotation;
+    }
+
+    long getAssigned() {
+        return assigned.sum();
+    }
+}
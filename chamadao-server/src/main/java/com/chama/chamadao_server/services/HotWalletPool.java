@@ -0,0 +1,163 @@
+package com.chama.chamadao_server.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Pool of hot wallets that USDT disbursements are spread across
+ * A single account sends its transactions in nonce order, which caps disbursement throughput at one nonce
+ * sequence. Transfers are assigned to the wallet with the fewest pending transfers, or by a hash of the
+ * recipient so each recipient is always paid from the same wallet. A wallet whose balance drops below the
+ * minimum is taken out of rotation until it is refilled.
+ */
+@Slf4j
+public class HotWalletPool {
+
+    /**
+     * How transfers are assigned to wallets
+     */
+    public enum Selection {
+        LEAST_PENDING,
+        RECIPIENT_HASH
+    }
+
+    private final List<HotWallet> wallets;
+    private final Selection selection;
+    private final BigInteger minBalanceWei;
+
+    // Start of the tie-break scan, so idle wallets take turns
+    private int nextStart;
+
+    public HotWalletPool(List<HotWallet> wallets, Selection selection, BigInteger minBalanceWei) {
+        if (wallets.isEmpty()) {
+            throw new IllegalArgumentException("At least one hot wallet is required");
+        }
+        this.wallets = List.copyOf(wallets);
+        this.selection = selection;
+        this.minBalanceWei = minBalanceWei;
+    }
+
+    /**
+     * Assign a transfer to a wallet in rotation
+     * Every acquired wallet must be handed back with {@link #release(HotWallet)} once the transfer finished.
+     * @param recipient The recipient address, used by {@link Selection#RECIPIENT_HASH}
+     * @return The wallet to send from
+     * @throws RejectedExecutionException if no wallet is in rotation, so nothing is sent
+     */
+    public synchronized HotWallet acquire(String recipient) {
+        List<HotWallet> available = inRotation();
+        if (available.isEmpty()) {
+            throw new RejectedExecutionException("No funded hot wallet is in rotation");
+        }
+
+        HotWallet wallet = selection == Selection.RECIPIENT_HASH
+                ? available.get(Math.floorMod(recipient.toLowerCase(Locale.ROOT).hashCode(), available.size()))
+                : leastPending(available);
+        wallet.assign();
+        return wallet;
+    }
+
+    /**
+     * Hand back a wallet after its transfer finished
+     * @param wallet The wallet returned by {@link #acquire(String)}
+     */
+    public void release(HotWallet wallet) {
+        wallet.finish();
+    }
+
+    /**
+     * Record a wallet's balance and move it in or out of rotation
+     * @param wallet The wallet
+     * @param balanceWei Its balance in wei
+     */
+    public void updateBalance(HotWallet wallet, BigInteger balanceWei) {
+        wallet.setBalanceWei(balanceWei);
+        boolean funded = balanceWei.compareTo(minBalanceWei) >= 0;
+        if (funded && !wallet.isInRotation()) {
+            wallet.setInRotation(true);
+            log.info("Hot wallet {} refilled to {} wei, back in rotation", wallet.getAddress(), balanceWei);
+        } else if (!funded && wallet.isInRotation()) {
+            removeFromRotation(wallet, "balance " + balanceWei + " wei is below the minimum of " + minBalanceWei);
+        }
+    }
+
+    /**
+     * Take a wallet out of rotation until its next balance update shows it funded
+     * @param wallet The wallet
+     * @param reason Why the wallet was removed
+     */
+    public void removeFromRotation(HotWallet wallet, String reason) {
+        if (wallet.isInRotation()) {
+            wallet.setInRotation(false);
+            log.warn("Hot wallet {} removed from rotation: {}", wallet.getAddress(), reason);
+        }
+    }
+
+    /**
+     * Check whether any wallet can take a transfer
+     * @return True if at least one wallet is in rotation
+     */
+    public boolean hasWalletInRotation() {
+        return wallets.stream().anyMatch(HotWallet::isInRotation);
+    }
+
+    public List<HotWallet> getWallets() {
+        return wallets;
+    }
+
+    /**
+     * Get the state of every wallet
+     * @return The rotation state, balance, pending transfers and nonce statistics of each wallet
+     */
+    public List<WalletStats> getStats() {
+        return wallets.stream()
+                .map(wallet -> new WalletStats(
+                        wallet.getAddress(),
+                        wallet.isInRotation(),
+                        wallet.getBalanceWei(),
+                        wallet.getPending(),
+                        wallet.getAssigned(),
+                        wallet.getNonceManager().getStats()))
+                .toList();
+    }
+
+    private List<HotWallet> inRotation() {
+        List<HotWallet> available = new ArrayList<>(wallets.size());
+        for (HotWallet wallet : wallets) {
+            if (wallet.isInRotation()) {
+                available.add(wallet);
+            }
+        }
+        return available;
+    }
+
+    private HotWallet leastPending(List<HotWallet> available) {
+        int start = Math.floorMod(nextStart++, available.size());
+        HotWallet best = null;
+        for (int i = 0; i < available.size(); i++) {
+            HotWallet wallet = available.get((start + i) % available.size());
+            if (best == null || wallet.getPending() < best.getPending()) {
+                best = wallet;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Hot wallet statistics
+     * Pending counts transfers assigned to the wallet that are being sent or waiting for their receipt.
+     */
+    public record WalletStats(
+            String address,
+            boolean inRotation,
+            BigInteger balanceWei,
+            int pending,
+            long assigned,
+            NonceManager.Stats nonce) {
+    }
+}
@@ -0,0 +1,218 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.exceptions.ChamaException;
+import com.chama.chamadao_server.exceptions.IdempotencyConflictException;
+import com.chama.chamadao_server.exceptions.IdempotentRequestFailedException;
+import com.chama.chamadao_server.exceptions.ServiceUnavailableException;
+import com.chama.chamadao_server.models.IdempotencyRecord;
+import com.chama.chamadao_server.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Service for client idempotency keys
+ * The first request with a key claims it and runs; its response is stored. Retries with the same key
+ * get the stored response back instead of triggering a second STK push or B2C payment.
+ * A key is only released for a request rejected before anything was sent. A failure that may have reached
+ * M-Pesa, or a request that never finished within its lease, is stored and replayed as a failure.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.retention-hours:24}")
+    private int retentionHours;
+
+    // How long a request may hold its key before a retry treats it as abandoned, well beyond the M-Pesa timeouts
+    @Value("${app.idempotency.lease-seconds:300}")
+    private int leaseSeconds;
+
+    /**
+     * Run an action at most once per idempotency key
+     * @param idempotencyKey The client-supplied key, or null to run the action without idempotency
+     * @param scope The endpoint the key belongs to
+     * @param requestFingerprint The request parameters; a key reused with different parameters is rejected
+     * @param responseType The response body type, used to restore a stored response
+     * @param action The action to run
+     * @return The action's response, or the stored response for a repeated key
+     * @throws IdempotencyConflictException if the key is in use by a request still running, or was used with different parameters
+     * @throws IdempotentRequestFailedException if the key's request failed after it may have reached M-Pesa
+     */
+    public <T> ResponseEntity<T> execute(String idempotencyKey, String scope, String requestFingerprint,
+                                         Class<T> responseType, Supplier<ResponseEntity<T>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > 255) {
+            throw new IllegalArgumentException("Idempotency-Key must be at most 255 characters");
+        }
+
+        String requestHash = sha256(requestFingerprint);
+        IdempotencyRecord record;
+        try {
+            record = idempotencyRecordRepository.saveAndFlush(IdempotencyRecord.builder()
+                    .scope(scope)
+                    .idempotencyKey(idempotencyKey)
+                    .requestHash(requestHash)
+                    .completed(false)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            return replay(scope, idempotencyKey, requestHash, responseType);
+        }
+
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            if (isRejectedBeforeSending(e)) {
+                // Release the key so the client can retry a request that did not go through
+                idempotencyRecordRepository.delete(record);
+            } else {
+                // The request may have reached M-Pesa, so a retry with this key must not send it again
+                record.setResponseStatus(HttpStatus.BAD_GATEWAY.value());
+                record.setFailureMessage(failureMessage(e.getMessage()));
+                record.setCompleted(true);
+                record.setCompletedAt(LocalDateTime.now());
+                idempotencyRecordRepository.save(record);
+            }
+            throw e;
+        }
+
+        record.setResponseStatus(response.getStatusCode().value());
+        record.setResponseLocation(response.getHeaders().getLocation() != null
+                ? response.getHeaders().getLocation().toString()
+                : null);
+        record.setResponseBody(writeBody(response.getBody()));
+        record.setCompleted(true);
+        record.setCompletedAt(LocalDateTime.now());
+        idempotencyRecordRepository.save(record);
+        return response;
+    }
+
+    /**
+     * Delete idempotency records older than the retention period
+     */
+    @Scheduled(cron = "${app.idempotency.purge-cron:0 0 * * * *}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(String scope, String idempotencyKey, String requestHash, Class<T> responseType) {
+        IdempotencyRecord existing = idempotencyRecordRepository.findByScopeAndIdempotencyKey(scope, idempotencyKey)
+                .orElseThrow(() -> new IdempotencyConflictException("Idempotency-Key is in use, please retry"));
+
+        if (!existing.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyConflictException("Idempotency-Key was already used with different request parameters");
+        }
+        if (!existing.isCompleted()) {
+            existing = closeIfAbandoned(existing);
+        }
+        if (existing.getFailureMessage() != null) {
+            log.info("Replaying stored failure for idempotency key {} on {}", idempotencyKey, scope);
+            throw new IdempotentRequestFailedException("The request with this Idempotency-Key failed and may have "
+                    + "reached M-Pesa (" + existing.getFailureMessage() + "); check the payment status before "
+                    + "retrying with a new key");
+        }
+
+        log.info("Replaying stored response for idempotency key {} on {}", idempotencyKey, scope);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.valueOf(existing.getResponseStatus()))
+                .header(REPLAYED_HEADER, "true");
+        if (existing.getResponseLocation() != null) {
+            builder.location(URI.create(existing.getResponseLocation()));
+        }
+        return builder.body(readBody(existing.getResponseBody(), responseType));
+    }
+
+    /**
+     * Close a record whose request has held its key past the lease, e.g. because the node crashed mid-request
+     * Whether that request reached M-Pesa is unknown, so it is closed as a failure rather than run again.
+     * @param existing The incomplete record
+     * @return The closed record
+     * @throws IdempotencyConflictException if the request is still within its lease
+     */
+    private IdempotencyRecord closeIfAbandoned(IdempotencyRecord existing) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!existing.getCreatedAt().isBefore(now.minusSeconds(leaseSeconds))) {
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still in progress");
+        }
+        if (idempotencyRecordRepository.closeAbandoned(existing.getId(), now.minusSeconds(leaseSeconds),
+                HttpStatus.BAD_GATEWAY.value(), "request did not complete", now) > 0) {
+            log.warn("Closed abandoned request for idempotency key {} on {}",
+                    existing.getIdempotencyKey(), existing.getScope());
+        }
+        return idempotencyRecordRepository.findById(existing.getId())
+                .orElseThrow(() -> new IdempotencyConflictException("Idempotency-Key is in use, please retry"));
+    }
+
+    /**
+     * Check whether a failure happened before the request could have reached M-Pesa
+     * Validation errors and load shedding reject a request up front; anything else may have been sent.
+     */
+    private static boolean isRejectedBeforeSending(RuntimeException e) {
+        return e instanceof ServiceUnavailableException
+                || e instanceof IllegalArgumentException
+                || e instanceof EntityNotFoundException
+                || e instanceof ChamaException;
+    }
+
+    private static String failureMessage(String message) {
+        if (message == null || message.isBlank()) {
+            return "request failed";
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    private String writeBody(Object body) {
+        try {
+            return body != null ? objectMapper.writeValueAsString(body) : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to store response for idempotency key", e);
+        }
+    }
+
+    private <T> T readBody(String body, Class<T> responseType) {
+        try {
+            return body != null ? objectMapper.readValue(body, responseType) : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to restore stored response for idempotency key", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
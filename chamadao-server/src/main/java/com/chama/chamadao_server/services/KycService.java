@@ -2,6 +2,7 @@ package com.chama.chamadao_server.services;
 
 import com.chama.chamadao_server.models.KycDocument;
 import com.chama.chamadao_server.models.User;
+import com.chama.chamadao_server.models.WalletAddress;
 import com.chama.chamadao_server.models.enums.DocumentType;
 import com.chama.chamadao_server.models.enums.KycStatus;
 import com.chama.chamadao_server.repository.KycDocumentRepository;
@@ -71,7 +72,7 @@ public class KycService {
         log.info("Uploading KYC document for wallet address: {}, document type: {}", walletAddress, documentType);
 
         // Check if the user exists
-        User user = userRepository.findByWalletAddress(walletAddress)
+        User user = userRepository.findByWalletAddress(WalletAddress.normalize(walletAddress))
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         // Variables that need to be accessed outside the try block
@@ -138,7 +139,7 @@ public class KycService {
     public String verifyKycDocuments(String walletAddress) {
         log.info("Verifying KYC documents for wallet address: {}", walletAddress);
 
-        User user = userRepository.findByWalletAddress(walletAddress)
+        User user = userRepository.findByWalletAddress(WalletAddress.normalize(walletAddress))
                 .orElseThrow(() -> new RuntimeException("User not found"));
         //user.setKycStatus(KycStatus.VERIFIED);
         // updatedAt will be set automatically by JPA auditing
@@ -163,7 +164,7 @@ public class KycService {
     public String rejectKycDocuments(String walletAddress) {
         log.info("Rejecting KYC documents for wallet address: {}", walletAddress);
 
-        User user = userRepository.findByWalletAddress(walletAddress)
+        User user = userRepository.findByWalletAddress(WalletAddress.normalize(walletAddress))
                 .orElseThrow(() -> new RuntimeException("User not found"));
        // user.setKycStatus(KycStatus.REJECTED);
         // updatedAt will be set automatically by JPA auditing
@@ -180,7 +181,7 @@ public class KycService {
      */
     public KycStatus getKycStatus(String walletAddress) {
         log.info("Retrieving KYC status for wallet address: {}", walletAddress);
-        User user = userRepository.findByWalletAddress(walletAddress)
+        User user = userRepository.findByWalletAddress(WalletAddress.normalize(walletAddress))
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         return null; //todo
@@ -1,11 +1,14 @@
 package com.chama.chamadao_server.services;
 
 import com.chama.chamadao_server.models.Chama;
+import com.chama.chamadao_server.models.Money;
 import com.chama.chamadao_server.models.User;
+import com.chama.chamadao_server.models.WalletAddress;
 import com.chama.chamadao_server.models.dto.GuarantorDto;
 import com.chama.chamadao_server.models.dto.GuarantorUpdateDto;
 import com.chama.chamadao_server.models.dto.LoanDto;
 import com.chama.chamadao_server.models.dto.LoanRequestDto;
+import com.chama.chamadao_server.models.enums.FiatCurrency;
 import com.chama.chamadao_server.models.enums.LoanStatus;
 import com.chama.chamadao_server.models.loan.Loan;
 import com.chama.chamadao_server.models.loan.LoanGuarantor;
@@ -55,19 +58,20 @@ public class LoanService {
 
     @Transactional
     public LoanDto createLoan(LoanRequestDto createDTO) {
-        User borrower = userRepository.findByWalletAddress(createDTO.getBorrowerWalletAddress())
+        User borrower = userRepository.findByWalletAddress(WalletAddress.normalize(createDTO.getBorrowerWalletAddress()))
                 .orElseThrow(() -> new EntityNotFoundException("Borrower not found"));
 
-        Chama chama = chamaRepository.findById(createDTO.getChamaAddress())
+        Chama chama = chamaRepository.findById(WalletAddress.normalize(createDTO.getChamaAddress()))
                 .orElseThrow(() -> new EntityNotFoundException("Chama not found"));
 
         // Calculate due date from term
         LocalDateTime dueDate = LocalDateTime.now().plus(Period.parse(createDTO.getTerm()));
 
+        Money loanAmount = Money.parse(createDTO.getAmount(), FiatCurrency.KES);
         Loan loan = Loan.builder()
                 .chama(chama)
                 .borrower(borrower)
-                .loanAmount(createDTO.getAmount())
+                .loanAmount(loanAmount)
                 .loanInterestRate(createDTO.getInterestRate())
                 .loanTerm(createDTO.getTerm())
                 .dueDate(dueDate)
@@ -75,9 +79,9 @@ public class LoanService {
                 .status(LoanStatus.PENDING)
                 .loanPenalty(createDTO.getPenalty())
                 .loanPenaltyExpirationPeriod(createDTO.getPenaltyPeriod())
-                .totalGuaranteedAmount(BigDecimal.ZERO)
-                .amountRepaid(BigDecimal.ZERO)
-                .outstandingAmount(createDTO.getAmount())
+                .totalGuaranteedAmount(Money.zero(FiatCurrency.KES))
+                .amountRepaid(Money.zero(FiatCurrency.KES))
+                .outstandingAmount(loanAmount)
                 .build();
 
         return mapToLoanDTO(loanRepository.save(loan));
@@ -88,17 +92,17 @@ public class LoanService {
         Loan loan = loanRepository.findById(loanId)
                 .orElseThrow(() -> new EntityNotFoundException("Loan not found"));
 
-        User guarantor = userRepository.findByWalletAddress(updateDTO.getWalletAddress())
+        User guarantor = userRepository.findByWalletAddress(WalletAddress.normalize(updateDTO.getWalletAddress()))
                 .orElseThrow(() -> new EntityNotFoundException("Guarantor not found"));
 
         LoanGuarantor loanGuarantor = guarantorRepository
-                .findByLoanIdAndGuarantorWalletAddress(loanId, updateDTO.getWalletAddress())
+                .findByLoanIdAndGuarantorWalletAddress(loanId, guarantor.getWalletAddress())
                 .orElse(LoanGuarantor.builder()
                         .loan(loan)
                         .guarantor(guarantor)
                         .build());
 
-        loanGuarantor.setGuaranteedAmount(updateDTO.getAmount());
+        loanGuarantor.setGuaranteedAmount(Money.parse(updateDTO.getAmount(), FiatCurrency.KES));
         loanGuarantor.setStatus(LoanGuarantor.GuarantorStatus.valueOf(updateDTO.getStatus()));
 
         LoanGuarantor saved = guarantorRepository.save(loanGuarantor);
@@ -119,16 +123,11 @@ public class LoanService {
     }
 
     private void updateLoanGuarantorsStatus(Loan loan) {
-        BigDecimal approvedAmount = loan.getGuarantors().stream()
-                .filter(g -> g.getStatus() == LoanGuarantor.GuarantorStatus.APPROVED)
-                .map(LoanGuarantor::getGuaranteedAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        loan.setTotalGuaranteedAmount(approvedAmount);
+        loan.updateTotalGuaranteedAmount();
 
         // Auto approve loan if conditions met
         if (loan.getStatus() == LoanStatus.PENDING
-                && approvedAmount.compareTo(loan.getLoanAmount()) >= 0
+                && loan.getTotalGuaranteedAmount().compareTo(loan.getLoanAmount()) >= 0
                 && loan.getGuarantors().size() >= loan.getRequiredGuarantors()) {
             loan.setStatus(LoanStatus.APPROVED);
         }
@@ -144,15 +143,15 @@ public class LoanService {
                 .chamaName(loan.getChama().getName())
                 .borrowerWalletAddress(loan.getBorrower().getWalletAddress())
                 .borrowerName(loan.getBorrower().getFullName())
-                .loanAmount(loan.getLoanAmount())
+                .loanAmount(toAmount(loan.getLoanAmount()))
                 .interestRate(loan.getLoanInterestRate())
                 .term(loan.getLoanTerm())
                 .dueDate(loan.getDueDate())
                 .status(loan.getStatus())
                 .requiredGuarantors(loan.getRequiredGuarantors())
-                .totalGuaranteedAmount(loan.getTotalGuaranteedAmount())
-                .amountRepaid(loan.getAmountRepaid())
-                .outstandingAmount(loan.getOutstandingAmount())
+                .totalGuaranteedAmount(toAmount(loan.getTotalGuaranteedAmount()))
+                .amountRepaid(toAmount(loan.getAmountRepaid()))
+                .outstandingAmount(toAmount(loan.getOutstandingAmount()))
                 .build();
     }
 
@@ -160,8 +159,12 @@ public class LoanService {
         return GuarantorDto.builder()
                 .walletAddress(guarantor.getGuarantor().getWalletAddress())
                 .name(guarantor.getGuarantor().getFullName())
-                .guaranteedAmount(guarantor.getGuaranteedAmount())
+                .guaranteedAmount(toAmount(guarantor.getGuaranteedAmount()))
                 .status(guarantor.getStatus().toString())
                 .build();
     }
+
+    private static BigDecimal toAmount(Money money) {
+        return money != null ? money.toBigDecimal() : null;
+    }
 }
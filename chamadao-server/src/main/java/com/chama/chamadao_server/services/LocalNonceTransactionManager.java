@@ -0,0 +1,119 @@
+package com.chama.chamadao_server.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.tx.RawTransactionManager;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Transaction manager that signs transactions with nonces from a {@link NonceManager}
+ * web3j's default manager looks the nonce up on the node for every transaction, so concurrent sends from
+ * the same wallet get the same nonce and all but one fail. A send the node rejects for a nonce conflict
+ * is retried with a fresh nonce after resyncing; any other rejection releases the nonce for reuse.
+ * Transactions are signed before sending, so a copy the node already knows is reported with its hash.
+ */
+@Slf4j
+public class LocalNonceTransactionManager extends RawTransactionManager {
+
+    private static final int MAX_NONCE_RETRIES = 2;
+
+    private final Web3j web3j;
+    private final NonceManager nonceManager;
+
+    public LocalNonceTransactionManager(Web3j web3j, Credentials credentials, NonceManager nonceManager) {
+        super(web3j, credentials);
+        this.web3j = web3j;
+        this.nonceManager = nonceManager;
+    }
+
+    @Override
+    public EthSendTransaction sendTransaction(BigInteger gasPrice, BigInteger gasLimit, String to, String data,
+                                              BigInteger value, boolean constructor) throws IOException {
+        return send(nonce -> RawTransaction.createTransaction(nonce, gasPrice, gasLimit, to, value, data));
+    }
+
+    @Override
+    public EthSendTransaction sendEIP1559Transaction(long chainId, BigInteger maxPriorityFeePerGas, BigInteger maxFeePerGas,
+                                                     BigInteger gasLimit, String to, String data, BigInteger value,
+                                                     boolean constructor) throws IOException {
+        return send(nonce -> RawTransaction.createTransaction(
+                chainId, nonce, gasLimit, to, value, data, maxPriorityFeePerGas, maxFeePerGas));
+    }
+
+    /**
+     * Reserve the wallet's next nonce from the NonceManager instead of looking it up on the node
+     * The send paths above reserve their own nonces; a caller signing with this one must hand it back with
+     * {@link NonceManager#markSent} or {@link NonceManager#release} once its send succeeds or fails.
+     * @return The reserved nonce
+     * @throws IOException if the NonceManager has to sync with the node and cannot reach it
+     */
+    @Override
+    protected BigInteger getNonce() throws IOException {
+        return nonceManager.reserve();
+    }
+
+    /**
+     * Sign and send a transaction with a reserved nonce, retrying with a fresh nonce after a conflict
+     * @param transaction Builds the transaction for a nonce
+     * @return The node's response
+     * @throws IOException if the node cannot be reached
+     */
+    private EthSendTransaction send(Function<BigInteger, RawTransaction> transaction) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            BigInteger nonce = nonceManager.reserve();
+            EthSendTransaction response;
+            String signedTransaction;
+            try {
+                signedTransaction = sign(transaction.apply(nonce));
+                response = web3j.ethSendRawTransaction(signedTransaction).send();
+            } catch (IOException | RuntimeException e) {
+                // If the node did receive it, reusing the nonce fails with a conflict that triggers a resync
+                nonceManager.release(nonce);
+                throw e;
+            }
+
+            if (!response.hasError()) {
+                nonceManager.markSent(nonce);
+                return response;
+            }
+
+            String error = response.getError().getMessage();
+            if (isAlreadyKnown(error)) {
+                // A resent copy of this exact transaction, e.g. after a connection retry; the first copy went through
+                nonceManager.markSent(nonce);
+                EthSendTransaction known = new EthSendTransaction();
+                known.setResult(Hash.sha3(signedTransaction));
+                return known;
+            }
+
+            nonceManager.release(nonce);
+            if (!isNonceConflict(error) || attempt >= MAX_NONCE_RETRIES) {
+                return response;
+            }
+            log.warn("Nonce {} rejected by the node ({}), resyncing", nonce, error);
+            nonceManager.resync();
+        }
+    }
+
+    private static boolean isNonceConflict(String error) {
+        if (error == null) {
+            return false;
+        }
+        String message = error.toLowerCase(Locale.ROOT);
+        return message.contains("nonce too low")
+                || message.contains("nonce too high")
+                || message.contains("replacement transaction underpriced");
+    }
+
+    private static boolean isAlreadyKnown(String error) {
+        return error != null && error.toLowerCase(Locale.ROOT).contains("already known");
+    }
+}
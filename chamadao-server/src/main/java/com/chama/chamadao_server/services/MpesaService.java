@@ -1,20 +1,28 @@
 package com.chama.chamadao_server.services;
 
 import com.chama.chamadao_server.config.MPesaConfig;
+import com.chama.chamadao_server.exceptions.ServiceUnavailableException;
+import com.chama.chamadao_server.models.Money;
 import com.chama.chamadao_server.models.Transaction;
+import com.chama.chamadao_server.models.WalletAddress;
+import com.chama.chamadao_server.models.dto.PaymentStatusDto;
 import com.chama.chamadao_server.models.dto.mpesa.*;
+import com.chama.chamadao_server.models.enums.FiatCurrency;
 import com.chama.chamadao_server.models.enums.TransactionStatus;
 import com.chama.chamadao_server.models.enums.TransactionType;
 import com.chama.chamadao_server.repository.TransactionRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
+import java.util.Optional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -33,65 +41,98 @@ public class MpesaService {
     private final MPesaConfig mpesaConfig;
     private final TransactionRepository transactionRepository;
     private final CurrencyConversionService currencyConversionService;
-    private final BlockchainService blockchainService;
-    private final OkHttpClient okHttpClient = new OkHttpClient();
+    private final TransferOutboxService transferOutboxService;
+    private final DarajaTokenManager darajaTokenManager;
+    private final RecentReceiptCache recentReceiptCache;
+    private final DarajaResilience darajaResilience;
+    @Qualifier("darajaExecutor")
+    private final TaskExecutor darajaExecutor;
+    @Qualifier("darajaHttpClient")
+    private final OkHttpClient okHttpClient;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
 
     /**
-     * Generate an access token for M-Pesa API
+     * Get an access token for M-Pesa API
+     * The token is served from the {@link DarajaTokenManager} cache and only fetched when missing or about to expire
      * @return The access token response
-     * @throws IOException if there's an error during the HTTP request
+     * @throws IOException if a new token is needed and the HTTP request fails
      */
     public AccessTokenResponse generateAccessToken() throws IOException {
-        String consumerKey = mpesaConfig.getConsumerKey();
-        String consumerSecret = mpesaConfig.getConsumerSecret();
-        String credentials = Credentials.basic(consumerKey, consumerSecret);
-
-        // Prepare the request
-        Request request = new Request.Builder()
-                .url(mpesaConfig.getAccessTokenUrl())
-                .get()
-                .addHeader("Authorization", credentials)
-                .build();
-        log.debug("Request prepared: {}", request);
-
-        // Execute the request
-        try (Response response = okHttpClient.newCall(request).execute()) {
-            log.debug("Response received: {}", response);
-            if (!response.isSuccessful()) {
-                String responseBody = response.body() != null ? response.body().string() : "No response body";
-                log.error("Failed to generate access token. Response: {} - {}", response.code(), responseBody);
-                throw new IOException("Failed to generate access token");
-            }
-            String responseBody = Objects.requireNonNull(response.body()).string();
-            return objectMapper.readValue(responseBody, AccessTokenResponse.class);
-        } catch (IOException e) {
-            log.error("Failed to generate access token.", e);
-            throw e;
-        }
+        return darajaTokenManager.getAccessTokenResponse();
     }
 
     /**
-     * Initiate an STK push request for deposit
+     * Initiate an STK push request for deposit and wait for M-Pesa to accept it
      * @param walletAddress The wallet address of the user
      * @param phoneNumber The phone number to send the STK push to
      * @param amount The amount in KES
      * @return The STK push response
+     * @throws ServiceUnavailableException if M-Pesa calls are being rejected by the circuit breaker or concurrency limit
      */
     public MpesaStkPushResponse initiateDeposit(String walletAddress, String phoneNumber, BigDecimal amount) {
+        darajaResilience.checkAvailable();
+        Transaction transaction = createPendingDeposit(walletAddress, phoneNumber, amount);
+        return submitDeposit(transaction);
+    }
+
+    /**
+     * Record a pending deposit and send the STK push in the background
+     * The request thread returns as soon as the transaction is persisted; progress can be followed
+     * through {@link #getPaymentStatus(Long)}.
+     * @param walletAddress The wallet address of the user
+     * @param phoneNumber The phone number to send the STK push to
+     * @param amount The amount in KES
+     * @return The status of the pending deposit
+     * @throws ServiceUnavailableException if the M-Pesa request queue is full or the circuit breaker is open
+     */
+    public PaymentStatusDto initiateDepositAsync(String walletAddress, String phoneNumber, BigDecimal amount) {
+        darajaResilience.checkAvailable();
+        Transaction transaction = createPendingDeposit(walletAddress, phoneNumber, amount);
+        submitInBackground(transaction, () -> submitDeposit(transaction));
+        return toPaymentStatus(transaction);
+    }
+
+    /**
+     * Create the pending transaction record for a deposit
+     * For deposits, the USDT amount is set when the callback is received
+     * @param walletAddress The wallet address of the user
+     * @param phoneNumber The phone number to send the STK push to
+     * @param amount The amount in KES
+     * @return The saved transaction
+     */
+    private Transaction createPendingDeposit(String walletAddress, String phoneNumber, BigDecimal amount) {
         log.info("Initiating deposit for wallet address: {}, phone number: {}, amount: {}",
                 walletAddress, phoneNumber, amount);
 
+        Transaction transaction = Transaction.builder()
+                .walletAddress(WalletAddress.normalize(walletAddress))
+                .mobileNumber(phoneNumber)
+                .type(TransactionType.DEPOSIT)
+                .amountKES(Money.parse(amount, FiatCurrency.KES))
+                .amountUSDT(BigDecimal.ZERO) // Will be updated when the callback is received
+                .status(TransactionStatus.PENDING)
+                .description("M-Pesa deposit initiated")
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        return transactionRepository.save(transaction);
+    }
+
+    /**
+     * Send the STK push for a pending deposit
+     * @param transaction The pending deposit
+     * @return The STK push response
+     */
+    private MpesaStkPushResponse submitDeposit(Transaction transaction) {
         // Format phone number (remove leading 0 or +254 and add 254)
-        String formattedPhone = formatPhoneNumber(phoneNumber);
+        String formattedPhone = formatPhoneNumber(transaction.getMobileNumber());
 
         // Generate timestamp
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
 
         // Generate password
-        String password = Base64.getEncoder().encodeToString(
-                (mpesaConfig.getBusinessShortCode() + mpesaConfig.getPasskey() + timestamp).getBytes());
+        String password = stkPassword(timestamp);
 
         // Create STK push request
         MpesaStkPushRequest request = MpesaStkPushRequest.builder()
@@ -99,7 +140,7 @@ public class MpesaService {
                 .password(password)
                 .timestamp(timestamp)
                 .transactionType(mpesaConfig.getTransactionType())
-                .amount(amount.toString())
+                .amount(transaction.getAmountKES().toBigDecimal().stripTrailingZeros().toPlainString())
                 .partyA(formattedPhone)
                 .partyB(mpesaConfig.getBusinessShortCode())
                 .phoneNumber(formattedPhone)
@@ -108,26 +149,13 @@ public class MpesaService {
                 .transactionDesc(mpesaConfig.getTransactionDescription())
                 .build();
 
-        // Send request to M-Pesa API
-        String accessToken;
-        try {
-            AccessTokenResponse tokenResponse = generateAccessToken();
-            accessToken = tokenResponse.getAccess_token();
-            if (accessToken == null || accessToken.isEmpty()) {
-                log.error("Failed to generate access token for STK push");
-                throw new RuntimeException("Failed to generate access token for STK push");
-            }
-            log.info("Access token generated successfully: {}", accessToken);
-        } catch (IOException e) {
-            log.error("Failed to generate access token for STK push", e);
-            throw new RuntimeException("Failed to generate access token for STK push", e);
-        }
-
         String stkPushUrl = mpesaConfig.getStkPushUrl();
         log.debug("STK push URL: {}", stkPushUrl);
         log.debug("STK push request: {}", request);
 
         try {
+            String accessToken = getAccessToken("STK push");
+
             // Convert request to JSON
             String jsonRequest = objectMapper.writeValueAsString(request);
             RequestBody requestBody = RequestBody.create(jsonRequest, JSON);
@@ -153,30 +181,28 @@ public class MpesaService {
                     log.info("Successfully initiated deposit: {}", stkResponse.getCheckoutRequestID());
                     log.debug("STK push response: {}", stkResponse);
 
-                    // Create transaction record
-                    // For deposits, we'll set the USDT amount when the callback is received
-                    Transaction transaction = Transaction.builder()
-                            .walletAddress(walletAddress)
-                            .mobileNumber(phoneNumber)
-                            .type(TransactionType.DEPOSIT)
-                            .amountKES(amount)
-                            .amountUSDT(BigDecimal.ZERO) // Will be updated when the callback is received
-                            .status(TransactionStatus.PENDING)
-                            .description("M-Pesa deposit initiated")
-                            .createdAt(LocalDateTime.now())
-                            .build();
-
+                    transaction.setCheckoutRequestId(stkResponse.getCheckoutRequestID());
+                    transaction.setMerchantRequestId(stkResponse.getMerchantRequestID());
                     transactionRepository.save(transaction);
 
                     return stkResponse;
                 } else {
                     String responseBody = response.body() != null ? response.body().string() : "No response body";
                     log.error("Failed to initiate deposit: {} - {}", response.code(), responseBody);
+                    if (response.code() == 401) {
+                        darajaTokenManager.invalidate();
+                    }
                     throw new RuntimeException("Failed to initiate deposit: " + response.code());
                 }
             }
+        } catch (ServiceUnavailableException e) {
+            // Rejected before reaching M-Pesa, so nothing was sent
+            log.warn("STK push for transaction {} rejected: {}", transaction.getId(), e.getMessage());
+            markFailed(transaction, "Failed to initiate deposit: " + e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Exception while initiating deposit", e);
+            markFailed(transaction, "Failed to initiate deposit: " + e.getMessage());
             throw new RuntimeException("Failed to initiate deposit: " + e.getMessage(), e);
         }
     }
@@ -187,113 +213,251 @@ public class MpesaService {
      * @return True if the callback was processed successfully
      */
     public boolean processDepositCallback(MpesaStkCallback callback) {
-        log.info("Processing deposit callback: {}", callback.getBody().getStkCallback().getCheckoutRequestID());
-
-        // Check if the transaction was successful
-        if (callback.getBody().getStkCallback().getResultCode() != 0) {
-            log.warn("Deposit failed: {}", callback.getBody().getStkCallback().getResultDesc());
-            return false;
-        }
+        MpesaStkCallback.StkCallback stkCallback = callback.getBody().getStkCallback();
+        String checkoutRequestId = stkCallback.getCheckoutRequestID();
+        log.info("Processing deposit callback: {}", checkoutRequestId);
 
-        // Get transaction details from callback
-        String amount = callback.getAmount();
+        // Duplicate callbacks for an already applied receipt are acknowledged without reprocessing
         String receiptNumber = callback.getReceiptNumber();
-        String phoneNumber = callback.getPhoneNumber();
+        if (isDuplicateReceipt(receiptNumber)) {
+            log.info("Ignoring duplicate deposit callback for receipt: {}", receiptNumber);
+            return true;
+        }
 
-        // Find transaction by phone number and update it
-        Transaction transaction = transactionRepository.findByMobileNumber(phoneNumber, null)
-                .getContent().stream()
+        // Find the pending transaction by the checkout request ID returned from the STK push
+        Transaction transaction = transactionRepository.findByCheckoutRequestId(checkoutRequestId)
                 .filter(t -> t.getStatus() == TransactionStatus.PENDING && t.getType() == TransactionType.DEPOSIT)
-                .findFirst()
                 .orElse(null);
 
+        // Check if the transaction was successful
+        if (stkCallback.getResultCode() != 0) {
+            log.warn("Deposit failed: {}", stkCallback.getResultDesc());
+            if (transaction != null) {
+                markFailed(transaction, stkCallback.getResultDesc());
+            }
+            return false;
+        }
+
         if (transaction != null) {
-            // Update transaction with receipt number and status
-            transaction.setMpesaReceiptNumber(receiptNumber);
-            transaction.setStatus(TransactionStatus.COMPLETED);
-            transaction.setCompletedAt(LocalDateTime.now());
+            return completeDeposit(transaction, receiptNumber);
+        } else {
+            log.warn("Pending deposit not found for checkout request ID: {}", checkoutRequestId);
+            return false;
+        }
+    }
 
-            // Convert KES to USDT using exchange rate service
-            BigDecimal amountUSDT = currencyConversionService.convertKesToUsdt(transaction.getAmountKES());
-            transaction.setAmountUSDT(amountUSDT);
+    /**
+     * Mark a pending deposit as completed and queue the USDT transfer to the user's wallet
+     * The status is changed with a guarded update, so a deposit confirmed by both its callback and
+     * reconciliation is only paid out once. Must be called in a database transaction, which also
+     * commits the transfer's outbox entry.
+     * @param transaction The pending deposit
+     * @param receiptNumber The M-Pesa receipt number, or null if the payment was confirmed by a status query
+     * @return True if this call completed the deposit, false if it had already been resolved
+     */
+    public boolean completeDeposit(Transaction transaction, String receiptNumber) {
+        if (transactionRepository.transitionStatus(
+                transaction.getId(), TransactionStatus.PENDING, TransactionStatus.COMPLETED) == 0) {
+            log.info("Deposit {} was already resolved", transaction.getId());
+            return false;
+        }
 
-            // Save the transaction first to ensure we have the USDT amount recorded
-            transactionRepository.save(transaction);
+        // Update transaction with receipt number and status
+        transaction.setMpesaReceiptNumber(receiptNumber);
+        transaction.setStatus(TransactionStatus.COMPLETED);
+        transaction.setCompletedAt(LocalDateTime.now());
+
+        // Convert KES to USDT at the rate in effect when the deposit was initiated, however late it is confirmed
+        CurrencyConversionService.Conversion conversion = currencyConversionService.convertToUsdtAt(
+                transaction.getCreatedAt() != null ? transaction.getCreatedAt() : LocalDateTime.now(),
+                transaction.getAmountKES().toBigDecimal(), FiatCurrency.KES);
+        BigDecimal amountUSDT = conversion.amount();
+        transaction.setAmountUSDT(amountUSDT);
+        transaction.setExchangeRateId(conversion.exchangeRateId());
+
+        // Save the transaction first to ensure we have the USDT amount recorded
+        transactionRepository.save(transaction);
+        recentReceiptCache.rememberAfterCommit(receiptNumber);
+
+        // Record the USDT transfer in the same database transaction; the outbox dispatcher sends it
+        log.info("Queueing USDT transfer of {} to wallet: {}", amountUSDT, transaction.getWalletAddress());
+        transferOutboxService.enqueue(transaction);
+
+        log.info("Deposit {} completed: {}", transaction.getId(), receiptNumber);
+        return true;
+    }
 
-            // Initiate USDT transfer to the user's wallet
-            log.info("Initiating USDT transfer of {} to wallet: {}", 
-                    amountUSDT, transaction.getWalletAddress());
-
-            CompletableFuture<String> transferFuture = blockchainService.transferUsdtToWallet(transaction);
-
-            // Handle the transfer result asynchronously
-            transferFuture.thenAccept(txHash -> {
-                // Update transaction with blockchain transaction hash
-                transaction.setBlockchainTxHash(txHash);
-                transactionRepository.save(transaction);
-                log.info("USDT transfer initiated successfully. Transaction hash: {}", txHash);
-            }).exceptionally(ex -> {
-                log.error("Failed to transfer USDT to wallet: {}", transaction.getWalletAddress(), ex);
-                // We don't change the transaction status since the M-Pesa payment was successful
-                // In a production system, you might want to retry the transfer or notify an admin
-                return null;
-            });
+    /**
+     * Mark a pending deposit as failed
+     * @param transaction The pending deposit
+     * @param reason The reason reported by M-Pesa
+     * @return True if this call failed the deposit, false if it had already been resolved
+     */
+    public boolean failDeposit(Transaction transaction, String reason) {
+        return markFailed(transaction, reason);
+    }
 
-            log.info("Deposit completed: {}", receiptNumber);
-            return true;
-        } else {
-            log.warn("Transaction not found for phone number: {}", phoneNumber);
-            return false;
+    /**
+     * Query the status of an STK push whose callback has not arrived
+     * @param checkoutRequestId The CheckoutRequestID returned by the STK push
+     * @return The query response
+     * @throws RuntimeException if M-Pesa does not answer the query
+     */
+    public MpesaStkQueryResponse queryStkPushStatus(String checkoutRequestId) {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+        MpesaStkQueryRequest request = MpesaStkQueryRequest.builder()
+                .businessShortCode(mpesaConfig.getBusinessShortCode())
+                .password(stkPassword(timestamp))
+                .timestamp(timestamp)
+                .checkoutRequestID(checkoutRequestId)
+                .build();
+
+        try {
+            String accessToken = getAccessToken("STK push query");
+
+            Request httpRequest = new Request.Builder()
+                    .url(mpesaConfig.getQueryUrl())
+                    .post(RequestBody.create(objectMapper.writeValueAsString(request), JSON))
+                    .addHeader("Authorization", "Bearer " + accessToken)
+                    .addHeader("Content-Type", "application/json")
+                    .build();
+
+            try (Response response = okHttpClient.newCall(httpRequest).execute()) {
+                String responseBody = response.body() != null ? response.body().string() : "No response body";
+                if (!response.isSuccessful()) {
+                    log.debug("STK push query for {} returned {} - {}", checkoutRequestId, response.code(), responseBody);
+                    if (response.code() == 401) {
+                        darajaTokenManager.invalidate();
+                    }
+                    throw new RuntimeException("STK push query failed: " + response.code());
+                }
+                return objectMapper.readValue(responseBody, MpesaStkQueryResponse.class);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("STK push query failed: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Initiate a B2C transaction for withdrawal
+     * Initiate a B2C transaction for withdrawal and wait for M-Pesa to accept it
      * @param walletAddress The wallet address of the user
      * @param phoneNumber The phone number to send the money to
      * @param amount The amount in KES
      * @return The B2C response
+     * @throws ServiceUnavailableException if M-Pesa calls are being rejected by the circuit breaker or concurrency limit
      */
     public MpesaB2CResponse initiateWithdrawal(String walletAddress, String phoneNumber, BigDecimal amount) {
-        log.info("Initiating withdrawal for wallet address: {}, phone number: {}, amount: {}", 
+        darajaResilience.checkAvailable();
+        Transaction transaction = createPendingWithdrawal(walletAddress, phoneNumber, amount);
+        return submitWithdrawal(transaction);
+    }
+
+    /**
+     * Record a pending withdrawal and send the B2C request in the background
+     * The request thread returns as soon as the transaction is persisted; progress can be followed
+     * through {@link #getPaymentStatus(Long)}.
+     * @param walletAddress The wallet address of the user
+     * @param phoneNumber The phone number to send the money to
+     * @param amount The amount in KES
+     * @return The status of the pending withdrawal
+     * @throws ServiceUnavailableException if the M-Pesa request queue is full or the circuit breaker is open
+     */
+    public PaymentStatusDto initiateWithdrawalAsync(String walletAddress, String phoneNumber, BigDecimal amount) {
+        darajaResilience.checkAvailable();
+        Transaction transaction = createPendingWithdrawal(walletAddress, phoneNumber, amount);
+        submitInBackground(transaction, () -> submitWithdrawal(transaction));
+        return toPaymentStatus(transaction);
+    }
+
+    /**
+     * Create the pending transaction record for a withdrawal
+     * For withdrawals, we first calculate how much USDT is equivalent to the KES amount
+     * @param walletAddress The wallet address of the user
+     * @param phoneNumber The phone number to send the money to
+     * @param amount The amount in KES
+     * @return The saved transaction
+     */
+    private Transaction createPendingWithdrawal(String walletAddress, String phoneNumber, BigDecimal amount) {
+        return createPendingWithdrawal(walletAddress, phoneNumber, amount, "M-Pesa withdrawal initiated");
+    }
+
+    /**
+     * Record a pending withdrawal for one recipient of a chama payout run
+     * The B2C request is sent separately with {@link #submitPayout(Transaction)}, so the caller can
+     * record the transaction against the recipient before any money moves.
+     * @param walletAddress The wallet address of the recipient
+     * @param phoneNumber The phone number to send the money to
+     * @param amount The amount in KES
+     * @param payoutRunId The id of the payout run
+     * @return The saved transaction
+     */
+    public Transaction createPayoutWithdrawal(String walletAddress, String phoneNumber, BigDecimal amount, Long payoutRunId) {
+        return createPendingWithdrawal(walletAddress, phoneNumber, amount, "Chama payout run " + payoutRunId);
+    }
+
+    /**
+     * Send the B2C request for a pending payout withdrawal
+     * @param transaction The withdrawal created by {@link #createPayoutWithdrawal}
+     * @return The B2C response
+     */
+    public MpesaB2CResponse submitPayout(Transaction transaction) {
+        return submitWithdrawal(transaction);
+    }
+
+    private Transaction createPendingWithdrawal(String walletAddress, String phoneNumber, BigDecimal amount,
+                                                String description) {
+        log.info("Initiating withdrawal for wallet address: {}, phone number: {}, amount: {}",
                 walletAddress, phoneNumber, amount);
 
+        Money amountKES = Money.parse(amount, FiatCurrency.KES);
+        CurrencyConversionService.Conversion conversion = currencyConversionService.quoteToUsdt(
+                amountKES.toBigDecimal(), FiatCurrency.KES);
+
+        Transaction transaction = Transaction.builder()
+                .walletAddress(WalletAddress.normalize(walletAddress))
+                .mobileNumber(phoneNumber)
+                .type(TransactionType.WITHDRAWAL)
+                .amountKES(amountKES)
+                .amountUSDT(conversion.amount())
+                .exchangeRateId(conversion.exchangeRateId())
+                .status(TransactionStatus.PENDING)
+                .description(description)
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        return transactionRepository.save(transaction);
+    }
+
+    /**
+     * Send the B2C request for a pending withdrawal
+     * @param transaction The pending withdrawal
+     * @return The B2C response
+     */
+    private MpesaB2CResponse submitWithdrawal(Transaction transaction) {
         // Format phone number
-        String formattedPhone = formatPhoneNumber(phoneNumber);
+        String formattedPhone = formatPhoneNumber(transaction.getMobileNumber());
 
         // Create B2C request
         MpesaB2CRequest request = MpesaB2CRequest.builder()
                 .initiatorName("ChamaDAO")
                 .securityCredential("") // TODO: Generate security credential
                 .commandID("BusinessPayment")
-                .amount(amount.toString())
+                .amount(transaction.getAmountKES().toBigDecimal().stripTrailingZeros().toPlainString())
                 .partyA(mpesaConfig.getBusinessShortCode())
                 .partyB(formattedPhone)
                 .remarks("ChamaDAO Withdrawal")
                 .queueTimeOutURL(mpesaConfig.getTimeoutUrl())
-                .resultURL(mpesaConfig.getCallbackUrl())
+                .resultURL(mpesaConfig.getResultUrl() != null ? mpesaConfig.getResultUrl() : mpesaConfig.getCallbackUrl())
                 .occasion("Withdrawal")
                 .build();
 
-        // Send request to M-Pesa API
-        String accessToken;
-        try {
-            AccessTokenResponse tokenResponse = generateAccessToken();
-            accessToken = tokenResponse.getAccess_token();
-            if (accessToken == null || accessToken.isEmpty()) {
-                log.error("Failed to generate access token for B2C withdrawal");
-                throw new RuntimeException("Failed to generate access token for B2C withdrawal");
-            }
-        } catch (IOException e) {
-            log.error("Failed to generate access token for B2C withdrawal", e);
-            throw new RuntimeException("Failed to generate access token for B2C withdrawal", e);
-        }
-
         String b2cUrl = mpesaConfig.getB2cUrl();
         log.debug("B2C URL: {}", b2cUrl);
         log.debug("B2C request: {}", request);
 
         try {
+            String accessToken = getAccessToken("B2C withdrawal");
+
             // Convert request to JSON
             String jsonRequest = objectMapper.writeValueAsString(request);
             RequestBody requestBody = RequestBody.create(jsonRequest, JSON);
@@ -319,32 +483,28 @@ public class MpesaService {
                     log.info("Successfully initiated withdrawal: {}", b2cResponse.getConversationID());
                     log.debug("B2C response: {}", b2cResponse);
 
-                    // Create transaction record
-                    // For withdrawals, we first calculate how much USDT is equivalent to the KES amount
-                    BigDecimal amountUSDT = currencyConversionService.convertKesToUsdt(amount);
-
-                    Transaction transaction = Transaction.builder()
-                            .walletAddress(walletAddress)
-                            .mobileNumber(phoneNumber)
-                            .type(TransactionType.WITHDRAWAL)
-                            .amountKES(amount)
-                            .amountUSDT(amountUSDT)
-                            .status(TransactionStatus.PENDING)
-                            .description("M-Pesa withdrawal initiated")
-                            .createdAt(LocalDateTime.now())
-                            .build();
-
+                    transaction.setConversationId(b2cResponse.getConversationID());
+                    transaction.setOriginatorConversationId(b2cResponse.getOriginatorConversationID());
                     transactionRepository.save(transaction);
 
                     return b2cResponse;
                 } else {
                     String responseBody = response.body() != null ? response.body().string() : "No response body";
                     log.error("Failed to initiate withdrawal: {} - {}", response.code(), responseBody);
+                    if (response.code() == 401) {
+                        darajaTokenManager.invalidate();
+                    }
                     throw new RuntimeException("Failed to initiate withdrawal: " + response.code());
                 }
             }
+        } catch (ServiceUnavailableException e) {
+            // Rejected before reaching M-Pesa, so nothing was sent
+            log.warn("B2C request for transaction {} rejected: {}", transaction.getId(), e.getMessage());
+            markFailed(transaction, "Failed to initiate withdrawal: " + e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Exception while initiating withdrawal", e);
+            markFailed(transaction, "Failed to initiate withdrawal: " + e.getMessage());
             throw new RuntimeException("Failed to initiate withdrawal: " + e.getMessage(), e);
         }
     }
@@ -355,46 +515,195 @@ public class MpesaService {
      * @return True if the callback was processed successfully
      */
     public boolean processWithdrawalCallback(MpesaB2CCallback callback) {
-        log.info("Processing withdrawal callback: {}", callback.getResult().getConversationID());
-
-        // Check if the transaction was successful
-        if (callback.getResult().getResultCode() != 0) {
-            log.warn("Withdrawal failed: {}", callback.getResult().getResultDesc());
-            return false;
-        }
+        MpesaB2CCallback.Result result = callback.getResult();
+        log.info("Processing withdrawal callback: {}", result.getConversationID());
 
-        // Get transaction details from callback
-        String amount = callback.getTransactionAmount();
+        // Duplicate callbacks for an already applied receipt are acknowledged without reprocessing
         String receiptNumber = callback.getTransactionReceipt();
-        String phoneNumber = callback.getRecipientPhoneNumber();
+        if (isDuplicateReceipt(receiptNumber)) {
+            log.info("Ignoring duplicate withdrawal callback for receipt: {}", receiptNumber);
+            return true;
+        }
 
-        // Find transaction by phone number and update it
-        Transaction transaction = transactionRepository.findByMobileNumber(phoneNumber, null)
-                .getContent().stream()
+        // Find the pending transaction by the conversation IDs returned from the B2C request
+        Transaction transaction = findByConversation(result.getConversationID(), result.getOriginatorConversationID())
                 .filter(t -> t.getStatus() == TransactionStatus.PENDING && t.getType() == TransactionType.WITHDRAWAL)
-                .findFirst()
                 .orElse(null);
 
+        // Check if the transaction was successful
+        if (result.getResultCode() != 0) {
+            log.warn("Withdrawal failed: {}", result.getResultDesc());
+            if (transaction != null) {
+                markFailed(transaction, result.getResultDesc());
+            }
+            return false;
+        }
+
         if (transaction != null) {
+            // Guarded like deposits, so a callback applied twice cannot complete the withdrawal twice
+            if (transactionRepository.transitionStatus(
+                    transaction.getId(), TransactionStatus.PENDING, TransactionStatus.COMPLETED) == 0) {
+                log.info("Withdrawal {} was already resolved", transaction.getId());
+                return true;
+            }
+
             // Update transaction with receipt number and status
             transaction.setMpesaReceiptNumber(receiptNumber);
             transaction.setStatus(TransactionStatus.COMPLETED);
             transaction.setCompletedAt(LocalDateTime.now());
 
-            // For withdrawals, we need to calculate how much USDT was converted to KES
-            BigDecimal amountUSDT = currencyConversionService.convertKesToUsdt(transaction.getAmountKES());
-            transaction.setAmountUSDT(amountUSDT);
+            // amountUSDT keeps the conversion made when the withdrawal was initiated, at its recorded rate
 
             transactionRepository.save(transaction);
+            recentReceiptCache.rememberAfterCommit(receiptNumber);
 
             log.info("Withdrawal completed: {}", receiptNumber);
             return true;
         } else {
-            log.warn("Transaction not found for phone number: {}", phoneNumber);
+            log.warn("Pending withdrawal not found for conversation ID: {}", result.getConversationID());
             return false;
         }
     }
 
+    /**
+     * Check whether a callback's receipt number has already been applied
+     * The in-memory cache answers most duplicates; the database is only consulted on a cache miss.
+     * @param receiptNumber The M-Pesa receipt number from the callback
+     * @return True if a transaction already carries the receipt number
+     */
+    private boolean isDuplicateReceipt(String receiptNumber) {
+        if (receiptNumber == null) {
+            return false;
+        }
+        if (recentReceiptCache.contains(receiptNumber)) {
+            return true;
+        }
+        if (transactionRepository.existsByMpesaReceiptNumber(receiptNumber)) {
+            recentReceiptCache.remember(receiptNumber);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Find a withdrawal by its B2C conversation ID, falling back to the originator conversation ID
+     * @param conversationId The ConversationID from the callback
+     * @param originatorConversationId The OriginatorConversationID from the callback
+     * @return An optional transaction
+     */
+    private Optional<Transaction> findByConversation(String conversationId, String originatorConversationId) {
+        Optional<Transaction> transaction = conversationId != null
+                ? transactionRepository.findByConversationId(conversationId)
+                : Optional.empty();
+        if (transaction.isEmpty() && originatorConversationId != null) {
+            transaction = transactionRepository.findByOriginatorConversationId(originatorConversationId);
+        }
+        return transaction;
+    }
+
+    /**
+     * Mark a pending transaction as failed with the reason reported by M-Pesa
+     * @param transaction The transaction to update
+     * @param reason The result description from the callback
+     * @return True if this call failed the transaction, false if it had already been resolved
+     */
+    private boolean markFailed(Transaction transaction, String reason) {
+        if (transactionRepository.transitionStatus(
+                transaction.getId(), TransactionStatus.PENDING, TransactionStatus.FAILED) == 0) {
+            log.info("Transaction {} was already resolved", transaction.getId());
+            return false;
+        }
+        transaction.setStatus(TransactionStatus.FAILED);
+        transaction.setDescription(reason);
+        transaction.setCompletedAt(LocalDateTime.now());
+        transactionRepository.save(transaction);
+        return true;
+    }
+
+    /**
+     * Get the status of a deposit or withdrawal
+     * @param transactionId The ID of the transaction
+     * @return The payment status
+     * @throws EntityNotFoundException if the transaction doesn't exist
+     */
+    public PaymentStatusDto getPaymentStatus(Long transactionId) {
+        return transactionRepository.findById(transactionId)
+                .map(this::toPaymentStatus)
+                .orElseThrow(() -> new EntityNotFoundException("Payment not found"));
+    }
+
+    /**
+     * Get a valid access token for an M-Pesa request
+     * @param operation The operation the token is for, used in error messages
+     * @return The access token
+     */
+    private String getAccessToken(String operation) {
+        try {
+            String accessToken = darajaTokenManager.getAccessToken();
+            if (accessToken == null || accessToken.isEmpty()) {
+                log.error("Failed to generate access token for {}", operation);
+                throw new RuntimeException("Failed to generate access token for " + operation);
+            }
+            return accessToken;
+        } catch (IOException e) {
+            log.error("Failed to generate access token for {}", operation, e);
+            throw new RuntimeException("Failed to generate access token for " + operation, e);
+        }
+    }
+
+    /**
+     * Hand an M-Pesa request to the bounded request executor
+     * If the queue is full the transaction is marked as failed and the caller is asked to retry later.
+     * @param transaction The pending transaction the request belongs to
+     * @param request The request to run
+     */
+    private void submitInBackground(Transaction transaction, Runnable request) {
+        try {
+            darajaExecutor.execute(() -> {
+                try {
+                    request.run();
+                } catch (RuntimeException e) {
+                    // Already logged and recorded on the transaction by the submit method
+                    log.debug("Background M-Pesa request failed for transaction {}", transaction.getId());
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("M-Pesa request queue is full, rejecting transaction {}", transaction.getId());
+            markFailed(transaction, "M-Pesa request queue is full");
+            throw new ServiceUnavailableException("M-Pesa request queue is full, please retry later",
+                    mpesaConfig.getRequestRetryAfterSeconds(), e);
+        }
+    }
+
+    private PaymentStatusDto toPaymentStatus(Transaction transaction) {
+        return PaymentStatusDto.builder()
+                .id(transaction.getId())
+                .type(transaction.getType())
+                .status(transaction.getStatus())
+                .walletAddress(transaction.getWalletAddress())
+                .amountKES(transaction.getAmountKES().toBigDecimal())
+                .amountUSDT(transaction.getAmountUSDT())
+                .checkoutRequestId(transaction.getCheckoutRequestId())
+                .conversationId(transaction.getConversationId())
+                .mpesaReceiptNumber(transaction.getMpesaReceiptNumber())
+                .blockchainTxHash(transaction.getBlockchainTxHash())
+                .blockchainConfirmedAt(transaction.getBlockchainConfirmedAt())
+                .description(transaction.getDescription())
+                .createdAt(transaction.getCreatedAt())
+                .completedAt(transaction.getCompletedAt())
+                .build();
+    }
+
+    /**
+     * Generate the password for STK push requests
+     * @param timestamp The request timestamp in yyyyMMddHHmmss format
+     * @return The Base64 encoded shortcode, passkey and timestamp
+     */
+    private String stkPassword(String timestamp) {
+        return Base64.getEncoder().encodeToString(
+                (mpesaConfig.getBusinessShortCode() + mpesaConfig.getPasskey() + timestamp).getBytes());
+    }
+
     /**
      * Format phone number for M-Pesa API
      * @param phoneNumber The phone number to format
@@ -0,0 +1,142 @@
+package com.chama.chamadao_server.services;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out account nonces locally so transfers from one wallet can be sent in parallel
+ * Nonces are reserved atomically from a local counter seeded from the node's pending transaction count.
+ * A nonce whose transaction never reached the node is released and handed out again before new ones, so
+ * a failed send does not leave a gap that would hold back every later transaction. The counter is
+ * resynced from the node when it reports a nonce conflict and periodically while no sends are in flight.
+ */
+public class NonceManager {
+
+    /**
+     * Source of the account's next nonce including pending transactions, i.e. eth_getTransactionCount(pending)
+     */
+    @FunctionalInterface
+    public interface PendingNonceSource {
+        BigInteger pendingNonce() throws IOException;
+    }
+
+    private final PendingNonceSource source;
+
+    private BigInteger next;
+    private final TreeSet<BigInteger> released = new TreeSet<>();
+    private final Set<BigInteger> inFlight = new HashSet<>();
+
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+
+    public NonceManager(PendingNonceSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Reserve the next nonce
+     * The lowest released nonce is reused first. Every reserved nonce must be handed back with
+     * {@link #markSent(BigInteger)} or {@link #release(BigInteger)}.
+     * @return The nonce
+     * @throws IOException if the counter has to be seeded and the node cannot be reached
+     */
+    public synchronized BigInteger reserve() throws IOException {
+        if (next == null) {
+            resyncFromNode();
+        }
+
+        BigInteger nonce = released.pollFirst();
+        if (nonce != null) {
+            reused.increment();
+        } else {
+            nonce = next;
+            next = next.add(BigInteger.ONE);
+        }
+        inFlight.add(nonce);
+        reserved.increment();
+        return nonce;
+    }
+
+    /**
+     * Record that the node accepted the transaction using a nonce
+     * @param nonce The nonce
+     */
+    public synchronized void markSent(BigInteger nonce) {
+        inFlight.remove(nonce);
+    }
+
+    /**
+     * Hand back a nonce whose transaction did not reach the node
+     * If it is the highest nonce handed out the counter moves back; otherwise it fills the gap on the next reservation.
+     * @param nonce The nonce
+     */
+    public synchronized void release(BigInteger nonce) {
+        if (!inFlight.remove(nonce) || next == null) {
+            return;
+        }
+        if (nonce.add(BigInteger.ONE).equals(next)) {
+            next = nonce;
+            // Released nonces directly below are now at the top as well
+            while (!released.isEmpty() && released.last().add(BigInteger.ONE).equals(next)) {
+                next = released.pollLast();
+            }
+        } else {
+            released.add(nonce);
+        }
+    }
+
+    /**
+     * Resync the counter after the node rejected a nonce as already used
+     * Released nonces below the node's count can no longer be used and are dropped.
+     * @throws IOException if the node cannot be reached
+     */
+    public synchronized void resync() throws IOException {
+        resyncFromNode();
+    }
+
+    /**
+     * Resync the counter if no sends are in flight
+     * With nothing in flight the node's pending count is authoritative, which also recovers from transactions
+     * sent from the same wallet elsewhere and from released nonces that were never reused.
+     * @throws IOException if the node cannot be reached
+     */
+    public synchronized void resyncIfIdle() throws IOException {
+        if (inFlight.isEmpty()) {
+            resyncFromNode();
+        }
+    }
+
+    /**
+     * Get the nonce manager state
+     * @return The next nonce, the released nonces waiting for reuse, the nonces in flight and the counters
+     */
+    public synchronized Stats getStats() {
+        return new Stats(next, released.size(), inFlight.size(), reserved.sum(), reused.sum(), resyncs.sum());
+    }
+
+    private void resyncFromNode() throws IOException {
+        BigInteger pending = source.pendingNonce();
+        resyncs.increment();
+        if (next == null || inFlight.isEmpty()) {
+            next = pending;
+            released.clear();
+            return;
+        }
+        released.headSet(pending).clear();
+        if (pending.compareTo(next) > 0) {
+            next = pending;
+        }
+    }
+
+    /**
+     * Nonce manager statistics
+     * Reused counts reservations that filled a gap left by a failed send.
+     */
+    public record Stats(BigInteger nextNonce, int released, int inFlight, long reserved, long reused, long resyncs) {
+    }
+}
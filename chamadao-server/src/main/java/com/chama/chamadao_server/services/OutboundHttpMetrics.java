@@ -0,0 +1,126 @@
+package com.chama.chamadao_server.services;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics for the outbound HTTP clients
+ * Each client gets an interceptor that records per-host latency histograms and error counts; the
+ * connection pool and dispatcher of each registered client are read on demand for saturation gauges.
+ */
+@Component
+public class OutboundHttpMetrics {
+
+    private final Map<String, OkHttpClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, HostMetrics>> hostMetrics = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Create the metrics interceptor for a client
+     * @param clientName The name of the client
+     * @return An application interceptor timing each call, including retries and redirects
+     */
+    public Interceptor interceptor(String clientName) {
+        Map<String, HostMetrics> hosts = hostMetrics.computeIfAbsent(clientName, name -> new ConcurrentHashMap<>());
+        LongAdder clientInFlight = inFlight.computeIfAbsent(clientName, name -> new LongAdder());
+        return chain -> {
+            Request request = chain.request();
+            HostMetrics metrics = hosts.computeIfAbsent(request.url().host(), host -> new HostMetrics());
+            long start = System.nanoTime();
+            clientInFlight.increment();
+            try {
+                Response response = chain.proceed(request);
+                metrics.record(System.nanoTime() - start, response.code() >= 500);
+                return response;
+            } catch (IOException | RuntimeException e) {
+                metrics.record(System.nanoTime() - start, true);
+                throw e;
+            } finally {
+                clientInFlight.decrement();
+            }
+        };
+    }
+
+    /**
+     * Register a client so its connection pool and dispatcher are reported
+     * @param clientName The name of the client
+     * @param client The client
+     */
+    public void register(String clientName, OkHttpClient client) {
+        clients.put(clientName, client);
+    }
+
+    /**
+     * Get the metrics of every registered client
+     * @return The metrics by client name
+     */
+    public Map<String, ClientStats> getStats() {
+        Map<String, ClientStats> stats = new TreeMap<>();
+        clients.forEach((name, client) -> {
+            Map<String, HostStats> hosts = new TreeMap<>();
+            hostMetrics.getOrDefault(name, Map.of()).forEach((host, metrics) -> hosts.put(host, metrics.stats()));
+
+            int connections = client.connectionPool().connectionCount();
+            int idle = client.connectionPool().idleConnectionCount();
+            stats.put(name, new ClientStats(
+                    inFlight.getOrDefault(name, new LongAdder()).sum(),
+                    connections,
+                    connections - idle,
+                    idle,
+                    client.dispatcher().runningCallsCount(),
+                    client.dispatcher().queuedCallsCount(),
+                    client.dispatcher().getMaxRequests(),
+                    client.dispatcher().getMaxRequestsPerHost(),
+                    hosts));
+        });
+        return stats;
+    }
+
+    private static final class HostMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+
+        private void record(long nanos, boolean error) {
+            latency.record(nanos);
+            if (error) {
+                errors.increment();
+            }
+        }
+
+        private HostStats stats() {
+            return new HostStats(errors.sum(), latency.snapshot());
+        }
+    }
+
+    /**
+     * Metrics of one client
+     * queuedCalls above zero means asynchronous calls are waiting for the dispatcher, i.e. the client is saturated.
+     */
+    public record ClientStats(
+            long inFlightCalls,
+            int connections,
+            int activeConnections,
+            int idleConnections,
+            int runningCalls,
+            int queuedCalls,
+            int maxRequests,
+            int maxRequestsPerHost,
+            Map<String, HostStats> hosts) {
+    }
+
+    /**
+     * Metrics of calls from one client to one host
+     * Errors count transport failures and 5xx responses.
+     */
+    public record HostStats(long errors, LatencyHistogram.Snapshot latency) {
+    }
+}
@@ -0,0 +1,516 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.MPesaConfig;
+import com.chama.chamadao_server.exceptions.ChamaException;
+import com.chama.chamadao_server.exceptions.ServiceUnavailableException;
+import com.chama.chamadao_server.exceptions.WalletAccessDeniedException;
+import com.chama.chamadao_server.models.Chama;
+import com.chama.chamadao_server.models.Money;
+import com.chama.chamadao_server.models.PayoutRecipient;
+import com.chama.chamadao_server.models.PayoutRun;
+import com.chama.chamadao_server.models.Transaction;
+import com.chama.chamadao_server.models.User;
+import com.chama.chamadao_server.models.WalletAddress;
+import com.chama.chamadao_server.models.dto.PayoutRecipientDto;
+import com.chama.chamadao_server.models.dto.PayoutRunDto;
+import com.chama.chamadao_server.models.dto.PayoutRunRequestDto;
+import com.chama.chamadao_server.models.enums.FiatCurrency;
+import com.chama.chamadao_server.models.enums.PayoutRecipientStatus;
+import com.chama.chamadao_server.models.enums.PayoutRunStatus;
+import com.chama.chamadao_server.models.enums.TransactionStatus;
+import com.chama.chamadao_server.repository.ChamaRepository;
+import com.chama.chamadao_server.repository.PayoutRecipientRepository;
+import com.chama.chamadao_server.repository.PayoutRunRepository;
+import com.chama.chamadao_server.repository.TransactionRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Service for chama payout runs
+ * A payout run pays every recipient of a payout round through M-Pesa B2C. Runs are picked up by a
+ * scheduled job and executed on the payout executor, which sends the requests within the shortcode's
+ * requests-per-second budget and keeps the state of each recipient in the payout_recipients table, so
+ * a run resumes where it stopped after a restart without paying anyone twice.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PayoutService {
+
+    private static final Set<PayoutRecipientStatus> OPEN_STATUSES = EnumSet.of(
+            PayoutRecipientStatus.PENDING, PayoutRecipientStatus.SUBMITTING, PayoutRecipientStatus.SUBMITTED);
+    private static final Set<PayoutRecipientStatus> PROBLEM_STATUSES = EnumSet.of(
+            PayoutRecipientStatus.FAILED, PayoutRecipientStatus.NEEDS_REVIEW);
+
+    private final PayoutRunRepository payoutRunRepository;
+    private final PayoutRecipientRepository payoutRecipientRepository;
+    private final ChamaRepository chamaRepository;
+    private final TransactionRepository transactionRepository;
+    private final MpesaService mpesaService;
+    private final ShortcodeRateLimiter shortcodeRateLimiter;
+    private final DarajaResilience darajaResilience;
+    private final MPesaConfig mpesaConfig;
+    private final WalletSessionService walletSessionService;
+    private final TransactionTemplate transactionTemplate;
+    @Qualifier("darajaExecutor")
+    private final TaskExecutor darajaExecutor;
+    @Qualifier("payoutExecutor")
+    private final TaskExecutor payoutExecutor;
+
+    // Runs executing on the payout executor, skipped by the poller until they return
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Schedule a payout run for a chama
+     * @param request The chama, the amount per recipient and optionally the members to pay
+     * @param requestedBy The signed-in wallet asking, which must be the chama's creator or an admin
+     * @return The scheduled run
+     * @throws EntityNotFoundException if the chama doesn't exist
+     * @throws WalletAccessDeniedException if the wallet may not pay out the chama's funds
+     * @throws ChamaException if the request is invalid
+     */
+    @Transactional
+    public PayoutRunDto createPayoutRun(PayoutRunRequestDto request, String requestedBy) {
+        if (request.getAmountPerRecipientKES() == null || request.getAmountPerRecipientKES().signum() <= 0) {
+            throw new ChamaException("Amount per recipient must be greater than zero");
+        }
+
+        Chama chama = chamaRepository.findById(WalletAddress.normalize(request.getChamaAddress()))
+                .orElseThrow(() -> new EntityNotFoundException("Chama not found"));
+        requireChamaManager(chama, requestedBy);
+
+        List<User> recipients = selectRecipients(chama, request.getWalletAddresses());
+        if (recipients.isEmpty()) {
+            throw new ChamaException("Payout run has no recipients");
+        }
+
+        List<String> withoutPhone = recipients.stream()
+                .filter(user -> user.getMobileNumber() == null || user.getMobileNumber().isBlank())
+                .map(User::getWalletAddress)
+                .toList();
+        if (!withoutPhone.isEmpty()) {
+            throw new ChamaException("Members without a mobile number: " + String.join(", ", withoutPhone));
+        }
+
+        PayoutRun run = payoutRunRepository.save(PayoutRun.builder()
+                .chamaAddress(chama.getChamaAddress())
+                .status(PayoutRunStatus.SCHEDULED)
+                .amountPerRecipientKES(request.getAmountPerRecipientKES())
+                .totalRecipients(recipients.size())
+                .description(request.getDescription())
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        LocalDateTime now = LocalDateTime.now();
+        payoutRecipientRepository.saveAll(recipients.stream()
+                .map(user -> PayoutRecipient.builder()
+                        .payoutRunId(run.getId())
+                        .walletAddress(user.getWalletAddress())
+                        .mobileNumber(user.getMobileNumber())
+                        .amountKES(request.getAmountPerRecipientKES())
+                        .status(PayoutRecipientStatus.PENDING)
+                        .updatedAt(now)
+                        .build())
+                .toList());
+
+        log.info("Scheduled payout run {} for chama {} with {} recipients",
+                run.getId(), chama.getChamaAddress(), recipients.size());
+        return toDto(run);
+    }
+
+    /**
+     * Get a payout run with its progress
+     * @param runId The id of the payout run
+     * @return The payout run
+     * @throws EntityNotFoundException if the run doesn't exist
+     */
+    public PayoutRunDto getPayoutRun(Long runId) {
+        return toDto(findRun(runId));
+    }
+
+    /**
+     * Get the payout runs of a chama, newest first
+     * @param chamaAddress The address of the chama
+     * @return The payout runs
+     */
+    public List<PayoutRunDto> getPayoutRunsByChama(String chamaAddress) {
+        return payoutRunRepository.findByChamaAddressOrderByCreatedAtDesc(WalletAddress.normalize(chamaAddress)).stream()
+                .map(this::toDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the recipients of a payout run
+     * @param runId The id of the payout run
+     * @return The recipients with their status
+     * @throws EntityNotFoundException if the run doesn't exist
+     */
+    public List<PayoutRecipientDto> getRecipients(Long runId) {
+        findRun(runId);
+        return payoutRecipientRepository.findByPayoutRunIdOrderByIdAsc(runId).stream()
+                .map(this::toRecipientDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Queue the failed recipients of a run to be paid again
+     * Recipients that need review are only requeued when explicitly asked for, once it has been
+     * confirmed on the M-Pesa statement that they were not paid.
+     * @param runId The id of the payout run
+     * @param includeNeedsReview Whether to requeue recipients that need review as well
+     * @param requestedBy The signed-in wallet asking, which must be the chama's creator or an admin
+     * @return The payout run
+     * @throws EntityNotFoundException if the run doesn't exist
+     * @throws WalletAccessDeniedException if the wallet may not pay out the chama's funds
+     */
+    @Transactional
+    public PayoutRunDto retryPayoutRun(Long runId, boolean includeNeedsReview, String requestedBy) {
+        PayoutRun run = findRun(runId);
+        requireChamaManager(chamaRepository.findById(run.getChamaAddress())
+                .orElseThrow(() -> new EntityNotFoundException("Chama not found")), requestedBy);
+        Set<PayoutRecipientStatus> statuses = includeNeedsReview
+                ? PROBLEM_STATUSES
+                : EnumSet.of(PayoutRecipientStatus.FAILED);
+
+        int requeued = payoutRecipientRepository.requeue(runId, statuses, LocalDateTime.now());
+        if (requeued > 0 && run.getStatus() != PayoutRunStatus.SCHEDULED) {
+            run.setStatus(PayoutRunStatus.RUNNING);
+            run.setCompletedAt(null);
+            payoutRunRepository.save(run);
+        }
+        log.info("Requeued {} recipients of payout run {}", requeued, runId);
+        return toDto(run);
+    }
+
+    /**
+     * Hand all scheduled and unfinished payout runs to the payout executor
+     * Runs left RUNNING by a previous process are resumed here as well. A run is started on the scheduler
+     * thread and executed without waiting for it, so the rate-limited sends do not hold up the other
+     * scheduled jobs; a run still executing from an earlier poll is skipped.
+     */
+    @Scheduled(fixedDelayString = "${mpesa.payout-poll-interval-ms:5000}")
+    public void processPayoutRuns() {
+        List<PayoutRun> runs = payoutRunRepository.findByStatusInOrderByIdAsc(
+                EnumSet.of(PayoutRunStatus.SCHEDULED, PayoutRunStatus.RUNNING));
+        for (PayoutRun run : runs) {
+            Long runId = run.getId();
+            if (!inFlight.add(runId)) {
+                continue;
+            }
+            try {
+                start(run);
+                CompletableFuture.runAsync(() -> executeRun(run), payoutExecutor)
+                        .whenComplete((result, ex) -> {
+                            inFlight.remove(runId);
+                            if (ex != null) {
+                                log.error("Payout run {} stopped after an error", runId, ex);
+                            }
+                        });
+            } catch (TaskRejectedException e) {
+                inFlight.remove(runId);
+                log.debug("Payout workers are busy, run {} will be picked up by a later poll", runId);
+            } catch (RuntimeException e) {
+                inFlight.remove(runId);
+                log.error("Payout run {} could not be started", runId, e);
+            }
+        }
+    }
+
+    private void start(PayoutRun run) {
+        if (run.getStatus() == PayoutRunStatus.SCHEDULED) {
+            run.setStatus(PayoutRunStatus.RUNNING);
+            run.setStartedAt(LocalDateTime.now());
+            payoutRunRepository.save(run);
+            log.info("Starting payout run {}", run.getId());
+        }
+    }
+
+    /**
+     * Submit the pending recipients of a run and apply the outcomes received so far
+     * Runs on the payout executor; waiting for the rate limiter and for a batch's submissions only holds its worker.
+     * @param run The payout run
+     */
+    private void executeRun(PayoutRun run) {
+        recoverInterruptedSubmissions(run.getId());
+        submitPendingRecipients(run.getId());
+        applyWithdrawalOutcomes(run.getId());
+        completeIfFinished(run);
+    }
+
+    /**
+     * Resolve recipients left SUBMITTING when the process stopped mid-request
+     * If M-Pesa's response was recorded the request was accepted; otherwise it is unknown whether
+     * the money was sent, so the recipient is parked for review instead of being paid again.
+     * @param runId The id of the payout run
+     */
+    private void recoverInterruptedSubmissions(Long runId) {
+        List<PayoutRecipient> interrupted = payoutRecipientRepository.findByPayoutRunIdAndStatusOrderByIdAsc(
+                runId, PayoutRecipientStatus.SUBMITTING, Pageable.unpaged());
+        for (PayoutRecipient recipient : interrupted) {
+            Transaction transaction = recipient.getTransactionId() != null
+                    ? transactionRepository.findById(recipient.getTransactionId()).orElse(null)
+                    : null;
+
+            if (transaction != null && transaction.getConversationId() != null) {
+                updateRecipient(recipient, PayoutRecipientStatus.SUBMITTED, null);
+            } else if (transaction != null && transaction.getStatus() == TransactionStatus.FAILED) {
+                updateRecipient(recipient, PayoutRecipientStatus.FAILED, transaction.getDescription());
+            } else {
+                log.warn("Payout to {} in run {} was interrupted before M-Pesa responded",
+                        recipient.getWalletAddress(), runId);
+                updateRecipient(recipient, PayoutRecipientStatus.NEEDS_REVIEW,
+                        "Interrupted before M-Pesa acknowledged the B2C request; check the statement before retrying");
+            }
+        }
+    }
+
+    /**
+     * Send B2C requests for the pending recipients of a run, one batch at a time
+     * Each recipient is marked SUBMITTING, with its withdrawal, before its request is sent.
+     * @param runId The id of the payout run
+     */
+    private void submitPendingRecipients(Long runId) {
+        String shortcode = mpesaConfig.getBusinessShortCode();
+        while (true) {
+            List<PayoutRecipient> batch = payoutRecipientRepository.findByPayoutRunIdAndStatusOrderByIdAsc(
+                    runId, PayoutRecipientStatus.PENDING, PageRequest.of(0, mpesaConfig.getPayoutBatchSize()));
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            List<CompletableFuture<Void>> submissions = new ArrayList<>(batch.size());
+            for (PayoutRecipient recipient : batch) {
+                if (!darajaResilience.isAcceptingCalls()) {
+                    log.warn("M-Pesa circuit breaker is open, payout run {} will resume on a later run", runId);
+                    CompletableFuture.allOf(submissions.toArray(new CompletableFuture[0])).join();
+                    return;
+                }
+                try {
+                    shortcodeRateLimiter.acquire(shortcode);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Payout run {} interrupted, it will resume on the next run", runId);
+                    CompletableFuture.allOf(submissions.toArray(new CompletableFuture[0])).join();
+                    return;
+                }
+
+                Transaction transaction = claim(recipient, runId);
+                if (transaction != null) {
+                    submissions.add(submitInBackground(recipient, transaction));
+                }
+            }
+            CompletableFuture.allOf(submissions.toArray(new CompletableFuture[0])).join();
+        }
+    }
+
+    /**
+     * Claim a pending recipient and create its withdrawal in one database transaction
+     * The claim is a guarded PENDING to SUBMITTING update, so a recipient another node or an overlapping run
+     * has already claimed is skipped rather than paid twice.
+     * @param recipient The recipient to pay
+     * @param runId The id of the payout run
+     * @return The pending withdrawal, or null if the recipient was claimed elsewhere or the withdrawal could not be created
+     */
+    private Transaction claim(PayoutRecipient recipient, Long runId) {
+        try {
+            return transactionTemplate.execute(status -> {
+                if (payoutRecipientRepository.transition(recipient.getId(), PayoutRecipientStatus.PENDING,
+                        PayoutRecipientStatus.SUBMITTING, null, LocalDateTime.now()) == 0) {
+                    log.info("Payout to {} in run {} was already claimed, skipping", recipient.getWalletAddress(), runId);
+                    return null;
+                }
+                Transaction transaction = mpesaService.createPayoutWithdrawal(
+                        recipient.getWalletAddress(), recipient.getMobileNumber(), recipient.getAmountKES(), runId);
+                recipient.setTransactionId(transaction.getId());
+                updateRecipient(recipient, PayoutRecipientStatus.SUBMITTING, null);
+                return transaction;
+            });
+        } catch (RuntimeException e) {
+            // The claim rolled back with the withdrawal, so only fail the recipient if nobody else has claimed it since
+            log.error("Failed to create payout withdrawal for {} in run {}", recipient.getWalletAddress(), runId, e);
+            payoutRecipientRepository.transition(recipient.getId(), PayoutRecipientStatus.PENDING,
+                    PayoutRecipientStatus.FAILED, e.getMessage(), LocalDateTime.now());
+            return null;
+        }
+    }
+
+    private CompletableFuture<Void> submitInBackground(PayoutRecipient recipient, Transaction transaction) {
+        try {
+            return CompletableFuture.runAsync(() -> submit(recipient, transaction), darajaExecutor);
+        } catch (TaskRejectedException e) {
+            // The shared M-Pesa request queue is full, send this one from the payout thread
+            submit(recipient, transaction);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void submit(PayoutRecipient recipient, Transaction transaction) {
+        try {
+            mpesaService.submitPayout(transaction);
+            updateRecipient(recipient, PayoutRecipientStatus.SUBMITTED, null);
+        } catch (ServiceUnavailableException e) {
+            // Rejected before the request was sent; pay the recipient with a new withdrawal later
+            log.info("Payout to {} deferred: {}", recipient.getWalletAddress(), e.getMessage());
+            recipient.setTransactionId(null);
+            updateRecipient(recipient, PayoutRecipientStatus.PENDING, e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Payout to {} failed: {}", recipient.getWalletAddress(), e.getMessage());
+            updateRecipient(recipient, PayoutRecipientStatus.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Apply the B2C callbacks received for a run's withdrawals to its recipients
+     * Recipients whose callback has not arrived within the callback timeout are parked for review, so a lost
+     * callback cannot keep the run open forever. Whether the money was sent is then checked on the statement.
+     * @param runId The id of the payout run
+     */
+    private void applyWithdrawalOutcomes(Long runId) {
+        int expired = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            payoutRecipientRepository.updateStatusFromTransactions(runId, PayoutRecipientStatus.SUBMITTED,
+                    TransactionStatus.COMPLETED, PayoutRecipientStatus.COMPLETED, now);
+            payoutRecipientRepository.updateStatusFromTransactions(runId, PayoutRecipientStatus.SUBMITTED,
+                    TransactionStatus.FAILED, PayoutRecipientStatus.FAILED, now);
+            return payoutRecipientRepository.expireSubmitted(runId,
+                    now.minusSeconds(mpesaConfig.getPayoutCallbackTimeoutSeconds()),
+                    "No B2C callback received; check the statement before retrying", now);
+        });
+        if (expired > 0) {
+            log.warn("Parked {} payouts of run {} for review after their B2C callback timed out", expired, runId);
+        }
+    }
+
+    /**
+     * Close a run once every recipient has a final outcome and add what was paid to the chama's payouts
+     * @param run The payout run
+     */
+    private void completeIfFinished(PayoutRun run) {
+        if (payoutRecipientRepository.countByPayoutRunIdAndStatusIn(run.getId(), OPEN_STATUSES) > 0) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            BigDecimal completedSum = payoutRecipientRepository.sumAmountByStatus(
+                    run.getId(), PayoutRecipientStatus.COMPLETED);
+            BigDecimal totalPaid = completedSum != null ? completedSum : BigDecimal.ZERO;
+            BigDecimal previouslyPaid = run.getTotalPaidKES() != null ? run.getTotalPaidKES() : BigDecimal.ZERO;
+
+            // A retried run is completed again, so only the newly paid amount is added
+            chamaRepository.findById(run.getChamaAddress()).ifPresent(chama -> {
+                Money totalPayouts = chama.getTotalPayouts() != null ? chama.getTotalPayouts() : Money.zero(FiatCurrency.KES);
+                chama.setTotalPayouts(totalPayouts.plus(Money.of(totalPaid.subtract(previouslyPaid), FiatCurrency.KES)));
+                chamaRepository.save(chama);
+            });
+
+            boolean hasProblems = payoutRecipientRepository.countByPayoutRunIdAndStatusIn(
+                    run.getId(), PROBLEM_STATUSES) > 0;
+            run.setStatus(hasProblems ? PayoutRunStatus.COMPLETED_WITH_ERRORS : PayoutRunStatus.COMPLETED);
+            run.setTotalPaidKES(totalPaid);
+            run.setCompletedAt(LocalDateTime.now());
+            payoutRunRepository.save(run);
+        });
+        log.info("Payout run {} finished with status {}", run.getId(), run.getStatus());
+    }
+
+    /**
+     * Check that a wallet may pay out a chama's funds: its creator or an admin
+     * @param chama The chama
+     * @param walletAddress The signed-in wallet
+     * @throws WalletAccessDeniedException if it may not
+     */
+    private void requireChamaManager(Chama chama, String walletAddress) {
+        String wallet = WalletAddress.normalize(walletAddress);
+        boolean creator = chama.getCreator() != null && wallet != null
+                && wallet.equals(WalletAddress.normalize(chama.getCreator().getWalletAddress()));
+        if (!creator && !walletSessionService.isAdmin(wallet)) {
+            throw new WalletAccessDeniedException("Only the chama's creator or an admin can manage its payouts");
+        }
+    }
+
+    private List<User> selectRecipients(Chama chama, List<String> walletAddresses) {
+        if (walletAddresses == null || walletAddresses.isEmpty()) {
+            return new ArrayList<>(chama.getMembers());
+        }
+
+        Map<String, User> members = chama.getMembers().stream()
+                .collect(Collectors.toMap(user -> WalletAddress.normalize(user.getWalletAddress()), user -> user));
+        List<User> recipients = new ArrayList<>(walletAddresses.size());
+        for (String walletAddress : walletAddresses.stream().map(WalletAddress::normalize).distinct().toList()) {
+            User member = members.get(walletAddress);
+            if (member == null) {
+                throw new ChamaException(walletAddress + " is not a member of the chama");
+            }
+            recipients.add(member);
+        }
+        return recipients;
+    }
+
+    private void updateRecipient(PayoutRecipient recipient, PayoutRecipientStatus status, String error) {
+        recipient.setStatus(status);
+        recipient.setLastError(error);
+        recipient.setUpdatedAt(LocalDateTime.now());
+        payoutRecipientRepository.save(recipient);
+    }
+
+    private PayoutRun findRun(Long runId) {
+        return payoutRunRepository.findById(runId)
+                .orElseThrow(() -> new EntityNotFoundException("Payout run not found"));
+    }
+
+    private PayoutRunDto toDto(PayoutRun run) {
+        Map<PayoutRecipientStatus, Long> byStatus = new EnumMap<>(PayoutRecipientStatus.class);
+        for (Object[] row : payoutRecipientRepository.countByStatus(run.getId())) {
+            byStatus.put((PayoutRecipientStatus) row[0], (Long) row[1]);
+        }
+
+        return PayoutRunDto.builder()
+                .id(run.getId())
+                .chamaAddress(run.getChamaAddress())
+                .status(run.getStatus())
+                .amountPerRecipientKES(run.getAmountPerRecipientKES())
+                .totalRecipients(run.getTotalRecipients())
+                .recipientsByStatus(byStatus)
+                .totalPaidKES(run.getTotalPaidKES())
+                .description(run.getDescription())
+                .createdAt(run.getCreatedAt())
+                .startedAt(run.getStartedAt())
+                .completedAt(run.getCompletedAt())
+                .build();
+    }
+
+    private PayoutRecipientDto toRecipientDto(PayoutRecipient recipient) {
+        return PayoutRecipientDto.builder()
+                .id(recipient.getId())
+                .walletAddress(recipient.getWalletAddress())
+                .mobileNumber(recipient.getMobileNumber())
+                .amountKES(recipient.getAmountKES())
+                .status(recipient.getStatus())
+                .transactionId(recipient.getTransactionId())
+                .lastError(recipient.getLastError())
+                .updatedAt(recipient.getUpdatedAt())
+                .build();
+    }
+}
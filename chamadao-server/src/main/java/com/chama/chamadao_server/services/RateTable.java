@@ -0,0 +1,155 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.models.Money;
+import com.chama.chamadao_server.models.enums.FiatCurrency;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Immutable table of exchange rates against USD, indexed by {@link FiatCurrency} ordinal
+ * Every rate from one FX API response is parsed into a single primitive array, so a conversion is two array reads
+ * and any pair converts through USD. A refresh builds a new table rather than changing this one.
+ */
+public final class RateTable {
+
+    // Rates are held as fixed-point units per USD with this many decimal places
+    static final int RATE_SCALE = 8;
+
+    private static final FiatCurrency[] CURRENCIES = FiatCurrency.values();
+
+    private final long[] unitsPerUsd;
+    // Exchange rate history row the rates were recorded as, or null if they were not recorded
+    private final Long id;
+
+    private RateTable(long[] unitsPerUsd, Long id) {
+        this.unitsPerUsd = unitsPerUsd;
+        this.id = id;
+    }
+
+    /**
+     * Build a table from the rates of an FX API response
+     * Currencies the response does not quote, or quotes as zero or less, are left without a rate.
+     * @param ratesPerUsd Units of each currency per USD, keyed by ISO 4217 code
+     * @return The rate table
+     */
+    public static RateTable parse(Map<String, BigDecimal> ratesPerUsd) {
+        long[] unitsPerUsd = new long[CURRENCIES.length];
+        for (FiatCurrency currency : CURRENCIES) {
+            BigDecimal rate = currency == FiatCurrency.USD ? BigDecimal.ONE : ratesPerUsd.get(currency.name());
+            if (rate != null && rate.signum() > 0) {
+                unitsPerUsd[currency.ordinal()] = rate.setScale(RATE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            }
+        }
+        return new RateTable(unitsPerUsd, null);
+    }
+
+    /**
+     * Get the same rates labelled with the exchange rate history row they were recorded as
+     * @param id The history row id
+     * @return The labelled rate table
+     */
+    public RateTable withId(Long id) {
+        return new RateTable(unitsPerUsd, id);
+    }
+
+    /**
+     * Get the exchange rate history row the rates were recorded as
+     * @return The history row id, or null if the rates were not recorded
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Get the rates as a map, e.g. to record them
+     * @return Units of each supported currency per USD
+     */
+    public Map<FiatCurrency, BigDecimal> toMap() {
+        Map<FiatCurrency, BigDecimal> rates = new EnumMap<>(FiatCurrency.class);
+        for (FiatCurrency currency : CURRENCIES) {
+            if (supports(currency)) {
+                rates.put(currency, BigDecimal.valueOf(unitsPerUsd[currency.ordinal()], RATE_SCALE));
+            }
+        }
+        return rates;
+    }
+
+    /**
+     * Check whether the table has a rate for a currency
+     * @param currency The currency
+     * @return True if amounts in the currency can be converted
+     */
+    public boolean supports(FiatCurrency currency) {
+        return unitsPerUsd[currency.ordinal()] > 0;
+    }
+
+    /**
+     * Get the number of currencies the table has a rate for
+     * @return The number of currencies, including USD
+     */
+    public int size() {
+        int size = 0;
+        for (long units : unitsPerUsd) {
+            if (units > 0) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the rate of a currency against USD
+     * @param currency The currency
+     * @return Units of the currency per USD
+     * @throws IllegalArgumentException if the table has no rate for the currency
+     */
+    public BigDecimal unitsPerUsd(FiatCurrency currency) {
+        BigDecimal rate = BigDecimal.valueOf(units(currency), RATE_SCALE).stripTrailingZeros();
+        return rate.scale() < 0 ? rate.setScale(0) : rate;
+    }
+
+    /**
+     * Convert an amount between two currencies through USD
+     * @param amount The amount in the source currency
+     * @param from The source currency
+     * @param to The target currency
+     * @param scale The number of decimal places of the result
+     * @return The amount in the target currency, rounded half up
+     * @throws IllegalArgumentException if the table has no rate for either currency
+     */
+    public BigDecimal convert(BigDecimal amount, FiatCurrency from, FiatCurrency to, int scale) {
+        // The fixed-point scales of the two rates cancel out
+        return amount.multiply(BigDecimal.valueOf(units(to)))
+                .divide(BigDecimal.valueOf(units(from)), scale, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Convert an amount of money to another currency through USD
+     * The result is computed exactly and rounded once, to the target currency's minor units.
+     * @param money The amount in the source currency
+     * @param to The target currency
+     * @param roundingMode How to round to the target currency's minor units
+     * @return The amount in the target currency
+     * @throws IllegalArgumentException if the table has no rate for either currency
+     * @throws ArithmeticException if the result needs rounding with UNNECESSARY or does not fit a long
+     */
+    public Money convert(Money money, FiatCurrency to, RoundingMode roundingMode) {
+        if (money.getCurrency() == to) {
+            return money;
+        }
+        BigDecimal converted = money.toBigDecimal().multiply(BigDecimal.valueOf(units(to)))
+                .divide(BigDecimal.valueOf(units(money.getCurrency())), to.getDecimals(), roundingMode);
+        return Money.ofMinor(converted.unscaledValue().longValueExact(), to);
+    }
+
+    private long units(FiatCurrency currency) {
+        long units = unitsPerUsd[currency.ordinal()];
+        if (units <= 0) {
+            throw new IllegalArgumentException("No exchange rate for " + currency);
+        }
+        return units;
+    }
+}
@@ -0,0 +1,75 @@
+package com.chama.chamadao_server.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded in-memory set of recently applied M-Pesa receipt numbers
+ * Lets duplicate callbacks short-circuit before touching the database. Lookups are lock-free;
+ * once the capacity is reached the oldest receipt is evicted. The unique constraint on
+ * {@code transactions.mpesaReceiptNumber} remains the source of truth.
+ */
+@Component
+public class RecentReceiptCache {
+
+    private final Set<String> receipts = ConcurrentHashMap.newKeySet();
+    private final String[] insertionOrder;
+    private int next;
+
+    public RecentReceiptCache(@Value("${mpesa.recent-receipts-capacity:10000}") int capacity) {
+        this.insertionOrder = new String[capacity];
+    }
+
+    /**
+     * Check whether a receipt was recently applied
+     * @param receiptNumber The M-Pesa receipt number
+     * @return True if the receipt is in the cache
+     */
+    public boolean contains(String receiptNumber) {
+        return receiptNumber != null && receipts.contains(receiptNumber);
+    }
+
+    /**
+     * Remember a receipt once the current database transaction commits
+     * Outside a transaction the receipt is remembered immediately.
+     * @param receiptNumber The M-Pesa receipt number
+     */
+    public void rememberAfterCommit(String receiptNumber) {
+        if (receiptNumber == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(receiptNumber);
+                }
+            });
+        } else {
+            remember(receiptNumber);
+        }
+    }
+
+    /**
+     * Remember a receipt, evicting the oldest one when full
+     * @param receiptNumber The M-Pesa receipt number
+     */
+    public void remember(String receiptNumber) {
+        if (receiptNumber == null || !receipts.add(receiptNumber)) {
+            return;
+        }
+        synchronized (insertionOrder) {
+            String evicted = insertionOrder[next];
+            if (evicted != null) {
+                receipts.remove(evicted);
+            }
+            insertionOrder[next] = receiptNumber;
+            next = (next + 1) % insertionOrder.length;
+        }
+    }
+}
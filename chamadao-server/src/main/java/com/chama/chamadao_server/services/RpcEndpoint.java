@@ -0,0 +1,116 @@
+package com.chama.chamadao_server.services;
+
+import org.web3j.protocol.Web3jService;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One JSON-RPC node behind the {@link RpcRouter}, with its latency and error rate
+ * Both are exponentially weighted moving averages, so the router follows a node that slows down or
+ * recovers within a few requests. A node whose error rate is above the limit is skipped until a cooldown
+ * has passed, after which it is probed again.
+ */
+public class RpcEndpoint {
+
+    // Weight of the newest sample in the moving averages
+    private static final double ALPHA = 0.2;
+
+    private final String name;
+    private final Web3jService service;
+
+    private long samples;
+    private double latencyNanos;
+    private double errorRate;
+    private long lastFailureNanos;
+    private long lastUsedNanos;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    public RpcEndpoint(String name, Web3jService service) {
+        this.name = name;
+        this.service = service;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Web3jService getService() {
+        return service;
+    }
+
+    /**
+     * Record a request the node answered
+     * @param elapsedNanos How long the request took
+     * @param now The current {@link System#nanoTime()}
+     */
+    public synchronized void recordSuccess(long elapsedNanos, long now) {
+        requests.increment();
+        latencyNanos = samples == 0 ? elapsedNanos : latencyNanos + ALPHA * (elapsedNanos - latencyNanos);
+        samples++;
+        errorRate -= ALPHA * errorRate;
+        lastUsedNanos = now;
+    }
+
+    /**
+     * Record a request the node failed to answer
+     * @param now The current {@link System#nanoTime()}
+     */
+    public synchronized void recordFailure(long now) {
+        requests.increment();
+        errors.increment();
+        errorRate += ALPHA * (1 - errorRate);
+        lastFailureNanos = now;
+        lastUsedNanos = now;
+    }
+
+    void recordHedgeWin() {
+        hedgeWins.increment();
+    }
+
+    /**
+     * Check whether the node should take requests
+     * @param now The current {@link System#nanoTime()}
+     * @param maxErrorRate The error rate above which the node is skipped
+     * @param cooldownNanos How long a failing node is skipped before it is probed again
+     * @return True if the node is healthy or due for a probe
+     */
+    public synchronized boolean isHealthy(long now, double maxErrorRate, long cooldownNanos) {
+        return errorRate < maxErrorRate || now - lastFailureNanos >= cooldownNanos;
+    }
+
+    /**
+     * Get the moving average latency
+     * A node without samples reports zero, so it is tried before the others and gets measured.
+     * @return The latency in nanoseconds
+     */
+    public synchronized double getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public synchronized double getErrorRate() {
+        return errorRate;
+    }
+
+    synchronized long getLastFailureNanos() {
+        return lastFailureNanos;
+    }
+
+    synchronized long getLastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    long getRequests() {
+        return requests.sum();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+}
@@ -0,0 +1,386 @@
+package com.chama.chamadao_server.services;
+
+import io.reactivex.Flowable;
+import lombok.extern.slf4j.Slf4j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+import org.web3j.protocol.websocket.events.Notification;
+import org.web3j.utils.Async;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Web3j service that spreads JSON-RPC calls over several nodes
+ * Reads go to the healthy node with the lowest moving average latency and fail over to the next one when a
+ * node cannot be reached. Latency-critical reads are hedged: if the first node has not answered within the
+ * hedge delay the same request is sent to the second node and the first answer wins. Writes are not
+ * retried on another node; each nonce sequence is pinned to one node through {@link #pinned(String)}, so
+ * its transactions reach the mempool in order.
+ */
+@Slf4j
+public class RpcRouter implements Web3jService {
+
+    // Reads a transfer thread blocks on while sending and waiting for the receipt
+    private static final Set<String> HEDGED_METHODS = Set.of(
+            "eth_getTransactionReceipt", "eth_blockNumber", "eth_gasPrice", "eth_getBalance");
+
+    // Calls that belong to an account's nonce sequence and must go to its pinned node
+    private static final Set<String> PINNED_METHODS = Set.of(
+            "eth_sendRawTransaction", "eth_sendTransaction", "eth_getTransactionCount");
+
+    // Pin used by writes that are not sent through a pinned view
+    private static final String DEFAULT_PIN = "";
+
+    // One read in this many goes to the least recently used healthy node, so its latency stays current
+    private static final int EXPLORE_EVERY = 50;
+
+    private final List<RpcEndpoint> endpoints;
+    private final Executor hedgeExecutor;
+    private final long hedgeDelayNanos;
+    private final double maxErrorRate;
+    private final long cooldownNanos;
+
+    private final Map<String, RpcEndpoint> pins = new ConcurrentHashMap<>();
+    private final AtomicLong reads = new AtomicLong();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+
+    public RpcRouter(List<RpcEndpoint> endpoints, Executor hedgeExecutor, long hedgeDelayMs,
+                     double maxErrorRate, long unhealthyCooldownMs) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one RPC endpoint is required");
+        }
+        this.endpoints = List.copyOf(endpoints);
+        this.hedgeExecutor = hedgeExecutor;
+        this.hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(hedgeDelayMs);
+        this.maxErrorRate = maxErrorRate;
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(unhealthyCooldownMs);
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        if (PINNED_METHODS.contains(request.getMethod())) {
+            return sendPinned(DEFAULT_PIN, request, responseType);
+        }
+        List<RpcEndpoint> ranked = rank();
+        if (HEDGED_METHODS.contains(request.getMethod()) && ranked.size() > 1) {
+            return sendHedged(ranked, request, responseType);
+        }
+        return sendWithFailover(ranked, endpoint -> endpoint.getService().send(request, responseType));
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+        return Async.run(() -> send(request, responseType));
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return sendWithFailover(rank(), endpoint -> endpoint.getService().sendBatch(batchRequest));
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return Async.run(() -> sendBatch(batchRequest));
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod,
+                                                             Class<T> responseType) {
+        throw new UnsupportedOperationException("Subscriptions are not supported over HTTP RPC endpoints");
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (RpcEndpoint endpoint : endpoints) {
+            endpoint.getService().close();
+        }
+    }
+
+    /**
+     * Get a view of the router whose nonce-sequence calls all go to one node
+     * The node is picked on first use and kept until it fails, so an account's transactions and its
+     * pending nonce lookups see the same mempool. Other calls are routed as usual.
+     * @param sequenceKey The key of the nonce sequence, e.g. the sending address
+     * @return The pinned service
+     */
+    public Web3jService pinned(String sequenceKey) {
+        return new PinnedService(sequenceKey);
+    }
+
+    /**
+     * Get the router counters and the state of every node
+     * @return The hedged and failed-over request counts, and the health, moving averages and counters of each node
+     */
+    public Stats getStats() {
+        long now = System.nanoTime();
+        List<EndpointStats> endpointStats = endpoints.stream()
+                .map(endpoint -> new EndpointStats(
+                        endpoint.getName(),
+                        endpoint.isHealthy(now, maxErrorRate, cooldownNanos),
+                        endpoint.getLatencyNanos() / 1_000_000.0,
+                        endpoint.getErrorRate(),
+                        endpoint.getRequests(),
+                        endpoint.getErrors(),
+                        endpoint.getHedgeWins(),
+                        pins.values().stream().filter(pinned -> pinned == endpoint).count()))
+                .toList();
+        return new Stats(hedged.sum(), failovers.sum(), endpointStats);
+    }
+
+    /**
+     * Order the nodes for a read: healthy ones by latency, then failing ones by how long ago they failed
+     * Every {@value #EXPLORE_EVERY}th read starts with the least recently used healthy node instead.
+     */
+    private List<RpcEndpoint> rank() {
+        long now = System.nanoTime();
+        List<RpcEndpoint> healthy = new ArrayList<>(endpoints.size());
+        List<RpcEndpoint> failing = new ArrayList<>();
+        for (RpcEndpoint endpoint : endpoints) {
+            (endpoint.isHealthy(now, maxErrorRate, cooldownNanos) ? healthy : failing).add(endpoint);
+        }
+        healthy.sort(Comparator.comparingDouble(RpcEndpoint::getLatencyNanos));
+        failing.sort(Comparator.comparingLong(RpcEndpoint::getLastFailureNanos));
+
+        if (healthy.size() > 1 && reads.incrementAndGet() % EXPLORE_EVERY == 0) {
+            RpcEndpoint stalest = healthy.stream().min(Comparator.comparingLong(RpcEndpoint::getLastUsedNanos)).get();
+            healthy.remove(stalest);
+            healthy.add(0, stalest);
+        }
+        healthy.addAll(failing);
+        return healthy;
+    }
+
+    private <T> T sendWithFailover(List<RpcEndpoint> ranked, RpcCall<T> call) throws IOException {
+        RuntimeException lastRuntime = null;
+        IOException lastIo = null;
+        for (int i = 0; i < ranked.size(); i++) {
+            if (i > 0) {
+                failovers.increment();
+            }
+            try {
+                return call(ranked.get(i), call);
+            } catch (IOException e) {
+                lastIo = e;
+                lastRuntime = null;
+            } catch (ClientConnectionException e) {
+                lastRuntime = e;
+                lastIo = null;
+            }
+            log.warn("RPC endpoint {} failed: {}", ranked.get(i).getName(),
+                    lastIo != null ? lastIo.getMessage() : lastRuntime.getMessage());
+        }
+        if (lastRuntime != null) {
+            throw lastRuntime;
+        }
+        throw lastIo;
+    }
+
+    /**
+     * Send a read to the best node and, if it is slow to answer, also to the second best
+     * @return The first successful response
+     */
+    private <T extends Response> T sendHedged(List<RpcEndpoint> ranked, Request request, Class<T> responseType)
+            throws IOException {
+        RpcCall<T> call = endpoint -> endpoint.getService().send(request, responseType);
+        CompletableFuture<T> primary = submit(ranked.get(0), call);
+        if (primary == null) {
+            return sendWithFailover(ranked, call);
+        }
+
+        try {
+            return primary.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Slow to answer: hedge below
+        } catch (ExecutionException e) {
+            // Failed fast: the remaining nodes are tried in order
+            failovers.increment();
+            return sendWithFailover(ranked.subList(1, ranked.size()), call);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + request.getMethod());
+        }
+
+        RpcEndpoint hedgeEndpoint = ranked.get(1);
+        CompletableFuture<T> hedge = submit(hedgeEndpoint, call);
+        if (hedge == null) {
+            return await(primary, request);
+        }
+        hedged.increment();
+
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((response, error) -> complete(first, response, error, failures));
+        hedge.whenComplete((response, error) -> {
+            if (error == null && !first.isDone()) {
+                hedgeEndpoint.recordHedgeWin();
+                first.complete(response);
+            } else {
+                complete(first, response, error, failures);
+            }
+        });
+        return await(first, request);
+    }
+
+    private static <T> void complete(CompletableFuture<T> first, T response, Throwable error, AtomicInteger failures) {
+        if (error == null) {
+            first.complete(response);
+        } else if (failures.incrementAndGet() == 2) {
+            first.completeExceptionally(error);
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(RpcEndpoint endpoint, RpcCall<T> call) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return call(endpoint, call);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, hedgeExecutor);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future, Request request) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + request.getMethod());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private <T extends Response> T sendPinned(String sequenceKey, Request request, Class<T> responseType)
+            throws IOException {
+        RpcEndpoint endpoint = pins.compute(sequenceKey, (key, current) ->
+                current != null && current.isHealthy(System.nanoTime(), maxErrorRate, cooldownNanos)
+                        ? current
+                        : rank().get(0));
+        try {
+            return call(endpoint, pinnedEndpoint -> pinnedEndpoint.getService().send(request, responseType));
+        } catch (IOException | ClientConnectionException e) {
+            // Not retried elsewhere, as the node may have received a write; the next call picks a new node
+            pins.remove(sequenceKey, endpoint);
+            throw e;
+        }
+    }
+
+    private <T> T call(RpcEndpoint endpoint, RpcCall<T> call) throws IOException {
+        long start = System.nanoTime();
+        try {
+            T result = call.send(endpoint);
+            long now = System.nanoTime();
+            endpoint.recordSuccess(now - start, now);
+            return result;
+        } catch (IOException | ClientConnectionException e) {
+            endpoint.recordFailure(System.nanoTime());
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RpcCall<T> {
+        T send(RpcEndpoint endpoint) throws IOException;
+    }
+
+    /**
+     * View of the router that sends one nonce sequence's calls to its pinned node
+     */
+    private class PinnedService implements Web3jService {
+
+        private final String sequenceKey;
+
+        private PinnedService(String sequenceKey) {
+            this.sequenceKey = sequenceKey;
+        }
+
+        @Override
+        public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+            if (PINNED_METHODS.contains(request.getMethod())) {
+                return sendPinned(sequenceKey, request, responseType);
+            }
+            return RpcRouter.this.send(request, responseType);
+        }
+
+        @Override
+        public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) {
+            return Async.run(() -> send(request, responseType));
+        }
+
+        @Override
+        public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+            return RpcRouter.this.sendBatch(batchRequest);
+        }
+
+        @Override
+        public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+            return RpcRouter.this.sendBatchAsync(batchRequest);
+        }
+
+        @Override
+        public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod,
+                                                                 Class<T> responseType) {
+            return RpcRouter.this.subscribe(request, unsubscribeMethod, responseType);
+        }
+
+        @Override
+        public void close() {
+            // The underlying nodes are closed with the router
+        }
+    }
+
+    /**
+     * RPC node statistics
+     * Pinned sequences counts the nonce sequences whose writes currently go to the node.
+     */
+    public record EndpointStats(
+            String name,
+            boolean healthy,
+            double latencyMillis,
+            double errorRate,
+            long requests,
+            long errors,
+            long hedgeWins,
+            long pinnedSequences) {
+    }
+
+    /**
+     * RPC router statistics
+     * Hedged counts reads sent to a second node because the first was slow to answer.
+     */
+    public record Stats(long hedged, long failovers, List<EndpointStats> endpoints) {
+    }
+}
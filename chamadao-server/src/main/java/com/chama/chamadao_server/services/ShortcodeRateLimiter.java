@@ -0,0 +1,62 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.MPesaConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests-per-second budget for M-Pesa requests, kept per shortcode
+ * Requests are spaced evenly at the configured rate; callers block until their slot comes up.
+ */
+@Component
+@RequiredArgsConstructor
+public class ShortcodeRateLimiter {
+
+    private final MPesaConfig mpesaConfig;
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+
+    /**
+     * Wait for the next free request slot of a shortcode
+     * @param shortcode The shortcode the request is sent from
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire(String shortcode) throws InterruptedException {
+        long waitNanos = budgets.computeIfAbsent(shortcode, this::newBudget).reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private Budget newBudget(String shortcode) {
+        double requestsPerSecond = mpesaConfig.getB2cShortcodeRequestsPerSecond()
+                .getOrDefault(shortcode, mpesaConfig.getB2cRequestsPerSecond());
+        if (requestsPerSecond <= 0) {
+            throw new IllegalStateException("Requests per second for shortcode " + shortcode + " must be positive");
+        }
+        return new Budget((long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond));
+    }
+
+    private static final class Budget {
+        private final long intervalNanos;
+        private long nextFreeNanos = System.nanoTime();
+
+        private Budget(long intervalNanos) {
+            this.intervalNanos = intervalNanos;
+        }
+
+        /**
+         * Reserve the next slot
+         * @return Nanoseconds to wait until the reserved slot
+         */
+        private synchronized long reserve() {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextFreeNanos);
+            nextFreeNanos = slot + intervalNanos;
+            return slot - now;
+        }
+    }
+}
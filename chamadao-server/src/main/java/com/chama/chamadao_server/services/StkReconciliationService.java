@@ -0,0 +1,265 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.MPesaConfig;
+import com.chama.chamadao_server.models.Transaction;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaStkQueryResponse;
+import com.chama.chamadao_server.models.enums.TransactionStatus;
+import com.chama.chamadao_server.models.enums.TransactionType;
+import com.chama.chamadao_server.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service that reconciles deposits whose STK push callback never arrived
+ * Pending deposits older than the configured age are looked up with the STK push query API and moved
+ * to COMPLETED or FAILED. Queries run on the M-Pesa request executor, with at most
+ * {@code mpesa.reconciliation-concurrency} in flight and without holding a scheduler thread.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StkReconciliationService {
+
+    // ResultCode returned while the customer has not yet answered the STK prompt
+    private static final String RESULT_IN_PROGRESS = "4999";
+    private static final String RESULT_SUCCESS = "0";
+    private static final LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final TransactionRepository transactionRepository;
+    private final MpesaService mpesaService;
+    private final MPesaConfig mpesaConfig;
+    private final DarajaResilience darajaResilience;
+    private final TransactionTemplate transactionTemplate;
+    @Qualifier("darajaExecutor")
+    private final TaskExecutor darajaExecutor;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder stillPending = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder resolvedLagSeconds = new LongAdder();
+    private final LongAccumulator maxResolvedLagSeconds = new LongAccumulator(Math::max, 0);
+    private final AtomicLong lastPassMillis = new AtomicLong();
+    private final AtomicBoolean passInFlight = new AtomicBoolean();
+    private volatile LocalDateTime lastPassAt;
+
+    /**
+     * Start a pass querying the status of every stale pending deposit
+     * The pass runs on the M-Pesa request executor: each query that completes dispatches the next, so the
+     * scheduler thread only starts it. A pass is skipped while the previous one still has queries in flight.
+     */
+    @Scheduled(fixedDelayString = "${mpesa.reconciliation-interval-ms:60000}")
+    public void reconcilePendingDeposits() {
+        if (!passInFlight.compareAndSet(false, true)) {
+            log.debug("Previous reconciliation pass is still running, skipping this one");
+            return;
+        }
+        new Pass().dispatch();
+    }
+
+    /**
+     * Query one deposit and apply the result
+     * @param transaction The pending deposit
+     */
+    private void reconcile(Transaction transaction) {
+        try {
+            if (transaction.getCheckoutRequestId() == null) {
+                // There is nothing to query until M-Pesa acknowledges the STK push; the request may
+                // still be waiting in the queue, so it is only failed once it is well past any timeout
+                LocalDateTime abandonedBefore = LocalDateTime.now()
+                        .minusSeconds(mpesaConfig.getReconciliationUnacknowledgedTimeoutSeconds());
+                if (transaction.getCreatedAt().isBefore(abandonedBefore)) {
+                    resolve(transaction, false, "STK push was not acknowledged by M-Pesa");
+                } else {
+                    stillPending.increment();
+                }
+                return;
+            }
+
+            MpesaStkQueryResponse response = mpesaService.queryStkPushStatus(transaction.getCheckoutRequestId());
+            String resultCode = response.getResultCode();
+            if (resultCode == null || RESULT_IN_PROGRESS.equals(resultCode)) {
+                stillPending.increment();
+                return;
+            }
+
+            resolve(transaction, RESULT_SUCCESS.equals(resultCode), response.getResultDesc());
+        } catch (RuntimeException e) {
+            errors.increment();
+            log.warn("Failed to reconcile deposit {}: {}", transaction.getId(), e.getMessage());
+        }
+    }
+
+    private void resolve(Transaction transaction, boolean paid, String resultDescription) {
+        Boolean applied = transactionTemplate.execute(status -> paid
+                ? mpesaService.completeDeposit(transaction, null)
+                : mpesaService.failDeposit(transaction, resultDescription));
+        if (!Boolean.TRUE.equals(applied)) {
+            // The callback arrived while the query was in flight
+            return;
+        }
+
+        (paid ? completed : failed).increment();
+        long lagSeconds = Duration.between(transaction.getCreatedAt(), LocalDateTime.now()).getSeconds();
+        resolvedLagSeconds.add(lagSeconds);
+        maxResolvedLagSeconds.accumulate(lagSeconds);
+        log.info("Reconciled deposit {} as {} after {}s", transaction.getId(), paid ? "completed" : "failed", lagSeconds);
+    }
+
+    /**
+     * Get the reconciliation backlog and counters
+     * @return The reconciliation statistics
+     */
+    public Stats getStats() {
+        LocalDateTime now = LocalDateTime.now();
+        long backlog = transactionRepository.countByStatusAndTypeAndCreatedAtLessThanEqual(
+                TransactionStatus.PENDING, TransactionType.DEPOSIT,
+                now.minusSeconds(mpesaConfig.getReconciliationMinAgeSeconds()));
+        long oldestPendingAgeSeconds = transactionRepository
+                .findFirstByStatusAndTypeOrderByCreatedAtAsc(TransactionStatus.PENDING, TransactionType.DEPOSIT)
+                .map(transaction -> Duration.between(transaction.getCreatedAt(), now).getSeconds())
+                .orElse(0L);
+
+        long resolved = completed.sum() + failed.sum();
+        return new Stats(
+                backlog,
+                oldestPendingAgeSeconds,
+                completed.sum(),
+                failed.sum(),
+                stillPending.sum(),
+                errors.sum(),
+                resolved == 0 ? 0 : resolvedLagSeconds.sum() / resolved,
+                maxResolvedLagSeconds.get(),
+                lastPassAt,
+                lastPassMillis.get());
+    }
+
+    /**
+     * One reconciliation pass over the stale pending deposits
+     * The backlog is walked in keyset pages over the (status, createdAt) index, so deposits that are
+     * still pending after a query do not hide newer ones from the pass.
+     */
+    private final class Pass {
+
+        private final long start = System.nanoTime();
+        private final LocalDateTime staleBefore =
+                LocalDateTime.now().minusSeconds(mpesaConfig.getReconciliationMinAgeSeconds());
+        private final Deque<Transaction> queued = new ArrayDeque<>();
+        private LocalDateTime afterCreatedAt = KEYSET_START;
+        private long afterId = 0;
+        private boolean lastPage;
+        private boolean ended;
+        private boolean finished;
+        private int inFlight;
+
+        /**
+         * Top the queries in flight up to the concurrency limit, loading the next page once the current one is used
+         * Called to start the pass and again as each query completes; the pass finishes once it has ended and
+         * nothing is left in flight.
+         */
+        private synchronized void dispatch() {
+            try {
+                while (!ended && inFlight < mpesaConfig.getReconciliationConcurrency()) {
+                    if (!darajaResilience.isAcceptingCalls()) {
+                        log.info("M-Pesa circuit breaker is open, ending reconciliation pass early");
+                        ended = true;
+                        break;
+                    }
+                    if (queued.isEmpty() && (lastPage || !loadPage())) {
+                        ended = true;
+                        break;
+                    }
+
+                    Transaction transaction = queued.poll();
+                    inFlight++;
+                    try {
+                        darajaExecutor.execute(() -> {
+                            try {
+                                reconcile(transaction);
+                            } finally {
+                                completed();
+                            }
+                        });
+                    } catch (TaskRejectedException e) {
+                        inFlight--;
+                        ended = true;
+                        log.warn("M-Pesa request queue is full, ending reconciliation pass early");
+                    }
+                }
+            } catch (RuntimeException e) {
+                ended = true;
+                log.error("Reconciliation pass stopped after an error", e);
+            }
+
+            if (ended && inFlight == 0 && !finished) {
+                finished = true;
+                lastPassAt = LocalDateTime.now();
+                lastPassMillis.set(Duration.ofNanos(System.nanoTime() - start).toMillis());
+                passInFlight.set(false);
+            }
+        }
+
+        private void completed() {
+            synchronized (this) {
+                inFlight--;
+            }
+            dispatch();
+        }
+
+        /**
+         * Load the next keyset page into the queue
+         * @return False if there are no more stale deposits
+         */
+        private boolean loadPage() {
+            int batchSize = mpesaConfig.getReconciliationBatchSize();
+            List<Transaction> page = transactionRepository.findByStatusCreatedBefore(
+                    TransactionStatus.PENDING, TransactionType.DEPOSIT, staleBefore, afterCreatedAt, afterId,
+                    PageRequest.of(0, batchSize));
+            if (page.isEmpty()) {
+                return false;
+            }
+
+            queued.addAll(page);
+            Transaction last = page.get(page.size() - 1);
+            afterCreatedAt = last.getCreatedAt();
+            afterId = last.getId();
+            lastPage = page.size() < batchSize;
+            return true;
+        }
+    }
+
+    /**
+     * Reconciliation statistics
+     * The resolved counters count deposits whose callback was lost, so they measure the callback-loss rate;
+     * the lag is the time from the STK push to reconciliation resolving the deposit.
+     */
+    public record Stats(
+            long staleBacklog,
+            long oldestPendingAgeSeconds,
+            long completed,
+            long failed,
+            long stillPending,
+            long errors,
+            long averageLagSeconds,
+            long maxLagSeconds,
+            LocalDateTime lastPassAt,
+            long lastPassMillis) {
+    }
+}
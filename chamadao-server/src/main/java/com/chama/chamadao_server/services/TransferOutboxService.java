@@ -0,0 +1,326 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.BlockchainConfig;
+import com.chama.chamadao_server.models.Transaction;
+import com.chama.chamadao_server.models.TransferOutboxEntry;
+import com.chama.chamadao_server.models.enums.OutboxStatus;
+import com.chama.chamadao_server.repository.TransactionRepository;
+import com.chama.chamadao_server.repository.TransferOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.web3j.protocol.exceptions.TransactionException;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service for the USDT transfer outbox
+ * Completed deposits record the transfer they owe in the outbox within the same database transaction.
+ * A dispatcher drains the outbox in batches into {@link BlockchainService} and writes the transaction
+ * hash back to the deposit. A transfer is only retried when it certainly never reached the node;
+ * sends that were interrupted or failed ambiguously are parked for review instead of being sent twice.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransferOutboxService {
+
+    private final TransferOutboxRepository transferOutboxRepository;
+    private final TransactionRepository transactionRepository;
+    private final BlockchainService blockchainService;
+    private final BlockchainConfig blockchainConfig;
+    private final TransactionTemplate transactionTemplate;
+
+    private final LatencyHistogram sendLatency = new LatencyHistogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Record the USDT transfer owed for a completed deposit
+     * Must run in the transaction that completes the deposit, so both are committed or neither is.
+     * @param transaction The completed deposit with its USDT amount set
+     * @return The outbox entry
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public TransferOutboxEntry enqueue(Transaction transaction) {
+        LocalDateTime now = LocalDateTime.now();
+        TransferOutboxEntry entry = TransferOutboxEntry.builder()
+                .transactionId(transaction.getId())
+                .walletAddress(transaction.getWalletAddress())
+                .amountUSDT(transaction.getAmountUSDT())
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build();
+
+        TransferOutboxEntry saved = transferOutboxRepository.save(entry);
+        log.debug("Queued USDT transfer of {} for deposit {} as outbox entry {}",
+                transaction.getAmountUSDT(), transaction.getId(), saved.getId());
+        return saved;
+    }
+
+    /**
+     * Put failed transfers, and optionally those parked for review, back in the queue
+     * @param includeNeedsReview Whether to also resend transfers whose earlier send may have reached the chain
+     * @return The number of transfers requeued
+     */
+    @Transactional
+    public int requeue(boolean includeNeedsReview) {
+        EnumSet<OutboxStatus> statuses = includeNeedsReview
+                ? EnumSet.of(OutboxStatus.FAILED, OutboxStatus.NEEDS_REVIEW)
+                : EnumSet.of(OutboxStatus.FAILED);
+        int requeued = transferOutboxRepository.requeue(statuses, LocalDateTime.now());
+        log.info("Requeued {} USDT transfers", requeued);
+        return requeued;
+    }
+
+    /**
+     * Hand the due transfers to the transfer executor
+     * Sends block until the transfer is mined, so the dispatcher does not wait for them: it only tops the
+     * transfers in flight back up to the batch size, and the outcome of each is recorded when its send completes.
+     * This keeps the shared scheduler thread free for the other jobs.
+     */
+    @Scheduled(fixedDelayString = "${blockchain.outbox-poll-interval-ms:1000}")
+    public void dispatch() {
+        recoverInterruptedSends();
+
+        int batchSize = blockchainConfig.getOutboxBatchSize();
+        while (true) {
+            int room = batchSize - inFlight.size();
+            if (room <= 0) {
+                return;
+            }
+            List<TransferOutboxEntry> batch = transferOutboxRepository.findDue(
+                    OutboxStatus.PENDING, LocalDateTime.now(), PageRequest.of(0, room));
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            for (TransferOutboxEntry entry : batch) {
+                if (!blockchainService.hasTransferCapacity()) {
+                    // Leave the rest pending until the transfer executor has drained
+                    return;
+                }
+                if (transferOutboxRepository.claim(entry.getId(), LocalDateTime.now()) == 1) {
+                    Long entryId = entry.getId();
+                    inFlight.add(entryId);
+                    try {
+                        send(entryId).whenComplete((result, ex) -> inFlight.remove(entryId));
+                    } catch (RuntimeException e) {
+                        inFlight.remove(entryId);
+                        throw e;
+                    }
+                }
+            }
+
+            if (batch.size() < room) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the outbox backlog and counters
+     * @return The outbox statistics
+     */
+    public Stats getStats() {
+        long oldestPendingAgeSeconds = transferOutboxRepository.findFirstByStatusOrderByCreatedAtAsc(OutboxStatus.PENDING)
+                .map(entry -> Duration.between(entry.getCreatedAt(), LocalDateTime.now()).getSeconds())
+                .orElse(0L);
+        return new Stats(
+                transferOutboxRepository.countByStatus(OutboxStatus.PENDING),
+                transferOutboxRepository.countByStatus(OutboxStatus.SENDING),
+                transferOutboxRepository.countByStatus(OutboxStatus.NEEDS_REVIEW),
+                transferOutboxRepository.countByStatus(OutboxStatus.FAILED),
+                oldestPendingAgeSeconds,
+                sent.sum(),
+                retried.sum(),
+                deferred.sum(),
+                sendLatency.snapshot());
+    }
+
+    /**
+     * Park transfers left SENDING by a process that stopped mid-send
+     * The transfer may have been broadcast, so it is not sent again automatically. Sends still in flight in
+     * this process are left alone; their outcome is recorded when they complete.
+     */
+    private void recoverInterruptedSends() {
+        LocalDateTime claimedBefore = LocalDateTime.now().minusSeconds(blockchainConfig.getOutboxSendTimeoutSeconds());
+        for (TransferOutboxEntry entry : transferOutboxRepository.findByStatusAndClaimedAtBeforeOrderByIdAsc(
+                OutboxStatus.SENDING, claimedBefore)) {
+            if (inFlight.contains(entry.getId())) {
+                continue;
+            }
+            log.warn("USDT transfer for deposit {} was interrupted mid-send", entry.getTransactionId());
+            finish(entry.getId(), OutboxStatus.NEEDS_REVIEW, null,
+                    "Interrupted while sending; check the chain before requeueing");
+        }
+    }
+
+    /**
+     * Send one claimed transfer and record the outcome
+     * @param entryId The id of the claimed entry
+     * @return A future completed once the outcome is recorded
+     */
+    private CompletableFuture<Void> send(Long entryId) {
+        long start = System.nanoTime();
+        TransferOutboxEntry entry = transferOutboxRepository.findById(entryId).orElseThrow();
+        Transaction transaction = transactionRepository.findById(entry.getTransactionId()).orElse(null);
+        if (transaction == null) {
+            finish(entryId, OutboxStatus.FAILED, null, "Deposit " + entry.getTransactionId() + " not found");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<String> transfer;
+        try {
+            transfer = blockchainService.transferUsdtToWallet(transaction);
+        } catch (RuntimeException e) {
+            transfer = CompletableFuture.failedFuture(e);
+        }
+
+        return transfer.handle((txHash, ex) -> {
+            sendLatency.record(System.nanoTime() - start);
+            try {
+                if (ex == null) {
+                    recordSent(entry, txHash);
+                } else {
+                    recordFailure(entry, ex);
+                }
+            } catch (RuntimeException e) {
+                // The entry stays SENDING and is parked for review once the send timeout passes
+                log.error("Failed to record the outcome of USDT transfer for deposit {}", entry.getTransactionId(), e);
+            }
+            return null;
+        });
+    }
+
+    private void recordSent(TransferOutboxEntry entry, String txHash) {
+        transactionTemplate.executeWithoutResult(status -> {
+            finish(entry.getId(), OutboxStatus.SENT, txHash, null);
+            transactionRepository.findById(entry.getTransactionId()).ifPresent(transaction -> {
+                transaction.setBlockchainTxHash(txHash);
+                transactionRepository.save(transaction);
+            });
+        });
+        sent.increment();
+        log.info("USDT transfer for deposit {} sent: {}", entry.getTransactionId(), txHash);
+    }
+
+    /**
+     * Decide what to do with a transfer whose send failed
+     * Rejections by the transfer executor, failures to connect to the node and transactions the node
+     * refused are retried; a transaction exception that carries a hash means the transfer was broadcast;
+     * anything else may have been broadcast and is parked for review.
+     * @param entry The entry being sent
+     * @param error The failure
+     */
+    private void recordFailure(TransferOutboxEntry entry, Throwable error) {
+        if (findCause(error, RejectedExecutionException.class) != null) {
+            // The transfer executor was full; nothing was sent and the attempt does not count
+            deferred.increment();
+            scheduleRetry(entry.getId(), entry.getAttempts() - 1, "Transfer queue full");
+            return;
+        }
+
+        TransactionException transactionException = findCause(error, TransactionException.class);
+        if (transactionException != null && transactionException.getTransactionHash().isPresent()) {
+            log.warn("USDT transfer for deposit {} was broadcast but not confirmed: {}",
+                    entry.getTransactionId(), transactionException.getMessage());
+            recordSent(entry, transactionException.getTransactionHash().get());
+            return;
+        }
+
+        String message = rootMessage(error);
+        if (findCause(error, IllegalArgumentException.class) != null) {
+            log.error("USDT transfer for deposit {} rejected: {}", entry.getTransactionId(), message);
+            finish(entry.getId(), OutboxStatus.FAILED, null, message);
+        } else if (transactionException != null || findCause(error, ConnectException.class) != null) {
+            // A transaction exception without a hash is the node refusing the transaction, so nothing was broadcast
+            if (entry.getAttempts() < blockchainConfig.getOutboxMaxAttempts()) {
+                retried.increment();
+                log.warn("USDT transfer for deposit {} was not accepted by the node, retrying: {}",
+                        entry.getTransactionId(), message);
+                scheduleRetry(entry.getId(), entry.getAttempts(), message);
+            } else {
+                finish(entry.getId(), OutboxStatus.FAILED, null, message);
+            }
+        } else {
+            log.error("USDT transfer for deposit {} failed after it may have been broadcast: {}",
+                    entry.getTransactionId(), message);
+            finish(entry.getId(), OutboxStatus.NEEDS_REVIEW, null, message);
+        }
+    }
+
+    private void scheduleRetry(Long entryId, int attempts, String error) {
+        transactionTemplate.executeWithoutResult(status -> transferOutboxRepository.findById(entryId).ifPresent(entry -> {
+            entry.setStatus(OutboxStatus.PENDING);
+            entry.setAttempts(attempts);
+            entry.setLastError(error);
+            entry.setNextAttemptAt(LocalDateTime.now().plusNanos(
+                    blockchainConfig.getOutboxRetryDelayMs() * Math.max(1, attempts) * 1_000_000L));
+            transferOutboxRepository.save(entry);
+        }));
+    }
+
+    private void finish(Long entryId, OutboxStatus outcome, String txHash, String error) {
+        transactionTemplate.executeWithoutResult(status -> transferOutboxRepository.findById(entryId).ifPresent(entry -> {
+            entry.setStatus(outcome);
+            entry.setTxHash(txHash);
+            entry.setLastError(error);
+            if (outcome == OutboxStatus.SENT) {
+                entry.setSentAt(LocalDateTime.now());
+            }
+            transferOutboxRepository.save(entry);
+        }));
+    }
+
+    private static <T extends Throwable> T findCause(Throwable error, Class<T> type) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return type.cast(cause);
+            }
+        }
+        return null;
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    /**
+     * Transfer outbox statistics
+     * Deferred counts sends put back because the transfer executor was full. The send latency covers the blockchain call, i.e. until the transfer is mined or fails.
+     */
+    public record Stats(
+            long pending,
+            long sending,
+            long needsReview,
+            long failed,
+            long oldestPendingAgeSeconds,
+            long sent,
+            long retried,
+            long deferred,
+            LatencyHistogram.Snapshot sendLatency) {
+    }
+}
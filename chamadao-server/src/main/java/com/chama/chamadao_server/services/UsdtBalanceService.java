@@ -0,0 +1,220 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.BlockchainConfig;
+import com.chama.chamadao_server.models.WalletAddress;
+import com.chama.chamadao_server.models.dto.WalletBalanceDto;
+import com.chama.chamadao_server.repository.ChamaRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service for on-chain USDT balances shown in KES
+ * Balances are read with eth_call at the USDT transfer index's block and cached per watched wallet with that
+ * block number. A cached balance stays valid as the index moves on until a Transfer touching the wallet is indexed,
+ * so repeated reads cost no RPC call. The KES value is recomputed only when the exchange rate changes.
+ * Before the indexer has run, balances are read at the current head and are valid for that block only.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UsdtBalanceService {
+
+    private final BlockchainService blockchainService;
+    private final CurrencyConversionService currencyConversionService;
+    private final BlockchainConfig blockchainConfig;
+    private final ChamaRepository chamaRepository;
+    private final AddressWatcher addressWatcher;
+
+    private final Map<String, CachedBalance> cache = new ConcurrentHashMap<>();
+    // Block the cached balances are valid at, or -1 until the indexer reports one
+    private volatile long indexedBlock = -1;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder conversions = new LongAdder();
+    private final LongAdder batchCalls = new LongAdder();
+
+    /**
+     * Get the USDT balance of one wallet and its value in KES
+     * @param walletAddress The wallet address
+     * @return The balance
+     * @throws IOException if the balance has to be read and the node cannot be reached
+     */
+    public WalletBalanceDto getBalance(String walletAddress) throws IOException {
+        return getBalances(List.of(walletAddress)).get(0);
+    }
+
+    /**
+     * Get the USDT balances of several wallets and their value in KES
+     * Balances missing from the cache are read together in one JSON-RPC batch request.
+     * @param walletAddresses The wallet addresses
+     * @return The balance of each distinct address, in the order given
+     * @throws IOException if balances have to be read and the node cannot be reached
+     */
+    public List<WalletBalanceDto> getBalances(List<String> walletAddresses) throws IOException {
+        List<String> addresses = new ArrayList<>(new LinkedHashSet<>(
+                walletAddresses.stream().map(address -> address.toLowerCase(Locale.ROOT)).toList()));
+        long block = indexedBlock;
+        boolean followingIndex = block >= 0;
+        if (!followingIndex) {
+            block = blockchainService.getBlockNumber().longValueExact();
+        }
+
+        Map<String, CachedBalance> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String address : addresses) {
+            CachedBalance cached = cache.get(address);
+            if (cached != null && (cached.blockNumber() == block || followingIndex && cached.blockNumber() <= block)) {
+                hits.increment();
+                found.put(address, cached);
+            } else {
+                missing.add(address);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            misses.add(missing.size());
+            batchCalls.increment();
+            Map<String, BigDecimal> balances = blockchainService.getUsdtBalances(missing, block);
+            for (String address : missing) {
+                BigDecimal balance = balances.get(address);
+                if (balance == null) {
+                    throw new IOException("Could not read the USDT balance of " + address);
+                }
+                CachedBalance fresh = new CachedBalance(balance, block, null, null);
+                found.put(address, fresh);
+                // Only watched wallets are invalidated by the indexer, so only their balances can be kept
+                if (addressWatcher.contains(address)) {
+                    cache.put(address, fresh);
+                }
+            }
+            if (followingIndex && indexedBlock != block) {
+                // The index moved while the balances were read, so they may already be out of date
+                missing.forEach(cache::remove);
+            }
+            trimCache();
+        }
+
+        BigDecimal rate = currencyConversionService.getExchangeRate();
+        List<WalletBalanceDto> result = new ArrayList<>(addresses.size());
+        for (String address : addresses) {
+            CachedBalance balance = found.get(address);
+            if (!rate.equals(balance.exchangeRate())) {
+                conversions.increment();
+                CachedBalance converted = balance.convert(rate);
+                cache.replace(address, balance, converted);
+                balance = converted;
+            }
+            result.add(WalletBalanceDto.builder()
+                    .walletAddress(address)
+                    .balanceUSDT(balance.balanceUSDT())
+                    .balanceKES(balance.balanceKES())
+                    .exchangeRate(rate)
+                    .blockNumber(balance.blockNumber())
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * Get the USDT balances of every member of a chama in one round-trip to the node
+     * @param chamaAddress The chama's wallet address
+     * @return The balance of each member
+     * @throws EntityNotFoundException if the chama does not exist
+     * @throws IOException if balances have to be read and the node cannot be reached
+     */
+    public List<WalletBalanceDto> getChamaMemberBalances(String chamaAddress) throws IOException {
+        String address = WalletAddress.normalize(chamaAddress);
+        if (!chamaRepository.existsById(address)) {
+            throw new EntityNotFoundException("Chama not found with wallet address: " + chamaAddress);
+        }
+        List<String> members = chamaRepository.findMemberWalletAddresses(address);
+        return members.isEmpty() ? List.of() : getBalances(members);
+    }
+
+    /**
+     * Drop the cached balances of wallets that sent or received USDT in newly indexed blocks
+     * @param event The indexed block range
+     */
+    @EventListener
+    public void onBlocksIndexed(UsdtTransferIndexer.BlocksIndexed event) {
+        // Advance first: a read at the old block that caches after the removal below then sees the index moved
+        indexedBlock = event.toBlock();
+        for (String address : event.touchedAddresses()) {
+            if (cache.remove(address) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Drop every cached balance after a reorg, as they may have been read on the abandoned fork
+     * @param event The rewound index
+     */
+    @EventListener
+    public void onIndexRewound(UsdtTransferIndexer.IndexRewound event) {
+        invalidations.add(cache.size());
+        cache.clear();
+        indexedBlock = event.blockNumber();
+    }
+
+    /**
+     * Get the balance cache counters
+     * @return The balance cache statistics
+     */
+    public Stats getStats() {
+        return new Stats(cache.size(), indexedBlock, hits.sum(), misses.sum(), batchCalls.sum(),
+                invalidations.sum(), conversions.sum());
+    }
+
+    private void trimCache() {
+        // Balances are cheap to read again, so an oversized cache is simply emptied
+        if (cache.size() > blockchainConfig.getBalanceCacheMaxEntries()) {
+            log.info("USDT balance cache reached {} entries, clearing it", cache.size());
+            cache.clear();
+        }
+    }
+
+    /**
+     * A balance read at a block, with its KES value at the exchange rate it was last converted with
+     */
+    private record CachedBalance(BigDecimal balanceUSDT, long blockNumber, BigDecimal exchangeRate,
+                                 BigDecimal balanceKES) {
+
+        CachedBalance convert(BigDecimal rate) {
+            return new CachedBalance(balanceUSDT, blockNumber, rate,
+                    balanceUSDT.multiply(rate).setScale(2, RoundingMode.HALF_UP));
+        }
+    }
+
+    /**
+     * Balance cache statistics
+     * Hits are balance reads served without an eth_call; each batch call reads all missing balances of one request.
+     * Conversions count KES values computed for a new balance or after the exchange rate changed.
+     */
+    public record Stats(
+            int entries,
+            long indexedBlock,
+            long hits,
+            long misses,
+            long batchCalls,
+            long invalidations,
+            long conversions) {
+    }
+}
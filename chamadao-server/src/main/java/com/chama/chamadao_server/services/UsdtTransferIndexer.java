@@ -0,0 +1,281 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.BlockchainConfig;
+import com.chama.chamadao_server.models.IndexerCheckpoint;
+import com.chama.chamadao_server.models.UsdtTransfer;
+import com.chama.chamadao_server.models.WalletAddress;
+import com.chama.chamadao_server.repository.IndexerCheckpointRepository;
+import com.chama.chamadao_server.repository.UsdtTransferRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background indexer for USDT Transfer events touching user and chama wallets
+ * Transfer logs of the USDT contract are pulled with eth_getLogs in block-range chunks and only those with a
+ * watched wallet on either side, as decided by the {@link AddressWatcher}, are stored. The last indexed block and its hash are checkpointed with
+ * each chunk, so a restart resumes where it stopped. If the checkpointed block's hash has changed the chain
+ * was reorganised: the last {@code blockchain.indexer-reorg-depth} blocks are dropped and indexed again.
+ * Wallet history then comes from the local table instead of live RPC calls.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UsdtTransferIndexer {
+
+    static final String CHECKPOINT_NAME = "usdt-transfers";
+
+    // USDT has 6 decimals
+    private static final int USDT_DECIMALS = 6;
+
+    private final BlockchainService blockchainService;
+    private final BlockchainConfig blockchainConfig;
+    private final UsdtTransferRepository usdtTransferRepository;
+    private final IndexerCheckpointRepository checkpointRepository;
+    private final AddressWatcher addressWatcher;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicLong headBlock = new AtomicLong(-1);
+    private final LongAdder logsScanned = new LongAdder();
+    private final LongAdder transfersIndexed = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder reorgs = new LongAdder();
+    private final LatencyHistogram screenLatency = new LatencyHistogram();
+    private final AtomicLong lastPassMillis = new AtomicLong();
+    private volatile LocalDateTime lastPassAt;
+
+    /**
+     * Index the blocks added since the last checkpoint, up to the current head
+     */
+    @Scheduled(fixedDelayString = "${blockchain.indexer-poll-interval-ms:15000}")
+    public void indexNewBlocks() {
+        if (!blockchainConfig.isIndexerEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            long head = blockchainService.getBlockNumber().longValueExact();
+            headBlock.set(head);
+            IndexerCheckpoint checkpoint = checkpointRepository.findById(CHECKPOINT_NAME).orElse(null);
+            checkpoint = checkpoint == null ? initialCheckpoint(head) : rewindIfReorged(checkpoint);
+
+            while (checkpoint.getBlockNumber() < head) {
+                long from = checkpoint.getBlockNumber() + 1;
+                long to = Math.min(head, from + blockchainConfig.getIndexerChunkSize() - 1);
+                checkpoint = indexChunk(checkpoint, from, to);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Everything up to the last saved checkpoint is kept; the next pass continues from there
+            log.warn("USDT transfer indexing stopped: {}", e.getMessage());
+        } finally {
+            lastPassAt = LocalDateTime.now();
+            lastPassMillis.set(Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+    }
+
+    /**
+     * Get the indexed transfers sent or received by an address, newest first
+     * @param address The wallet address, in any case
+     * @param page The page number, starting at 0
+     * @param size The page size
+     * @return The transfers
+     * @throws IllegalArgumentException if the address format is invalid
+     */
+    public List<UsdtTransfer> getTransfers(String address, int page, int size) {
+        return usdtTransferRepository.findByAddress(WalletAddress.parse(address), PageRequest.of(page, size));
+    }
+
+    /**
+     * Get the indexer progress and counters
+     * @return The indexer statistics
+     */
+    public Stats getStats() {
+        long indexed = checkpointRepository.findById(CHECKPOINT_NAME)
+                .map(IndexerCheckpoint::getBlockNumber)
+                .orElse(-1L);
+        long head = headBlock.get();
+        return new Stats(
+                indexed,
+                head,
+                indexed < 0 || head < 0 ? 0 : Math.max(0, head - indexed),
+                logsScanned.sum(),
+                transfersIndexed.sum(),
+                chunks.sum(),
+                reorgs.sum(),
+                screenLatency.snapshot(),
+                lastPassAt,
+                lastPassMillis.get());
+    }
+
+    /**
+     * Decode a Transfer log into a transfer row
+     * @param log The log
+     * @return The transfer, with the amount in USDT
+     */
+    static UsdtTransfer decode(Log log) {
+        List<String> topics = log.getTopics();
+        return UsdtTransfer.builder()
+                .txHash(log.getTransactionHash())
+                .logIndex(log.getLogIndex().intValueExact())
+                .blockNumber(log.getBlockNumber().longValueExact())
+                .blockHash(log.getBlockHash())
+                // Indexed addresses are left-padded to 32 bytes
+                .fromAddress(WalletAddress.fromTopic(topics.get(1)))
+                .toAddress(WalletAddress.fromTopic(topics.get(2)))
+                .amountUSDT(new BigDecimal(Numeric.toBigInt(log.getData()), USDT_DECIMALS))
+                .build();
+    }
+
+    /**
+     * Save the checkpoint the first pass starts from
+     * Without a configured start block the indexer follows the chain from the current head.
+     * @param head The current block number
+     * @return The saved checkpoint
+     * @throws IOException if the node cannot be reached
+     */
+    private IndexerCheckpoint initialCheckpoint(long head) throws IOException {
+        long startBlock = blockchainConfig.getIndexerStartBlock();
+        long blockNumber = startBlock > 0 ? startBlock - 1 : head;
+        log.info("Starting the USDT transfer index after block {}", blockNumber);
+        return checkpointRepository.save(IndexerCheckpoint.builder()
+                .name(CHECKPOINT_NAME)
+                .blockNumber(blockNumber)
+                .blockHash(blockchainService.getBlockHash(blockNumber))
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Check the checkpointed block is still on the chain and rewind past a reorg if it is not
+     * @param checkpoint The checkpoint
+     * @return The checkpoint to continue from
+     * @throws IOException if the node cannot be reached
+     */
+    private IndexerCheckpoint rewindIfReorged(IndexerCheckpoint checkpoint) throws IOException {
+        String currentHash = blockchainService.getBlockHash(checkpoint.getBlockNumber());
+        if (checkpoint.getBlockHash() == null || checkpoint.getBlockHash().equalsIgnoreCase(currentHash)) {
+            return checkpoint;
+        }
+
+        long rewindTo = Math.max(0, checkpoint.getBlockNumber() - blockchainConfig.getIndexerReorgDepth());
+        String rewindHash = blockchainService.getBlockHash(rewindTo);
+        reorgs.increment();
+        log.warn("Block {} was reorganised ({} is now {}), re-indexing USDT transfers from block {}",
+                checkpoint.getBlockNumber(), checkpoint.getBlockHash(), currentHash, rewindTo + 1);
+
+        IndexerCheckpoint saved = transactionTemplate.execute(status -> {
+            int deleted = usdtTransferRepository.deleteByBlockNumberGreaterThan(rewindTo);
+            log.info("Dropped {} USDT transfers above block {}", deleted, rewindTo);
+            checkpoint.setBlockNumber(rewindTo);
+            checkpoint.setBlockHash(rewindHash);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            return checkpointRepository.save(checkpoint);
+        });
+        eventPublisher.publishEvent(new IndexRewound(rewindTo));
+        return saved;
+    }
+
+    /**
+     * Index one block range and move the checkpoint to its end, in one database transaction
+     * The end block's hash is read before the logs, so a reorg while the logs are read leaves a stale hash
+     * in the checkpoint and is caught by the next pass.
+     * @return The saved checkpoint
+     * @throws IOException if the node cannot be reached
+     */
+    private IndexerCheckpoint indexChunk(IndexerCheckpoint checkpoint, long from, long to) throws IOException {
+        String toHash = blockchainService.getBlockHash(to);
+        List<Log> logs = blockchainService.getUsdtTransferLogs(from, to);
+        chunks.increment();
+        logsScanned.add(logs.size());
+
+        LocalDateTime now = LocalDateTime.now();
+        List<UsdtTransfer> transfers = new ArrayList<>();
+        Set<String> touched = new HashSet<>();
+        long screenStart = System.nanoTime();
+        for (Log transferLog : logs) {
+            List<String> topics = transferLog.getTopics();
+            if (topics.size() < 3) {
+                continue;
+            }
+            // The raw topics are screened first, so only logs for watched wallets are decoded
+            boolean fromWatched = addressWatcher.isWatched(topics.get(1));
+            boolean toWatched = addressWatcher.isWatched(topics.get(2));
+            if (fromWatched || toWatched) {
+                UsdtTransfer transfer = decode(transferLog);
+                transfer.setIndexedAt(now);
+                transfers.add(transfer);
+                if (fromWatched) {
+                    touched.add(transfer.getFromAddress().toString());
+                }
+                if (toWatched) {
+                    touched.add(transfer.getToAddress().toString());
+                }
+            }
+        }
+        screenLatency.record(System.nanoTime() - screenStart);
+
+        IndexerCheckpoint saved = transactionTemplate.execute(status -> {
+            usdtTransferRepository.saveAll(transfers);
+            checkpoint.setBlockNumber(to);
+            checkpoint.setBlockHash(toHash);
+            checkpoint.setUpdatedAt(now);
+            return checkpointRepository.save(checkpoint);
+        });
+        transfersIndexed.add(transfers.size());
+        eventPublisher.publishEvent(new BlocksIndexed(from, to, touched));
+        log.debug("Indexed blocks {}-{}: {} Transfer logs, {} for watched wallets", from, to, logs.size(), transfers.size());
+        return saved;
+    }
+
+    /**
+     * Published after a block range has been indexed and checkpointed
+     * @param fromBlock The first block of the range
+     * @param toBlock The last block of the range, now the indexed block
+     * @param touchedAddresses The watched addresses that sent or received USDT in the range, in lower case
+     */
+    public record BlocksIndexed(long fromBlock, long toBlock, Set<String> touchedAddresses) {
+    }
+
+    /**
+     * Published after a reorg moved the indexed block back
+     * @param blockNumber The block the index was rewound to
+     */
+    public record IndexRewound(long blockNumber) {
+    }
+
+    /**
+     * USDT transfer indexer statistics
+     * Transfers indexed divided by logs scanned is the share of USDT traffic touching watched wallets; the screen
+     * latency is the time spent matching one chunk's logs against the watched addresses.
+     */
+    public record Stats(
+            long indexedBlock,
+            long headBlock,
+            long blocksBehind,
+            long logsScanned,
+            long transfersIndexed,
+            long chunks,
+            long reorgs,
+            LatencyHistogram.Snapshot screenLatency,
+            LocalDateTime lastPassAt,
+            long lastPassMillis) {
+    }
+}
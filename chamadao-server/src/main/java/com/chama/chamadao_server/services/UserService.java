@@ -2,6 +2,7 @@ package com.chama.chamadao_server.services;
 
 import com.chama.chamadao_server.mappers.UserMapper;
 import com.chama.chamadao_server.models.User;
+import com.chama.chamadao_server.models.WalletAddress;
 import com.chama.chamadao_server.models.dto.UserDto;
 import com.chama.chamadao_server.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
@@ -23,6 +24,7 @@ public class UserService {
     private final WalletService walletService;
     private final UserMapper userMapper;
     private final FileStorageService fileStorageService;
+    private final AddressWatcher addressWatcher;
 
     /**
      * Validates wallet address format
@@ -50,7 +52,7 @@ public class UserService {
 
         log.debug("Searching for user with wallet address: {}", walletAddress);
 
-        User user = userRepository.findUserWithChamasByWalletAddress(walletAddress)
+        User user = userRepository.findUserWithChamasByWalletAddress(WalletAddress.normalize(walletAddress))
                 .orElseThrow(() -> {
                     log.error("User not found with wallet address: {}", walletAddress);
                     return new EntityNotFoundException("User not found");
@@ -71,7 +73,7 @@ public class UserService {
         log.info("Updating user profile for wallet address: {}", walletAddress);
         validateWalletAddress(walletAddress);
 
-        User existingUser = userRepository.findById(walletAddress)
+        User existingUser = userRepository.findById(WalletAddress.normalize(walletAddress))
                 .orElseThrow(() -> {
                     log.error("User not found with wallet address: {}", walletAddress);
                     return new EntityNotFoundException("User not found");
@@ -113,7 +115,8 @@ public class UserService {
      * @throws RuntimeException if the user already exists
      */
     public UserDto createUserProfile(UserDto userDto) {
-        String walletAddress = userDto.getWalletAddress();
+        // Store the address in its canonical form, so it cannot be registered twice in different cases
+        String walletAddress = WalletAddress.normalize(userDto.getWalletAddress());
         log.info("Creating user profile for wallet address: {}", walletAddress);
         validateWalletAddress(walletAddress);
 
@@ -125,6 +128,7 @@ public class UserService {
 
         // Convert DTO to entity
         User newUser = userMapper.toEntity(userDto);
+        newUser.setWalletAddress(walletAddress);
 
         // Set default reputation score if not provided
         if (newUser.getReputationScore() == null) {
@@ -134,6 +138,7 @@ public class UserService {
 
         log.info("Saving new user profile for wallet address: {}", walletAddress);
         User savedUser = userRepository.save(newUser);
+        addressWatcher.add(savedUser.getWalletAddress());
         return userMapper.toDto(savedUser);
     }
 
@@ -154,7 +159,7 @@ public class UserService {
         validateWalletAddress(walletAddress);
         
         // Find and validate User
-        User user = userRepository.findById(walletAddress)
+        User user = userRepository.findById(WalletAddress.normalize(walletAddress))
                 .orElseThrow(() -> new EntityNotFoundException("User not found with wallet address: " + walletAddress));
         
         try {
@@ -185,7 +190,7 @@ public class UserService {
         
         validateWalletAddress(walletAddress);
         
-        User user = userRepository.findById(walletAddress)
+        User user = userRepository.findById(WalletAddress.normalize(walletAddress))
                 .orElseThrow(() -> new EntityNotFoundException("User not found with wallet address: " + walletAddress));
         
         String profileImage = user.getProfileImage();
@@ -206,7 +211,7 @@ public class UserService {
     public String getUserProfileImageContentType(String walletAddress) {
         validateWalletAddress(walletAddress);
         
-        User user = userRepository.findById(walletAddress)
+        User user = userRepository.findById(WalletAddress.normalize(walletAddress))
                 .orElseThrow(() -> new EntityNotFoundException("User not found with wallet address: " + walletAddress));
         
         String profileImage = user.getProfileImage();
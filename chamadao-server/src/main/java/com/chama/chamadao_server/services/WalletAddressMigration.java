@@ -0,0 +1,164 @@
+package com.chama.chamadao_server.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One-time migration of stored user and chama addresses to the canonical lower case form
+ * Lookups normalize their input, so rows stored in checksummed mixed case before that would no longer be found.
+ * A referenced primary key cannot be changed in place, so each mixed-case user or chama is copied under its
+ * lower case key, the rows referencing it are moved over and the old row is deleted, in one transaction per
+ * address. Runs at startup and finds nothing to do once every address is lower case; an address that also
+ * exists in lower case is left for a manual merge. A key column with a case-insensitive collation is left as
+ * stored, since lookups already match it whatever the case.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WalletAddressMigration {
+
+    // Users first, so chamas are copied with their creator already migrated
+    private static final List<KeyTable> KEY_TABLES = List.of(
+            new KeyTable("users", "wallet_address", List.of(
+                    new Column("chamas", "creator_address"),
+                    new Column("chama_members", "wallet_address"),
+                    new Column("loans", "borrower_wallet_address"),
+                    new Column("loan_guarantors", "guarantor_wallet_address"),
+                    new Column("kyc_documents", "wallet_address"))),
+            new KeyTable("chamas", "chama_address", List.of(
+                    new Column("chama_members", "chama_address"),
+                    new Column("loans", "chama_address"))));
+
+    // Address columns that are not foreign keys and can be lowered in place
+    private static final List<Column> PLAIN_COLUMNS = List.of(
+            new Column("transactions", "wallet_address"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Lower case every stored user and chama address, and the columns that refer to them
+     * Mixed-case values are picked out in Java rather than with a SQL comparison, whose result depends on the
+     * collation of the column.
+     */
+    @PostConstruct
+    public void migrate() {
+        for (KeyTable keyTable : KEY_TABLES) {
+            List<String> mixedCase = mixedCase(keyTable.table(), keyTable.key());
+            if (mixedCase.isEmpty()) {
+                continue;
+            }
+            if (comparesIgnoringCase(keyTable, mixedCase.get(0))) {
+                // Lookups already find the stored form, and the lower case key would collide with it
+                log.info("{}.{} compares case-insensitively, leaving {} mixed-case addresses as stored",
+                        keyTable.table(), keyTable.key(), mixedCase.size());
+                continue;
+            }
+
+            List<String> columns = columnsOf(keyTable.table());
+            int migrated = 0;
+            for (String address : mixedCase) {
+                if (migrate(keyTable, columns, address)) {
+                    migrated++;
+                }
+            }
+            log.info("Lower cased {} of {} {} addresses", migrated, mixedCase.size(), keyTable.table());
+        }
+
+        for (Column column : PLAIN_COLUMNS) {
+            int updated = 0;
+            for (String value : mixedCase(column.table(), column.name())) {
+                updated += jdbcTemplate.update("UPDATE " + column.table() + " SET " + column.name() + " = ? WHERE "
+                        + column.name() + " = ?", value.toLowerCase(Locale.ROOT), value);
+            }
+            if (updated > 0) {
+                log.info("Lower cased {} {}.{} values", updated, column.table(), column.name());
+            }
+        }
+    }
+
+    /**
+     * Move one row and its references to the lower case key
+     * @param keyTable The table keyed by the address
+     * @param columns The columns of that table
+     * @param address The stored mixed-case address
+     * @return True if the row was migrated, false if the lower case key is already taken
+     */
+    private boolean migrate(KeyTable keyTable, List<String> columns, String address) {
+        String lowerCase = address.toLowerCase(Locale.ROOT);
+        Boolean migrated = transactionTemplate.execute(status -> {
+            List<String> existing = jdbcTemplate.queryForList("SELECT " + keyTable.key() + " FROM "
+                    + keyTable.table() + " WHERE " + keyTable.key() + " = ?", String.class, lowerCase);
+            if (existing.contains(lowerCase)) {
+                return false;
+            }
+
+            List<String> selected = columns.stream()
+                    .map(column -> column.equalsIgnoreCase(keyTable.key()) ? "?" : column)
+                    .toList();
+            jdbcTemplate.update("INSERT INTO " + keyTable.table() + " (" + String.join(", ", columns) + ") SELECT "
+                    + String.join(", ", selected) + " FROM " + keyTable.table() + " WHERE " + keyTable.key() + " = ?",
+                    lowerCase, address);
+            for (Column reference : keyTable.references()) {
+                jdbcTemplate.update("UPDATE " + reference.table() + " SET " + reference.name() + " = ? WHERE "
+                        + reference.name() + " = ?", lowerCase, address);
+            }
+            jdbcTemplate.update("DELETE FROM " + keyTable.table() + " WHERE " + keyTable.key() + " = ?", address);
+            return true;
+        });
+
+        if (!Boolean.TRUE.equals(migrated)) {
+            log.error("{} address {} also exists as {}; merge the two rows by hand", keyTable.table(), address, lowerCase);
+            return false;
+        }
+        return true;
+    }
+
+    private List<String> mixedCase(String table, String column) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT " + column + " FROM " + table + " WHERE " + column
+                        + " IS NOT NULL", String.class).stream()
+                .filter(value -> !value.equals(value.toLowerCase(Locale.ROOT)))
+                .toList();
+    }
+
+    /**
+     * Whether the key column matches a mixed-case address when looked up in lower case
+     * @param keyTable The table keyed by the address
+     * @param address A stored mixed-case address
+     * @return True if the column's collation ignores case
+     */
+    private boolean comparesIgnoringCase(KeyTable keyTable, String address) {
+        return jdbcTemplate.queryForList("SELECT " + keyTable.key() + " FROM " + keyTable.table() + " WHERE "
+                + keyTable.key() + " = ?", String.class, address.toLowerCase(Locale.ROOT)).contains(address);
+    }
+
+    private List<String> columnsOf(String table) {
+        return jdbcTemplate.query("SELECT * FROM " + table + " WHERE 1 = 0", (ResultSetExtractor<List<String>>) rs -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            List<String> columns = new ArrayList<>(metaData.getColumnCount());
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnName(i));
+            }
+            return columns;
+        });
+    }
+
+    /**
+     * A table whose primary key is an address, with the columns that reference it
+     */
+    private record KeyTable(String table, String key, List<Column> references) {
+    }
+
+    private record Column(String table, String name) {
+    }
+}
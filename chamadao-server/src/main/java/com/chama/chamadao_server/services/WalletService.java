@@ -1,11 +1,18 @@
 package com.chama.chamadao_server.services;
 
+import com.chama.chamadao_server.models.WalletAddress;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import java.security.SecureRandom;
-import java.security.MessageDigest;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
 
-import java.security.NoSuchAlgorithmException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.security.SignatureException;
+import java.util.Arrays;
+import java.util.Base64;
 
 /**
  * Service for wallet-related operations
@@ -15,6 +22,16 @@ import java.security.NoSuchAlgorithmException;
 @Slf4j
 public class WalletService {
 
+    private static final int SIGNATURE_LENGTH = 65;
+    private static final int NONCE_BYTES = 32;
+
+    // Shared and thread-safe; seeded once here rather than on the first login
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public WalletService() {
+        secureRandom.nextBytes(new byte[1]);
+    }
+
     /**
      * Verify that a wallet address is in the correct format
      * @param walletAddress The wallet address to verify
@@ -22,20 +39,17 @@ public class WalletService {
      */
     public boolean verifyWalletAddress(String walletAddress){
         log.debug("Verifying wallet address format: {}", walletAddress);
-        return walletAddress != null &&
-                walletAddress.startsWith("0x") &&
-                walletAddress.length() == 42 &&
-                walletAddress.substring(2).matches("[a-fA-F0-9]+");
+        return WalletAddress.isValid(walletAddress);
     }
 
     /**
      * Verify a wallet signature
-     * This is a placeholder implementation that should be replaced with actual signature verification
-     * using a library like web3j or ethers.js
-     * 
+     * The signer is recovered with secp256k1 ecrecover from a personal_sign (EIP-191) signature over the message
+     * and compared with the wallet address.
+     *
      * @param walletAddress The wallet address that supposedly signed the message
      * @param message The message that was signed
-     * @param signature The signature to verify
+     * @param signature The 65-byte r, s, v signature as hex
      * @return True if the signature is valid, false otherwise
      */
     public boolean verifyWalletSignature(String walletAddress, String message, String signature) {
@@ -47,50 +61,50 @@ public class WalletService {
             return false;
         }
 
-        // TODO: Implement actual signature verification using web3j or ethers.js
-        // This would involve:
-        // 1. Recovering the address from the signature and message
-        // 2. Comparing the recovered address with the provided wallet address
-
-        log.warn("Using placeholder signature verification for wallet address: {}", walletAddress);
-
-        // For now, we'll just return true if the wallet address is valid
-        // This should be replaced with actual signature verification in production
-        return true;
+        try {
+            byte[] signatureBytes = Numeric.hexStringToByteArray(signature);
+            if (signatureBytes.length != SIGNATURE_LENGTH) {
+                log.warn("Invalid signature length for wallet address: {}", walletAddress);
+                return false;
+            }
+            // Some wallets encode v as the recovery id 0/1 rather than 27/28
+            byte v = signatureBytes[64];
+            if (v < 27) {
+                v += 27;
+            }
+            Sign.SignatureData signatureData = new Sign.SignatureData(
+                    v,
+                    Arrays.copyOfRange(signatureBytes, 0, 32),
+                    Arrays.copyOfRange(signatureBytes, 32, 64));
+            BigInteger publicKey = Sign.signedPrefixedMessageToKey(message.getBytes(StandardCharsets.UTF_8), signatureData);
+            WalletAddress signer = WalletAddress.parse(Numeric.prependHexPrefix(Keys.getAddress(publicKey)));
+            return signer.equals(WalletAddress.parse(walletAddress));
+        } catch (SignatureException | RuntimeException e) {
+            log.warn("Could not recover signer for wallet address {}: {}", walletAddress, e.getMessage());
+            return false;
+        }
     }
 
     /**
      * Generate a secure random nonce for use in authentication challenges
      * This can be used to prevent replay attacks when verifying wallet signatures
-     * 
+     *
      * @return A secure random nonce as a hexadecimal string
-     * @throws RuntimeException if there's an error generating the nonce
      */
     public String generateSecureNonce() {
-        log.debug("Generating secure nonce");
-        byte[] nonceBytes = new byte[16];
-        SecureRandom secureRandom = new SecureRandom();
+        byte[] nonceBytes = new byte[NONCE_BYTES];
         secureRandom.nextBytes(nonceBytes);
+        return Numeric.toHexStringNoPrefix(nonceBytes);
+    }
 
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = digest.digest(nonceBytes);
-
-            StringBuilder hexString = new StringBuilder();
-            for (byte hashByte : hashBytes) {
-                String hex = Integer.toHexString(0xff & hashByte);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-
-            log.debug("Generated secure nonce: {}", hexString);
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            log.error("Error generating secure nonce", e);
-            throw new RuntimeException("Failed to generate secure nonce", e);
-        }
+    /**
+     * Generate an unguessable session token
+     * @return A URL-safe random token
+     */
+    public String generateSessionToken() {
+        byte[] tokenBytes = new byte[NONCE_BYTES];
+        secureRandom.nextBytes(tokenBytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
     }
 
 }
@@ -0,0 +1,259 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.AuthConfig;
+import com.chama.chamadao_server.exceptions.AuthenticationFailedException;
+import com.chama.chamadao_server.exceptions.ServiceUnavailableException;
+import com.chama.chamadao_server.exceptions.TooManyRequestsException;
+import com.chama.chamadao_server.models.WalletAddress;
+import com.chama.chamadao_server.models.dto.WalletChallengeDto;
+import com.chama.chamadao_server.models.dto.WalletSessionDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service for signing in with a wallet signature
+ * A wallet asks for a challenge, signs its message with personal_sign and exchanges the signature for a
+ * session token. The signature is checked with ecrecover once per sign-in; later requests present the
+ * token, which is a single map lookup. Challenges are single use and both stores expire their entries.
+ * Challenges are keyed by their nonce, so asking for a challenge never disturbs another caller's pending one,
+ * and each client may only ask for a few per window.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WalletSessionService {
+
+    private final WalletService walletService;
+    private final AuthConfig authConfig;
+
+    // Unanswered challenges by nonce; a wallet may have several pending, e.g. from different devices
+    private final Map<String, Challenge> challenges = new ConcurrentHashMap<>();
+    private final Map<String, IssueWindow> issueWindows = new ConcurrentHashMap<>();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    private final LongAdder challengesIssued = new LongAdder();
+    private final LongAdder challengesThrottled = new LongAdder();
+    private final LongAdder logins = new LongAdder();
+    private final LongAdder failedLogins = new LongAdder();
+    private final LongAdder sessionHits = new LongAdder();
+    private final LongAdder sessionMisses = new LongAdder();
+
+    /**
+     * Issue a sign-in challenge for a wallet
+     * @param walletAddress The wallet address, in any case
+     * @param clientId The address of the client asking, used to rate-limit issuance
+     * @return The challenge whose message must be signed
+     * @throws IllegalArgumentException if the wallet address format is invalid
+     * @throws TooManyRequestsException if the client has asked for too many challenges in the current window
+     * @throws ServiceUnavailableException if too many challenges are waiting to be answered
+     */
+    public WalletChallengeDto issueChallenge(String walletAddress, String clientId) {
+        String wallet = WalletAddress.parse(walletAddress).toString();
+        long now = System.currentTimeMillis();
+        long retryAfterSeconds = reserveIssue(clientId, now);
+        if (retryAfterSeconds > 0) {
+            challengesThrottled.increment();
+            throw new TooManyRequestsException("Too many sign-in challenges requested, please retry later",
+                    retryAfterSeconds);
+        }
+        if (challenges.size() >= authConfig.getMaxPendingChallenges()) {
+            throw new ServiceUnavailableException("Too many pending sign-in challenges, please retry later", 5);
+        }
+
+        String nonce = walletService.generateSecureNonce();
+        long expiresAtMillis = now + authConfig.getChallengeTtlSeconds() * 1000;
+        String message = "Sign in to ChamaDAO\nWallet: " + wallet + "\nNonce: " + nonce
+                + "\nExpires: " + toDateTime(expiresAtMillis);
+        challenges.put(nonce, new Challenge(wallet, message, expiresAtMillis));
+        challengesIssued.increment();
+
+        return WalletChallengeDto.builder()
+                .walletAddress(wallet)
+                .nonce(nonce)
+                .message(message)
+                .expiresAt(toDateTime(expiresAtMillis))
+                .build();
+    }
+
+    /**
+     * Exchange a signed challenge for a session token
+     * The challenge is consumed whether or not the signature matches, so a nonce can never be replayed.
+     * @param walletAddress The wallet address, in any case
+     * @param nonce The nonce of the signed challenge
+     * @param signature The personal_sign signature of the challenge message
+     * @return The new session, with its token
+     * @throws AuthenticationFailedException if there is no live challenge or the signature does not match
+     */
+    public WalletSessionDto login(String walletAddress, String nonce, String signature) {
+        String wallet = WalletAddress.normalize(walletAddress);
+        Challenge challenge = nonce == null ? null : challenges.remove(nonce);
+        if (challenge == null || !challenge.walletAddress().equals(wallet)
+                || challenge.isExpired(System.currentTimeMillis())) {
+            failedLogins.increment();
+            throw new AuthenticationFailedException("No sign-in challenge pending for this wallet, request a new one");
+        }
+        if (!walletService.verifyWalletSignature(wallet, challenge.message(), signature)) {
+            failedLogins.increment();
+            throw new AuthenticationFailedException("Signature does not match the wallet address");
+        }
+
+        String token = walletService.generateSessionToken();
+        long expiresAtMillis = System.currentTimeMillis() + authConfig.getSessionTtlSeconds() * 1000;
+        sessions.put(token, new Session(wallet, expiresAtMillis));
+        logins.increment();
+        log.info("Wallet {} signed in", wallet);
+
+        return WalletSessionDto.builder()
+                .token(token)
+                .walletAddress(wallet)
+                .expiresAt(toDateTime(expiresAtMillis))
+                .build();
+    }
+
+    /**
+     * Resolve a session token to the wallet that signed in with it
+     * @param token The session token
+     * @return The canonical wallet address, or empty if the token is unknown or expired
+     */
+    public Optional<String> authenticate(String token) {
+        return findSession(token).map(Session::walletAddress);
+    }
+
+    /**
+     * Check whether a wallet is one of the configured admin wallets
+     * @param walletAddress The wallet address, in any case
+     * @return True if the wallet is an admin
+     */
+    public boolean isAdmin(String walletAddress) {
+        String wallet = WalletAddress.normalize(walletAddress);
+        return wallet != null && authConfig.getAdminWallets().stream()
+                .anyMatch(admin -> WalletAddress.normalize(admin).equals(wallet));
+    }
+
+    /**
+     * Get the session a token belongs to, without the token
+     * @param token The session token
+     * @return The session
+     * @throws AuthenticationFailedException if the token is unknown or expired
+     */
+    public WalletSessionDto getSession(String token) {
+        Session session = findSession(token)
+                .orElseThrow(() -> new AuthenticationFailedException("Session is invalid or has expired"));
+        return WalletSessionDto.builder()
+                .walletAddress(session.walletAddress())
+                .expiresAt(toDateTime(session.expiresAtMillis()))
+                .build();
+    }
+
+    /**
+     * End a session
+     * @param token The session token
+     */
+    public void logout(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * Drop expired challenges and sessions that were never presented again
+     */
+    @Scheduled(fixedDelayString = "${auth.sweep-interval-ms:60000}")
+    public void removeExpired() {
+        long now = System.currentTimeMillis();
+        challenges.values().removeIf(challenge -> challenge.isExpired(now));
+        issueWindows.values().removeIf(window -> window.isOver(now));
+        sessions.values().removeIf(session -> session.isExpired(now));
+    }
+
+    /**
+     * Get the sign-in counters and store sizes
+     * @return The session statistics
+     */
+    public Stats getStats() {
+        return new Stats(
+                challenges.size(),
+                sessions.size(),
+                challengesIssued.sum(),
+                challengesThrottled.sum(),
+                logins.sum(),
+                failedLogins.sum(),
+                sessionHits.sum(),
+                sessionMisses.sum());
+    }
+
+    private Optional<Session> findSession(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null || session.isExpired(System.currentTimeMillis())) {
+            if (session != null) {
+                sessions.remove(token, session);
+            }
+            sessionMisses.increment();
+            return Optional.empty();
+        }
+        sessionHits.increment();
+        return Optional.of(session);
+    }
+
+    /**
+     * Count a challenge against a client's budget for the current window
+     * @return 0 if the challenge may be issued, otherwise the seconds until the window ends
+     */
+    private long reserveIssue(String clientId, long now) {
+        IssueWindow window = issueWindows.compute(clientId != null ? clientId : "unknown", (client, current) ->
+                current == null || current.isOver(now)
+                        ? new IssueWindow(now + authConfig.getChallengeWindowSeconds() * 1000, 1)
+                        : new IssueWindow(current.endsAtMillis(), current.issued() + 1));
+        if (window.issued() <= authConfig.getChallengesPerClient()) {
+            return 0;
+        }
+        return Math.max(1, (window.endsAtMillis() - now + 999) / 1000);
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private record IssueWindow(long endsAtMillis, int issued) {
+        boolean isOver(long now) {
+            return now >= endsAtMillis;
+        }
+    }
+
+    private record Challenge(String walletAddress, String message, long expiresAtMillis) {
+        boolean isExpired(long now) {
+            return now >= expiresAtMillis;
+        }
+    }
+
+    private record Session(String walletAddress, long expiresAtMillis) {
+        boolean isExpired(long now) {
+            return now >= expiresAtMillis;
+        }
+    }
+
+    /**
+     * Sign-in statistics
+     * Session hits are requests authenticated from the cache, each an ecrecover saved.
+     */
+    public record Stats(
+            int pendingChallenges,
+            int activeSessions,
+            long challengesIssued,
+            long challengesThrottled,
+            long logins,
+            long failedLogins,
+            long sessionHits,
+            long sessionMisses) {
+    }
+}
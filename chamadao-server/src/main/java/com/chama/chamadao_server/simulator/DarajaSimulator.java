@@ -0,0 +1,430 @@
+package com.chama.chamadao_server.simulator;
+
+import com.chama.chamadao_server.config.MPesaConfig;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaB2CRequest;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaStkPushRequest;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaStkQueryRequest;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the Safaricom Daraja API
+ * Serves the OAuth, STK push, STK push query and B2C endpoints on an embedded HTTP server and delivers
+ * the asynchronous callbacks to the CallBackURL/ResultURL given in each request, so the whole payment
+ * flow can run without the sandbox. Latency, error rates and lost callbacks are configurable through
+ * {@link Settings}. Used by the {@code daraja-sim} profile and directly from tests.
+ */
+@Slf4j
+public class DarajaSimulator {
+
+    public static final String TOKEN_PATH = "/oauth/v1/generate";
+    public static final String STK_PUSH_PATH = "/mpesa/stkpush/v1/processrequest";
+    public static final String STK_QUERY_PATH = "/mpesa/stkpushquery/v1/query";
+    public static final String B2C_PATH = "/mpesa/b2c/v1/paymentrequest";
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final DateTimeFormatter TRANSACTION_DATE = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final String RECEIPT_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final OkHttpClient callbackClient = new OkHttpClient();
+    // Outcome of each STK push by CheckoutRequestID, as reported by the query endpoint
+    private final Map<String, StkOutcome> stkOutcomes = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder callbacksDelivered = new LongAdder();
+    private final LongAdder callbacksDropped = new LongAdder();
+    private final LongAdder callbackFailures = new LongAdder();
+
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+    private ScheduledExecutorService callbackScheduler;
+
+    public DarajaSimulator(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Start the simulator on the loopback interface
+     * @param port The port to listen on, or 0 for any free port
+     * @throws IOException if the server cannot be started
+     */
+    public synchronized void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext(TOKEN_PATH, handler(this::handleToken, false));
+        server.createContext(STK_PUSH_PATH, handler(this::handleStkPush, true));
+        server.createContext(STK_QUERY_PATH, handler(this::handleStkQuery, true));
+        server.createContext(B2C_PATH, handler(this::handleB2C, true));
+
+        requestExecutor = Executors.newFixedThreadPool(settings.getWorkerThreads());
+        callbackScheduler = Executors.newScheduledThreadPool(settings.getCallbackThreads());
+        server.setExecutor(requestExecutor);
+        server.start();
+        log.info("Daraja simulator listening on {}", getBaseUrl());
+    }
+
+    /**
+     * Stop the simulator and drop any callbacks not yet delivered
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            requestExecutor.shutdownNow();
+            callbackScheduler.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * Get the base URL of the running simulator
+     * @return The base URL, e.g. http://127.0.0.1:50123
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Point the M-Pesa API URLs of a configuration at this simulator
+     * The callback URLs are left alone; they must point at the application receiving the callbacks.
+     * @param mpesaConfig The configuration to update
+     */
+    public void applyTo(MPesaConfig mpesaConfig) {
+        mpesaConfig.setAccessTokenUrl(getBaseUrl() + TOKEN_PATH + "?grant_type=client_credentials");
+        mpesaConfig.setStkPushUrl(getBaseUrl() + STK_PUSH_PATH);
+        mpesaConfig.setQueryUrl(getBaseUrl() + STK_QUERY_PATH);
+        mpesaConfig.setB2cUrl(getBaseUrl() + B2C_PATH);
+    }
+
+    /**
+     * Get the simulator's counters
+     * @return The request and callback counters
+     */
+    public Stats getStats() {
+        return new Stats(requests.sum(), injectedErrors.sum(), callbacksDelivered.sum(),
+                callbacksDropped.sum(), callbackFailures.sum());
+    }
+
+    private Reply handleToken(HttpExchange exchange) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("access_token", UUID.randomUUID().toString().replace("-", ""));
+        body.put("expires_in", String.valueOf(settings.getTokenExpiresInSeconds()));
+        return new Reply(200, body);
+    }
+
+    private Reply handleStkPush(HttpExchange exchange) throws IOException {
+        MpesaStkPushRequest request = objectMapper.readValue(exchange.getRequestBody(), MpesaStkPushRequest.class);
+        String merchantRequestId = randomId("");
+        String checkoutRequestId = randomId("ws_CO_");
+        stkOutcomes.put(checkoutRequestId, StkOutcome.PROCESSING);
+
+        // The customer answers the prompt after the callback delay, whether or not the callback gets through
+        callbackScheduler.schedule(() -> completeStkPush(request, merchantRequestId, checkoutRequestId),
+                settings.getCallbackDelayMs(), TimeUnit.MILLISECONDS);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("MerchantRequestID", merchantRequestId);
+        body.put("CheckoutRequestID", checkoutRequestId);
+        body.put("ResponseCode", "0");
+        body.put("ResponseDescription", "Success. Request accepted for processing");
+        body.put("CustomerMessage", "Success. Request accepted for processing");
+        return new Reply(200, body);
+    }
+
+    private Reply handleStkQuery(HttpExchange exchange) throws IOException {
+        MpesaStkQueryRequest request = objectMapper.readValue(exchange.getRequestBody(), MpesaStkQueryRequest.class);
+        StkOutcome outcome = stkOutcomes.get(request.getCheckoutRequestID());
+        if (outcome == null) {
+            return error(400, "400.002.02", "Bad Request - Invalid CheckoutRequestID");
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ResponseCode", "0");
+        body.put("ResponseDescription", "The service request has been accepted successsfully");
+        body.put("CheckoutRequestID", request.getCheckoutRequestID());
+        body.put("ResultCode", outcome.resultCode);
+        body.put("ResultDesc", outcome.resultDesc);
+        return new Reply(200, body);
+    }
+
+    private Reply handleB2C(HttpExchange exchange) throws IOException {
+        MpesaB2CRequest request = objectMapper.readValue(exchange.getRequestBody(), MpesaB2CRequest.class);
+        String conversationId = randomId("AG_");
+        String originatorConversationId = randomId("");
+
+        callbackScheduler.schedule(() -> completeB2C(request, conversationId, originatorConversationId),
+                settings.getCallbackDelayMs(), TimeUnit.MILLISECONDS);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ConversationID", conversationId);
+        body.put("OriginatorConversationID", originatorConversationId);
+        body.put("ResponseCode", "0");
+        body.put("ResponseDescription", "Accept the service request successfully.");
+        return new Reply(200, body);
+    }
+
+    private void completeStkPush(MpesaStkPushRequest request, String merchantRequestId, String checkoutRequestId) {
+        boolean paid = !chance(settings.getPaymentFailureRate());
+        stkOutcomes.put(checkoutRequestId, paid ? StkOutcome.PAID : StkOutcome.CANCELLED);
+
+        Map<String, Object> stkCallback = new LinkedHashMap<>();
+        stkCallback.put("MerchantRequestID", merchantRequestId);
+        stkCallback.put("CheckoutRequestID", checkoutRequestId);
+        stkCallback.put("ResultCode", Integer.parseInt(paid ? StkOutcome.PAID.resultCode : StkOutcome.CANCELLED.resultCode));
+        stkCallback.put("ResultDesc", paid ? StkOutcome.PAID.resultDesc : StkOutcome.CANCELLED.resultDesc);
+        if (paid) {
+            stkCallback.put("CallbackMetadata", Map.of("Item", List.of(
+                    item("Amount", request.getAmount()),
+                    item("MpesaReceiptNumber", randomReceipt()),
+                    item("TransactionDate", LocalDateTime.now().format(TRANSACTION_DATE)),
+                    item("PhoneNumber", request.getPhoneNumber()))));
+        }
+
+        deliver(request.getCallBackURL(), Map.of("Body", Map.of("stkCallback", stkCallback)));
+    }
+
+    private void completeB2C(MpesaB2CRequest request, String conversationId, String originatorConversationId) {
+        boolean paid = !chance(settings.getPaymentFailureRate());
+        String receipt = randomReceipt();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ResultType", 0);
+        result.put("ResultCode", paid ? 0 : 2001);
+        result.put("ResultDesc", paid ? "The service request is processed successfully." : "The initiator information is invalid.");
+        result.put("OriginatorConversationID", originatorConversationId);
+        result.put("ConversationID", conversationId);
+        result.put("TransactionID", receipt);
+        if (paid) {
+            result.put("ResultParameters", Map.of("ResultParameter", List.of(
+                    parameter("TransactionAmount", request.getAmount()),
+                    parameter("TransactionReceipt", receipt),
+                    parameter("TransactionCompletedDateTime", LocalDateTime.now().format(TRANSACTION_DATE)),
+                    parameter("ReceiverPartyPublicName", request.getPartyB()))));
+        }
+
+        deliver(request.getResultURL(), Map.of("Result", result));
+    }
+
+    private void deliver(String url, Object callback) {
+        if (url == null || chance(settings.getCallbackLossRate())) {
+            callbacksDropped.increment();
+            return;
+        }
+
+        try {
+            Request request = new Request.Builder()
+                    .url(url)
+                    .post(RequestBody.create(objectMapper.writeValueAsString(callback), JSON))
+                    .build();
+            try (Response response = callbackClient.newCall(request).execute()) {
+                if (response.isSuccessful()) {
+                    callbacksDelivered.increment();
+                } else {
+                    callbackFailures.increment();
+                    log.warn("Callback to {} returned {}", url, response.code());
+                }
+            }
+        } catch (IOException e) {
+            callbackFailures.increment();
+            log.warn("Callback to {} failed: {}", url, e.getMessage());
+        }
+    }
+
+    private HttpHandler handler(Endpoint endpoint, boolean requiresToken) {
+        return exchange -> {
+            try (exchange) {
+                requests.increment();
+                simulateLatency();
+
+                Reply reply;
+                if (requiresToken && !hasBearerToken(exchange)) {
+                    reply = error(401, "404.001.03", "Invalid Access Token");
+                } else if (chance(settings.getErrorRate())) {
+                    injectedErrors.increment();
+                    reply = error(500, "500.001.1001", "Simulated upstream error");
+                } else {
+                    reply = endpoint.handle(exchange);
+                }
+
+                byte[] body = objectMapper.writeValueAsBytes(reply.body());
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(reply.status(), body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (RuntimeException e) {
+                log.error("Daraja simulator failed to handle {}", exchange.getRequestURI(), e);
+            }
+        };
+    }
+
+    private void simulateLatency() {
+        long latency = settings.getLatencyMs();
+        if (settings.getLatencyJitterMs() > 0) {
+            latency += ThreadLocalRandom.current().nextLong(settings.getLatencyJitterMs() + 1);
+        }
+        if (latency <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean hasBearerToken(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        return authorization != null && authorization.startsWith("Bearer ") && authorization.length() > 7;
+    }
+
+    private Reply error(int status, String errorCode, String errorMessage) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("requestId", randomId(""));
+        body.put("errorCode", errorCode);
+        body.put("errorMessage", errorMessage);
+        return new Reply(status, body);
+    }
+
+    private static Map<String, Object> item(String name, Object value) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("Name", name);
+        item.put("Value", value);
+        return item;
+    }
+
+    private static Map<String, Object> parameter(String key, Object value) {
+        Map<String, Object> parameter = new LinkedHashMap<>();
+        parameter.put("Key", key);
+        parameter.put("Value", value);
+        return parameter;
+    }
+
+    private static boolean chance(double rate) {
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private static String randomId(String prefix) {
+        return prefix + UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+    }
+
+    private static String randomReceipt() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder receipt = new StringBuilder(10);
+        for (int i = 0; i < 10; i++) {
+            receipt.append(RECEIPT_ALPHABET.charAt(random.nextInt(RECEIPT_ALPHABET.length())));
+        }
+        return receipt.toString();
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        Reply handle(HttpExchange exchange) throws IOException;
+    }
+
+    private record Reply(int status, Object body) {
+    }
+
+    private enum StkOutcome {
+        PROCESSING("4999", "The transaction is still under processing"),
+        PAID("0", "The service request is processed successfully."),
+        CANCELLED("1032", "Request cancelled by user");
+
+        private final String resultCode;
+        private final String resultDesc;
+
+        StkOutcome(String resultCode, String resultDesc) {
+            this.resultCode = resultCode;
+            this.resultDesc = resultDesc;
+        }
+    }
+
+    /**
+     * Simulator behaviour
+     */
+    @Data
+    public static class Settings {
+
+        /**
+         * Fixed latency added to every request, in milliseconds
+         */
+        private long latencyMs = 50;
+
+        /**
+         * Random extra latency of up to this many milliseconds
+         */
+        private long latencyJitterMs = 0;
+
+        /**
+         * Fraction of requests answered with an HTTP 500
+         */
+        private double errorRate = 0;
+
+        /**
+         * Fraction of payments the customer cancels (STK push) or that fail (B2C)
+         */
+        private double paymentFailureRate = 0;
+
+        /**
+         * Delay between accepting a request and sending its callback, in milliseconds
+         */
+        private long callbackDelayMs = 200;
+
+        /**
+         * Fraction of callbacks that are never sent, for exercising reconciliation
+         */
+        private double callbackLossRate = 0;
+
+        /**
+         * The expires_in value of issued access tokens
+         */
+        private long tokenExpiresInSeconds = 3599;
+
+        /**
+         * Threads serving API requests; each request holds one for its simulated latency
+         */
+        private int workerThreads = 64;
+
+        /**
+         * Threads delivering callbacks
+         */
+        private int callbackThreads = 16;
+    }
+
+    /**
+     * Simulator counters
+     */
+    public record Stats(long requests, long injectedErrors, long callbacksDelivered,
+                        long callbacksDropped, long callbackFailures) {
+    }
+}
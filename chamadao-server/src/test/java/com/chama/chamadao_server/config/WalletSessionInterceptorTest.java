@@ -0,0 +1,136 @@
+package com.chama.chamadao_server.config;
+
+import com.chama.chamadao_server.exceptions.AuthenticationFailedException;
+import com.chama.chamadao_server.exceptions.WalletAccessDeniedException;
+import com.chama.chamadao_server.models.dto.WalletChallengeDto;
+import com.chama.chamadao_server.services.WalletService;
+import com.chama.chamadao_server.services.WalletSessionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WalletSessionInterceptorTest {
+
+    private final ECKeyPair keyPair = ECKeyPair.create(BigInteger.valueOf(0xC4A3A));
+    private final String walletAddress = Keys.toChecksumAddress(Keys.getAddress(keyPair));
+    private final AuthConfig authConfig = new AuthConfig();
+    private final WalletSessionService walletSessionService = new WalletSessionService(new WalletService(), authConfig);
+    private final WalletSessionInterceptor interceptor = new WalletSessionInterceptor(walletSessionService);
+    private String token;
+
+    @BeforeEach
+    public void setup() {
+        WalletChallengeDto challenge = walletSessionService.issueChallenge(walletAddress, "203.0.113.7");
+        token = walletSessionService.login(walletAddress, challenge.getNonce(),
+                sign(challenge.getMessage(), keyPair)).getToken();
+    }
+
+    @Test
+    public void testSessionOfTheWalletPassesAndIsExposed() throws Exception {
+        MockHttpServletRequest request = request(walletAddress, token);
+
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), handler("walletScoped")));
+        assertEquals(walletAddress.toLowerCase(), request.getAttribute(WalletSessionInterceptor.AUTHENTICATED_WALLET));
+    }
+
+    @Test
+    public void testWalletScopedEndpointNeedsASession() throws Exception {
+        assertThrows(AuthenticationFailedException.class, () -> interceptor.preHandle(
+                request(walletAddress, null), new MockHttpServletResponse(), handler("walletScoped")));
+        assertThrows(AuthenticationFailedException.class, () -> interceptor.preHandle(
+                request(walletAddress, "not-a-session"), new MockHttpServletResponse(), handler("walletScoped")));
+    }
+
+    @Test
+    public void testSessionCannotActForAnotherWallet() throws Exception {
+        String otherWallet = "0x" + "ab".repeat(20);
+
+        assertThrows(WalletAccessDeniedException.class, () -> interceptor.preHandle(
+                request(otherWallet, token), new MockHttpServletResponse(), handler("walletScoped")));
+    }
+
+    @Test
+    public void testOpenEndpointPassesWithoutASession() throws Exception {
+        MockHttpServletRequest request = request(walletAddress, null);
+
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), handler("open")));
+        assertNull(request.getAttribute(WalletSessionInterceptor.AUTHENTICATED_WALLET));
+    }
+
+    @Test
+    public void testSignedInEndpointNeedsAnySession() throws Exception {
+        MockHttpServletRequest request = request("0x" + "ab".repeat(20), token);
+
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), handler("signedIn")));
+        assertEquals(walletAddress.toLowerCase(), request.getAttribute(WalletSessionInterceptor.AUTHENTICATED_WALLET));
+        assertThrows(AuthenticationFailedException.class, () -> interceptor.preHandle(
+                request(walletAddress, null), new MockHttpServletResponse(), handler("signedIn")));
+    }
+
+    @Test
+    public void testAdminEndpointRejectsOtherWallets() throws Exception {
+        assertThrows(WalletAccessDeniedException.class, () -> interceptor.preHandle(
+                request(walletAddress, token), new MockHttpServletResponse(), handler("admin")));
+
+        // Configured in checksummed form, matched against the lower case session wallet
+        authConfig.getAdminWallets().add(walletAddress);
+        assertTrue(interceptor.preHandle(request(walletAddress, token), new MockHttpServletResponse(), handler("admin")));
+    }
+
+    private static MockHttpServletRequest request(String wallet, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/wallets/" + wallet + "/balance");
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("walletAddress", wallet));
+        if (token != null) {
+            request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        return request;
+    }
+
+    private static HandlerMethod handler(String name) throws NoSuchMethodException {
+        return new HandlerMethod(new Endpoints(), Endpoints.class.getMethod(name));
+    }
+
+    private static String sign(String message, ECKeyPair keyPair) {
+        Sign.SignatureData signature = Sign.signPrefixedMessage(message.getBytes(StandardCharsets.UTF_8), keyPair);
+        byte[] bytes = new byte[65];
+        System.arraycopy(signature.getR(), 0, bytes, 0, 32);
+        System.arraycopy(signature.getS(), 0, bytes, 32, 32);
+        bytes[64] = signature.getV()[0];
+        return Numeric.toHexString(bytes);
+    }
+
+    public static class Endpoints {
+
+        @WalletSessionRequired
+        public void walletScoped() {
+        }
+
+        @SessionRequired
+        public void signedIn() {
+        }
+
+        @SessionRequired(admin = true)
+        public void admin() {
+        }
+
+        public void open() {
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.chama.chamadao_server.controllers;
 
+import com.chama.chamadao_server.models.dto.PaymentStatusDto;
 import com.chama.chamadao_server.models.dto.mpesa.MpesaB2CCallback;
 import com.chama.chamadao_server.models.dto.mpesa.MpesaB2CResponse;
 import com.chama.chamadao_server.models.dto.mpesa.MpesaStkCallback;
 import com.chama.chamadao_server.models.dto.mpesa.MpesaStkPushResponse;
+import com.chama.chamadao_server.models.enums.TransactionStatus;
+import com.chama.chamadao_server.models.enums.TransactionType;
+import com.chama.chamadao_server.services.CallbackInboxService;
+import com.chama.chamadao_server.services.IdempotencyService;
 import com.chama.chamadao_server.services.MpesaService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,11 +19,14 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.math.BigDecimal;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class PaymentControllerTest {
@@ -26,6 +34,12 @@ public class PaymentControllerTest {
     @Mock
     private MpesaService mpesaService;
 
+    @Mock
+    private CallbackInboxService callbackInboxService;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
     @InjectMocks
     private PaymentController paymentController;
 
@@ -36,6 +50,9 @@ public class PaymentControllerTest {
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
+        // Run the wrapped action directly, as the service does for requests without an Idempotency-Key
+        when(idempotencyService.execute(any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(4)).get());
     }
 
     @Test
@@ -53,7 +70,7 @@ public class PaymentControllerTest {
 
         // Execute
         ResponseEntity<MpesaStkPushResponse> response = paymentController.initiateDeposit(
-                validWalletAddress, validPhoneNumber, validAmount);
+                validWalletAddress, validPhoneNumber, validAmount, null);
 
         // Verify
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -78,7 +95,7 @@ public class PaymentControllerTest {
 
         // Execute
         ResponseEntity<MpesaB2CResponse> response = paymentController.initiateWithdrawal(
-                validWalletAddress, validPhoneNumber, validAmount);
+                validWalletAddress, validPhoneNumber, validAmount, null);
 
         // Verify
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -89,6 +106,33 @@ public class PaymentControllerTest {
         System.out.println("[DEBUG_LOG] Successfully initiated withdrawal");
     }
 
+    @Test
+    public void testInitiateDepositAsync_Accepted() {
+        // Setup
+        PaymentStatusDto mockStatus = PaymentStatusDto.builder()
+                .id(42L)
+                .type(TransactionType.DEPOSIT)
+                .status(TransactionStatus.PENDING)
+                .walletAddress(validWalletAddress)
+                .amountKES(validAmount)
+                .build();
+
+        when(mpesaService.initiateDepositAsync(anyString(), anyString(), any(BigDecimal.class)))
+                .thenReturn(mockStatus);
+
+        // Execute
+        ResponseEntity<PaymentStatusDto> response = paymentController.initiateDepositAsync(
+                validWalletAddress, validPhoneNumber, validAmount, null);
+
+        // Verify
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(TransactionStatus.PENDING, response.getBody().getStatus());
+        assertEquals("/api/v1/payments/42", response.getHeaders().getLocation().toString());
+
+        System.out.println("[DEBUG_LOG] Successfully accepted async deposit");
+    }
+
     @Test
     public void testStkCallback_Success() {
         // Setup
@@ -103,15 +147,14 @@ public class PaymentControllerTest {
         MpesaStkCallback mockCallback = new MpesaStkCallback();
         mockCallback.setBody(body);
 
-        when(mpesaService.processDepositCallback(any(MpesaStkCallback.class)))
-                .thenReturn(true);
-
         // Execute
         ResponseEntity<String> response = paymentController.stkCallback(mockCallback);
 
         // Verify
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals("Callback processed successfully", response.getBody());
+        assertEquals("Callback received", response.getBody());
+        verify(callbackInboxService).enqueueStkCallback(mockCallback);
+        verify(mpesaService, never()).processDepositCallback(any(MpesaStkCallback.class));
         
         System.out.println("[DEBUG_LOG] Successfully processed STK callback");
     }
@@ -128,15 +171,13 @@ public class PaymentControllerTest {
         MpesaB2CCallback mockCallback = new MpesaB2CCallback();
         mockCallback.setResult(result);
 
-        when(mpesaService.processWithdrawalCallback(any(MpesaB2CCallback.class)))
-                .thenReturn(true);
-
         // Execute
         ResponseEntity<String> response = paymentController.b2cCallback(mockCallback);
 
         // Verify
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals("Callback processed successfully", response.getBody());
+        assertEquals("Callback received", response.getBody());
+        verify(callbackInboxService).enqueueB2CCallback(mockCallback);
         
         System.out.println("[DEBUG_LOG] Successfully processed B2C callback");
     }
@@ -0,0 +1,91 @@
+package com.chama.chamadao_server.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(2000);
+
+    @Test
+    public void testRejectsAboveLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2.0, 0.5);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        limit.release();
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    public void testGrowsWhileInUseAndLatencyIsStable() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 10, 2.0, 0.5);
+
+        for (int round = 0; round < 20; round++) {
+            int acquired = 0;
+            while (limit.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limit.onSuccess(FAST);
+            }
+        }
+
+        assertEquals(10, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void testDoesNotGrowWhenIdle() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100, 2.0, 0.5);
+
+        for (int i = 0; i < 100; i++) {
+            limit.tryAcquire();
+            limit.onSuccess(FAST);
+        }
+
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    public void testBacksOffOnFailure() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 2, 10, 2.0, 0.5);
+
+        limit.tryAcquire();
+        limit.onDropped();
+        assertEquals(4, limit.getLimit());
+
+        limit.tryAcquire();
+        limit.onDropped();
+        limit.tryAcquire();
+        limit.onDropped();
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    public void testBacksOffWhenLatencyRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 1, 10, 2.0, 0.5);
+        for (int i = 0; i < 50; i++) {
+            limit.tryAcquire();
+            limit.onSuccess(FAST);
+        }
+        int before = limit.getLimit();
+
+        for (int i = 0; i < 5; i++) {
+            limit.tryAcquire();
+            limit.onSuccess(SLOW);
+        }
+
+        System.out.println("[DEBUG_LOG] Limit " + before + " -> " + limit.getLimit() + ", short latency "
+                + limit.getShortLatencyMillis() + "ms, long latency " + limit.getLongLatencyMillis() + "ms");
+        assertTrue(limit.getLimit() < before);
+    }
+}
@@ -0,0 +1,71 @@
+package com.chama.chamadao_server.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AddressBloomFilterTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void testHasNoFalseNegatives() {
+        AddressBloomFilter filter = new AddressBloomFilter(10_000, 0.001);
+        List<String> addresses = randomAddresses(10_000);
+        addresses.forEach(filter::add);
+
+        for (String address : addresses) {
+            assertTrue(filter.mightContain(address));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateStaysNearTheTarget() {
+        AddressBloomFilter filter = new AddressBloomFilter(10_000, 0.001);
+        randomAddresses(10_000).forEach(filter::add);
+
+        int falsePositives = 0;
+        for (String address : randomAddresses(100_000)) {
+            if (filter.mightContain(address)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    @Test
+    public void testMatchesLogTopicsAndAnyCase() {
+        AddressBloomFilter filter = new AddressBloomFilter(100, 0.001);
+        filter.add("0xAbCdEf0123456789abcdef0123456789ABCDEF01");
+
+        assertTrue(filter.mightContain("0xabcdef0123456789abcdef0123456789abcdef01"));
+        assertTrue(filter.mightContain("0x000000000000000000000000abcdef0123456789abcdef0123456789abcdef01"));
+        assertFalse(filter.mightContain("0x0000000000000000000000000000000000000001"));
+    }
+
+    @Test
+    public void testRejectsMalformedAddresses() {
+        AddressBloomFilter filter = new AddressBloomFilter(100, 0.001);
+
+        assertThrows(IllegalArgumentException.class, () -> filter.mightContain("0x1234"));
+        assertThrows(IllegalArgumentException.class, () -> filter.add("0x" + "zz".repeat(20)));
+    }
+
+    private List<String> randomAddresses(int count) {
+        List<String> addresses = new ArrayList<>(count);
+        byte[] bytes = new byte[20];
+        for (int i = 0; i < count; i++) {
+            random.nextBytes(bytes);
+            addresses.add("0x" + HexFormat.of().formatHex(bytes));
+        }
+        return addresses;
+    }
+}
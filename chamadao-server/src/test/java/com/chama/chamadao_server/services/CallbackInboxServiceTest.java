@@ -0,0 +1,228 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.MPesaConfig;
+import com.chama.chamadao_server.models.CallbackInboxEntry;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaStkCallback;
+import com.chama.chamadao_server.models.enums.CallbackType;
+import com.chama.chamadao_server.models.enums.InboxStatus;
+import com.chama.chamadao_server.repository.CallbackInboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CallbackInboxServiceTest {
+
+    private final Map<Long, CallbackInboxEntry> entries = new TreeMap<>();
+    private final List<Runnable> workers = new ArrayList<>();
+    private final List<Long> applied = new ArrayList<>();
+    private final Set<Long> claimedByAnotherNode = new HashSet<>();
+    private final Set<Long> unsavableOutcomes = new HashSet<>();
+    private CallbackInboxService inboxService;
+
+    @BeforeEach
+    public void setup() {
+        MPesaConfig mpesaConfig = new MPesaConfig();
+        mpesaConfig.setInboxWorkers(2);
+        mpesaConfig.setInboxBatchSize(10);
+        mpesaConfig.setInboxMaxAttempts(5);
+        mpesaConfig.setInboxClaimLeaseSeconds(300);
+        MpesaService mpesaService = new MpesaService(null, null, null, null, null, null, null, null, null) {
+            @Override
+            public boolean processDepositCallback(MpesaStkCallback callback) {
+                applied.add(Long.valueOf(callback.getBody().getStkCallback().getCheckoutRequestID()));
+                return true;
+            }
+        };
+        inboxService = new CallbackInboxService(inMemoryInbox(), null, mpesaService, mpesaConfig,
+                new TransactionTemplate(new NoOpTransactionManager()), workers::add);
+    }
+
+    @Test
+    public void testDrainDoesNotWaitForWorkersAndSkipsBusyPartitions() {
+        entry(1L, InboxStatus.PENDING);
+        entry(2L, InboxStatus.PENDING);
+
+        inboxService.drainInbox();
+        assertEquals(2, workers.size());
+        assertEquals(List.of(), applied);
+
+        // Both partitions are still being drained, so the next run hands out nothing
+        inboxService.drainInbox();
+        assertEquals(2, workers.size());
+
+        runWorkers();
+        assertEquals(List.of(1L, 2L), applied.stream().sorted().toList());
+        assertEquals(InboxStatus.PROCESSED, entries.get(1L).getStatus());
+
+        inboxService.drainInbox();
+        assertEquals(2, workers.size());
+    }
+
+    @Test
+    public void testEntryClaimedByAnotherNodeIsNotApplied() {
+        entry(1L, InboxStatus.PENDING);
+        entry(2L, InboxStatus.PENDING);
+        claimedByAnotherNode.add(1L);
+
+        inboxService.drainInbox();
+        runWorkers();
+
+        assertEquals(List.of(2L), applied);
+        assertEquals(InboxStatus.PROCESSING, entries.get(1L).getStatus());
+        assertEquals(0, entries.get(1L).getAttempts());
+        assertEquals(InboxStatus.PROCESSED, entries.get(2L).getStatus());
+    }
+
+    @Test
+    public void testExpiredClaimIsReleasedAndProcessed() {
+        // Claimed by a worker that stopped, and by one that is still busy with it
+        entry(1L, InboxStatus.PROCESSING).setClaimedAt(LocalDateTime.now().minusHours(1));
+        entry(2L, InboxStatus.PROCESSING).setClaimedAt(LocalDateTime.now());
+
+        inboxService.drainInbox();
+        runWorkers();
+
+        assertEquals(List.of(1L), applied);
+        assertEquals(InboxStatus.PROCESSED, entries.get(1L).getStatus());
+        assertEquals(InboxStatus.PROCESSING, entries.get(2L).getStatus());
+    }
+
+    @Test
+    public void testFailedBatchFallsBackToEachEntry() {
+        entry(2L, InboxStatus.PENDING);
+        entry(4L, InboxStatus.PENDING);
+        // Recording the outcome of entry 4 fails, which fails its batch
+        unsavableOutcomes.add(4L);
+
+        inboxService.drainInbox();
+        runWorkers();
+
+        assertEquals(InboxStatus.PROCESSED, entries.get(2L).getStatus());
+        CallbackInboxEntry failed = entries.get(4L);
+        assertEquals(InboxStatus.PENDING, failed.getStatus());
+        assertEquals("Outcome of 4 not saved", failed.getOutcome());
+        assertNull(failed.getClaimedAt());
+    }
+
+    private void runWorkers() {
+        while (!workers.isEmpty()) {
+            workers.remove(0).run();
+        }
+    }
+
+    private CallbackInboxEntry entry(Long id, InboxStatus status) {
+        LocalDateTime now = LocalDateTime.now().minusSeconds(1);
+        CallbackInboxEntry entry = CallbackInboxEntry.builder()
+                .id(id)
+                .callbackType(CallbackType.STK_PUSH)
+                .correlationId(String.valueOf(id))
+                .payload("{\"Body\":{\"stkCallback\":{\"CheckoutRequestID\":\"" + id + "\"}}}")
+                .status(status)
+                .attempts(0)
+                .receivedAt(now)
+                .nextAttemptAt(now)
+                .build();
+        entries.put(id, entry);
+        return entry;
+    }
+
+    /**
+     * Inbox repository over the map, implementing the queries the workers use
+     */
+    @SuppressWarnings("unchecked")
+    private CallbackInboxRepository inMemoryInbox() {
+        return (CallbackInboxRepository) Proxy.newProxyInstance(CallbackInboxRepository.class.getClassLoader(),
+                new Class<?>[]{CallbackInboxRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "releaseExpiredClaims" -> {
+                            int released = 0;
+                            for (CallbackInboxEntry entry : entries.values()) {
+                                if (entry.getStatus() == InboxStatus.PROCESSING
+                                        && entry.getClaimedAt().isBefore((LocalDateTime) args[0])) {
+                                    entry.setStatus(InboxStatus.PENDING);
+                                    entry.setClaimedAt(null);
+                                    released++;
+                                }
+                            }
+                            return released;
+                        }
+                        case "findDueForWorker" -> {
+                            return entries.values().stream()
+                                    .filter(e -> e.getStatus() == args[0] && !e.getNextAttemptAt().isAfter((LocalDateTime) args[1]))
+                                    .filter(e -> e.getId() % (Long) args[2] == (Long) args[3])
+                                    .limit(((Pageable) args[4]).getPageSize())
+                                    .toList();
+                        }
+                        case "claim" -> {
+                            CallbackInboxEntry entry = entries.get((Long) args[0]);
+                            if (claimedByAnotherNode.contains(entry.getId())) {
+                                entry.setStatus(InboxStatus.PROCESSING);
+                                entry.setClaimedAt((LocalDateTime) args[1]);
+                            }
+                            if (entry.getStatus() != InboxStatus.PENDING) {
+                                return 0;
+                            }
+                            entry.setStatus(InboxStatus.PROCESSING);
+                            entry.setClaimedAt((LocalDateTime) args[1]);
+                            return 1;
+                        }
+                        case "findAllById" -> {
+                            List<CallbackInboxEntry> found = new ArrayList<>();
+                            ((Iterable<Long>) args[0]).forEach(id -> found.add(entries.get(id)));
+                            return found;
+                        }
+                        case "findById" -> {
+                            return Optional.ofNullable(entries.get((Long) args[0]));
+                        }
+                        case "save" -> {
+                            CallbackInboxEntry entry = (CallbackInboxEntry) args[0];
+                            if (entry.getStatus() == InboxStatus.PROCESSED && unsavableOutcomes.contains(entry.getId())) {
+                                // Leave the entry as it was before the failed transaction
+                                entry.setStatus(InboxStatus.PROCESSING);
+                                throw new IllegalStateException("Outcome of " + entry.getId() + " not saved");
+                            }
+                            entries.put(entry.getId(), entry);
+                            return entry;
+                        }
+                        case "countByStatus" -> {
+                            return entries.values().stream().filter(e -> e.getStatus() == args[0]).count();
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
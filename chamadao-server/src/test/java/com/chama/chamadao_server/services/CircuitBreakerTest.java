@@ -0,0 +1,108 @@
+package com.chama.chamadao_server.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    public void setup() {
+        // Opens at 50% failures over the last 10 calls, once 4 calls are recorded
+        breaker = new CircuitBreaker(0.5, 10, 4, 30, TimeUnit.SECONDS, 2, clock::get);
+    }
+
+    @Test
+    public void testStaysClosedBelowMinimumCalls() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquirePermission());
+            breaker.onFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testOpensWhenFailureRateReachesThreshold() {
+        recordOutcomes(false, true, false, true);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+        assertEquals(30, breaker.getRetryAfterSeconds());
+        assertEquals(1, breaker.getTimesOpened());
+    }
+
+    @Test
+    public void testOldOutcomesLeaveTheWindow() {
+        recordOutcomes(true, true, false, false, false, false, false, false, false, false);
+        assertEquals(0.2, breaker.getFailureRate(), 1e-9);
+
+        // Pushes both failures out of the 10-call window
+        recordOutcomes(false, false);
+
+        assertEquals(0.0, breaker.getFailureRate(), 1e-9);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenClosesAfterSuccessfulTrialCalls() {
+        recordOutcomes(true, true, true, true);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+        assertTrue(breaker.tryAcquirePermission());
+        // Only two trial calls are let through
+        assertFalse(breaker.tryAcquirePermission());
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0.0, breaker.getFailureRate(), 1e-9);
+    }
+
+    @Test
+    public void testHalfOpenReopensOnFailure() {
+        recordOutcomes(true, true, true, true);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(31));
+
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getTimesOpened());
+    }
+
+    @Test
+    public void testReleasedPermissionCanBeReused() {
+        recordOutcomes(true, true, true, true);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.releasePermission();
+
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    private void recordOutcomes(boolean... failures) {
+        for (boolean failure : failures) {
+            assertTrue(breaker.tryAcquirePermission());
+            if (failure) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.BlockchainConfig;
+import com.chama.chamadao_server.models.Transaction;
+import com.chama.chamadao_server.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ConfirmationTrackerTest {
+
+    private final Map<Long, Transaction> transactions = new TreeMap<>();
+    private final Map<String, TransactionReceipt> chainReceipts = new HashMap<>();
+    private final List<List<String>> receiptCalls = new ArrayList<>();
+    private final List<Integer> confirmUpdates = new ArrayList<>();
+    private long head = 100;
+    private ConfirmationTracker tracker;
+
+    @BeforeEach
+    public void setup() {
+        BlockchainService blockchainService = new BlockchainService(null, null, null, null, null) {
+            @Override
+            public BigInteger getBlockNumber() {
+                return BigInteger.valueOf(head);
+            }
+
+            @Override
+            public Map<String, TransactionReceipt> getTransactionReceipts(List<String> txHashes) {
+                receiptCalls.add(txHashes);
+                Map<String, TransactionReceipt> receipts = new HashMap<>();
+                txHashes.stream().filter(chainReceipts::containsKey)
+                        .forEach(txHash -> receipts.put(txHash, chainReceipts.get(txHash)));
+                return receipts;
+            }
+        };
+        BlockchainConfig blockchainConfig = new BlockchainConfig();
+        blockchainConfig.setConfirmationDepth(12);
+        blockchainConfig.setConfirmationBatchSize(2);
+        tracker = new ConfirmationTracker(inMemoryRepository(), blockchainService, blockchainConfig,
+                new TransactionTemplate(new NoOpTransactionManager()));
+    }
+
+    @Test
+    public void testSweepsOnlyOnANewHead() {
+        transfer(1L, "0xa");
+
+        tracker.checkConfirmations();
+        tracker.checkConfirmations();
+        assertEquals(1, receiptCalls.size());
+
+        head = 101;
+        tracker.checkConfirmations();
+        assertEquals(2, receiptCalls.size());
+    }
+
+    @Test
+    public void testConfirmsAtTheDepthBoundary() {
+        transfer(1L, "0xa");
+        mine("0xa", 90, true);
+
+        // Blocks 90..100 are 11 confirmations, so the block is only recorded
+        tracker.checkConfirmations();
+        assertEquals(Long.valueOf(90), transactions.get(1L).getBlockchainBlockNumber());
+        assertNull(transactions.get(1L).getBlockchainConfirmedAt());
+
+        head = 101;
+        tracker.checkConfirmations();
+        assertNotNull(transactions.get(1L).getBlockchainConfirmedAt());
+        assertEquals(2, receiptCalls.size());
+        assertEquals(1L, tracker.getStats().confirmed());
+    }
+
+    @Test
+    public void testReorgMovesOrClearsTheBlock() {
+        transfer(1L, "0xa");
+        transfer(2L, "0xb");
+        mine("0xa", 95, true);
+        mine("0xb", 95, true);
+        tracker.checkConfirmations();
+
+        // At the depth the receipts show 0xa re-mined in a later block and 0xb dropped
+        mine("0xa", 100, true);
+        chainReceipts.remove("0xb");
+        head = 106;
+        tracker.checkConfirmations();
+
+        assertEquals(Long.valueOf(100), transactions.get(1L).getBlockchainBlockNumber());
+        assertNull(transactions.get(1L).getBlockchainConfirmedAt());
+        assertNull(transactions.get(2L).getBlockchainBlockNumber());
+        assertNull(transactions.get(2L).getBlockchainConfirmedAt());
+        assertEquals(2L, tracker.getStats().reorged());
+    }
+
+    @Test
+    public void testRevertedTransferLeavesTheSweepAtTheDepth() {
+        transfer(1L, "0xa");
+        mine("0xa", 95, false);
+
+        tracker.checkConfirmations();
+        assertNull(transactions.get(1L).getBlockchainRevertedAt());
+
+        head = 106;
+        tracker.checkConfirmations();
+        assertNotNull(transactions.get(1L).getBlockchainRevertedAt());
+        assertNull(transactions.get(1L).getBlockchainConfirmedAt());
+        assertEquals(1L, tracker.getStats().reverted());
+
+        // Later heads no longer fetch its receipt
+        head = 107;
+        tracker.checkConfirmations();
+        assertEquals(2, receiptCalls.size());
+    }
+
+    @Test
+    public void testConfirmsEachPageInOneBulkUpdate() {
+        for (long id = 1; id <= 5; id++) {
+            transfer(id, "0x" + id);
+            mine("0x" + id, 50, true);
+        }
+
+        tracker.checkConfirmations();
+
+        // A page size of two makes three batch requests and three bulk updates
+        assertEquals(List.of(List.of("0x1", "0x2"), List.of("0x3", "0x4"), List.of("0x5")), receiptCalls);
+        assertEquals(List.of(2, 2, 1), confirmUpdates);
+        transactions.values().forEach(transaction -> assertNotNull(transaction.getBlockchainConfirmedAt()));
+    }
+
+    private void transfer(Long id, String txHash) {
+        transactions.put(id, Transaction.builder().id(id).blockchainTxHash(txHash).build());
+    }
+
+    private void mine(String txHash, long block, boolean success) {
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setTransactionHash(txHash);
+        receipt.setBlockNumber("0x" + Long.toHexString(block));
+        receipt.setStatus(success ? "0x1" : "0x0");
+        chainReceipts.put(txHash, receipt);
+    }
+
+    /**
+     * Transaction repository over the map, implementing the queries the tracker uses
+     */
+    @SuppressWarnings("unchecked")
+    private TransactionRepository inMemoryRepository() {
+        return (TransactionRepository) Proxy.newProxyInstance(TransactionRepository.class.getClassLoader(),
+                new Class<?>[]{TransactionRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findUnconfirmedTransfers" -> {
+                            return transactions.values().stream()
+                                    .filter(t -> t.getBlockchainTxHash() != null && t.getBlockchainConfirmedAt() == null
+                                            && t.getBlockchainRevertedAt() == null && t.getId() > (long) args[0])
+                                    .limit(((Pageable) args[1]).getPageSize())
+                                    .toList();
+                        }
+                        case "updateBlockchainBlockNumber" -> {
+                            transactions.get((Long) args[0]).setBlockchainBlockNumber((Long) args[1]);
+                            return 1;
+                        }
+                        case "markBlockchainConfirmed" -> {
+                            Collection<Long> ids = (Collection<Long>) args[0];
+                            confirmUpdates.add(ids.size());
+                            ids.forEach(id -> transactions.get(id).setBlockchainConfirmedAt((LocalDateTime) args[1]));
+                            return ids.size();
+                        }
+                        case "markBlockchainReverted" -> {
+                            Collection<Long> ids = (Collection<Long>) args[0];
+                            ids.forEach(id -> transactions.get(id).setBlockchainRevertedAt((LocalDateTime) args[1]));
+                            return ids.size();
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
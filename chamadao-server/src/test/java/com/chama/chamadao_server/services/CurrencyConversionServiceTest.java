@@ -1,5 +1,9 @@
 package com.chama.chamadao_server.services;
 
+import com.chama.chamadao_server.models.ExchangeRate;
+import com.chama.chamadao_server.models.enums.FiatCurrency;
+import com.chama.chamadao_server.repository.ExchangeRateRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -13,7 +17,17 @@ import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.lang.reflect.Proxy;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -96,6 +110,123 @@ public class CurrencyConversionServiceTest {
         System.out.println("[DEBUG_LOG] Successfully used fallback exchange rate when API call failed");
     }
 
+    @Test
+    public void testConcurrentFirstConversionsShareOneFetch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        StubExchangeRateApi api = new StubExchangeRateApi("130.00", release);
+        ReflectionTestUtils.setField(currencyConversionService, "restTemplate", api);
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        List<Future<BigDecimal>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(callers.submit(() -> currencyConversionService.convertUsdtToKes(BigDecimal.ONE)));
+        }
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<BigDecimal> result : results) {
+            assertEquals(new BigDecimal("130.00"), result.get(5, TimeUnit.SECONDS));
+        }
+        callers.shutdown();
+
+        assertEquals(1, api.calls.get());
+    }
+
+    @Test
+    public void testExpiredRateIsServedWhileOneCallerRefreshes() throws Exception {
+        ReflectionTestUtils.setField(currencyConversionService, "restTemplate", new StubExchangeRateApi("130.00", null));
+        ReflectionTestUtils.setField(currencyConversionService, "cacheMinutes", 0);
+        currencyConversionService.convertUsdtToKes(BigDecimal.ONE);
+
+        CountDownLatch release = new CountDownLatch(1);
+        StubExchangeRateApi api = new StubExchangeRateApi("131.00", release);
+        ReflectionTestUtils.setField(currencyConversionService, "restTemplate", api);
+        Thread refresher = new Thread(() -> currencyConversionService.convertUsdtToKes(BigDecimal.ONE));
+        refresher.start();
+        while (api.calls.get() == 0) {
+            Thread.sleep(5);
+        }
+
+        // The refresh is in flight, so this caller gets the last good rate without a second request
+        assertEquals(new BigDecimal("130.00"), currencyConversionService.convertUsdtToKes(BigDecimal.ONE));
+        release.countDown();
+        refresher.join();
+
+        assertEquals(1, api.calls.get());
+        assertEquals(new BigDecimal("131"), currencyConversionService.getStats().kesRate());
+    }
+
+    @Test
+    public void testConvertAtUsesTheRateInEffectAtThatTime() throws Exception {
+        List<ExchangeRate> recorded = new ArrayList<>();
+        ReflectionTestUtils.setField(currencyConversionService, "exchangeRateRepository", recordingRepository(recorded));
+        ReflectionTestUtils.setField(currencyConversionService, "historyDays", 90);
+        ReflectionTestUtils.setField(currencyConversionService, "cacheMinutes", 0);
+
+        ReflectionTestUtils.setField(currencyConversionService, "restTemplate", new StubExchangeRateApi("130.00", null));
+        currencyConversionService.convertUsdtToKes(BigDecimal.ONE);
+        Thread.sleep(20);
+        LocalDateTime between = LocalDateTime.now();
+        Thread.sleep(20);
+        ReflectionTestUtils.setField(currencyConversionService, "restTemplate", new StubExchangeRateApi("125.00", null));
+        currencyConversionService.convertUsdtToKes(BigDecimal.ONE);
+
+        CurrencyConversionService.Conversion then = currencyConversionService.convertToUsdtAt(
+                between, new BigDecimal("1300"), FiatCurrency.KES);
+        CurrencyConversionService.Conversion now = currencyConversionService.convertToUsdtAt(
+                LocalDateTime.now(), new BigDecimal("1300"), FiatCurrency.KES);
+
+        assertEquals(2, recorded.size());
+        assertEquals(new BigDecimal("10.000000"), then.amount());
+        assertEquals(recorded.get(0).getId(), then.exchangeRateId());
+        assertEquals(new BigDecimal("10.400000"), now.amount());
+        assertEquals(recorded.get(1).getId(), now.exchangeRateId());
+    }
+
+    /**
+     * Exchange rate repository that keeps saved rates in a list and assigns them ids
+     */
+    private static ExchangeRateRepository recordingRepository(List<ExchangeRate> recorded) {
+        return (ExchangeRateRepository) Proxy.newProxyInstance(ExchangeRateRepository.class.getClassLoader(),
+                new Class<?>[]{ExchangeRateRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("save")) {
+                        ExchangeRate exchangeRate = (ExchangeRate) args[0];
+                        exchangeRate.setId((long) recorded.size() + 1);
+                        recorded.add(exchangeRate);
+                        return exchangeRate;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Exchange rate API answering with a fixed rate, optionally holding each request until released
+     */
+    private static class StubExchangeRateApi extends RestTemplate {
+
+        private final String rate;
+        private final CountDownLatch release;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        StubExchangeRateApi(String rate, CountDownLatch release) {
+            this.rate = rate;
+            this.release = release;
+        }
+
+        @Override
+        public <T> ResponseEntity<T> getForEntity(String url, Class<T> responseType, Object... uriVariables) {
+            calls.incrementAndGet();
+            try {
+                if (release != null) {
+                    release.await();
+                }
+                T body = new ObjectMapper().readValue("{\"rates\":{\"KES\":" + rate + "}}", responseType);
+                return new ResponseEntity<>(body, HttpStatus.OK);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     private void mockExchangeRateApiResponse() {
         // Create a mock response that matches the structure expected by the service
         // We need to create an object that matches the ExchangeRateResponse class in CurrencyConversionService
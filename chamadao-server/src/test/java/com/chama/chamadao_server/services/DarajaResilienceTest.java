@@ -0,0 +1,97 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.MPesaConfig;
+import com.chama.chamadao_server.exceptions.ServiceUnavailableException;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DarajaResilienceTest {
+
+    private HttpServer server;
+    private DarajaResilience darajaResilience;
+    private OkHttpClient client;
+    private String baseUrl;
+    private final AtomicInteger serverRequests = new AtomicInteger();
+    private volatile int responseStatus = 500;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            serverRequests.incrementAndGet();
+            exchange.sendResponseHeaders(responseStatus, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + "/";
+
+        MPesaConfig config = new MPesaConfig();
+        config.setCircuitBreakerWindowSize(10);
+        config.setCircuitBreakerMinimumCalls(5);
+        config.setCircuitBreakerOpenSeconds(60);
+        darajaResilience = new DarajaResilience(config);
+        client = new OkHttpClient.Builder().addInterceptor(darajaResilience.interceptor()).build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testServerErrorsOpenTheBreaker() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(500, call());
+        }
+
+        ServiceUnavailableException e = assertThrows(ServiceUnavailableException.class, this::call);
+        assertEquals(60, e.getRetryAfterSeconds());
+        assertThrows(ServiceUnavailableException.class, darajaResilience::checkAvailable);
+
+        DarajaResilience.Stats stats = darajaResilience.getStats();
+        System.out.println("[DEBUG_LOG] Resilience stats: " + stats);
+        assertEquals(CircuitBreaker.State.OPEN, stats.circuitState());
+        assertEquals(5, serverRequests.get());
+        assertEquals(5, stats.failures());
+        assertEquals(0, stats.inFlight());
+    }
+
+    @Test
+    public void testClientErrorsDoNotOpenTheBreaker() throws Exception {
+        responseStatus = 400;
+        for (int i = 0; i < 10; i++) {
+            assertEquals(400, call());
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, darajaResilience.getStats().circuitState());
+        assertEquals(0, darajaResilience.getStats().failures());
+    }
+
+    @Test
+    public void testConnectionFailuresCountAsFailures() {
+        server.stop(0);
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IOException.class, this::call);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, darajaResilience.getStats().circuitState());
+    }
+
+    private int call() throws Exception {
+        try (Response response = client.newCall(new Request.Builder().url(baseUrl).build()).execute()) {
+            return response.code();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.MPesaConfig;
+import com.chama.chamadao_server.exceptions.ServiceUnavailableException;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DarajaTokenManagerTest {
+
+    private HttpServer server;
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+    private volatile int responseStatus = 200;
+    private volatile String expiresIn = "3599";
+    private volatile boolean breakerOpen;
+
+    private DarajaTokenManager tokenManager;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/oauth/v1/generate", exchange -> {
+            int request = tokenRequests.incrementAndGet();
+            try {
+                // Slow enough that concurrent callers overlap with the in-flight refresh
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"access_token\":\"token-" + request + "\",\"expires_in\":\"" + expiresIn + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(responseStatus, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        MPesaConfig config = new MPesaConfig();
+        config.setConsumerKey("key");
+        config.setConsumerSecret("secret");
+        config.setAccessTokenUrl("http://localhost:" + server.getAddress().getPort() + "/oauth/v1/generate");
+        DarajaResilience darajaResilience = new DarajaResilience(config) {
+            @Override
+            public boolean isAcceptingCalls() {
+                return !breakerOpen;
+            }
+        };
+        tokenManager = new DarajaTokenManager(config, new OkHttpClient(), darajaResilience);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testCachedTokenIsReused() throws Exception {
+        String first = tokenManager.getAccessToken();
+        String second = tokenManager.getAccessToken();
+
+        assertEquals("token-1", first);
+        assertEquals(first, second);
+        assertEquals(1, tokenRequests.get());
+        assertEquals(1, tokenManager.getStats().hits());
+        assertEquals(1, tokenManager.getStats().misses());
+
+        System.out.println("[DEBUG_LOG] Token stats: " + tokenManager.getStats());
+    }
+
+    @Test
+    public void testOpenBreakerRejectsARefreshWithoutWrappingIt() throws Exception {
+        breakerOpen = true;
+        assertThrows(ServiceUnavailableException.class, () -> tokenManager.getAccessToken());
+        assertEquals(0, tokenRequests.get());
+
+        // A cached token is still served while the breaker is open
+        breakerOpen = false;
+        tokenManager.getAccessToken();
+        breakerOpen = true;
+        assertEquals("token-1", tokenManager.getAccessToken());
+    }
+
+    @Test
+    public void testConcurrentRefreshesCollapseIntoOneRequest() throws Exception {
+        int callers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return tokenManager.getAccessToken();
+            }));
+        }
+        start.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("token-1", result.get());
+        }
+        executor.shutdown();
+
+        assertEquals(1, tokenRequests.get());
+        System.out.println("[DEBUG_LOG] " + callers + " concurrent callers made " + tokenRequests.get() + " OAuth request");
+    }
+
+    @Test
+    public void testExpiredTokenIsRefreshed() throws Exception {
+        // expires_in below the expiry skew means the token is never served from cache
+        expiresIn = "30";
+
+        assertEquals("token-1", tokenManager.getAccessToken());
+        assertEquals("token-2", tokenManager.getAccessToken());
+        assertEquals(2, tokenRequests.get());
+    }
+
+    @Test
+    public void testInvalidateForcesRefresh() throws Exception {
+        assertEquals("token-1", tokenManager.getAccessToken());
+        tokenManager.invalidate();
+        assertEquals("token-2", tokenManager.getAccessToken());
+    }
+
+    @Test
+    public void testRefreshAheadOfExpiry() throws Exception {
+        // Refresh window (300s) is wider than the token lifetime, so the background job refreshes immediately
+        expiresIn = "200";
+        tokenManager.getAccessToken();
+
+        tokenManager.refreshAheadOfExpiry();
+
+        assertEquals(2, tokenRequests.get());
+    }
+
+    @Test
+    public void testFailedRefreshThrowsIOException() {
+        responseStatus = 500;
+
+        assertThrows(java.io.IOException.class, () -> tokenManager.getAccessToken());
+        assertEquals(1, tokenManager.getStats().refreshFailures());
+    }
+}
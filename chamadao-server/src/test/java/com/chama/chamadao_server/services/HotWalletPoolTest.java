@@ -0,0 +1,85 @@
+package com.chama.chamadao_server.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HotWalletPoolTest {
+
+    private static final BigInteger MIN_BALANCE = BigInteger.valueOf(1000);
+
+    private final HotWallet first = wallet("0x1");
+    private final HotWallet second = wallet("0x2");
+    private final HotWallet third = wallet("0x3");
+
+    @Test
+    public void testLeastPendingSpreadsTransfersAcrossWallets() {
+        HotWalletPool pool = pool(HotWalletPool.Selection.LEAST_PENDING);
+
+        HotWallet a = pool.acquire("0xabc");
+        HotWallet b = pool.acquire("0xabc");
+        HotWallet c = pool.acquire("0xabc");
+
+        assertEquals(1, first.getPending());
+        assertEquals(1, second.getPending());
+        assertEquals(1, third.getPending());
+
+        pool.release(b);
+        assertSame(b, pool.acquire("0xdef"));
+        pool.release(a);
+        pool.release(c);
+    }
+
+    @Test
+    public void testRecipientHashIsStablePerRecipient() {
+        HotWalletPool pool = pool(HotWalletPool.Selection.RECIPIENT_HASH);
+
+        HotWallet wallet = pool.acquire("0xAbC123");
+        pool.release(wallet);
+
+        assertSame(wallet, pool.acquire("0xabc123"));
+        assertSame(wallet, pool.acquire("0xABC123"));
+    }
+
+    @Test
+    public void testUnderfundedWalletLeavesAndRejoinsRotation() {
+        HotWalletPool pool = pool(HotWalletPool.Selection.LEAST_PENDING);
+
+        pool.updateBalance(first, BigInteger.valueOf(999));
+        assertFalse(first.isInRotation());
+        for (int i = 0; i < 10; i++) {
+            assertNotEquals(first, pool.acquire("0xabc"));
+        }
+
+        pool.updateBalance(first, MIN_BALANCE);
+        assertTrue(first.isInRotation());
+    }
+
+    @Test
+    public void testRejectsWhenNoWalletIsInRotation() {
+        HotWalletPool pool = pool(HotWalletPool.Selection.LEAST_PENDING);
+        pool.removeFromRotation(first, "insufficient funds");
+        pool.removeFromRotation(second, "insufficient funds");
+        pool.removeFromRotation(third, "insufficient funds");
+
+        assertFalse(pool.hasWalletInRotation());
+        assertThrows(RejectedExecutionException.class, () -> pool.acquire("0xabc"));
+    }
+
+    private HotWalletPool pool(HotWalletPool.Selection selection) {
+        return new HotWalletPool(List.of(first, second, third), selection, MIN_BALANCE);
+    }
+
+    private static HotWallet wallet(String address) {
+        return new HotWallet(address, null, new NonceManager(() -> BigInteger.ZERO), null);
+    }
+}
@@ -0,0 +1,154 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.exceptions.IdempotencyConflictException;
+import com.chama.chamadao_server.exceptions.IdempotentRequestFailedException;
+import com.chama.chamadao_server.exceptions.ServiceUnavailableException;
+import com.chama.chamadao_server.models.IdempotencyRecord;
+import com.chama.chamadao_server.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IdempotencyServiceTest {
+
+    private final Map<Long, IdempotencyRecord> records = new ConcurrentHashMap<>();
+    private final AtomicInteger sends = new AtomicInteger();
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    public void setup() {
+        idempotencyService = new IdempotencyService(inMemoryRepository(records), new ObjectMapper());
+        ReflectionTestUtils.setField(idempotencyService, "leaseSeconds", 300);
+    }
+
+    @Test
+    public void testRepeatedKeyReplaysStoredResponse() {
+        assertEquals("sent-1", withdraw("key-1").getBody());
+        ResponseEntity<String> replayed = withdraw("key-1");
+
+        assertEquals("sent-1", replayed.getBody());
+        assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, sends.get());
+    }
+
+    @Test
+    public void testRejectionBeforeSendingReleasesKey() {
+        assertThrows(ServiceUnavailableException.class, () -> run("key-1", () -> {
+            throw new ServiceUnavailableException("M-Pesa is currently unavailable, please retry later", 5);
+        }));
+
+        assertEquals("sent-1", withdraw("key-1").getBody());
+    }
+
+    @Test
+    public void testAmbiguousFailureIsReplayedInsteadOfSentAgain() {
+        assertThrows(RuntimeException.class, () -> run("key-1", () -> {
+            sends.incrementAndGet();
+            throw new RuntimeException("Error initiating withdrawal: timeout");
+        }));
+
+        IdempotentRequestFailedException replayed =
+                assertThrows(IdempotentRequestFailedException.class, () -> withdraw("key-1"));
+        assertTrue(replayed.getMessage().contains("timeout"));
+        assertEquals(1, sends.get());
+    }
+
+    @Test
+    public void testAbandonedRequestIsClosedAfterItsLease() throws Exception {
+        IdempotencyRecord abandoned = IdempotencyRecord.builder()
+                .id(1L)
+                .scope("payments.withdraw")
+                .idempotencyKey("key-1")
+                .requestHash(sha256Of("request"))
+                .createdAt(LocalDateTime.now().minusSeconds(60))
+                .build();
+        records.put(1L, abandoned);
+
+        assertThrows(IdempotencyConflictException.class, () -> withdraw("key-1"));
+
+        abandoned.setCreatedAt(LocalDateTime.now().minusSeconds(600));
+        assertThrows(IdempotentRequestFailedException.class, () -> withdraw("key-1"));
+        assertEquals(0, sends.get());
+    }
+
+    private ResponseEntity<String> withdraw(String key) {
+        return run(key, () -> ResponseEntity.ok("sent-" + sends.incrementAndGet()));
+    }
+
+    private ResponseEntity<String> run(String key, Supplier<ResponseEntity<String>> action) {
+        return idempotencyService.execute(key, "payments.withdraw", "request", String.class, action);
+    }
+
+    private static String sha256Of(String value) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Idempotency repository over a map, enforcing the unique scope and key constraint
+     */
+    private static IdempotencyRecordRepository inMemoryRepository(Map<Long, IdempotencyRecord> records) {
+        AtomicLong ids = new AtomicLong(100);
+        return (IdempotencyRecordRepository) Proxy.newProxyInstance(IdempotencyRecordRepository.class.getClassLoader(),
+                new Class<?>[]{IdempotencyRecordRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "saveAndFlush", "save" -> {
+                            IdempotencyRecord record = (IdempotencyRecord) args[0];
+                            if (record.getId() == null) {
+                                boolean taken = records.values().stream().anyMatch(r -> r.getScope().equals(record.getScope())
+                                        && r.getIdempotencyKey().equals(record.getIdempotencyKey()));
+                                if (taken) {
+                                    throw new DataIntegrityViolationException("uk_idempotency_keys_scope_key");
+                                }
+                                record.setId(ids.incrementAndGet());
+                            }
+                            records.put(record.getId(), record);
+                            return record;
+                        }
+                        case "delete" -> {
+                            records.remove(((IdempotencyRecord) args[0]).getId());
+                            return null;
+                        }
+                        case "findById" -> {
+                            return Optional.ofNullable(records.get((Long) args[0]));
+                        }
+                        case "findByScopeAndIdempotencyKey" -> {
+                            return records.values().stream()
+                                    .filter(r -> r.getScope().equals(args[0]) && r.getIdempotencyKey().equals(args[1]))
+                                    .findFirst();
+                        }
+                        case "closeAbandoned" -> {
+                            IdempotencyRecord record = records.get((Long) args[0]);
+                            if (record == null || record.isCompleted()
+                                    || !record.getCreatedAt().isBefore((LocalDateTime) args[1])) {
+                                return 0;
+                            }
+                            record.setCompleted(true);
+                            record.setResponseStatus((Integer) args[2]);
+                            record.setFailureMessage((String) args[3]);
+                            record.setCompletedAt((LocalDateTime) args[4]);
+                            return 1;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
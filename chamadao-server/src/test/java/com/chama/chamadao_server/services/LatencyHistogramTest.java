@@ -0,0 +1,54 @@
+package com.chama.chamadao_server.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.count());
+        assertEquals(0.0, snapshot.p99Millis());
+        assertEquals(0.0, snapshot.maxMillis());
+    }
+
+    @Test
+    public void testPercentilesUseBucketBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(15));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(150));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(700));
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        System.out.println("[DEBUG_LOG] Latency snapshot: " + snapshot);
+
+        assertEquals(100, snapshot.count());
+        assertEquals(20.0, snapshot.p50Millis());
+        assertEquals(20.0, snapshot.p90Millis());
+        assertEquals(200.0, snapshot.p99Millis());
+        assertEquals(700.0, snapshot.maxMillis());
+    }
+
+    @Test
+    public void testPercentileNeverExceedsMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(120));
+
+        assertEquals(120.0, histogram.snapshot().p50Millis());
+    }
+
+    @Test
+    public void testSlowestBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.SECONDS.toNanos(90));
+
+        assertEquals(90000.0, histogram.snapshot().p99Millis());
+    }
+}
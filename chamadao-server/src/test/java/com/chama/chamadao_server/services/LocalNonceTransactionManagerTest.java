@@ -0,0 +1,177 @@
+package com.chama.chamadao_server.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LocalNonceTransactionManagerTest {
+
+    private static final String TO = "0x2222222222222222222222222222222222222222";
+    private static final BigInteger GAS_PRICE = BigInteger.valueOf(1_000_000_000L);
+    private static final BigInteger GAS_LIMIT = BigInteger.valueOf(100_000);
+
+    private final Deque<Object> nodeReplies = new ArrayDeque<>();
+    private final List<String> sent = new ArrayList<>();
+    private long chainNonce = 10;
+    private NonceManager nonceManager;
+    private LocalNonceTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setup() {
+        nonceManager = new NonceManager(() -> BigInteger.valueOf(chainNonce));
+        transactionManager = new LocalNonceTransactionManager(stubWeb3j(),
+                Credentials.create(ECKeyPair.create(BigInteger.valueOf(0xC4A3A))), nonceManager);
+    }
+
+    @Test
+    public void testSendUsesReservedNonce() throws Exception {
+        nodeReplies.add("0xhash");
+
+        EthSendTransaction response = send();
+
+        assertEquals("0xhash", response.getTransactionHash());
+        assertEquals(List.of(BigInteger.valueOf(10)), sentNonces());
+        assertEquals(0, nonceManager.getStats().inFlight());
+        assertEquals(BigInteger.valueOf(11), nonceManager.getStats().nextNonce());
+    }
+
+    @Test
+    public void testNonceConflictResyncsAndRetries() throws Exception {
+        // Another process sent from the wallet, so the node is ahead of the local counter
+        nonceManager.markSent(nonceManager.reserve());
+        chainNonce = 15;
+        nodeReplies.add(error("nonce too low"));
+        nodeReplies.add("0xhash");
+
+        EthSendTransaction response = send();
+
+        assertEquals("0xhash", response.getTransactionHash());
+        assertEquals(List.of(BigInteger.valueOf(11), BigInteger.valueOf(15)), sentNonces());
+        assertEquals(BigInteger.valueOf(16), nonceManager.getStats().nextNonce());
+    }
+
+    @Test
+    public void testAlreadyKnownReturnsTheHashOfTheSignedTransaction() throws Exception {
+        nodeReplies.add(error("already known"));
+
+        EthSendTransaction response = send();
+
+        assertEquals(Hash.sha3(sent.get(0)), response.getTransactionHash());
+        assertEquals(0, nonceManager.getStats().released());
+        assertEquals(BigInteger.valueOf(11), nonceManager.getStats().nextNonce());
+    }
+
+    @Test
+    public void testConnectionFailureReleasesTheNonce() throws Exception {
+        nodeReplies.add(new IOException("Connection reset"));
+        nodeReplies.add("0xhash");
+
+        // The released nonce was the highest handed out, so the counter moves back to it
+        assertThrows(IOException.class, this::send);
+        assertEquals(0, nonceManager.getStats().inFlight());
+        assertEquals(BigInteger.valueOf(10), nonceManager.getStats().nextNonce());
+
+        send();
+        assertEquals(List.of(BigInteger.valueOf(10), BigInteger.valueOf(10)), sentNonces());
+    }
+
+    @Test
+    public void testOtherRejectionIsReturnedAndReleasesTheNonce() throws Exception {
+        nodeReplies.add(error("insufficient funds for gas * price + value"));
+
+        EthSendTransaction response = send();
+
+        assertTrue(response.hasError());
+        assertEquals(1, sent.size());
+        assertEquals(0, nonceManager.getStats().inFlight());
+        assertEquals(BigInteger.valueOf(10), nonceManager.getStats().nextNonce());
+    }
+
+    @Test
+    public void testEip1559SendUsesReservedNonce() throws Exception {
+        nodeReplies.add("0xhash");
+
+        EthSendTransaction response = transactionManager.sendEIP1559Transaction(
+                137, GAS_PRICE, GAS_PRICE.multiply(BigInteger.TWO), GAS_LIMIT, TO, "0x", BigInteger.ZERO, false);
+
+        assertEquals("0xhash", response.getTransactionHash());
+        assertEquals(List.of(BigInteger.valueOf(10)), sentNonces());
+        assertEquals(0, nonceManager.getStats().inFlight());
+    }
+
+    @Test
+    public void testGetNonceReservesFromTheNonceManager() throws Exception {
+        BigInteger nonce = transactionManager.getNonce();
+        assertEquals(BigInteger.valueOf(10), nonce);
+        assertEquals(1, nonceManager.getStats().inFlight());
+
+        // A send while it is held does not reuse it
+        nodeReplies.add("0xhash");
+        send();
+        assertEquals(List.of(BigInteger.valueOf(11)), sentNonces());
+
+        nonceManager.markSent(nonce);
+        assertEquals(0, nonceManager.getStats().inFlight());
+    }
+
+    private EthSendTransaction send() throws IOException {
+        return transactionManager.sendTransaction(GAS_PRICE, GAS_LIMIT, TO, "0x", BigInteger.ZERO, false);
+    }
+
+    private List<BigInteger> sentNonces() {
+        return sent.stream().map(signed -> TransactionDecoder.decode(signed).getNonce()).toList();
+    }
+
+    private static EthSendTransaction error(String message) {
+        EthSendTransaction response = new EthSendTransaction();
+        response.setError(new Response.Error(-32000, message));
+        return response;
+    }
+
+    /**
+     * Web3j whose eth_sendRawTransaction records the signed transaction and plays back the scripted replies
+     */
+    private Web3j stubWeb3j() {
+        return (Web3j) Proxy.newProxyInstance(Web3j.class.getClassLoader(), new Class<?>[]{Web3j.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("ethSendRawTransaction")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return new Request<String, EthSendTransaction>() {
+                        @Override
+                        public EthSendTransaction send() throws IOException {
+                            sent.add((String) args[0]);
+                            Object reply = nodeReplies.remove();
+                            if (reply instanceof IOException e) {
+                                throw e;
+                            }
+                            if (reply instanceof EthSendTransaction response) {
+                                return response;
+                            }
+                            EthSendTransaction response = new EthSendTransaction();
+                            response.setResult((String) reply);
+                            return response;
+                        }
+                    };
+                });
+    }
+}
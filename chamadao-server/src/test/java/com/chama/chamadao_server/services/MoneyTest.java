@@ -0,0 +1,129 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.converters.KesMoneyConverter;
+import com.chama.chamadao_server.converters.MoneyJsonComponent;
+import com.chama.chamadao_server.models.Money;
+import com.chama.chamadao_server.models.enums.FiatCurrency;
+import com.chama.chamadao_server.models.loan.Loan;
+import com.chama.chamadao_server.models.loan.LoanGuarantor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MoneyTest {
+
+    private static final FiatCurrency KES = FiatCurrency.KES;
+
+    @Test
+    public void testHoldsExactMinorUnits() {
+        Money amount = Money.of(new BigDecimal("1234.5"), KES);
+
+        assertEquals(123450, amount.getMinorUnits());
+        assertEquals(new BigDecimal("1234.50"), amount.toBigDecimal());
+        assertEquals("KES 1234.50", amount.toString());
+        assertEquals(Money.ofMinor(123450, KES), amount);
+        assertEquals(new BigDecimal("3700"), Money.ofMinor(3700, FiatCurrency.UGX).toBigDecimal());
+    }
+
+    @Test
+    public void testRoundsOnlyWhenAsked() {
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("10.005"), KES));
+
+        assertEquals(1001, Money.of(new BigDecimal("10.005"), KES, RoundingMode.HALF_UP).getMinorUnits());
+        assertEquals(1000, Money.of(new BigDecimal("10.005"), KES, RoundingMode.HALF_EVEN).getMinorUnits());
+        assertEquals(1000, Money.of(new BigDecimal("10.009"), KES, RoundingMode.DOWN).getMinorUnits());
+
+        // Client input is rejected as a bad argument rather than an arithmetic failure
+        assertEquals(Money.ofMinor(10000, KES), Money.parse(new BigDecimal("100.000"), KES));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse(new BigDecimal("100.005"), KES));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse(new BigDecimal("1e30"), KES));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse(null, KES));
+    }
+
+    @Test
+    public void testArithmeticIsExactAndChecked() {
+        Money a = Money.of(new BigDecimal("0.10"), KES);
+        Money b = Money.of(new BigDecimal("0.20"), KES);
+
+        assertEquals(Money.of(new BigDecimal("0.30"), KES), a.plus(b));
+        assertEquals(-1, a.minus(b).signum());
+        assertEquals(Money.ofMinor(1250, KES),
+                Money.ofMinor(10000, KES).multiply(new BigDecimal("0.125"), RoundingMode.HALF_UP));
+
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE, KES).plus(Money.ofMinor(1, KES)));
+        assertThrows(IllegalArgumentException.class, () -> a.plus(Money.ofMinor(10, FiatCurrency.UGX)));
+        assertThrows(IllegalArgumentException.class, () -> a.compareTo(Money.ofMinor(10, FiatCurrency.UGX)));
+    }
+
+    @Test
+    public void testConvertsBetweenCurrenciesOfDifferentScale() {
+        RateTable rates = RateTable.parse(Map.of(
+                "KES", new BigDecimal("129.50"),
+                "UGX", new BigDecimal("3700.25")));
+
+        Money ugx = rates.convert(Money.of(new BigDecimal("1000"), KES), FiatCurrency.UGX, RoundingMode.HALF_UP);
+        assertEquals(Money.ofMinor(28573, FiatCurrency.UGX), ugx);
+
+        Money kes = rates.convert(Money.ofMinor(28573, FiatCurrency.UGX), KES, RoundingMode.DOWN);
+        assertEquals(Money.ofMinor(99998, KES), kes);
+
+        assertThrows(ArithmeticException.class,
+                () -> rates.convert(Money.ofMinor(28573, FiatCurrency.UGX), KES, RoundingMode.UNNECESSARY));
+    }
+
+    @Test
+    public void testSumsApprovedGuaranteesInMinorUnits() {
+        Loan loan = Loan.builder().build();
+        loan.getGuarantors().add(guarantee("500.25", LoanGuarantor.GuarantorStatus.APPROVED));
+        loan.getGuarantors().add(guarantee("250.50", LoanGuarantor.GuarantorStatus.APPROVED));
+        loan.getGuarantors().add(guarantee("100", LoanGuarantor.GuarantorStatus.PENDING));
+        loan.updateTotalGuaranteedAmount();
+
+        assertEquals(Money.of(new BigDecimal("750.75"), KES), loan.getTotalGuaranteedAmount());
+    }
+
+    @Test
+    public void testConverterStoresMajorUnits() {
+        KesMoneyConverter converter = new KesMoneyConverter();
+
+        // Existing DECIMAL columns hold shillings, so a stored 1500.00 must read back as KES 1500.00
+        assertEquals(new BigDecimal("1234.50"), converter.convertToDatabaseColumn(Money.ofMinor(123450, KES)));
+        assertEquals(Money.ofMinor(150000, KES), converter.convertToEntityAttribute(new BigDecimal("1500.00")));
+        assertEquals(Money.ofMinor(150000, KES), converter.convertToEntityAttribute(new BigDecimal("1500")));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> converter.convertToDatabaseColumn(Money.ofMinor(100, FiatCurrency.UGX)));
+    }
+
+    @Test
+    public void testJsonRoundTrip() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new SimpleModule()
+                .addSerializer(Money.class, new MoneyJsonComponent.Serializer())
+                .addDeserializer(Money.class, new MoneyJsonComponent.Deserializer()));
+
+        String json = objectMapper.writeValueAsString(Money.ofMinor(123405, KES));
+        assertEquals("{\"amount\":1234.05,\"currency\":\"KES\"}", json);
+        assertEquals(Money.ofMinor(123405, KES), objectMapper.readValue(json, Money.class));
+
+        assertThrows(Exception.class,
+                () -> objectMapper.readValue("{\"amount\":1.005,\"currency\":\"KES\"}", Money.class));
+        assertThrows(Exception.class,
+                () -> objectMapper.readValue("{\"amount\":1,\"currency\":\"EUR\"}", Money.class));
+    }
+
+    private static LoanGuarantor guarantee(String amount, LoanGuarantor.GuarantorStatus status) {
+        return LoanGuarantor.builder()
+                .guaranteedAmount(Money.of(new BigDecimal(amount), KES))
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,117 @@
+package com.chama.chamadao_server.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NonceManagerTest {
+
+    private final AtomicLong chainNonce = new AtomicLong(10);
+    private final AtomicInteger nodeLookups = new AtomicInteger();
+    private NonceManager nonceManager;
+
+    @BeforeEach
+    public void setup() {
+        nonceManager = new NonceManager(() -> {
+            nodeLookups.incrementAndGet();
+            return BigInteger.valueOf(chainNonce.get());
+        });
+    }
+
+    @Test
+    public void testReservesSequentialNoncesWithOneLookup() throws Exception {
+        assertEquals(BigInteger.valueOf(10), nonceManager.reserve());
+        assertEquals(BigInteger.valueOf(11), nonceManager.reserve());
+        assertEquals(BigInteger.valueOf(12), nonceManager.reserve());
+
+        assertEquals(1, nodeLookups.get());
+    }
+
+    @Test
+    public void testConcurrentReservationsAreUnique() throws Exception {
+        Set<BigInteger> nonces = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 200; i++) {
+            executor.execute(() -> {
+                try {
+                    BigInteger nonce = nonceManager.reserve();
+                    nonces.add(nonce);
+                    nonceManager.markSent(nonce);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(200, nonces.size());
+        assertEquals(BigInteger.valueOf(210), nonceManager.getStats().nextNonce());
+    }
+
+    @Test
+    public void testReleasedNonceFillsGapFirst() throws Exception {
+        BigInteger first = nonceManager.reserve();
+        BigInteger second = nonceManager.reserve();
+        nonceManager.reserve();
+
+        nonceManager.markSent(first);
+        nonceManager.release(second);
+
+        assertEquals(second, nonceManager.reserve());
+        assertEquals(BigInteger.valueOf(13), nonceManager.reserve());
+        assertEquals(1, nonceManager.getStats().reused());
+    }
+
+    @Test
+    public void testReleasingTopNoncesMovesCounterBack() throws Exception {
+        BigInteger first = nonceManager.reserve();
+        BigInteger second = nonceManager.reserve();
+        BigInteger third = nonceManager.reserve();
+
+        nonceManager.release(second);
+        nonceManager.release(third);
+
+        assertEquals(BigInteger.valueOf(11), nonceManager.getStats().nextNonce());
+        assertEquals(0, nonceManager.getStats().released());
+        nonceManager.markSent(first);
+    }
+
+    @Test
+    public void testResyncSkipsNoncesUsedElsewhere() throws Exception {
+        BigInteger first = nonceManager.reserve();
+        BigInteger second = nonceManager.reserve();
+        nonceManager.release(first);
+
+        // Another process sent three transactions from the same wallet
+        chainNonce.set(13);
+        nonceManager.resync();
+
+        assertEquals(0, nonceManager.getStats().released());
+        assertEquals(BigInteger.valueOf(13), nonceManager.reserve());
+        nonceManager.markSent(second);
+    }
+
+    @Test
+    public void testResyncIfIdleWaitsForInFlightSends() throws Exception {
+        BigInteger nonce = nonceManager.reserve();
+        chainNonce.set(5);
+
+        nonceManager.resyncIfIdle();
+        assertEquals(1, nodeLookups.get());
+
+        nonceManager.markSent(nonce);
+        nonceManager.resyncIfIdle();
+        assertEquals(BigInteger.valueOf(5), nonceManager.getStats().nextNonce());
+    }
+}
@@ -0,0 +1,82 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.HttpClientConfig;
+import com.chama.chamadao_server.config.HttpClientProperties;
+import com.chama.chamadao_server.config.MPesaConfig;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OutboundHttpMetricsTest {
+
+    private HttpServer server;
+    private OutboundHttpMetrics metrics;
+    private OkHttpClient client;
+    private String baseUrl;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ok", exchange -> {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/error", exchange -> {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+        metrics = new OutboundHttpMetrics();
+        client = new HttpClientConfig().darajaHttpClient(
+                new HttpClientProperties(), metrics, new DarajaResilience(new MPesaConfig()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRecordsLatencyAndErrorsPerHost() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            call("/ok");
+        }
+        call("/error");
+
+        OutboundHttpMetrics.ClientStats stats = metrics.getStats().get(HttpClientConfig.DARAJA);
+        System.out.println("[DEBUG_LOG] Daraja client stats: " + stats);
+
+        OutboundHttpMetrics.HostStats host = stats.hosts().get("localhost");
+        assertEquals(4, host.latency().count());
+        assertEquals(1, host.errors());
+        assertEquals(0, stats.inFlightCalls());
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        call("/ok");
+        call("/ok");
+
+        OutboundHttpMetrics.ClientStats stats = metrics.getStats().get(HttpClientConfig.DARAJA);
+        assertEquals(1, stats.connections());
+        assertEquals(1, stats.idleConnections());
+        assertTrue(stats.maxRequests() > 0);
+    }
+
+    private int call(String path) throws Exception {
+        try (Response response = client.newCall(new Request.Builder().url(baseUrl + path).build()).execute()) {
+            return response.code();
+        }
+    }
+}
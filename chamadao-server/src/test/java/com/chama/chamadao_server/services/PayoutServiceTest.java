@@ -0,0 +1,534 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.AuthConfig;
+import com.chama.chamadao_server.config.MPesaConfig;
+import com.chama.chamadao_server.exceptions.WalletAccessDeniedException;
+import com.chama.chamadao_server.models.Chama;
+import com.chama.chamadao_server.models.PayoutRecipient;
+import com.chama.chamadao_server.models.PayoutRun;
+import com.chama.chamadao_server.models.Transaction;
+import com.chama.chamadao_server.models.User;
+import com.chama.chamadao_server.models.dto.PayoutRunDto;
+import com.chama.chamadao_server.models.dto.PayoutRunRequestDto;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaB2CResponse;
+import com.chama.chamadao_server.models.enums.PayoutRecipientStatus;
+import com.chama.chamadao_server.models.enums.PayoutRunStatus;
+import com.chama.chamadao_server.models.enums.TransactionStatus;
+import com.chama.chamadao_server.repository.ChamaRepository;
+import com.chama.chamadao_server.repository.PayoutRecipientRepository;
+import com.chama.chamadao_server.repository.PayoutRunRepository;
+import com.chama.chamadao_server.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.web3j.crypto.Keys;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PayoutServiceTest {
+
+    private static final String CHAMA = "0xc4a3a00000000000000000000000000000000002";
+    private static final String CREATOR = "0xabcdef0000000000000000000000000000000001";
+    private static final String MEMBER = "0xabcdef0000000000000000000000000000000003";
+    private static final String ADMIN = "0xabcdef0000000000000000000000000000000004";
+
+    private final Map<Long, PayoutRun> runs = new TreeMap<>();
+    private final Map<Long, PayoutRecipient> recipients = new TreeMap<>();
+    private final Map<Long, Transaction> withdrawals = new HashMap<>();
+    private final Map<String, Chama> chamas = new HashMap<>();
+    private final List<Runnable> payoutTasks = new ArrayList<>();
+    private final List<String> rateLimited = new ArrayList<>();
+    private final List<Long> submittedWithdrawals = new ArrayList<>();
+    private Runnable onAcquire = () -> {
+    };
+    private boolean payoutWorkersBusy;
+    private boolean breakerOpen;
+    private PayoutService payoutService;
+
+    @BeforeEach
+    public void setup() {
+        MPesaConfig mpesaConfig = new MPesaConfig();
+        mpesaConfig.setBusinessShortCode("600000");
+        mpesaConfig.setPayoutBatchSize(2);
+        mpesaConfig.setPayoutCallbackTimeoutSeconds(600);
+        AuthConfig authConfig = new AuthConfig();
+        authConfig.getAdminWallets().add(ADMIN);
+        AtomicLong transactionIds = new AtomicLong(1000);
+        MpesaService mpesaService = new MpesaService(null, null, null, null, null, null, null, null, null) {
+            @Override
+            public Transaction createPayoutWithdrawal(String walletAddress, String phoneNumber, BigDecimal amount, Long payoutRunId) {
+                Transaction transaction = Transaction.builder().id(transactionIds.incrementAndGet())
+                        .walletAddress(walletAddress).status(TransactionStatus.PENDING).build();
+                withdrawals.put(transaction.getId(), transaction);
+                return transaction;
+            }
+
+            @Override
+            public MpesaB2CResponse submitPayout(Transaction transaction) {
+                submittedWithdrawals.add(transaction.getId());
+                transaction.setConversationId("AG_" + transaction.getId());
+                return new MpesaB2CResponse();
+            }
+        };
+        ShortcodeRateLimiter rateLimiter = new ShortcodeRateLimiter(mpesaConfig) {
+            @Override
+            public void acquire(String shortcode) {
+                rateLimited.add(shortcode);
+                onAcquire.run();
+            }
+        };
+        DarajaResilience darajaResilience = new DarajaResilience(mpesaConfig) {
+            @Override
+            public boolean isAcceptingCalls() {
+                return !breakerOpen;
+            }
+        };
+        TaskExecutor payoutExecutor = task -> {
+            if (payoutWorkersBusy) {
+                throw new TaskRejectedException("Payout workers are busy");
+            }
+            payoutTasks.add(task);
+        };
+        payoutService = new PayoutService(inMemoryRuns(), inMemoryRecipients(), inMemoryChamas(), inMemoryWithdrawals(),
+                mpesaService, rateLimiter, darajaResilience, mpesaConfig, new WalletSessionService(new WalletService(), authConfig),
+                new TransactionTemplate(new NoOpTransactionManager()), Runnable::run, payoutExecutor);
+    }
+
+    @Test
+    public void testPollStartsRunsWithoutExecutingThem() {
+        run(1L, PayoutRunStatus.SCHEDULED);
+        recipient(1L, 1L, PayoutRecipientStatus.PENDING);
+
+        payoutService.processPayoutRuns();
+
+        // The run is started on the scheduler thread and its sends are left to the payout executor
+        assertEquals(PayoutRunStatus.RUNNING, runs.get(1L).getStatus());
+        assertNotNull(runs.get(1L).getStartedAt());
+        assertEquals(PayoutRecipientStatus.PENDING, recipients.get(1L).getStatus());
+        assertEquals(1, payoutTasks.size());
+
+        payoutTasks.remove(0).run();
+        assertEquals(PayoutRecipientStatus.SUBMITTED, recipients.get(1L).getStatus());
+    }
+
+    @Test
+    public void testRunStillExecutingIsNotHandedOutAgain() {
+        run(1L, PayoutRunStatus.RUNNING);
+        recipient(1L, 1L, PayoutRecipientStatus.PENDING);
+
+        payoutService.processPayoutRuns();
+        payoutService.processPayoutRuns();
+        assertEquals(1, payoutTasks.size());
+
+        payoutTasks.remove(0).run();
+        payoutService.processPayoutRuns();
+        assertEquals(1, payoutTasks.size());
+    }
+
+    @Test
+    public void testRunRejectedByBusyWorkersIsPickedUpLater() {
+        run(1L, PayoutRunStatus.SCHEDULED);
+        recipient(1L, 1L, PayoutRecipientStatus.PENDING);
+
+        payoutWorkersBusy = true;
+        payoutService.processPayoutRuns();
+        assertEquals(0, payoutTasks.size());
+
+        payoutWorkersBusy = false;
+        payoutService.processPayoutRuns();
+        assertEquals(1, payoutTasks.size());
+    }
+
+    @Test
+    public void testSubmittedPayoutWithoutACallbackIsParkedAfterTheTimeout() {
+        run(1L, PayoutRunStatus.RUNNING);
+        submitted(1L, 1L, TransactionStatus.PENDING, 5);
+        submitted(2L, 1L, TransactionStatus.PENDING, 15);
+        // The callback arrived just before the deadline passed
+        submitted(3L, 1L, TransactionStatus.COMPLETED, 15);
+
+        execute();
+        assertEquals(PayoutRecipientStatus.SUBMITTED, recipients.get(1L).getStatus());
+        assertEquals(PayoutRecipientStatus.NEEDS_REVIEW, recipients.get(2L).getStatus());
+        assertEquals(PayoutRecipientStatus.COMPLETED, recipients.get(3L).getStatus());
+        assertEquals(PayoutRunStatus.RUNNING, runs.get(1L).getStatus());
+
+        recipients.get(1L).setUpdatedAt(LocalDateTime.now().minusMinutes(15));
+        execute();
+        assertEquals(PayoutRecipientStatus.NEEDS_REVIEW, recipients.get(1L).getStatus());
+        assertEquals(PayoutRunStatus.COMPLETED_WITH_ERRORS, runs.get(1L).getStatus());
+    }
+
+    @Test
+    public void testChecksummedAddressesFindTheChamaAndItsMembers() {
+        chama();
+
+        PayoutRunDto run = payoutService.createPayoutRun(PayoutRunRequestDto.builder()
+                .chamaAddress(Keys.toChecksumAddress(CHAMA))
+                .amountPerRecipientKES(new BigDecimal("250"))
+                .walletAddresses(List.of(Keys.toChecksumAddress(MEMBER), MEMBER))
+                .build(), Keys.toChecksumAddress(CREATOR));
+
+        assertEquals(CHAMA, run.getChamaAddress());
+        assertEquals(1, run.getTotalRecipients());
+        assertEquals(MEMBER, recipients.values().iterator().next().getWalletAddress());
+        assertEquals(1, payoutService.getPayoutRunsByChama(Keys.toChecksumAddress(CHAMA)).size());
+    }
+
+    @Test
+    public void testOnlyTheCreatorOrAnAdminCanStartOrRetryARun() {
+        chama();
+        PayoutRunRequestDto request = PayoutRunRequestDto.builder()
+                .chamaAddress(CHAMA).amountPerRecipientKES(new BigDecimal("250")).build();
+
+        assertThrows(WalletAccessDeniedException.class, () -> payoutService.createPayoutRun(request, MEMBER));
+        PayoutRunDto run = payoutService.createPayoutRun(request, ADMIN);
+        assertEquals(2, run.getTotalRecipients());
+
+        assertThrows(WalletAccessDeniedException.class,
+                () -> payoutService.retryPayoutRun(run.getId(), true, MEMBER));
+        payoutService.retryPayoutRun(run.getId(), true, CREATOR);
+    }
+
+    @Test
+    public void testEachSubmissionTakesARateLimiterSlotInBatches() {
+        run(1L, PayoutRunStatus.RUNNING);
+        for (long id = 1; id <= 5; id++) {
+            recipient(id, 1L, PayoutRecipientStatus.PENDING);
+        }
+
+        execute();
+
+        assertEquals(List.of("600000", "600000", "600000", "600000", "600000"), rateLimited);
+        assertEquals(5, submittedWithdrawals.size());
+        recipients.values().forEach(recipient -> {
+            assertEquals(PayoutRecipientStatus.SUBMITTED, recipient.getStatus());
+            assertNotNull(withdrawals.get(recipient.getTransactionId()));
+        });
+    }
+
+    @Test
+    public void testRecipientClaimedElsewhereIsNotPaidAgain() {
+        run(1L, PayoutRunStatus.RUNNING);
+        recipient(1L, 1L, PayoutRecipientStatus.PENDING);
+        recipient(2L, 1L, PayoutRecipientStatus.PENDING);
+        // Another node claims the second recipient after this batch was loaded
+        onAcquire = () -> recipients.get(2L).setStatus(PayoutRecipientStatus.SUBMITTING);
+
+        execute();
+
+        assertEquals(1, submittedWithdrawals.size());
+        assertEquals(PayoutRecipientStatus.SUBMITTED, recipients.get(1L).getStatus());
+        assertNull(recipients.get(2L).getTransactionId());
+    }
+
+    @Test
+    public void testOpenBreakerLeavesRecipientsPending() {
+        run(1L, PayoutRunStatus.RUNNING);
+        recipient(1L, 1L, PayoutRecipientStatus.PENDING);
+
+        breakerOpen = true;
+        execute();
+        assertEquals(PayoutRecipientStatus.PENDING, recipients.get(1L).getStatus());
+        assertTrue(rateLimited.isEmpty());
+
+        breakerOpen = false;
+        execute();
+        assertEquals(PayoutRecipientStatus.SUBMITTED, recipients.get(1L).getStatus());
+    }
+
+    @Test
+    public void testInterruptedSubmissionIsResolvedFromItsWithdrawal() {
+        run(1L, PayoutRunStatus.RUNNING);
+        submitted(1L, 1L, TransactionStatus.PENDING, 0);
+        submitted(2L, 1L, TransactionStatus.PENDING, 0);
+        withdrawals.get(1L).setConversationId("AG_1");
+        recipients.get(1L).setStatus(PayoutRecipientStatus.SUBMITTING);
+        recipients.get(2L).setStatus(PayoutRecipientStatus.SUBMITTING);
+
+        execute();
+
+        // M-Pesa acknowledged the first; for the second it is unknown whether the money went out
+        assertEquals(PayoutRecipientStatus.SUBMITTED, recipients.get(1L).getStatus());
+        assertEquals(PayoutRecipientStatus.NEEDS_REVIEW, recipients.get(2L).getStatus());
+        assertTrue(submittedWithdrawals.isEmpty());
+    }
+
+    @Test
+    public void testRunCompletesAndARetryOnlyAddsTheNewlyPaidAmount() {
+        chama();
+        run(1L, PayoutRunStatus.RUNNING);
+        recipient(1L, 1L, PayoutRecipientStatus.PENDING);
+        recipient(2L, 1L, PayoutRecipientStatus.PENDING);
+
+        execute();
+        withdrawals.get(recipients.get(1L).getTransactionId()).setStatus(TransactionStatus.COMPLETED);
+        withdrawals.get(recipients.get(2L).getTransactionId()).setStatus(TransactionStatus.FAILED);
+        execute();
+
+        assertEquals(PayoutRunStatus.COMPLETED_WITH_ERRORS, runs.get(1L).getStatus());
+        assertEquals(0, new BigDecimal("100").compareTo(runs.get(1L).getTotalPaidKES()));
+        assertEquals(0, new BigDecimal("100").compareTo(chamas.get(CHAMA).getTotalPayouts().toBigDecimal()));
+
+        // Only the failed recipient is sent again
+        payoutService.retryPayoutRun(1L, false, CREATOR);
+        assertEquals(PayoutRunStatus.RUNNING, runs.get(1L).getStatus());
+        execute();
+        assertEquals(3, submittedWithdrawals.size());
+        withdrawals.get(recipients.get(2L).getTransactionId()).setStatus(TransactionStatus.COMPLETED);
+        execute();
+
+        assertEquals(PayoutRunStatus.COMPLETED, runs.get(1L).getStatus());
+        assertEquals(0, new BigDecimal("200").compareTo(runs.get(1L).getTotalPaidKES()));
+        assertEquals(0, new BigDecimal("200").compareTo(chamas.get(CHAMA).getTotalPayouts().toBigDecimal()));
+    }
+
+    /**
+     * Run one poll and execute the runs it hands out
+     */
+    private void execute() {
+        payoutService.processPayoutRuns();
+        while (!payoutTasks.isEmpty()) {
+            payoutTasks.remove(0).run();
+        }
+    }
+
+    private void submitted(Long id, Long runId, TransactionStatus withdrawalStatus, int minutesAgo) {
+        recipient(id, runId, PayoutRecipientStatus.SUBMITTED);
+        Transaction withdrawal = Transaction.builder().id(id).status(withdrawalStatus).build();
+        withdrawals.put(id, withdrawal);
+        recipients.get(id).setTransactionId(id);
+        recipients.get(id).setUpdatedAt(LocalDateTime.now().minusMinutes(minutesAgo));
+    }
+
+    private void chama() {
+        User creator = User.builder().walletAddress(CREATOR).mobileNumber("254711111111").build();
+        User member = User.builder().walletAddress(MEMBER).mobileNumber("254733333333").build();
+        Chama chama = Chama.builder().chamaAddress(CHAMA).creator(creator).build();
+        chama.getMembers().add(creator);
+        chama.getMembers().add(member);
+        chamas.put(CHAMA, chama);
+    }
+
+    private void run(Long id, PayoutRunStatus status) {
+        runs.put(id, PayoutRun.builder().id(id).chamaAddress(CHAMA).status(status)
+                .amountPerRecipientKES(new BigDecimal("100")).createdAt(LocalDateTime.now()).build());
+    }
+
+    private void recipient(Long id, Long runId, PayoutRecipientStatus status) {
+        recipients.put(id, PayoutRecipient.builder().id(id).payoutRunId(runId)
+                .walletAddress("0x" + String.format("%040d", id)).mobileNumber("254712345678")
+                .amountKES(new BigDecimal("100")).status(status).updatedAt(LocalDateTime.now()).build());
+    }
+
+    /**
+     * Payout run repository over the map, implementing the queries the service uses
+     */
+    @SuppressWarnings("unchecked")
+    private PayoutRunRepository inMemoryRuns() {
+        AtomicLong ids = new AtomicLong(100);
+        return (PayoutRunRepository) Proxy.newProxyInstance(PayoutRunRepository.class.getClassLoader(),
+                new Class<?>[]{PayoutRunRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findByStatusInOrderByIdAsc" -> {
+                            Collection<PayoutRunStatus> statuses = (Collection<PayoutRunStatus>) args[0];
+                            return runs.values().stream().filter(r -> statuses.contains(r.getStatus())).toList();
+                        }
+                        case "findByChamaAddressOrderByCreatedAtDesc" -> {
+                            return runs.values().stream().filter(r -> r.getChamaAddress().equals(args[0])).toList();
+                        }
+                        case "findById" -> {
+                            return Optional.ofNullable(runs.get((Long) args[0]));
+                        }
+                        case "save" -> {
+                            PayoutRun run = (PayoutRun) args[0];
+                            if (run.getId() == null) {
+                                run.setId(ids.incrementAndGet());
+                            }
+                            runs.put(run.getId(), run);
+                            return run;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Payout recipient repository over the map, implementing the queries the service uses
+     */
+    @SuppressWarnings("unchecked")
+    private PayoutRecipientRepository inMemoryRecipients() {
+        AtomicLong ids = new AtomicLong(100);
+        return (PayoutRecipientRepository) Proxy.newProxyInstance(PayoutRecipientRepository.class.getClassLoader(),
+                new Class<?>[]{PayoutRecipientRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findByPayoutRunIdAndStatusOrderByIdAsc" -> {
+                            Pageable pageable = (Pageable) args[2];
+                            return recipients.values().stream()
+                                    .filter(r -> r.getPayoutRunId().equals(args[0]) && r.getStatus() == args[1])
+                                    .limit(pageable.isPaged() ? pageable.getPageSize() : Long.MAX_VALUE)
+                                    .toList();
+                        }
+                        case "findByPayoutRunIdOrderByIdAsc" -> {
+                            return recipients.values().stream()
+                                    .filter(r -> r.getPayoutRunId().equals(args[0])).toList();
+                        }
+                        case "countByPayoutRunIdAndStatusIn" -> {
+                            Collection<PayoutRecipientStatus> statuses = (Collection<PayoutRecipientStatus>) args[1];
+                            return recipients.values().stream()
+                                    .filter(r -> r.getPayoutRunId().equals(args[0]) && statuses.contains(r.getStatus()))
+                                    .count();
+                        }
+                        case "countByStatus" -> {
+                            Map<PayoutRecipientStatus, Long> counts = new TreeMap<>();
+                            recipients.values().stream().filter(r -> r.getPayoutRunId().equals(args[0]))
+                                    .forEach(r -> counts.merge(r.getStatus(), 1L, Long::sum));
+                            return counts.entrySet().stream()
+                                    .map(e -> new Object[]{e.getKey(), e.getValue()}).toList();
+                        }
+                        case "sumAmountByStatus" -> {
+                            return recipients.values().stream()
+                                    .filter(r -> r.getPayoutRunId().equals(args[0]) && r.getStatus() == args[1])
+                                    .map(PayoutRecipient::getAmountKES)
+                                    .reduce(BigDecimal::add).orElse(null);
+                        }
+                        case "transition" -> {
+                            PayoutRecipient recipient = recipients.get((Long) args[0]);
+                            if (recipient.getStatus() != args[1]) {
+                                return 0;
+                            }
+                            recipient.setStatus((PayoutRecipientStatus) args[2]);
+                            recipient.setLastError((String) args[3]);
+                            recipient.setUpdatedAt((LocalDateTime) args[4]);
+                            return 1;
+                        }
+                        case "updateStatusFromTransactions" -> {
+                            int updated = 0;
+                            for (PayoutRecipient recipient : recipients.values()) {
+                                Transaction withdrawal = recipient.getTransactionId() != null
+                                        ? withdrawals.get(recipient.getTransactionId()) : null;
+                                if (recipient.getPayoutRunId().equals(args[0]) && recipient.getStatus() == args[1]
+                                        && withdrawal != null && withdrawal.getStatus() == args[2]) {
+                                    recipient.setStatus((PayoutRecipientStatus) args[3]);
+                                    updated++;
+                                }
+                            }
+                            return updated;
+                        }
+                        case "expireSubmitted" -> {
+                            int expired = 0;
+                            for (PayoutRecipient recipient : recipients.values()) {
+                                Transaction withdrawal = recipient.getTransactionId() != null
+                                        ? withdrawals.get(recipient.getTransactionId()) : null;
+                                if (recipient.getPayoutRunId().equals(args[0])
+                                        && recipient.getStatus() == PayoutRecipientStatus.SUBMITTED
+                                        && recipient.getUpdatedAt().isBefore((LocalDateTime) args[1])
+                                        && withdrawal != null && withdrawal.getStatus() == TransactionStatus.PENDING) {
+                                    recipient.setStatus(PayoutRecipientStatus.NEEDS_REVIEW);
+                                    recipient.setLastError((String) args[2]);
+                                    recipient.setUpdatedAt((LocalDateTime) args[3]);
+                                    expired++;
+                                }
+                            }
+                            return expired;
+                        }
+                        case "requeue" -> {
+                            Collection<PayoutRecipientStatus> statuses = (Collection<PayoutRecipientStatus>) args[1];
+                            int requeued = 0;
+                            for (PayoutRecipient recipient : recipients.values()) {
+                                if (recipient.getPayoutRunId().equals(args[0]) && statuses.contains(recipient.getStatus())) {
+                                    recipient.setStatus(PayoutRecipientStatus.PENDING);
+                                    recipient.setTransactionId(null);
+                                    recipient.setLastError(null);
+                                    requeued++;
+                                }
+                            }
+                            return requeued;
+                        }
+                        case "save" -> {
+                            PayoutRecipient recipient = (PayoutRecipient) args[0];
+                            if (recipient.getId() == null) {
+                                recipient.setId(ids.incrementAndGet());
+                            }
+                            recipients.put(recipient.getId(), recipient);
+                            return recipient;
+                        }
+                        case "saveAll" -> {
+                            List<PayoutRecipient> saved = new ArrayList<>();
+                            for (PayoutRecipient recipient : (Iterable<PayoutRecipient>) args[0]) {
+                                recipient.setId(ids.incrementAndGet());
+                                recipients.put(recipient.getId(), recipient);
+                                saved.add(recipient);
+                            }
+                            return saved;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private ChamaRepository inMemoryChamas() {
+        return (ChamaRepository) Proxy.newProxyInstance(ChamaRepository.class.getClassLoader(),
+                new Class<?>[]{ChamaRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findById" -> {
+                            return Optional.ofNullable(chamas.get((String) args[0]));
+                        }
+                        case "save" -> {
+                            Chama chama = (Chama) args[0];
+                            chamas.put(chama.getChamaAddress(), chama);
+                            return chama;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private TransactionRepository inMemoryWithdrawals() {
+        return (TransactionRepository) Proxy.newProxyInstance(TransactionRepository.class.getClassLoader(),
+                new Class<?>[]{TransactionRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findById")) {
+                        return Optional.ofNullable(withdrawals.get((Long) args[0]));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public org.springframework.transaction.TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(org.springframework.transaction.TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(org.springframework.transaction.TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.models.enums.FiatCurrency;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateTableTest {
+
+    private final RateTable rates = RateTable.parse(Map.of(
+            "KES", new BigDecimal("129.50"),
+            "UGX", new BigDecimal("3700.25"),
+            "TZS", new BigDecimal("2590"),
+            "EUR", new BigDecimal("0.92"),
+            "RWF", BigDecimal.ZERO));
+
+    @Test
+    public void testParsesEveryKnownCurrencyInOnePass() {
+        assertTrue(rates.supports(FiatCurrency.USD));
+        assertTrue(rates.supports(FiatCurrency.KES));
+        assertTrue(rates.supports(FiatCurrency.UGX));
+        assertTrue(rates.supports(FiatCurrency.TZS));
+        assertFalse(rates.supports(FiatCurrency.RWF));
+        assertEquals(4, rates.size());
+        assertEquals(new BigDecimal("129.5"), rates.unitsPerUsd(FiatCurrency.KES));
+        assertEquals(new BigDecimal("2590"), rates.unitsPerUsd(FiatCurrency.TZS));
+    }
+
+    @Test
+    public void testConvertsAnyPairThroughUsd() {
+        assertEquals(new BigDecimal("7.722008"),
+                rates.convert(new BigDecimal("1000"), FiatCurrency.KES, FiatCurrency.USD, 6));
+        assertEquals(new BigDecimal("28573"),
+                rates.convert(new BigDecimal("1000"), FiatCurrency.KES, FiatCurrency.UGX, 0));
+        assertEquals(new BigDecimal("129.50"),
+                rates.convert(new BigDecimal("3700.25"), FiatCurrency.UGX, FiatCurrency.KES, 2));
+    }
+
+    @Test
+    public void testRejectsCurrencyWithoutRate() {
+        assertThrows(IllegalArgumentException.class,
+                () -> rates.convert(BigDecimal.ONE, FiatCurrency.RWF, FiatCurrency.USD, 2));
+    }
+}
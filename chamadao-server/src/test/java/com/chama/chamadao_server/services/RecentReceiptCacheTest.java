@@ -0,0 +1,49 @@
+package com.chama.chamadao_server.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecentReceiptCacheTest {
+
+    @Test
+    public void testRemember_ContainsReceipt() {
+        RecentReceiptCache cache = new RecentReceiptCache(10);
+
+        cache.remember("QJK1234567");
+
+        assertTrue(cache.contains("QJK1234567"));
+        assertFalse(cache.contains("QJK7654321"));
+        assertFalse(cache.contains(null));
+
+        System.out.println("[DEBUG_LOG] Receipt remembered");
+    }
+
+    @Test
+    public void testRemember_EvictsOldestWhenFull() {
+        RecentReceiptCache cache = new RecentReceiptCache(2);
+
+        cache.remember("R1");
+        cache.remember("R2");
+        cache.remember("R1"); // already present, must not take another slot
+        cache.remember("R3");
+
+        assertFalse(cache.contains("R1"));
+        assertTrue(cache.contains("R2"));
+        assertTrue(cache.contains("R3"));
+
+        System.out.println("[DEBUG_LOG] Oldest receipt evicted");
+    }
+
+    @Test
+    public void testRememberAfterCommit_OutsideTransaction() {
+        RecentReceiptCache cache = new RecentReceiptCache(10);
+
+        cache.rememberAfterCommit("QJK1234567");
+
+        assertTrue(cache.contains("QJK1234567"));
+
+        System.out.println("[DEBUG_LOG] Receipt remembered without a transaction");
+    }
+}
@@ -0,0 +1,172 @@
+package com.chama.chamadao_server.services;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RpcRouterTest {
+
+    private StubNode slow;
+    private StubNode fast;
+    private ExecutorService hedgeExecutor;
+    private RpcRouter router;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        slow = new StubNode(80);
+        fast = new StubNode(0);
+        hedgeExecutor = Executors.newCachedThreadPool();
+        router = new RpcRouter(
+                List.of(new RpcEndpoint("slow", slow.service()), new RpcEndpoint("fast", fast.service())),
+                hedgeExecutor, 20, 0.5, 60_000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        slow.stop();
+        fast.stop();
+        hedgeExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testReadsGoToTheFastestNode() throws Exception {
+        Web3j web3j = Web3j.build(router);
+        for (int i = 0; i < 20; i++) {
+            web3j.ethChainId().send();
+        }
+
+        // One request each to measure both nodes, then everything goes to the fast one
+        assertEquals(1, slow.calls("eth_chainId"));
+        assertEquals(19, fast.calls("eth_chainId"));
+    }
+
+    @Test
+    public void testFailsOverFromAnUnreachableNode() throws Exception {
+        slow.failing = true;
+        Web3j web3j = Web3j.build(router);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("0x1", web3j.ethChainId().send().getResult());
+        }
+
+        // The failing node is skipped once its error rate passes the limit
+        RpcRouter.Stats stats = router.getStats();
+        assertEquals(4, stats.failovers());
+        assertEquals(4, stats.endpoints().get(0).errors());
+        assertFalse(stats.endpoints().get(0).healthy());
+    }
+
+    @Test
+    public void testHedgesSlowLatencyCriticalReads() throws Exception {
+        slow.delayMillis = 2000;
+        Web3j web3j = Web3j.build(router);
+
+        long start = System.nanoTime();
+        web3j.ethBlockNumber().send();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Both nodes are unmeasured, so the slow one is asked first and the hedge to the fast one answers
+        assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + "ms");
+        assertEquals(1, router.getStats().hedged());
+        assertEquals(1, router.getStats().endpoints().get(1).hedgeWins());
+    }
+
+    @Test
+    public void testWritesStayOnThePinnedNode() throws Exception {
+        Web3jService pinned = router.pinned("0xwallet");
+        Web3j wallet = Web3j.build(pinned);
+        Web3j reads = Web3j.build(router);
+
+        wallet.ethGetTransactionCount("0xwallet", DefaultBlockParameterName.PENDING).send();
+        for (int i = 0; i < 5; i++) {
+            reads.ethChainId().send();
+            wallet.ethSendRawTransaction("0x00").send();
+        }
+
+        // The fast node is preferred for reads, but the sequence stays on the node it was pinned to
+        assertEquals(1, slow.calls("eth_getTransactionCount"));
+        assertEquals(5, slow.calls("eth_sendRawTransaction"));
+        assertEquals(0, fast.calls("eth_sendRawTransaction"));
+        assertEquals(1, router.getStats().endpoints().get(0).pinnedSequences());
+    }
+
+    /**
+     * Local JSON-RPC node answering every call with 0x1 after a delay
+     */
+    private static class StubNode {
+
+        private static final Pattern METHOD = Pattern.compile("\"method\"\\s*:\\s*\"([^\"]+)\"");
+        private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+        private final HttpServer server;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        private volatile long delayMillis;
+        private volatile boolean failing;
+
+        private StubNode(long delayMillis) throws IOException {
+            this.delayMillis = delayMillis;
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(executor);
+            server.createContext("/", exchange -> {
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                Matcher method = METHOD.matcher(body);
+                Matcher id = ID.matcher(body);
+                if (method.find()) {
+                    calls.computeIfAbsent(method.group(1), key -> new AtomicInteger()).incrementAndGet();
+                }
+                try {
+                    Thread.sleep(this.delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                byte[] response = ("{\"jsonrpc\":\"2.0\",\"id\":" + (id.find() ? id.group(1) : "0")
+                        + ",\"result\":\"0x1\"}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(failing ? 503 : 200, response.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                }
+            });
+            server.start();
+        }
+
+        private HttpService service() {
+            return new HttpService("http://127.0.0.1:" + server.getAddress().getPort());
+        }
+
+        private int calls(String method) {
+            AtomicInteger count = calls.get(method);
+            return count == null ? 0 : count.get();
+        }
+
+        private void stop() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
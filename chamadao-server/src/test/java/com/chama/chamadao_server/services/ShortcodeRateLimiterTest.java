@@ -0,0 +1,53 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.MPesaConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShortcodeRateLimiterTest {
+
+    private MPesaConfig mpesaConfig;
+    private ShortcodeRateLimiter rateLimiter;
+
+    @BeforeEach
+    public void setup() {
+        mpesaConfig = new MPesaConfig();
+        mpesaConfig.setB2cRequestsPerSecond(20);
+        mpesaConfig.getB2cShortcodeRequestsPerSecond().put("600000", 100.0);
+        rateLimiter = new ShortcodeRateLimiter(mpesaConfig);
+    }
+
+    @Test
+    public void testAcquire_SpacesRequestsAtConfiguredRate() throws InterruptedException {
+        long start = System.nanoTime();
+        for (int i = 0; i < 11; i++) {
+            rateLimiter.acquire("174379");
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 11 requests at 20 per second: the first is immediate, the other 10 are 50ms apart
+        assertTrue(elapsedMillis >= 450, "Requests were not spaced out: " + elapsedMillis + "ms");
+
+        System.out.println("[DEBUG_LOG] 11 requests took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    public void testAcquire_BudgetsAreKeptPerShortcode() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.acquire("174379");
+        }
+
+        // A different shortcode has its own budget and is not held up by the first one
+        long start = System.nanoTime();
+        rateLimiter.acquire("600000");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < 50, "Shortcode waited on another shortcode's budget: " + elapsedMillis + "ms");
+
+        System.out.println("[DEBUG_LOG] Second shortcode acquired in " + elapsedMillis + "ms");
+    }
+}
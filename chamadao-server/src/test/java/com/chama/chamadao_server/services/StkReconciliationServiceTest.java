@@ -0,0 +1,233 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.MPesaConfig;
+import com.chama.chamadao_server.models.Transaction;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaStkQueryResponse;
+import com.chama.chamadao_server.models.enums.TransactionStatus;
+import com.chama.chamadao_server.models.enums.TransactionType;
+import com.chama.chamadao_server.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class StkReconciliationServiceTest {
+
+    private final Map<Long, Transaction> deposits = new TreeMap<>();
+    private final Map<String, String> resultCodes = new HashMap<>();
+    private final List<String> queried = new ArrayList<>();
+    private final List<LocalDateTime> pageCursors = new ArrayList<>();
+    private final List<Runnable> queries = new ArrayList<>();
+    private Consumer<String> onQuery = checkoutRequestId -> {
+    };
+    private StkReconciliationService reconciliationService;
+
+    @BeforeEach
+    public void setup() {
+        MPesaConfig mpesaConfig = new MPesaConfig();
+        mpesaConfig.setReconciliationMinAgeSeconds(120);
+        mpesaConfig.setReconciliationBatchSize(2);
+        mpesaConfig.setReconciliationConcurrency(2);
+        mpesaConfig.setReconciliationUnacknowledgedTimeoutSeconds(900);
+        MpesaService mpesaService = new MpesaService(null, null, null, null, null, null, null, null, null) {
+            @Override
+            public MpesaStkQueryResponse queryStkPushStatus(String checkoutRequestId) {
+                queried.add(checkoutRequestId);
+                onQuery.accept(checkoutRequestId);
+                MpesaStkQueryResponse response = new MpesaStkQueryResponse();
+                response.setResultCode(resultCodes.get(checkoutRequestId));
+                response.setResultDesc("Result " + resultCodes.get(checkoutRequestId));
+                return response;
+            }
+
+            // Guarded like the real status update: only a pending deposit is resolved
+            @Override
+            public boolean completeDeposit(Transaction transaction, String receiptNumber) {
+                return resolve(transaction, TransactionStatus.COMPLETED);
+            }
+
+            @Override
+            public boolean failDeposit(Transaction transaction, String reason) {
+                return resolve(transaction, TransactionStatus.FAILED);
+            }
+
+            private boolean resolve(Transaction transaction, TransactionStatus status) {
+                Transaction stored = deposits.get(transaction.getId());
+                if (stored.getStatus() != TransactionStatus.PENDING) {
+                    return false;
+                }
+                stored.setStatus(status);
+                return true;
+            }
+        };
+        reconciliationService = new StkReconciliationService(inMemoryDeposits(), mpesaService, mpesaConfig,
+                new DarajaResilience(mpesaConfig), new TransactionTemplate(new NoOpTransactionManager()), queries::add);
+    }
+
+    @Test
+    public void testPassWalksEveryPageWithAtMostTheConcurrencyInFlight() {
+        for (long id = 1; id <= 5; id++) {
+            deposit(id, 10, "ws_CO_" + id, "0");
+        }
+        // Shares the createdAt of deposit 2, the last row of the first page
+        deposit(6L, 0, "ws_CO_6", "0");
+        deposits.get(6L).setCreatedAt(deposits.get(2L).getCreatedAt());
+
+        reconciliationService.reconcilePendingDeposits();
+        assertEquals(2, queries.size());
+
+        drain();
+
+        assertEquals(List.of("ws_CO_1", "ws_CO_2", "ws_CO_6", "ws_CO_3", "ws_CO_4", "ws_CO_5"), queried);
+        // Each page continues after the last row of the previous one, and a full last page needs one more look
+        assertEquals(4, pageCursors.size());
+        assertEquals(deposits.get(2L).getCreatedAt(), pageCursors.get(1));
+        deposits.values().forEach(deposit -> assertEquals(TransactionStatus.COMPLETED, deposit.getStatus()));
+        assertEquals(6L, reconciliationService.getStats().completed());
+        assertNotNull(reconciliationService.getStats().lastPassAt());
+    }
+
+    @Test
+    public void testNextPassIsSkippedWhileOneIsInFlight() {
+        deposit(1L, 10, "ws_CO_1", "0");
+
+        reconciliationService.reconcilePendingDeposits();
+        reconciliationService.reconcilePendingDeposits();
+        assertEquals(1, queries.size());
+        assertNull(reconciliationService.getStats().lastPassAt());
+
+        drain();
+        assertNotNull(reconciliationService.getStats().lastPassAt());
+
+        // Once the pass has finished the next one starts and picks up a deposit that is pending again
+        deposits.get(1L).setStatus(TransactionStatus.PENDING);
+        reconciliationService.reconcilePendingDeposits();
+        assertEquals(1, queries.size());
+    }
+
+    @Test
+    public void testUnacknowledgedDepositIsFailedOnlyAfterTheTimeout() {
+        deposit(1L, 5, null, null);
+        deposit(2L, 20, null, null);
+
+        reconciliationService.reconcilePendingDeposits();
+        drain();
+
+        assertEquals(TransactionStatus.PENDING, deposits.get(1L).getStatus());
+        assertEquals(TransactionStatus.FAILED, deposits.get(2L).getStatus());
+        assertEquals(List.of(), queried);
+        assertEquals(1L, reconciliationService.getStats().stillPending());
+        assertEquals(1L, reconciliationService.getStats().failed());
+    }
+
+    @Test
+    public void testInProgressDepositStaysPending() {
+        deposit(1L, 10, "ws_CO_1", "4999");
+
+        reconciliationService.reconcilePendingDeposits();
+        drain();
+
+        assertEquals(TransactionStatus.PENDING, deposits.get(1L).getStatus());
+        assertEquals(1L, reconciliationService.getStats().stillPending());
+    }
+
+    @Test
+    public void testCallbackArrivingDuringTheQueryWins() {
+        deposit(1L, 10, "ws_CO_1", "1032");
+        // The success callback is applied while the query, which reports a cancellation, is in flight
+        onQuery = checkoutRequestId -> deposits.get(1L).setStatus(TransactionStatus.COMPLETED);
+
+        reconciliationService.reconcilePendingDeposits();
+        drain();
+
+        assertEquals(TransactionStatus.COMPLETED, deposits.get(1L).getStatus());
+        assertEquals(0L, reconciliationService.getStats().failed());
+        assertEquals(0L, reconciliationService.getStats().completed());
+    }
+
+    private void drain() {
+        while (!queries.isEmpty()) {
+            queries.remove(0).run();
+        }
+    }
+
+    private void deposit(Long id, int minutesAgo, String checkoutRequestId, String resultCode) {
+        deposits.put(id, Transaction.builder()
+                .id(id)
+                .type(TransactionType.DEPOSIT)
+                .status(TransactionStatus.PENDING)
+                .checkoutRequestId(checkoutRequestId)
+                .createdAt(LocalDateTime.now().minusMinutes(minutesAgo).plusSeconds(id))
+                .build());
+        if (checkoutRequestId != null) {
+            resultCodes.put(checkoutRequestId, resultCode);
+        }
+    }
+
+    /**
+     * Transaction repository over the map, implementing the keyset query reconciliation pages with
+     * The backlog statistics are not under test and report nothing.
+     */
+    private TransactionRepository inMemoryDeposits() {
+        return (TransactionRepository) Proxy.newProxyInstance(TransactionRepository.class.getClassLoader(),
+                new Class<?>[]{TransactionRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "countByStatusAndTypeAndCreatedAtLessThanEqual" -> {
+                            return 0L;
+                        }
+                        case "findFirstByStatusAndTypeOrderByCreatedAtAsc" -> {
+                            return Optional.empty();
+                        }
+                        case "findByStatusCreatedBefore" -> {
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                    LocalDateTime createdBefore = (LocalDateTime) args[2];
+                    LocalDateTime afterCreatedAt = (LocalDateTime) args[3];
+                    long afterId = (Long) args[4];
+                    pageCursors.add(afterCreatedAt);
+                    return deposits.values().stream()
+                            .filter(t -> t.getStatus() == args[0] && t.getType() == args[1])
+                            .filter(t -> !t.getCreatedAt().isAfter(createdBefore))
+                            .filter(t -> t.getCreatedAt().isAfter(afterCreatedAt)
+                                    || (t.getCreatedAt().equals(afterCreatedAt) && t.getId() > afterId))
+                            .sorted(Comparator.comparing(Transaction::getCreatedAt).thenComparing(Transaction::getId))
+                            .limit(((Pageable) args[5]).getPageSize())
+                            .toList();
+                });
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public org.springframework.transaction.TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(org.springframework.transaction.TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(org.springframework.transaction.TransactionStatus status) {
+        }
+    }
+}
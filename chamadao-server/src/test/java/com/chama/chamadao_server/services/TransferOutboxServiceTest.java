@@ -0,0 +1,286 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.BlockchainConfig;
+import com.chama.chamadao_server.models.Transaction;
+import com.chama.chamadao_server.models.TransferOutboxEntry;
+import com.chama.chamadao_server.models.enums.OutboxStatus;
+import com.chama.chamadao_server.repository.TransactionRepository;
+import com.chama.chamadao_server.repository.TransferOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.web3j.protocol.exceptions.TransactionException;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.net.ConnectException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TransferOutboxServiceTest {
+
+    private static final String TX_HASH = "0x" + "ab".repeat(32);
+
+    private final Map<Long, TransferOutboxEntry> entries = new TreeMap<>();
+    private final Map<Long, Transaction> deposits = new HashMap<>();
+    private final Map<Long, CompletableFuture<String>> transfers = new HashMap<>();
+    private TransferOutboxService outboxService;
+
+    @BeforeEach
+    public void setup() {
+        BlockchainService blockchainService = new BlockchainService(null, null, null, null, null) {
+            @Override
+            public CompletableFuture<String> transferUsdtToWallet(Transaction transaction) {
+                return transfers.computeIfAbsent(transaction.getId(), id -> new CompletableFuture<>());
+            }
+
+            @Override
+            public boolean hasTransferCapacity() {
+                return true;
+            }
+        };
+        BlockchainConfig blockchainConfig = new BlockchainConfig();
+        blockchainConfig.setOutboxBatchSize(2);
+        blockchainConfig.setOutboxMaxAttempts(3);
+        outboxService = new TransferOutboxService(inMemoryOutbox(), inMemoryDeposits(), blockchainService,
+                blockchainConfig, new TransactionTemplate(new NoOpTransactionManager()));
+    }
+
+    @Test
+    public void testConnectFailureIsRetried() {
+        deposit(1L);
+        fail(1L, new CompletionException(new ConnectException("Connection refused")));
+
+        outboxService.dispatch();
+
+        TransferOutboxEntry entry = entries.get(1L);
+        assertEquals(OutboxStatus.PENDING, entry.getStatus());
+        assertEquals(1, entry.getAttempts());
+        assertEquals("Connection refused", entry.getLastError());
+        assertEquals(1L, outboxService.getStats().retried());
+    }
+
+    @Test
+    public void testTransactionExceptionWithAHashIsRecordedAsSent() {
+        deposit(1L);
+        fail(1L, new CompletionException(new TransactionException("Transaction receipt was not generated", TX_HASH)));
+
+        outboxService.dispatch();
+
+        assertEquals(OutboxStatus.SENT, entries.get(1L).getStatus());
+        assertEquals(TX_HASH, entries.get(1L).getTxHash());
+        assertEquals(TX_HASH, deposits.get(1L).getBlockchainTxHash());
+    }
+
+    @Test
+    public void testAmbiguousFailureIsParkedForReview() {
+        deposit(1L);
+        fail(1L, new CompletionException(new IOException("Read timed out")));
+
+        outboxService.dispatch();
+
+        assertEquals(OutboxStatus.NEEDS_REVIEW, entries.get(1L).getStatus());
+        assertEquals("Read timed out", entries.get(1L).getLastError());
+        assertNull(deposits.get(1L).getBlockchainTxHash());
+    }
+
+    @Test
+    public void testDispatchDoesNotWaitForSendsAndBoundsThoseInFlight() {
+        deposit(1L);
+        deposit(2L);
+        deposit(3L);
+
+        // Nothing is mined yet: two transfers are in flight and the third waits for room
+        outboxService.dispatch();
+        assertEquals(OutboxStatus.SENDING, entries.get(1L).getStatus());
+        assertEquals(OutboxStatus.SENDING, entries.get(2L).getStatus());
+        assertEquals(OutboxStatus.PENDING, entries.get(3L).getStatus());
+
+        transfers.get(1L).complete(TX_HASH);
+        assertEquals(OutboxStatus.SENT, entries.get(1L).getStatus());
+
+        outboxService.dispatch();
+        assertEquals(OutboxStatus.SENDING, entries.get(3L).getStatus());
+    }
+
+    @Test
+    public void testInterruptedSendIsParkedUnlessStillInFlight() {
+        deposit(1L);
+        deposit(2L);
+        outboxService.dispatch();
+        entries.get(1L).setClaimedAt(LocalDateTime.now().minusHours(1));
+
+        // Left SENDING by a process that stopped mid-send
+        entries.put(5L, entry(5L, OutboxStatus.SENDING));
+        entries.get(5L).setClaimedAt(LocalDateTime.now().minusHours(1));
+
+        outboxService.dispatch();
+
+        assertEquals(OutboxStatus.SENDING, entries.get(1L).getStatus());
+        assertEquals(OutboxStatus.NEEDS_REVIEW, entries.get(5L).getStatus());
+    }
+
+    @Test
+    public void testRequeueLeavesReviewUnlessAsked() {
+        entries.put(1L, entry(1L, OutboxStatus.FAILED));
+        entries.put(2L, entry(2L, OutboxStatus.NEEDS_REVIEW));
+
+        assertEquals(1, outboxService.requeue(false));
+        assertEquals(OutboxStatus.PENDING, entries.get(1L).getStatus());
+        assertEquals(OutboxStatus.NEEDS_REVIEW, entries.get(2L).getStatus());
+
+        assertEquals(1, outboxService.requeue(true));
+        assertEquals(OutboxStatus.PENDING, entries.get(2L).getStatus());
+    }
+
+    @Test
+    public void testEnqueueJoinsTheDepositTransaction() throws Exception {
+        Transactional transactional = TransferOutboxService.class.getMethod("enqueue", Transaction.class)
+                .getAnnotation(Transactional.class);
+        assertEquals(Propagation.MANDATORY, transactional.propagation());
+
+        TransferOutboxEntry entry = outboxService.enqueue(Transaction.builder().id(7L)
+                .walletAddress("0x1111111111111111111111111111111111111111")
+                .amountUSDT(new BigDecimal("12.500000")).build());
+        assertEquals(OutboxStatus.PENDING, entry.getStatus());
+        assertEquals(Long.valueOf(7), entry.getTransactionId());
+        assertEquals(0, entry.getAttempts());
+    }
+
+    private void deposit(Long id) {
+        deposits.put(id, Transaction.builder().id(id).amountUSDT(BigDecimal.ONE).build());
+        entries.put(id, entry(id, OutboxStatus.PENDING));
+    }
+
+    private void fail(Long depositId, Throwable error) {
+        transfers.put(depositId, CompletableFuture.failedFuture(error));
+    }
+
+    private static TransferOutboxEntry entry(Long id, OutboxStatus status) {
+        LocalDateTime now = LocalDateTime.now().minusSeconds(1);
+        return TransferOutboxEntry.builder()
+                .id(id)
+                .transactionId(id)
+                .status(status)
+                .attempts(0)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build();
+    }
+
+    /**
+     * Outbox repository over the map, implementing the queries the dispatcher uses
+     */
+    @SuppressWarnings("unchecked")
+    private TransferOutboxRepository inMemoryOutbox() {
+        AtomicLong ids = new AtomicLong(100);
+        return (TransferOutboxRepository) Proxy.newProxyInstance(TransferOutboxRepository.class.getClassLoader(),
+                new Class<?>[]{TransferOutboxRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findDue" -> {
+                            return entries.values().stream()
+                                    .filter(e -> e.getStatus() == args[0] && !e.getNextAttemptAt().isAfter((LocalDateTime) args[1]))
+                                    .limit(((Pageable) args[2]).getPageSize())
+                                    .toList();
+                        }
+                        case "findByStatusAndClaimedAtBeforeOrderByIdAsc" -> {
+                            return entries.values().stream()
+                                    .filter(e -> e.getStatus() == args[0] && e.getClaimedAt().isBefore((LocalDateTime) args[1]))
+                                    .toList();
+                        }
+                        case "claim" -> {
+                            TransferOutboxEntry entry = entries.get((Long) args[0]);
+                            if (entry.getStatus() != OutboxStatus.PENDING) {
+                                return 0;
+                            }
+                            entry.setStatus(OutboxStatus.SENDING);
+                            entry.setClaimedAt((LocalDateTime) args[1]);
+                            entry.setAttempts(entry.getAttempts() + 1);
+                            return 1;
+                        }
+                        case "requeue" -> {
+                            Collection<OutboxStatus> statuses = (Collection<OutboxStatus>) args[0];
+                            int requeued = 0;
+                            for (TransferOutboxEntry entry : entries.values()) {
+                                if (statuses.contains(entry.getStatus())) {
+                                    entry.setStatus(OutboxStatus.PENDING);
+                                    entry.setAttempts(0);
+                                    entry.setNextAttemptAt((LocalDateTime) args[1]);
+                                    requeued++;
+                                }
+                            }
+                            return requeued;
+                        }
+                        case "findById" -> {
+                            return Optional.ofNullable(entries.get((Long) args[0]));
+                        }
+                        case "save" -> {
+                            TransferOutboxEntry entry = (TransferOutboxEntry) args[0];
+                            if (entry.getId() == null) {
+                                entry.setId(ids.incrementAndGet());
+                            }
+                            entries.put(entry.getId(), entry);
+                            return entry;
+                        }
+                        case "findFirstByStatusOrderByCreatedAtAsc" -> {
+                            return entries.values().stream().filter(e -> e.getStatus() == args[0]).findFirst();
+                        }
+                        case "countByStatus" -> {
+                            return entries.values().stream().filter(e -> e.getStatus() == args[0]).count();
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private TransactionRepository inMemoryDeposits() {
+        return (TransactionRepository) Proxy.newProxyInstance(TransactionRepository.class.getClassLoader(),
+                new Class<?>[]{TransactionRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findById" -> {
+                            return Optional.ofNullable(deposits.get((Long) args[0]));
+                        }
+                        case "save" -> {
+                            Transaction transaction = (Transaction) args[0];
+                            deposits.put(transaction.getId(), transaction);
+                            return transaction;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
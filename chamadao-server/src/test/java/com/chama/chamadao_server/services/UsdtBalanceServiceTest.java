@@ -0,0 +1,113 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.BlockchainConfig;
+import com.chama.chamadao_server.models.dto.WalletBalanceDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class UsdtBalanceServiceTest {
+
+    private static final String ALICE = "0x1111111111111111111111111111111111111111";
+    private static final String BOB = "0x2222222222222222222222222222222222222222";
+
+    private final Map<String, BigDecimal> chainBalances = new HashMap<>();
+    private final List<List<String>> balanceCalls = new ArrayList<>();
+    private BigDecimal rate = new BigDecimal("130.00");
+    private UsdtBalanceService balanceService;
+
+    @BeforeEach
+    public void setup() {
+        chainBalances.put(ALICE, new BigDecimal("10.000000"));
+        chainBalances.put(BOB, new BigDecimal("2.500000"));
+
+        BlockchainService blockchainService = new BlockchainService(null, null, null, null, null) {
+            @Override
+            public BigInteger getBlockNumber() {
+                return BigInteger.valueOf(100);
+            }
+
+            @Override
+            public Map<String, BigDecimal> getUsdtBalances(List<String> walletAddresses, long blockNumber) {
+                balanceCalls.add(walletAddresses);
+                Map<String, BigDecimal> balances = new HashMap<>();
+                walletAddresses.forEach(address -> balances.put(address, chainBalances.get(address)));
+                return balances;
+            }
+        };
+        CurrencyConversionService currencyConversionService = new CurrencyConversionService(null, null) {
+            @Override
+            public BigDecimal getExchangeRate() {
+                return rate;
+            }
+        };
+        AddressWatcher addressWatcher = new AddressWatcher(null, null, null, new BlockchainConfig()) {
+            @Override
+            public boolean contains(String address) {
+                return true;
+            }
+        };
+        balanceService = new UsdtBalanceService(blockchainService, currencyConversionService, new BlockchainConfig(),
+                null, addressWatcher);
+        balanceService.onBlocksIndexed(new UsdtTransferIndexer.BlocksIndexed(90, 100, Set.of()));
+    }
+
+    @Test
+    public void testReadsMissingBalancesInOneBatch() throws Exception {
+        List<WalletBalanceDto> balances = balanceService.getBalances(List.of(ALICE, BOB, ALICE));
+
+        assertEquals(2, balances.size());
+        assertEquals(new BigDecimal("1300.00"), balances.get(0).getBalanceKES());
+        assertEquals(new BigDecimal("325.00"), balances.get(1).getBalanceKES());
+        assertEquals(List.of(List.of(ALICE, BOB)), balanceCalls);
+    }
+
+    @Test
+    public void testBalanceStaysCachedUntilATransferTouchesTheWallet() throws Exception {
+        balanceService.getBalances(List.of(ALICE, BOB));
+
+        // New blocks without transfers for either wallet keep both cached
+        balanceService.onBlocksIndexed(new UsdtTransferIndexer.BlocksIndexed(101, 110, Set.of("0x9999999999999999999999999999999999999999")));
+        balanceService.getBalances(List.of(ALICE, BOB));
+        assertEquals(1, balanceCalls.size());
+
+        chainBalances.put(BOB, new BigDecimal("3.000000"));
+        balanceService.onBlocksIndexed(new UsdtTransferIndexer.BlocksIndexed(111, 120, Set.of(BOB)));
+        List<WalletBalanceDto> balances = balanceService.getBalances(List.of(ALICE, BOB));
+
+        assertEquals(List.of(BOB), balanceCalls.get(1));
+        assertEquals(new BigDecimal("3.000000"), balances.get(1).getBalanceUSDT());
+        assertEquals(120, balances.get(1).getBlockNumber());
+    }
+
+    @Test
+    public void testRateChangeReconvertsWithoutReadingTheChain() throws Exception {
+        balanceService.getBalance(ALICE);
+
+        rate = new BigDecimal("129.00");
+        WalletBalanceDto balance = balanceService.getBalance(ALICE);
+
+        assertEquals(new BigDecimal("1290.00"), balance.getBalanceKES());
+        assertEquals(1, balanceCalls.size());
+        assertEquals(2, balanceService.getStats().conversions());
+    }
+
+    @Test
+    public void testReorgClearsTheCache() throws Exception {
+        balanceService.getBalance(ALICE);
+
+        balanceService.onIndexRewound(new UsdtTransferIndexer.IndexRewound(95));
+        balanceService.getBalance(ALICE);
+
+        assertEquals(2, balanceCalls.size());
+    }
+}
@@ -0,0 +1,264 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.BlockchainConfig;
+import com.chama.chamadao_server.models.IndexerCheckpoint;
+import com.chama.chamadao_server.models.UsdtTransfer;
+import com.chama.chamadao_server.repository.IndexerCheckpointRepository;
+import com.chama.chamadao_server.repository.UsdtTransferRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UsdtTransferIndexerTest {
+
+    private static final String ALICE = "0x1111111111111111111111111111111111111111";
+    private static final String STRANGER = "0x9999999999999999999999999999999999999999";
+
+    private final Map<Long, String> chainHashes = new HashMap<>();
+    private final List<Log> chainLogs = new ArrayList<>();
+    private final List<long[]> logRequests = new ArrayList<>();
+    private final List<UsdtTransfer> stored = new ArrayList<>();
+    private final List<Object> events = new ArrayList<>();
+    private final BlockchainConfig blockchainConfig = new BlockchainConfig();
+    private IndexerCheckpoint checkpoint;
+    private long head = 125;
+    private long failLogsFrom = -1;
+    private UsdtTransferIndexer indexer;
+
+    @BeforeEach
+    public void setup() {
+        for (long block = 0; block <= 200; block++) {
+            chainHashes.put(block, hash(block, "a"));
+        }
+        blockchainConfig.setIndexerChunkSize(10);
+        blockchainConfig.setIndexerReorgDepth(5);
+
+        BlockchainService blockchainService = new BlockchainService(null, null, null, null, null) {
+            @Override
+            public BigInteger getBlockNumber() {
+                return BigInteger.valueOf(head);
+            }
+
+            @Override
+            public String getBlockHash(long blockNumber) {
+                return chainHashes.get(blockNumber);
+            }
+
+            @Override
+            public List<Log> getUsdtTransferLogs(long fromBlock, long toBlock) throws IOException {
+                logRequests.add(new long[]{fromBlock, toBlock});
+                if (fromBlock == failLogsFrom) {
+                    throw new IOException("Read timed out");
+                }
+                return chainLogs.stream()
+                        .filter(log -> log.getBlockNumber().longValueExact() >= fromBlock
+                                && log.getBlockNumber().longValueExact() <= toBlock)
+                        .toList();
+            }
+        };
+        AddressWatcher addressWatcher = new AddressWatcher(null, null, null, new BlockchainConfig()) {
+            @Override
+            public boolean isWatched(String address) {
+                return address.toLowerCase().endsWith(ALICE.substring(2));
+            }
+        };
+        indexer = new UsdtTransferIndexer(blockchainService, blockchainConfig, inMemoryTransfers(), inMemoryCheckpoints(),
+                addressWatcher, new TransactionTemplate(new NoOpTransactionManager()), events::add);
+    }
+
+    @Test
+    public void testResumesFromTheCheckpointInChunks() {
+        checkpoint = checkpoint(100, hash(100, "a"));
+
+        indexer.indexNewBlocks();
+
+        assertEquals(List.of("101-110", "111-120", "121-125"), logRequests.stream().map(r -> r[0] + "-" + r[1]).toList());
+        assertEquals(125, checkpoint.getBlockNumber());
+        assertEquals(hash(125, "a"), checkpoint.getBlockHash());
+        assertEquals(3, events.size());
+    }
+
+    @Test
+    public void testStoresOnlyTransfersOfWatchedWallets() {
+        checkpoint = checkpoint(100, hash(100, "a"));
+        chainLogs.add(transferLog(105, 0, ALICE, STRANGER));
+        chainLogs.add(transferLog(106, 0, STRANGER, STRANGER));
+
+        indexer.indexNewBlocks();
+
+        assertEquals(1, stored.size());
+        assertEquals(ALICE, stored.get(0).getFromAddress().toString());
+        assertEquals(new UsdtTransferIndexer.BlocksIndexed(101, 110, Set.of(ALICE)), events.get(0));
+        assertEquals(2L, indexer.getStats().logsScanned());
+    }
+
+    @Test
+    public void testFirstPassFollowsTheHead() {
+        indexer.indexNewBlocks();
+
+        assertEquals(125, checkpoint.getBlockNumber());
+        assertTrue(logRequests.isEmpty());
+    }
+
+    @Test
+    public void testFailedChunkKeepsEarlierChunksAndIsRetried() {
+        checkpoint = checkpoint(100, hash(100, "a"));
+        failLogsFrom = 111;
+
+        indexer.indexNewBlocks();
+        assertEquals(110, checkpoint.getBlockNumber());
+
+        failLogsFrom = -1;
+        logRequests.clear();
+        indexer.indexNewBlocks();
+        assertEquals(List.of("111-120", "121-125"), logRequests.stream().map(r -> r[0] + "-" + r[1]).toList());
+        assertEquals(125, checkpoint.getBlockNumber());
+    }
+
+    @Test
+    public void testChangedCheckpointHashRewindsAndReindexes() {
+        checkpoint = checkpoint(120, hash(120, "a"));
+        stored.add(UsdtTransferIndexer.decode(transferLog(114, 0, ALICE, STRANGER)));
+        stored.add(UsdtTransferIndexer.decode(transferLog(118, 0, ALICE, STRANGER)));
+
+        // Blocks from 117 were replaced by a fork on which Alice's transfer landed in block 119
+        for (long block = 117; block <= 200; block++) {
+            chainHashes.put(block, hash(block, "b"));
+        }
+        chainLogs.add(transferLog(119, 0, ALICE, STRANGER));
+
+        indexer.indexNewBlocks();
+
+        assertEquals(new UsdtTransferIndexer.IndexRewound(115), events.get(0));
+        assertEquals(List.of("116-125"), logRequests.stream().map(r -> r[0] + "-" + r[1]).toList());
+        assertEquals(List.of(114L, 119L), stored.stream().map(UsdtTransfer::getBlockNumber).toList());
+        assertEquals(125, checkpoint.getBlockNumber());
+        assertEquals(hash(125, "b"), checkpoint.getBlockHash());
+        assertEquals(1L, indexer.getStats().reorgs());
+    }
+
+    @Test
+    public void testDecodesTransferLog() {
+        Log log = new Log();
+        log.setTransactionHash("0x" + "ab".repeat(32));
+        log.setLogIndex("0x5");
+        log.setBlockNumber("0x10");
+        log.setBlockHash("0x" + "cd".repeat(32));
+        log.setTopics(List.of(
+                BlockchainService.TRANSFER_EVENT_TOPIC,
+                "0x000000000000000000000000AbCdEf0123456789abcdef0123456789ABCDEF01",
+                "0x0000000000000000000000001234567890123456789012345678901234567890"));
+        // 7.5 USDT in 6-decimal base units
+        log.setData("0x00000000000000000000000000000000000000000000000000000000007270e0");
+
+        UsdtTransfer transfer = UsdtTransferIndexer.decode(log);
+
+        assertEquals(5, transfer.getLogIndex());
+        assertEquals(16, transfer.getBlockNumber());
+        assertEquals("0xabcdef0123456789abcdef0123456789abcdef01", transfer.getFromAddress().toString());
+        assertEquals("0x1234567890123456789012345678901234567890", transfer.getToAddress().toString());
+        assertEquals(new BigDecimal("7.500000"), transfer.getAmountUSDT());
+    }
+
+    @Test
+    public void testTransferTopicIsTheErc20EventSignature() {
+        assertEquals("0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef",
+                BlockchainService.TRANSFER_EVENT_TOPIC);
+    }
+
+    private static String hash(long block, String fork) {
+        return "0x" + fork.repeat(48) + String.format("%016x", block);
+    }
+
+    private static IndexerCheckpoint checkpoint(long blockNumber, String blockHash) {
+        return IndexerCheckpoint.builder()
+                .name(UsdtTransferIndexer.CHECKPOINT_NAME)
+                .blockNumber(blockNumber)
+                .blockHash(blockHash)
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static Log transferLog(long block, int logIndex, String from, String to) {
+        Log log = new Log();
+        log.setTransactionHash(hash(block * 100 + logIndex, "c"));
+        log.setLogIndex("0x" + Integer.toHexString(logIndex));
+        log.setBlockNumber("0x" + Long.toHexString(block));
+        log.setBlockHash(hash(block, "a"));
+        log.setTopics(List.of(BlockchainService.TRANSFER_EVENT_TOPIC,
+                "0x000000000000000000000000" + from.substring(2),
+                "0x000000000000000000000000" + to.substring(2)));
+        log.setData("0x" + "0".repeat(58) + "0f4240");
+        return log;
+    }
+
+    private UsdtTransferRepository inMemoryTransfers() {
+        return (UsdtTransferRepository) Proxy.newProxyInstance(UsdtTransferRepository.class.getClassLoader(),
+                new Class<?>[]{UsdtTransferRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "saveAll" -> {
+                            ((Iterable<?>) args[0]).forEach(transfer -> stored.add((UsdtTransfer) transfer));
+                            return args[0];
+                        }
+                        case "deleteByBlockNumberGreaterThan" -> {
+                            int before = stored.size();
+                            stored.removeIf(transfer -> transfer.getBlockNumber() > (long) args[0]);
+                            return before - stored.size();
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private IndexerCheckpointRepository inMemoryCheckpoints() {
+        return (IndexerCheckpointRepository) Proxy.newProxyInstance(IndexerCheckpointRepository.class.getClassLoader(),
+                new Class<?>[]{IndexerCheckpointRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findById" -> {
+                            return Optional.ofNullable(checkpoint);
+                        }
+                        case "save" -> {
+                            checkpoint = (IndexerCheckpoint) args[0];
+                            return checkpoint;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.chama.chamadao_server.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WalletAddressMigrationTest {
+
+    private static final String ALICE = "0xAbCdEf0000000000000000000000000000000001";
+    private static final String CHAMA = "0xC4A3A00000000000000000000000000000000002";
+
+    private JdbcTemplate jdbcTemplate;
+    private WalletAddressMigration migration;
+
+    @BeforeEach
+    public void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:migration-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // The address tables as Hibernate creates them, with the foreign keys that prevent updating a key in place
+        jdbcTemplate.execute("CREATE TABLE users (wallet_address VARCHAR(42) PRIMARY KEY, name VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE chamas (chama_address VARCHAR(255) PRIMARY KEY, name VARCHAR(255), "
+                + "creator_address VARCHAR(42) REFERENCES users (wallet_address))");
+        jdbcTemplate.execute("CREATE TABLE chama_members (chama_address VARCHAR(255) NOT NULL REFERENCES chamas (chama_address), "
+                + "wallet_address VARCHAR(42) NOT NULL REFERENCES users (wallet_address), "
+                + "PRIMARY KEY (chama_address, wallet_address))");
+        jdbcTemplate.execute("CREATE TABLE loans (id BIGINT PRIMARY KEY, chama_address VARCHAR(255) REFERENCES chamas (chama_address), "
+                + "borrower_wallet_address VARCHAR(42) REFERENCES users (wallet_address))");
+        jdbcTemplate.execute("CREATE TABLE loan_guarantors (id BIGINT PRIMARY KEY, "
+                + "guarantor_wallet_address VARCHAR(42) REFERENCES users (wallet_address))");
+        jdbcTemplate.execute("CREATE TABLE kyc_documents (id BIGINT PRIMARY KEY, "
+                + "wallet_address VARCHAR(42) REFERENCES users (wallet_address))");
+        jdbcTemplate.execute("CREATE TABLE transactions (id BIGINT PRIMARY KEY, wallet_address VARCHAR(255))");
+
+        migration = new WalletAddressMigration(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+
+    @Test
+    public void testMovesMixedCaseKeysAndTheirReferences() {
+        jdbcTemplate.update("INSERT INTO users VALUES (?, 'Alice')", ALICE);
+        jdbcTemplate.update("INSERT INTO chamas VALUES (?, 'Savings', ?)", CHAMA, ALICE);
+        jdbcTemplate.update("INSERT INTO chama_members VALUES (?, ?)", CHAMA, ALICE);
+        jdbcTemplate.update("INSERT INTO loans VALUES (1, ?, ?)", CHAMA, ALICE);
+        jdbcTemplate.update("INSERT INTO loan_guarantors VALUES (1, ?)", ALICE);
+        jdbcTemplate.update("INSERT INTO kyc_documents VALUES (1, ?)", ALICE);
+        jdbcTemplate.update("INSERT INTO transactions VALUES (1, ?)", ALICE);
+
+        migration.migrate();
+
+        String alice = ALICE.toLowerCase();
+        String chama = CHAMA.toLowerCase();
+        assertEquals(List.of(alice), column("SELECT wallet_address FROM users"));
+        assertEquals("Alice", jdbcTemplate.queryForObject("SELECT name FROM users", String.class));
+        assertEquals(List.of(chama), column("SELECT chama_address FROM chamas"));
+        assertEquals(List.of(alice), column("SELECT creator_address FROM chamas"));
+        assertEquals(List.of(chama + alice), column("SELECT chama_address || wallet_address FROM chama_members"));
+        assertEquals(List.of(chama + alice), column("SELECT chama_address || borrower_wallet_address FROM loans"));
+        assertEquals(List.of(alice), column("SELECT guarantor_wallet_address FROM loan_guarantors"));
+        assertEquals(List.of(alice), column("SELECT wallet_address FROM kyc_documents"));
+        assertEquals(List.of(alice), column("SELECT wallet_address FROM transactions"));
+    }
+
+    @Test
+    public void testAddressTakenInLowerCaseIsLeftForAManualMerge() {
+        jdbcTemplate.update("INSERT INTO users VALUES (?, 'Checksummed')", ALICE);
+        jdbcTemplate.update("INSERT INTO users VALUES (?, 'Lower case')", ALICE.toLowerCase());
+        jdbcTemplate.update("INSERT INTO kyc_documents VALUES (1, ?)", ALICE);
+
+        migration.migrate();
+
+        assertEquals(2, column("SELECT wallet_address FROM users").size());
+        assertEquals(List.of(ALICE), column("SELECT wallet_address FROM kyc_documents"));
+    }
+
+    @Test
+    public void testSecondRunChangesNothing() {
+        jdbcTemplate.update("INSERT INTO users VALUES (?, 'Alice')", ALICE);
+        migration.migrate();
+
+        migration.migrate();
+
+        assertEquals(List.of(ALICE.toLowerCase()), column("SELECT wallet_address FROM users"));
+    }
+
+    @Test
+    public void testCaseInsensitiveKeyIsLeftAsStored() {
+        jdbcTemplate.execute("DROP TABLE chama_members, loans, loan_guarantors, kyc_documents, chamas, users");
+        jdbcTemplate.execute("CREATE TABLE users (wallet_address VARCHAR_IGNORECASE(42) PRIMARY KEY, name VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE chamas (chama_address VARCHAR_IGNORECASE(255) PRIMARY KEY, name VARCHAR(255), "
+                + "creator_address VARCHAR_IGNORECASE(42) REFERENCES users (wallet_address))");
+        jdbcTemplate.update("INSERT INTO users VALUES (?, 'Alice')", ALICE);
+        jdbcTemplate.update("INSERT INTO chamas VALUES (?, 'Savings', ?)", CHAMA, ALICE);
+        jdbcTemplate.update("INSERT INTO transactions VALUES (1, ?)", ALICE);
+
+        migration.migrate();
+
+        assertEquals(List.of(ALICE), column("SELECT wallet_address FROM users"));
+        assertEquals(List.of(CHAMA), column("SELECT chama_address FROM chamas"));
+        assertEquals(List.of(ALICE.toLowerCase()), column("SELECT wallet_address FROM transactions"));
+    }
+
+    private List<String> column(String sql) {
+        return jdbcTemplate.queryForList(sql, String.class);
+    }
+}
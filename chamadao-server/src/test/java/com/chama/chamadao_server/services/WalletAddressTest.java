@@ -0,0 +1,66 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.converters.WalletAddressConverter;
+import com.chama.chamadao_server.models.WalletAddress;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WalletAddressTest {
+
+    // EIP-55 test vector
+    private static final String CHECKSUMMED = "0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAed";
+
+    @Test
+    public void testValidatesFormat() {
+        assertTrue(WalletAddress.isValid("0x1234567890123456789012345678901234567890"));
+        assertTrue(WalletAddress.isValid(CHECKSUMMED));
+        assertFalse(WalletAddress.isValid(null));
+        assertFalse(WalletAddress.isValid("1234567890123456789012345678901234567890"));
+        assertFalse(WalletAddress.isValid("0x123456789012345678901234567890123456789"));
+        assertFalse(WalletAddress.isValid("0x123456789012345678901234567890123456789g"));
+    }
+
+    @Test
+    public void testVerifiesChecksumOnlyForMixedCase() {
+        assertTrue(WalletAddress.hasValidChecksum(CHECKSUMMED));
+        assertTrue(WalletAddress.hasValidChecksum(CHECKSUMMED.toLowerCase()));
+        assertTrue(WalletAddress.hasValidChecksum("0x" + CHECKSUMMED.substring(2).toUpperCase()));
+        assertFalse(WalletAddress.hasValidChecksum(CHECKSUMMED.replace("aA", "Aa")));
+        assertThrows(IllegalArgumentException.class, () -> WalletAddress.parseChecksummed(CHECKSUMMED.replace("aA", "Aa")));
+    }
+
+    @Test
+    public void testCanonicalFormIsLowerCase() {
+        WalletAddress address = WalletAddress.parse(CHECKSUMMED);
+
+        assertEquals(CHECKSUMMED.toLowerCase(), address.toString());
+        assertEquals(CHECKSUMMED, address.toChecksumString());
+        assertEquals(address, WalletAddress.parse(CHECKSUMMED.toLowerCase()));
+        assertEquals(CHECKSUMMED.toLowerCase(), WalletAddress.normalize(CHECKSUMMED));
+        assertEquals("not-an-address", WalletAddress.normalize("not-an-address"));
+    }
+
+    @Test
+    public void testReadsAddressFromTopic() {
+        WalletAddress address = WalletAddress.fromTopic("0x000000000000000000000000" + CHECKSUMMED.substring(2));
+
+        assertEquals(WalletAddress.parse(CHECKSUMMED), address);
+    }
+
+    @Test
+    public void testConverterRoundTripsTwentyBytes() {
+        WalletAddressConverter converter = new WalletAddressConverter();
+        WalletAddress address = WalletAddress.parse(CHECKSUMMED);
+
+        byte[] column = converter.convertToDatabaseColumn(address);
+
+        assertEquals(WalletAddress.LENGTH, column.length);
+        assertArrayEquals(address.toBytes(), column);
+        assertEquals(address, converter.convertToEntityAttribute(column));
+    }
+}
@@ -0,0 +1,122 @@
+package com.chama.chamadao_server.services;
+
+import com.chama.chamadao_server.config.AuthConfig;
+import com.chama.chamadao_server.exceptions.AuthenticationFailedException;
+import com.chama.chamadao_server.exceptions.TooManyRequestsException;
+import com.chama.chamadao_server.models.dto.WalletChallengeDto;
+import com.chama.chamadao_server.models.dto.WalletSessionDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WalletSessionServiceTest {
+
+    private static final String CLIENT = "203.0.113.7";
+
+    private final ECKeyPair keyPair = ECKeyPair.create(BigInteger.valueOf(0xC4A3A));
+    private final String walletAddress = Keys.toChecksumAddress(Keys.getAddress(keyPair));
+    private final AuthConfig authConfig = new AuthConfig();
+    private WalletSessionService walletSessionService;
+
+    @BeforeEach
+    public void setup() {
+        walletSessionService = new WalletSessionService(new WalletService(), authConfig);
+    }
+
+    @Test
+    public void testSignedChallengeOpensASession() {
+        WalletChallengeDto challenge = walletSessionService.issueChallenge(walletAddress, CLIENT);
+
+        WalletSessionDto session = walletSessionService.login(walletAddress, challenge.getNonce(), sign(challenge.getMessage(), keyPair));
+
+        assertEquals(walletAddress.toLowerCase(), session.getWalletAddress());
+        assertEquals(Optional.of(walletAddress.toLowerCase()), walletSessionService.authenticate(session.getToken()));
+        assertEquals(Optional.of(walletAddress.toLowerCase()), walletSessionService.authenticate(session.getToken()));
+        assertEquals(2, walletSessionService.getStats().sessionHits());
+    }
+
+    @Test
+    public void testSignatureFromAnotherKeyIsRejected() {
+        WalletChallengeDto challenge = walletSessionService.issueChallenge(walletAddress, CLIENT);
+        ECKeyPair otherKey = ECKeyPair.create(BigInteger.valueOf(0xBAD));
+
+        assertThrows(AuthenticationFailedException.class,
+                () -> walletSessionService.login(walletAddress, challenge.getNonce(), sign(challenge.getMessage(), otherKey)));
+        assertEquals(1, walletSessionService.getStats().failedLogins());
+    }
+
+    @Test
+    public void testChallengeCannotBeReplayed() {
+        WalletChallengeDto challenge = walletSessionService.issueChallenge(walletAddress, CLIENT);
+        String signature = sign(challenge.getMessage(), keyPair);
+        walletSessionService.login(walletAddress, challenge.getNonce(), signature);
+
+        assertThrows(AuthenticationFailedException.class, () -> walletSessionService.login(walletAddress, challenge.getNonce(), signature));
+    }
+
+    @Test
+    public void testExpiredChallengeAndSessionAreRejected() {
+        authConfig.setChallengeTtlSeconds(0);
+        WalletChallengeDto challenge = walletSessionService.issueChallenge(walletAddress, CLIENT);
+        assertThrows(AuthenticationFailedException.class,
+                () -> walletSessionService.login(walletAddress, challenge.getNonce(), sign(challenge.getMessage(), keyPair)));
+
+        authConfig.setChallengeTtlSeconds(300);
+        authConfig.setSessionTtlSeconds(0);
+        WalletChallengeDto next = walletSessionService.issueChallenge(walletAddress, CLIENT);
+        WalletSessionDto session = walletSessionService.login(walletAddress, next.getNonce(), sign(next.getMessage(), keyPair));
+
+        assertEquals(Optional.empty(), walletSessionService.authenticate(session.getToken()));
+        assertEquals(0, walletSessionService.getStats().activeSessions());
+    }
+
+    @Test
+    public void testAnotherClientsChallengeDoesNotReplaceThePendingOne() {
+        WalletChallengeDto challenge = walletSessionService.issueChallenge(walletAddress, CLIENT);
+        WalletChallengeDto attackersChallenge = walletSessionService.issueChallenge(walletAddress, "198.51.100.9");
+        assertEquals(2, walletSessionService.getStats().pendingChallenges());
+
+        WalletSessionDto session = walletSessionService.login(walletAddress, challenge.getNonce(),
+                sign(challenge.getMessage(), keyPair));
+        assertEquals(walletAddress.toLowerCase(), session.getWalletAddress());
+
+        // A signature is only accepted with the nonce of the challenge it signed
+        assertThrows(AuthenticationFailedException.class, () -> walletSessionService.login(walletAddress,
+                attackersChallenge.getNonce(), sign(challenge.getMessage(), keyPair)));
+    }
+
+    @Test
+    public void testChallengeIssuanceIsRateLimitedPerClient() {
+        authConfig.setChallengesPerClient(2);
+        walletSessionService.issueChallenge(walletAddress, CLIENT);
+        walletSessionService.issueChallenge(walletAddress, CLIENT);
+
+        TooManyRequestsException throttled = assertThrows(TooManyRequestsException.class,
+                () -> walletSessionService.issueChallenge(walletAddress, CLIENT));
+        assertTrue(throttled.getRetryAfterSeconds() > 0);
+
+        // Other clients keep getting challenges
+        walletSessionService.issueChallenge(walletAddress, "198.51.100.9");
+        assertEquals(1, walletSessionService.getStats().challengesThrottled());
+    }
+
+    private static String sign(String message, ECKeyPair keyPair) {
+        Sign.SignatureData signature = Sign.signPrefixedMessage(message.getBytes(StandardCharsets.UTF_8), keyPair);
+        byte[] bytes = new byte[65];
+        System.arraycopy(signature.getR(), 0, bytes, 0, 32);
+        System.arraycopy(signature.getS(), 0, bytes, 32, 32);
+        bytes[64] = signature.getV()[0];
+        return Numeric.toHexString(bytes);
+    }
+}
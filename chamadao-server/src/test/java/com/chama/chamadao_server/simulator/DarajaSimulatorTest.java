@@ -0,0 +1,189 @@
+package com.chama.chamadao_server.simulator;
+
+import com.chama.chamadao_server.config.MPesaConfig;
+import com.chama.chamadao_server.models.dto.mpesa.AccessTokenResponse;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaB2CCallback;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaB2CRequest;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaB2CResponse;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaStkCallback;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaStkPushRequest;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaStkPushResponse;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaStkQueryRequest;
+import com.chama.chamadao_server.models.dto.mpesa.MpesaStkQueryResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DarajaSimulatorTest {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OkHttpClient client = new OkHttpClient();
+    private final BlockingQueue<String> callbacks = new LinkedBlockingQueue<>();
+
+    private DarajaSimulator.Settings settings;
+    private DarajaSimulator simulator;
+    private HttpServer callbackReceiver;
+    private MPesaConfig mpesaConfig;
+    private String callbackUrl;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        callbackReceiver = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        callbackReceiver.createContext("/callback", exchange -> {
+            callbacks.add(new String(exchange.getRequestBody().readAllBytes()));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        callbackReceiver.start();
+        callbackUrl = "http://127.0.0.1:" + callbackReceiver.getAddress().getPort() + "/callback";
+
+        settings = new DarajaSimulator.Settings();
+        settings.setLatencyMs(0);
+        settings.setCallbackDelayMs(10);
+        simulator = new DarajaSimulator(settings);
+        simulator.start(0);
+
+        mpesaConfig = new MPesaConfig();
+        simulator.applyTo(mpesaConfig);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        simulator.stop();
+        callbackReceiver.stop(0);
+    }
+
+    @Test
+    public void testStkPush_DeliversCallbackAndAnswersQuery() throws Exception {
+        String token = fetchToken();
+
+        MpesaStkPushResponse pushResponse = post(mpesaConfig.getStkPushUrl(), token, MpesaStkPushRequest.builder()
+                .amount("1000")
+                .phoneNumber("254712345678")
+                .callBackURL(callbackUrl)
+                .build(), MpesaStkPushResponse.class);
+        assertEquals("0", pushResponse.getResponseCode());
+        assertNotNull(pushResponse.getCheckoutRequestID());
+
+        String payload = callbacks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(payload, "No STK callback delivered");
+        MpesaStkCallback callback = objectMapper.readValue(payload, MpesaStkCallback.class);
+        assertEquals(pushResponse.getCheckoutRequestID(), callback.getBody().getStkCallback().getCheckoutRequestID());
+        assertEquals(0, callback.getBody().getStkCallback().getResultCode());
+        assertNotNull(callback.getReceiptNumber());
+
+        MpesaStkQueryResponse queryResponse = post(mpesaConfig.getQueryUrl(), token, MpesaStkQueryRequest.builder()
+                .checkoutRequestID(pushResponse.getCheckoutRequestID())
+                .build(), MpesaStkQueryResponse.class);
+        assertEquals("0", queryResponse.getResultCode());
+
+        System.out.println("[DEBUG_LOG] STK callback: " + payload);
+    }
+
+    @Test
+    public void testStkPush_LostCallbackStillVisibleToQuery() throws Exception {
+        settings.setCallbackLossRate(1);
+        settings.setPaymentFailureRate(1);
+        String token = fetchToken();
+
+        MpesaStkPushResponse pushResponse = post(mpesaConfig.getStkPushUrl(), token, MpesaStkPushRequest.builder()
+                .amount("1000")
+                .callBackURL(callbackUrl)
+                .build(), MpesaStkPushResponse.class);
+
+        assertNull(callbacks.poll(300, TimeUnit.MILLISECONDS), "Callback should have been dropped");
+        MpesaStkQueryResponse queryResponse = post(mpesaConfig.getQueryUrl(), token, MpesaStkQueryRequest.builder()
+                .checkoutRequestID(pushResponse.getCheckoutRequestID())
+                .build(), MpesaStkQueryResponse.class);
+        assertEquals("1032", queryResponse.getResultCode());
+        assertEquals(1, simulator.getStats().callbacksDropped());
+
+        System.out.println("[DEBUG_LOG] Query after lost callback: " + queryResponse);
+    }
+
+    @Test
+    public void testB2C_DeliversResultToResultUrl() throws Exception {
+        String token = fetchToken();
+
+        MpesaB2CResponse b2cResponse = post(mpesaConfig.getB2cUrl(), token, MpesaB2CRequest.builder()
+                .amount("500")
+                .partyB("254712345678")
+                .resultURL(callbackUrl)
+                .build(), MpesaB2CResponse.class);
+        assertEquals("0", b2cResponse.getResponseCode());
+
+        String payload = callbacks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(payload, "No B2C result delivered");
+        MpesaB2CCallback callback = objectMapper.readValue(payload, MpesaB2CCallback.class);
+        assertEquals(b2cResponse.getConversationID(), callback.getResult().getConversationID());
+        assertNotNull(callback.getTransactionReceipt());
+
+        System.out.println("[DEBUG_LOG] B2C result: " + payload);
+    }
+
+    @Test
+    public void testRequestWithoutToken_Rejected() throws Exception {
+        Request request = new Request.Builder()
+                .url(mpesaConfig.getStkPushUrl())
+                .post(RequestBody.create("{}", JSON))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(401, response.code());
+        }
+
+        System.out.println("[DEBUG_LOG] Request without token rejected");
+    }
+
+    @Test
+    public void testErrorRate_InjectsServerErrors() throws Exception {
+        settings.setErrorRate(1);
+
+        Request request = new Request.Builder().url(mpesaConfig.getAccessTokenUrl()).get().build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(500, response.code());
+        }
+        assertTrue(simulator.getStats().injectedErrors() > 0);
+
+        System.out.println("[DEBUG_LOG] Injected error returned");
+    }
+
+    private String fetchToken() throws IOException {
+        Request request = new Request.Builder().url(mpesaConfig.getAccessTokenUrl()).get().build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(200, response.code());
+            return objectMapper.readValue(response.body().string(), AccessTokenResponse.class).getAccess_token();
+        }
+    }
+
+    private <T> T post(String url, String token, Object body, Class<T> responseType) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(objectMapper.writeValueAsString(body), JSON))
+                .addHeader("Authorization", "Bearer " + token)
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(200, response.code());
+            return objectMapper.readValue(response.body().string(), responseType);
+        }
+    }
+}
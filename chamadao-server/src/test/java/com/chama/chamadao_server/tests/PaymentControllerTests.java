@@ -74,7 +74,7 @@ public class PaymentControllerTests {
         // Verify
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals("Callback processed successfully", response.getBody());
+        assertEquals("Callback received", response.getBody());
         
         System.out.println("[DEBUG_LOG] STK callback response: " + response.getBody());
     }
@@ -93,7 +93,7 @@ public class PaymentControllerTests {
         // Verify
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals("Callback processed successfully", response.getBody());
+        assertEquals("Callback received", response.getBody());
         
         System.out.println("[DEBUG_LOG] B2C callback response: " + response.getBody());
     }
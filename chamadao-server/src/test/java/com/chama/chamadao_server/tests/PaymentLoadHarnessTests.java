@@ -0,0 +1,195 @@
+package com.chama.chamadao_server.tests;
+
+import com.chama.chamadao_server.models.dto.PaymentStatusDto;
+import com.chama.chamadao_server.models.dto.WalletChallengeDto;
+import com.chama.chamadao_server.models.dto.WalletLoginDto;
+import com.chama.chamadao_server.models.dto.WalletSessionDto;
+import com.chama.chamadao_server.models.enums.TransactionStatus;
+import com.chama.chamadao_server.services.BlockchainService;
+import com.chama.chamadao_server.services.CurrencyConversionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Load harness for the deposit flow against the local Daraja simulator
+ * Drives concurrent deposits through initiate -> STK push -> callback -> COMPLETED and reports latency
+ * percentiles and throughput. Only runs when asked for:
+ * <pre>
+ * mvn test -Dtest=PaymentLoadHarnessTests -Dloadtest=true -Dloadtest.deposits=1000 -Dloadtest.concurrency=50
+ * </pre>
+ * Simulator behaviour can be changed with the daraja-sim.* properties, e.g. -Ddaraja-sim.latency-ms=300.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "mpesa.inbox-poll-interval-ms=50",
+        "mpesa.request-queue-capacity=10000"
+})
+@ActiveProfiles("daraja-sim")
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class PaymentLoadHarnessTests {
+
+    private static final long POLL_INTERVAL_MS = 20;
+    private static final long DEPOSIT_TIMEOUT_MS = 60_000;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    // Keep the harness on M-Pesa: no exchange-rate API calls and no blockchain transfers
+    @MockitoBean
+    private CurrencyConversionService currencyConversionService;
+
+    @MockitoBean
+    private BlockchainService blockchainService;
+
+    // Test key for the depositing wallet, which signs in like a real client before depositing
+    private final ECKeyPair keyPair = ECKeyPair.create(BigInteger.valueOf(0x10AD));
+    private final String validWalletAddress = Keys.toChecksumAddress(Keys.getAddress(keyPair));
+    private final String validPhoneNumber = "+254712345678";
+    private HttpHeaders sessionHeaders;
+
+    @BeforeEach
+    public void setup() {
+        when(currencyConversionService.convertToUsdtAt(any(), any(BigDecimal.class), any()))
+                .thenReturn(new CurrencyConversionService.Conversion(new BigDecimal("7.50"), null));
+        when(blockchainService.transferUsdtToWallet(any()))
+                .thenReturn(CompletableFuture.completedFuture("0x" + "0".repeat(64)));
+        sessionHeaders = signIn();
+    }
+
+    @Test
+    public void testConcurrentDeposits() throws Exception {
+        int deposits = Integer.getInteger("loadtest.deposits", 200);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 20);
+
+        // Warm up connections, the token cache and the JIT before measuring
+        runDeposit();
+
+        ExecutorService drivers = Executors.newFixedThreadPool(concurrency);
+        List<Future<Result>> futures = new ArrayList<>(deposits);
+        long start = System.nanoTime();
+        for (int i = 0; i < deposits; i++) {
+            futures.add(drivers.submit(this::runDeposit));
+        }
+
+        List<Long> latencies = new ArrayList<>(deposits);
+        int completed = 0;
+        for (Future<Result> future : futures) {
+            Result result = future.get();
+            if (result.status() == TransactionStatus.COMPLETED) {
+                completed++;
+                latencies.add(result.latencyMillis());
+            }
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        drivers.shutdown();
+
+        Collections.sort(latencies);
+        System.out.println("[DEBUG_LOG] Deposits: " + deposits + ", concurrency: " + concurrency
+                + ", completed: " + completed);
+        System.out.println("[DEBUG_LOG] Initiate -> COMPLETED latency p50: " + percentile(latencies, 50)
+                + "ms, p99: " + percentile(latencies, 99) + "ms, max: "
+                + (latencies.isEmpty() ? 0 : latencies.get(latencies.size() - 1)) + "ms");
+        System.out.println("[DEBUG_LOG] Throughput: "
+                + String.format("%.1f", completed * 1000.0 / Math.max(1, elapsedMillis)) + " deposits/s over "
+                + elapsedMillis + "ms");
+
+        assertEquals(deposits, completed);
+    }
+
+    /**
+     * Initiate one deposit and poll its status until it leaves PENDING
+     * Latency is measured with a resolution of the poll interval.
+     * @return The final status and the time it took to reach it
+     */
+    private Result runDeposit() throws InterruptedException {
+        long start = System.nanoTime();
+        ResponseEntity<PaymentStatusDto> accepted = restTemplate.postForEntity(
+                "/api/v1/payments/deposit/async?walletAddress=" + validWalletAddress +
+                        "&phoneNumber=" + validPhoneNumber +
+                        "&amount=1000",
+                new HttpEntity<>(sessionHeaders),
+                PaymentStatusDto.class);
+        if (accepted.getStatusCode() != HttpStatus.ACCEPTED || accepted.getBody() == null) {
+            return new Result(null, 0);
+        }
+
+        Long id = accepted.getBody().getId();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(DEPOSIT_TIMEOUT_MS);
+        while (System.nanoTime() < deadline) {
+            PaymentStatusDto status = restTemplate.getForObject("/api/v1/payments/" + id, PaymentStatusDto.class);
+            if (status != null && status.getStatus() != TransactionStatus.PENDING) {
+                return new Result(status.getStatus(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+        return new Result(TransactionStatus.PENDING, DEPOSIT_TIMEOUT_MS);
+    }
+
+    /**
+     * Sign in with the test key: request a challenge, sign it and exchange it for a session
+     * @return Headers carrying the session token
+     */
+    private HttpHeaders signIn() {
+        WalletChallengeDto challenge = restTemplate.postForObject(
+                "/api/v1/auth/challenge?walletAddress=" + validWalletAddress, null, WalletChallengeDto.class);
+        WalletLoginDto login = WalletLoginDto.builder()
+                .walletAddress(validWalletAddress)
+                .nonce(challenge.getNonce())
+                .signature(sign(challenge.getMessage()))
+                .build();
+        WalletSessionDto session = restTemplate.postForObject("/api/v1/auth/session", login, WalletSessionDto.class);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(session.getToken());
+        return headers;
+    }
+
+    private String sign(String message) {
+        Sign.SignatureData signature = Sign.signPrefixedMessage(message.getBytes(StandardCharsets.UTF_8), keyPair);
+        byte[] bytes = new byte[65];
+        System.arraycopy(signature.getR(), 0, bytes, 0, 32);
+        System.arraycopy(signature.getS(), 0, bytes, 32, 32);
+        bytes[64] = signature.getV()[0];
+        return Numeric.toHexString(bytes);
+    }
+
+    private long percentile(List<Long> sortedLatencies, int percentile) {
+        if (sortedLatencies.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.size()) - 1;
+        return sortedLatencies.get(Math.max(0, index));
+    }
+
+    private record Result(TransactionStatus status, long latencyMillis) {
+    }
+}